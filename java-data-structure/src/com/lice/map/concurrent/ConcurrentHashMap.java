@@ -0,0 +1,790 @@
+package com.lice.map.concurrent;
+
+import com.lice.map.AbstractMap;
+import com.lice.map.Map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * description: ConcurrentHashMap 线程安全的HashMap <br>
+ * date: 2026/10/18 14:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 参考java.util.concurrent.ConcurrentHashMap的实现：
+ * 1、读操作不加锁，table和Node.val、Node.next都是volatile读
+ * 2、写操作：桶为空时CAS放入第一个节点；桶不为空时synchronized锁住桶的第一个节点
+ * 3、计数：先CAS baseCount，失败后分散到CounterCell数组(与LongAdder相同的思路)，size()时求和
+ * 4、扩容：sizeCtl为负数时表示正在扩容，低16位记录参与扩容的线程数+1；
+ *   每个线程通过transferIndex领取一段桶(stride)迁移，迁移完的桶放ForwardingNode，
+ *   put/remove遇到ForwardingNode时先协助扩容
+ * 5、table使用AtomicReferenceArray，代替Unsafe对数组元素的volatile读写和CAS
+ * 6、key和value都不能为null；没有实现红黑树，碰撞严重的key请使用com.lice.map.hashMap.HashMap
+ */
+public class ConcurrentHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V>, Serializable {
+
+    private static final long serialVersionUID = -6126374015467428593L;
+
+    //最大容量
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    //默认初始化的空间大小
+    private static final int DEFAULT_CAPACITY = 16;
+
+    //每个线程一次领取的最少桶数
+    private static final int MIN_TRANSFER_STRIDE = 16;
+
+    //sizeCtl中记录扩容标识的位数
+    private static final int RESIZE_STAMP_BITS = 16;
+
+    //参与扩容的最大线程数
+    private static final int MAX_RESIZERS = (1 << (32 - RESIZE_STAMP_BITS)) - 1;
+
+    private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
+
+    //ForwardingNode的hash
+    static final int MOVED = -1;
+
+    //普通节点hash的可用位
+    static final int HASH_BITS = 0x7fffffff;
+
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    //ConcurrentHashMap.class是原始类型，转换成ConcurrentHashMap<?, ?>供下面的字段更新器使用
+    @SuppressWarnings("unchecked")
+    private static final Class<ConcurrentHashMap<?, ?>> MAP_CLASS =
+            (Class<ConcurrentHashMap<?, ?>>) (Class<?>) ConcurrentHashMap.class;
+
+    private static final AtomicIntegerFieldUpdater<ConcurrentHashMap<?, ?>> SIZECTL =
+            AtomicIntegerFieldUpdater.newUpdater(MAP_CLASS, "sizeCtl");
+
+    private static final AtomicIntegerFieldUpdater<ConcurrentHashMap<?, ?>> TRANSFERINDEX =
+            AtomicIntegerFieldUpdater.newUpdater(MAP_CLASS, "transferIndex");
+
+    private static final AtomicIntegerFieldUpdater<ConcurrentHashMap<?, ?>> CELLSBUSY =
+            AtomicIntegerFieldUpdater.newUpdater(MAP_CLASS, "cellsBusy");
+
+    private static final AtomicLongFieldUpdater<ConcurrentHashMap<?, ?>> BASECOUNT =
+            AtomicLongFieldUpdater.newUpdater(MAP_CLASS, "baseCount");
+
+    private static final AtomicLongFieldUpdater<CounterCell> CELLVALUE =
+            AtomicLongFieldUpdater.newUpdater(CounterCell.class, "value");
+
+    //每个线程的CounterCell下标探针，发生竞争时更换
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> {
+        int h = ThreadLocalRandom.current().nextInt();
+        return new int[]{h == 0 ? 1 : h};
+    });
+
+    //桶数组，长度总是2的幂，第一次put时初始化
+    private transient volatile AtomicReferenceArray<Node<K, V>> table;
+
+    //扩容时的新数组，只在扩容期间不为null
+    private transient volatile AtomicReferenceArray<Node<K, V>> nextTable;
+
+    //没有竞争时的计数
+    private transient volatile long baseCount;
+
+    /*
+     * -1：正在初始化table
+     * 其他负数：正在扩容
+     * table为null时：初始容量，0表示默认容量
+     * table初始化后：下一次扩容的阈值
+     */
+    private transient volatile int sizeCtl;
+
+    //扩容时下一个待领取区间的上界(不包含)
+    private transient volatile int transferIndex;
+
+    //创建或者扩容counterCells时使用的自旋锁
+    private transient volatile int cellsBusy;
+
+    private transient volatile CounterCell[] counterCells;
+
+    public ConcurrentHashMap() {
+    }
+
+    public ConcurrentHashMap(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException();
+        this.sizeCtl = (initialCapacity >= (MAXIMUM_CAPACITY >>> 1)) ? MAXIMUM_CAPACITY :
+                tableSizeFor(initialCapacity + (initialCapacity >>> 1) + 1);
+    }
+
+    //高16位参与运算，并且保证是非负数(负数hash留给特殊节点)
+    static final int spread(int h) {
+        return (h ^ (h >>> 16)) & HASH_BITS;
+    }
+
+    static final int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    //扩容标识，左移RESIZE_STAMP_SHIFT位后是负数
+    static final int resizeStamp(int n) {
+        return Integer.numberOfLeadingZeros(n) | (1 << (RESIZE_STAMP_BITS - 1));
+    }
+
+    /* ---------------- 查询操作 -------------- */
+
+    public int size() {
+        long n = sumCount();
+        return ((n < 0L) ? 0 : (n > (long) Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) n);
+    }
+
+    public boolean isEmpty() {
+        return sumCount() <= 0L;
+    }
+
+    public V get(Object key) {
+        AtomicReferenceArray<Node<K, V>> tab;
+        Node<K, V> e, p;
+        int n, eh;
+        K ek;
+        int h = spread(key.hashCode());
+        if ((tab = table) != null && (n = tab.length()) > 0 &&
+                (e = tab.get((n - 1) & h)) != null) {
+            if ((eh = e.hash) == h) {
+                if ((ek = e.key) == key || (ek != null && key.equals(ek)))
+                    return e.val;
+            } else if (eh < 0)
+                //桶已经迁移，到新数组中查找
+                return (p = e.find(h, key)) != null ? p.val : null;
+            while ((e = e.next) != null) {
+                if (e.hash == h &&
+                        ((ek = e.key) == key || (ek != null && key.equals(ek))))
+                    return e.val;
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (tab != null) {
+            AtomicReferenceArray<Node<K, V>> next = null;
+            for (int i = 0; i < tab.length(); i++) {
+                for (Node<K, V> e = tab.get(i); e != null; e = e.next) {
+                    if (e instanceof ForwardingNode) {
+                        //正在扩容，迁移过的桶到新数组中查找
+                        next = ((ForwardingNode<K, V>) e).nextTable;
+                        break;
+                    }
+                    V v = e.val;
+                    if (v == value || value.equals(v))
+                        return true;
+                }
+            }
+            tab = next;
+        }
+        return false;
+    }
+
+    /* ---------------- 修改操作 -------------- */
+
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    private V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int hash = spread(key.hashCode());
+        int binCount = 0;
+        for (AtomicReferenceArray<Node<K, V>> tab = table; ; ) {
+            Node<K, V> f;
+            int n, i, fh;
+            if (tab == null || (n = tab.length()) == 0)
+                tab = initTable();
+            else if ((f = tab.get(i = (n - 1) & hash)) == null) {
+                //空桶直接CAS，不加锁
+                if (tab.compareAndSet(i, null, new Node<>(hash, key, value, null)))
+                    break;
+            } else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                V oldVal = null;
+                synchronized (f) {
+                    //加锁后桶的第一个节点没有变化才继续，否则重新循环
+                    if (tab.get(i) == f) {
+                        binCount = 1;
+                        for (Node<K, V> e = f; ; ++binCount) {
+                            K ek;
+                            if (e.hash == hash &&
+                                    ((ek = e.key) == key || (ek != null && key.equals(ek)))) {
+                                oldVal = e.val;
+                                if (!onlyIfAbsent)
+                                    e.val = value;
+                                break;
+                            }
+                            Node<K, V> pred = e;
+                            if ((e = e.next) == null) {
+                                pred.next = new Node<>(hash, key, value, null);
+                                break;
+                            }
+                        }
+                    }
+                }
+                if (binCount != 0) {
+                    if (oldVal != null)
+                        return oldVal;
+                    break;
+                }
+            }
+        }
+        addCount(1L, binCount);
+        return null;
+    }
+
+    public V remove(Object key) {
+        int hash = spread(key.hashCode());
+        for (AtomicReferenceArray<Node<K, V>> tab = table; ; ) {
+            Node<K, V> f;
+            int n, i, fh;
+            if (tab == null || (n = tab.length()) == 0 ||
+                    (f = tab.get(i = (n - 1) & hash)) == null)
+                return null;
+            else if ((fh = f.hash) == MOVED)
+                tab = helpTransfer(tab, f);
+            else {
+                V oldVal = null;
+                boolean validated = false;
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        validated = true;
+                        for (Node<K, V> e = f, pred = null; ; ) {
+                            K ek;
+                            if (e.hash == hash &&
+                                    ((ek = e.key) == key || (ek != null && key.equals(ek)))) {
+                                oldVal = e.val;
+                                if (pred != null)
+                                    pred.next = e.next;
+                                else
+                                    tab.set(i, e.next);
+                                break;
+                            }
+                            pred = e;
+                            if ((e = e.next) == null)
+                                break;
+                        }
+                    }
+                }
+                if (validated) {
+                    if (oldVal != null)
+                        addCount(-1L, -1);
+                    return oldVal;
+                }
+            }
+        }
+    }
+
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if (m == null || m.entrySet() == null)
+            return;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            putVal(e.getKey(), e.getValue(), false);
+    }
+
+    //逐个桶加锁清空，遇到正在迁移的桶先协助扩容
+    public void clear() {
+        long delta = 0L;
+        int i = 0;
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (tab != null && i < tab.length()) {
+            int fh;
+            Node<K, V> f = tab.get(i);
+            if (f == null)
+                ++i;
+            else if ((fh = f.hash) == MOVED) {
+                tab = helpTransfer(tab, f);
+                i = 0;
+            } else {
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        for (Node<K, V> p = f; p != null; p = p.next)
+                            --delta;
+                        tab.set(i++, null);
+                    }
+                }
+            }
+        }
+        if (delta != 0L)
+            addCount(delta, -1);
+    }
+
+    /* ---------------- 序列化 -------------- */
+
+    //所有字段都是transient，依次写出每个键值对，最后写两个null作为结束标记
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        if (tab != null) {
+            for (int i = 0; i < tab.length(); i++)
+                writeBin(s, tab, i);
+        }
+        s.writeObject(null);
+        s.writeObject(null);
+    }
+
+    //桶已经迁移时，写出新数组中由它拆分出的两个桶i和i + n
+    private static <K, V> void writeBin(ObjectOutputStream s, AtomicReferenceArray<Node<K, V>> tab, int i)
+            throws IOException {
+        for (Node<K, V> e = tab.get(i); e != null; e = e.next) {
+            if (e instanceof ForwardingNode) {
+                AtomicReferenceArray<Node<K, V>> nextTab = ((ForwardingNode<K, V>) e).nextTable;
+                writeBin(s, nextTab, i);
+                writeBin(s, nextTab, i + tab.length());
+                return;
+            }
+            s.writeObject(e.key);
+            s.writeObject(e.val);
+        }
+    }
+
+    //读到null为止，逐个重新插入，hash按当前JVM重新计算
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        for (; ; ) {
+            @SuppressWarnings("unchecked")
+            K key = (K) s.readObject();
+            @SuppressWarnings("unchecked")
+            V value = (V) s.readObject();
+            if (key == null || value == null)
+                break;
+            putVal(key, value, false);
+        }
+    }
+
+    /* ---------------- 初始化和扩容 -------------- */
+
+    private AtomicReferenceArray<Node<K, V>> initTable() {
+        AtomicReferenceArray<Node<K, V>> tab;
+        int sc;
+        while ((tab = table) == null || tab.length() == 0) {
+            if ((sc = sizeCtl) < 0)
+                //其他线程正在初始化
+                Thread.yield();
+            else if (SIZECTL.compareAndSet(this, sc, -1)) {
+                try {
+                    if ((tab = table) == null || tab.length() == 0) {
+                        int n = (sc > 0) ? sc : DEFAULT_CAPACITY;
+                        table = tab = new AtomicReferenceArray<>(n);
+                        //阈值是容量的0.75
+                        sc = n - (n >>> 2);
+                    }
+                } finally {
+                    sizeCtl = sc;
+                }
+                break;
+            }
+        }
+        return tab;
+    }
+
+    /*
+     * 计数加x，check >= 0时检查是否需要扩容；
+     * check <= 1时只有在没有竞争的情况下才检查，减少竞争激烈时sumCount的开销
+     */
+    private void addCount(long x, int check) {
+        CounterCell[] as;
+        long b, s;
+        if ((as = counterCells) != null ||
+                !BASECOUNT.compareAndSet(this, b = baseCount, s = b + x)) {
+            CounterCell a;
+            long v;
+            int m;
+            boolean uncontended = true;
+            if (as == null || (m = as.length - 1) < 0 ||
+                    (a = as[probe() & m]) == null ||
+                    !(uncontended = CELLVALUE.compareAndSet(a, v = a.value, v + x))) {
+                fullAddCount(x, uncontended);
+                return;
+            }
+            if (check <= 1)
+                return;
+            s = sumCount();
+        }
+        if (check >= 0) {
+            AtomicReferenceArray<Node<K, V>> tab, nt;
+            int n, sc;
+            while (s >= (long) (sc = sizeCtl) && (tab = table) != null &&
+                    (n = tab.length()) < MAXIMUM_CAPACITY) {
+                int rs = resizeStamp(n);
+                if (sc < 0) {
+                    //扩容已经结束，或者扩容线程数已满，或者没有可领取的区间
+                    if ((sc >>> RESIZE_STAMP_SHIFT) != rs || sc == rs + 1 ||
+                            sc == rs + MAX_RESIZERS || (nt = nextTable) == null ||
+                            transferIndex <= 0)
+                        break;
+                    if (SIZECTL.compareAndSet(this, sc, sc + 1))
+                        transfer(tab, nt);
+                } else if (SIZECTL.compareAndSet(this, sc, (rs << RESIZE_STAMP_SHIFT) + 2))
+                    //第一个扩容的线程
+                    transfer(tab, null);
+                s = sumCount();
+            }
+        }
+    }
+
+    //遇到ForwardingNode时协助扩容，返回新数组
+    private AtomicReferenceArray<Node<K, V>> helpTransfer(AtomicReferenceArray<Node<K, V>> tab, Node<K, V> f) {
+        AtomicReferenceArray<Node<K, V>> nextTab;
+        int sc;
+        if (tab != null && (f instanceof ForwardingNode) &&
+                (nextTab = ((ForwardingNode<K, V>) f).nextTable) != null) {
+            int rs = resizeStamp(tab.length());
+            while (nextTab == nextTable && table == tab && (sc = sizeCtl) < 0) {
+                if ((sc >>> RESIZE_STAMP_SHIFT) != rs || sc == rs + 1 ||
+                        sc == rs + MAX_RESIZERS || transferIndex <= 0)
+                    break;
+                if (SIZECTL.compareAndSet(this, sc, sc + 1)) {
+                    transfer(tab, nextTab);
+                    break;
+                }
+            }
+            return nextTab;
+        }
+        return table;
+    }
+
+    //把tab中的节点迁移到nextTab，多个线程各自领取区间，从数组尾部往前迁移
+    private void transfer(AtomicReferenceArray<Node<K, V>> tab, AtomicReferenceArray<Node<K, V>> nextTab) {
+        int n = tab.length(), stride;
+        if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)
+            stride = MIN_TRANSFER_STRIDE;
+        if (nextTab == null) {
+            try {
+                nextTab = new AtomicReferenceArray<>(n << 1);
+            } catch (Throwable ex) {
+                //内存不足，不再扩容
+                sizeCtl = Integer.MAX_VALUE;
+                return;
+            }
+            nextTable = nextTab;
+            transferIndex = n;
+        }
+        int nextn = nextTab.length();
+        ForwardingNode<K, V> fwd = new ForwardingNode<>(nextTab);
+        boolean advance = true;
+        //提交新数组前再扫描一遍，确认所有桶都已迁移
+        boolean finishing = false;
+        for (int i = 0, bound = 0; ; ) {
+            Node<K, V> f;
+            int fh;
+            //领取下一个桶，当前区间处理完时领取新区间
+            while (advance) {
+                int nextIndex, nextBound;
+                if (--i >= bound || finishing)
+                    advance = false;
+                else if ((nextIndex = transferIndex) <= 0) {
+                    i = -1;
+                    advance = false;
+                } else if (TRANSFERINDEX.compareAndSet(this, nextIndex,
+                        nextBound = (nextIndex > stride ? nextIndex - stride : 0))) {
+                    bound = nextBound;
+                    i = nextIndex - 1;
+                    advance = false;
+                }
+            }
+            if (i < 0 || i >= n || i + n >= nextn) {
+                int sc;
+                if (finishing) {
+                    nextTable = null;
+                    table = nextTab;
+                    sizeCtl = (n << 1) - (n >>> 1);
+                    return;
+                }
+                if (SIZECTL.compareAndSet(this, sc = sizeCtl, sc - 1)) {
+                    //不是最后一个退出的扩容线程
+                    if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT)
+                        return;
+                    finishing = advance = true;
+                    i = n;
+                }
+            } else if ((f = tab.get(i)) == null)
+                advance = tab.compareAndSet(i, null, fwd);
+            else if ((fh = f.hash) == MOVED)
+                advance = true;
+            else {
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        Node<K, V> ln, hn;
+                        //尾部(hash & n)相同的一段节点可以直接复用
+                        int runBit = fh & n;
+                        Node<K, V> lastRun = f;
+                        for (Node<K, V> p = f.next; p != null; p = p.next) {
+                            int b = p.hash & n;
+                            if (b != runBit) {
+                                runBit = b;
+                                lastRun = p;
+                            }
+                        }
+                        if (runBit == 0) {
+                            ln = lastRun;
+                            hn = null;
+                        } else {
+                            hn = lastRun;
+                            ln = null;
+                        }
+                        //其余节点复制，旧桶上的读操作不受影响
+                        for (Node<K, V> p = f; p != lastRun; p = p.next) {
+                            int ph = p.hash;
+                            K pk = p.key;
+                            V pv = p.val;
+                            if ((ph & n) == 0)
+                                ln = new Node<>(ph, pk, pv, ln);
+                            else
+                                hn = new Node<>(ph, pk, pv, hn);
+                        }
+                        nextTab.set(i, ln);
+                        nextTab.set(i + n, hn);
+                        tab.set(i, fwd);
+                        advance = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /* ---------------- 计数 -------------- */
+
+    private static int probe() {
+        return PROBE.get()[0];
+    }
+
+    //xorshift更换探针
+    private static int advanceProbe(int[] holder) {
+        int h = holder[0];
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        return holder[0] = h;
+    }
+
+    final long sumCount() {
+        CounterCell[] as = counterCells;
+        CounterCell a;
+        long sum = baseCount;
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    sum += a.value;
+            }
+        }
+        return sum;
+    }
+
+    //与LongAdder的longAccumulate相同的逻辑
+    private void fullAddCount(long x, boolean wasUncontended) {
+        int[] holder = PROBE.get();
+        int h = holder[0];
+        //是否发生过cell冲突
+        boolean collide = false;
+        for (; ; ) {
+            CounterCell[] as;
+            CounterCell a;
+            int n;
+            long v;
+            if ((as = counterCells) != null && (n = as.length) > 0) {
+                if ((a = as[(n - 1) & h]) == null) {
+                    if (cellsBusy == 0) {
+                        //创建新的cell
+                        CounterCell r = new CounterCell(x);
+                        if (cellsBusy == 0 && CELLSBUSY.compareAndSet(this, 0, 1)) {
+                            boolean created = false;
+                            try {
+                                CounterCell[] rs;
+                                int m, j;
+                                if ((rs = counterCells) != null &&
+                                        (m = rs.length) > 0 &&
+                                        rs[j = (m - 1) & h] == null) {
+                                    rs[j] = r;
+                                    created = true;
+                                }
+                            } finally {
+                                cellsBusy = 0;
+                            }
+                            if (created)
+                                break;
+                            continue;
+                        }
+                    }
+                    collide = false;
+                } else if (!wasUncontended)
+                    wasUncontended = true;
+                else if (CELLVALUE.compareAndSet(a, v = a.value, v + x))
+                    break;
+                else if (counterCells != as || n >= NCPU)
+                    //cell数已经达到CPU数，不再扩容
+                    collide = false;
+                else if (!collide)
+                    collide = true;
+                else if (cellsBusy == 0 && CELLSBUSY.compareAndSet(this, 0, 1)) {
+                    try {
+                        if (counterCells == as) {
+                            CounterCell[] rs = new CounterCell[n << 1];
+                            System.arraycopy(as, 0, rs, 0, n);
+                            counterCells = rs;
+                        }
+                    } finally {
+                        cellsBusy = 0;
+                    }
+                    collide = false;
+                    continue;
+                }
+                h = advanceProbe(holder);
+            } else if (cellsBusy == 0 && counterCells == as && CELLSBUSY.compareAndSet(this, 0, 1)) {
+                boolean init = false;
+                try {
+                    if (counterCells == as) {
+                        CounterCell[] rs = new CounterCell[2];
+                        rs[h & 1] = new CounterCell(x);
+                        counterCells = rs;
+                        init = true;
+                    }
+                } finally {
+                    cellsBusy = 0;
+                }
+                if (init)
+                    break;
+            } else if (BASECOUNT.compareAndSet(this, v = baseCount, v + x))
+                break;
+        }
+    }
+
+    /* ---------------- 节点 -------------- */
+
+    static class Node<K, V> implements Map.Entry<K, V> {
+        final int hash;
+        final K key;
+        volatile V val;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V val, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.val = val;
+            this.next = next;
+        }
+
+        @Override
+        public final K getKey() {
+            return key;
+        }
+
+        @Override
+        public final V getValue() {
+            return val;
+        }
+
+        @Override
+        public final V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public final int hashCode() {
+            return key.hashCode() ^ val.hashCode();
+        }
+
+        public final String toString() {
+            return key + "=" + val;
+        }
+
+        public final boolean equals(Object o) {
+            Object k, v, u;
+            Map.Entry<?, ?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?, ?>) o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (k == key || k.equals(key)) &&
+                    (v == (u = val) || v.equals(u)));
+        }
+
+        //从当前节点开始查找，ForwardingNode会重写
+        Node<K, V> find(int h, Object k) {
+            Node<K, V> e = this;
+            if (k != null) {
+                do {
+                    K ek;
+                    if (e.hash == h &&
+                            ((ek = e.key) == k || (ek != null && k.equals(ek))))
+                        return e;
+                } while ((e = e.next) != null);
+            }
+            return null;
+        }
+    }
+
+    //已迁移的桶的占位节点，指向新数组
+    static final class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> nextTable;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> tab) {
+            super(MOVED, null, null, null);
+            this.nextTable = tab;
+        }
+
+        Node<K, V> find(int h, Object k) {
+            //新数组也可能在扩容，循环代替递归
+            outer:
+            for (AtomicReferenceArray<Node<K, V>> tab = nextTable; ; ) {
+                Node<K, V> e;
+                int n;
+                if (k == null || tab == null || (n = tab.length()) == 0 ||
+                        (e = tab.get((n - 1) & h)) == null)
+                    return null;
+                for (; ; ) {
+                    int eh;
+                    K ek;
+                    if ((eh = e.hash) == h &&
+                            ((ek = e.key) == k || (ek != null && k.equals(ek))))
+                        return e;
+                    if (eh < 0) {
+                        if (e instanceof ForwardingNode) {
+                            tab = ((ForwardingNode<K, V>) e).nextTable;
+                            continue outer;
+                        } else
+                            return e.find(h, k);
+                    }
+                    if ((e = e.next) == null)
+                        return null;
+                }
+            }
+        }
+    }
+
+    //分散计数的cell，前后填充避免与相邻的cell伪共享
+    static final class CounterCell {
+        long p0, p1, p2, p3, p4, p5, p6;
+        volatile long value;
+        long q0, q1, q2, q3, q4, q5, q6;
+
+        CounterCell(long x) {
+            value = x;
+        }
+    }
+}
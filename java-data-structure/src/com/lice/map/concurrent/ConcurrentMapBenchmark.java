@@ -0,0 +1,105 @@
+package com.lice.map.concurrent;
+
+import com.lice.map.Map;
+import com.lice.map.hashMap.HashMap;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * description: ConcurrentMapBenchmark 多线程竞争下的吞吐量对比 <br>
+ * date: 2026/10/18 14:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.map.concurrent.ConcurrentMapBenchmark [key范围] [每轮毫秒数] [写操作百分比]
+ * 线程数依次为1、2、4、8、16、32、64，对比：
+ * 1、synchronized包装的com.lice.map.hashMap.HashMap(目前业务代码的用法)
+ * 2、com.lice.map.concurrent.ConcurrentHashMap
+ * 3、java.util.concurrent.ConcurrentHashMap
+ */
+public class ConcurrentMapBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws Exception {
+        int keyRange = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int writePercent = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        Integer[] keys = new Integer[keyRange];
+        for (int i = 0; i < keyRange; i++)
+            keys[i] = i;
+
+        System.out.printf("keys=%d, writes=%d%%, %dms per run (ops/ms)%n", keyRange, writePercent, millis);
+        System.out.printf("%8s %16s %16s %16s%n", "threads", "sync HashMap", "lice CHM", "j.u.c CHM");
+        //第一轮只用来预热，不输出
+        for (int round = 0, threads; round <= THREADS.length; round++) {
+            threads = round == 0 ? 2 : THREADS[round - 1];
+            HashMap<Integer, Integer> plain = new HashMap<>();
+            Op sync = (write, key) -> {
+                synchronized (plain) {
+                    if (write)
+                        plain.put(key, key);
+                    else
+                        plain.get(key);
+                }
+            };
+            Map<Integer, Integer> lice = new ConcurrentHashMap<>();
+            Op liceOp = (write, key) -> {
+                if (write)
+                    lice.put(key, key);
+                else
+                    lice.get(key);
+            };
+            java.util.concurrent.ConcurrentHashMap<Integer, Integer> jdk = new java.util.concurrent.ConcurrentHashMap<>();
+            Op jdkOp = (write, key) -> {
+                if (write)
+                    jdk.put(key, key);
+                else
+                    jdk.get(key);
+            };
+            double a = run(sync, keys, threads, millis, writePercent);
+            double b = run(liceOp, keys, threads, millis, writePercent);
+            double c = run(jdkOp, keys, threads, millis, writePercent);
+            if (round > 0)
+                System.out.printf("%8d %16.0f %16.0f %16.0f%n", threads, a, b, c);
+        }
+    }
+
+    private static double run(Op op, Integer[] keys, int threads, long millis, int writePercent)
+            throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + millis * 1_000_000L + 50_000_000L;
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while ((count & 1023) != 0 || System.nanoTime() < deadline) {
+                    op.apply(random.nextInt(100) < writePercent, keys[random.nextInt(keys.length)]);
+                    count++;
+                }
+                ops.add(count);
+            });
+            workers[i].start();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return ops.sum() / ((System.nanoTime() - start) / 1e6);
+    }
+
+    @FunctionalInterface
+    private interface Op {
+        void apply(boolean write, Integer key);
+    }
+}
@@ -0,0 +1,77 @@
+package com.lice.map.hashMap;
+
+/**
+ * description: HashMapBenchmark 与java.util.HashMap对比put/get耗时 <br>
+ * date: 2026/10/18 10:12 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.map.hashMap.HashMapBenchmark [元素个数...]
+ * 默认测试 1K、1M、10M 三个规模，10M需要足够的堆(-Xmx4g)
+ * 每个规模先预热一轮，再取正式一轮的结果
+ */
+public class HashMapBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 1_000_000, 10_000_000};
+
+    //防止JIT把查询结果优化掉
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int n : sizes) {
+            Integer[] keys = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = i * 31;
+            }
+            //预热
+            runLice(keys);
+            runJdk(keys);
+            long[] lice = runLice(keys);
+            long[] jdk = runJdk(keys);
+            System.out.printf("n=%,d  lice.HashMap put=%.1fns/op get=%.1fns/op | java.util.HashMap put=%.1fns/op get=%.1fns/op%n",
+                    n, (double) lice[0] / n, (double) lice[1] / n, (double) jdk[0] / n, (double) jdk[1] / n);
+        }
+    }
+
+    private static long[] runLice(Integer[] keys) {
+        HashMap<Integer, Integer> map = new HashMap<>();
+        long start = System.nanoTime();
+        for (Integer key : keys) {
+            map.put(key, key);
+        }
+        long put = System.nanoTime() - start;
+        start = System.nanoTime();
+        Object last = null;
+        for (Integer key : keys) {
+            last = map.get(key);
+        }
+        long get = System.nanoTime() - start;
+        sink = last;
+        return new long[]{put, get};
+    }
+
+    private static long[] runJdk(Integer[] keys) {
+        java.util.HashMap<Integer, Integer> map = new java.util.HashMap<>();
+        long start = System.nanoTime();
+        for (Integer key : keys) {
+            map.put(key, key);
+        }
+        long put = System.nanoTime() - start;
+        start = System.nanoTime();
+        Object last = null;
+        for (Integer key : keys) {
+            last = map.get(key);
+        }
+        long get = System.nanoTime() - start;
+        sink = last;
+        return new long[]{put, get};
+    }
+}
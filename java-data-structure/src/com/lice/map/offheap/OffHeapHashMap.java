@@ -0,0 +1,489 @@
+package com.lice.map.offheap;
+
+import sun.misc.Cleaner;
+import sun.misc.Unsafe;
+import sun.nio.ch.DirectBuffer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * description: OffHeapHashMap 堆外内存的long -> 定长记录Map <br>
+ * date: 2026/10/18 14:50 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 上亿条小记录放在堆内时，Node、key、value对象会让GC停顿达到秒级，这里把key和value都放到堆外：
+ * 1、存储：若干个slab(DirectByteBuffer或者MappedByteBuffer)，每个slab最大1G，槽位不会跨slab
+ * 2、槽位：[long key][valueSize字节的value]，线性探测，key为0表示空槽，真正的key=0存放在header中
+ * 3、读写：和java.nio.DirectByteBuffer一样，通过Unsafe按(slab地址 + 偏移)直接读写内存，不经过ByteBuffer的边界检查
+ * 4、容量：创建时根据maxEntries确定，不会扩容，超过maxEntries时put抛出IllegalStateException
+ * 5、持久化：create/open使用内存映射文件，header中记录容量、记录大小和元素个数，
+ *   open时直接映射已有文件，不需要重新加载数据
+ * 6、close：映射文件先force，再通过Cleaner立即释放堆外内存/解除映射，不等待GC
+ * 非线程安全，多线程访问需要外部同步
+ */
+public class OffHeapHashMap implements Closeable {
+
+    private static final Unsafe UNSAFE = loadUnsafe();
+
+    private static final long BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+
+    //文件头的魔数："LICEMAP1"
+    private static final long MAGIC = 0x4C4943454D415031L;
+
+    private static final int VERSION = 1;
+
+    //header：magic(8) version(4) valueSize(4) capacity(8) size(8) hasZeroKey(4)，zeroValue从64开始
+    private static final int HEADER_BYTES = 64;
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 8;
+    private static final int OFF_VALUE_SIZE = 12;
+    private static final int OFF_CAPACITY = 16;
+    private static final int OFF_SIZE = 24;
+    private static final int OFF_HAS_ZERO = 32;
+
+    //单个slab的最大字节数
+    private static final long MAX_SLAB_BYTES = 1L << 30;
+
+    //负载因子，容量 = maxEntries / 0.7 向上取2的幂
+    private static final double LOAD_FACTOR = 0.7;
+
+    private final int valueSize;
+
+    //槽位大小，8字节对齐
+    private final int slotSize;
+
+    //槽位数，2的幂
+    private final long capacity;
+
+    private final long mask;
+
+    //每个slab的槽位数，2的幂
+    private final long slotsPerSlab;
+
+    private final int slabShift;
+
+    private final long maxEntries;
+
+    private final ByteBuffer header;
+
+    private final long headerAddress;
+
+    private final ByteBuffer[] slabs;
+
+    private final long[] slabAddresses;
+
+    private final RandomAccessFile file;
+
+    private long size;
+
+    private boolean closed;
+
+    private OffHeapHashMap(int valueSize, long capacity, ByteBuffer header, ByteBuffer[] slabs,
+                           long slotsPerSlab, RandomAccessFile file) {
+        this.valueSize = valueSize;
+        this.slotSize = slotSize(valueSize);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slotsPerSlab = slotsPerSlab;
+        this.slabShift = Long.numberOfTrailingZeros(slotsPerSlab);
+        this.maxEntries = (long) (capacity * LOAD_FACTOR);
+        this.header = header;
+        this.headerAddress = address(header);
+        this.slabs = slabs;
+        this.slabAddresses = new long[slabs.length];
+        for (int i = 0; i < slabs.length; i++)
+            slabAddresses[i] = address(slabs[i]);
+        this.file = file;
+        this.size = UNSAFE.getLong(headerAddress + OFF_SIZE);
+    }
+
+    /* ---------------- 创建和打开 -------------- */
+
+    //在堆外内存中创建，进程退出后数据丢失
+    public static OffHeapHashMap allocate(long maxEntries, int valueSize) {
+        long capacity = capacityFor(maxEntries);
+        int slotSize = slotSize(valueSize);
+        long slotsPerSlab = slotsPerSlab(capacity, slotSize);
+        ByteBuffer header = ByteBuffer.allocateDirect(headerBytes(valueSize));
+        ByteBuffer[] slabs = new ByteBuffer[(int) (capacity / slotsPerSlab)];
+        try {
+            for (int i = 0; i < slabs.length; i++) {
+                //allocateDirect保证内容为0，即全部是空槽
+                slabs[i] = ByteBuffer.allocateDirect((int) (slotsPerSlab * slotSize));
+            }
+        } catch (OutOfMemoryError e) {
+            free(header);
+            for (ByteBuffer slab : slabs)
+                free(slab);
+            throw e;
+        }
+        writeHeader(address(header), valueSize, capacity);
+        return new OffHeapHashMap(valueSize, capacity, header, slabs, slotsPerSlab, null);
+    }
+
+    //创建新的映射文件，已有的文件会被覆盖
+    public static OffHeapHashMap create(File path, long maxEntries, int valueSize) throws IOException {
+        long capacity = capacityFor(maxEntries);
+        int slotSize = slotSize(valueSize);
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            //文件扩展的部分读出来是0，即全部是空槽
+            file.setLength(0);
+            file.setLength(headerBytes(valueSize) + capacity * slotSize);
+            OffHeapHashMap map = map(file, valueSize, capacity);
+            writeHeader(map.headerAddress, valueSize, capacity);
+            return map;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    //打开已有的映射文件，数据不需要重新加载
+    public static OffHeapHashMap open(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            if (file.length() < HEADER_BYTES)
+                throw new IOException("不是OffHeapHashMap文件：" + path);
+            ByteBuffer probe = ByteBuffer.allocate(HEADER_BYTES);
+            file.getChannel().read(probe, 0);
+            probe.flip();
+            probe.order(java.nio.ByteOrder.nativeOrder());
+            if (probe.getLong(OFF_MAGIC) != MAGIC || probe.getInt(OFF_VERSION) != VERSION)
+                throw new IOException("不是OffHeapHashMap文件：" + path);
+            int valueSize = probe.getInt(OFF_VALUE_SIZE);
+            long capacity = probe.getLong(OFF_CAPACITY);
+            if (valueSize < 0 || capacity <= 0 || Long.bitCount(capacity) != 1 ||
+                    file.length() < headerBytes(valueSize) + capacity * slotSize(valueSize))
+                throw new IOException("文件已损坏：" + path);
+            return map(file, valueSize, capacity);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static OffHeapHashMap map(RandomAccessFile file, int valueSize, long capacity) throws IOException {
+        int slotSize = slotSize(valueSize);
+        long slotsPerSlab = slotsPerSlab(capacity, slotSize);
+        FileChannel channel = file.getChannel();
+        int headerBytes = headerBytes(valueSize);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerBytes);
+        ByteBuffer[] slabs = new ByteBuffer[(int) (capacity / slotsPerSlab)];
+        long slabBytes = slotsPerSlab * slotSize;
+        for (int i = 0; i < slabs.length; i++)
+            slabs[i] = channel.map(FileChannel.MapMode.READ_WRITE, headerBytes + i * slabBytes, slabBytes);
+        return new OffHeapHashMap(valueSize, capacity, header, slabs, slotsPerSlab, file);
+    }
+
+    private static void writeHeader(long address, int valueSize, long capacity) {
+        UNSAFE.putLong(address + OFF_MAGIC, MAGIC);
+        UNSAFE.putInt(address + OFF_VERSION, VERSION);
+        UNSAFE.putInt(address + OFF_VALUE_SIZE, valueSize);
+        UNSAFE.putLong(address + OFF_CAPACITY, capacity);
+        UNSAFE.putLong(address + OFF_SIZE, 0L);
+        UNSAFE.putInt(address + OFF_HAS_ZERO, 0);
+    }
+
+    /* ---------------- 基本操作 -------------- */
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getValueSize() {
+        return valueSize;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public boolean containsKey(long key) {
+        ensureOpen();
+        if (key == 0)
+            return hasZeroKey();
+        return indexOf(key) >= 0;
+    }
+
+    //把key对应的value复制到dst，key不存在时返回false
+    public boolean get(long key, byte[] dst) {
+        ensureOpen();
+        if (dst.length < valueSize)
+            throw new IllegalArgumentException("dst.length < valueSize");
+        long valueAddress;
+        if (key == 0) {
+            if (!hasZeroKey())
+                return false;
+            valueAddress = headerAddress + HEADER_BYTES;
+        } else {
+            long i = indexOf(key);
+            if (i < 0)
+                return false;
+            valueAddress = slotAddress(i) + 8;
+        }
+        UNSAFE.copyMemory(null, valueAddress, dst, BYTE_ARRAY_OFFSET, valueSize);
+        return true;
+    }
+
+    public byte[] get(long key) {
+        byte[] dst = new byte[valueSize];
+        return get(key, dst) ? dst : null;
+    }
+
+    //读取value中offset处的long，key不存在时返回defaultValue
+    public long getLong(long key, int offset, long defaultValue) {
+        ensureOpen();
+        checkOffset(offset, 8);
+        if (key == 0)
+            return hasZeroKey() ? UNSAFE.getLong(headerAddress + HEADER_BYTES + offset) : defaultValue;
+        long i = indexOf(key);
+        return i < 0 ? defaultValue : UNSAFE.getLong(slotAddress(i) + 8 + offset);
+    }
+
+    //value的长度必须等于valueSize，返回key之前是否存在
+    public boolean put(long key, byte[] value) {
+        ensureOpen();
+        if (value.length != valueSize)
+            throw new IllegalArgumentException("value.length != valueSize");
+        long valueAddress;
+        boolean existed;
+        if (key == 0) {
+            existed = hasZeroKey();
+            if (!existed)
+                addZeroKey();
+            valueAddress = headerAddress + HEADER_BYTES;
+        } else {
+            long i = insertionIndex(key);
+            existed = i < 0;
+            if (existed)
+                i = -i - 1;
+            long slot = slotAddress(i);
+            if (!existed) {
+                checkCapacity();
+                UNSAFE.putLong(slot, key);
+                incrementSize(1);
+            }
+            valueAddress = slot + 8;
+        }
+        UNSAFE.copyMemory(value, BYTE_ARRAY_OFFSET, null, valueAddress, valueSize);
+        return existed;
+    }
+
+    //修改value中offset处的long，key不存在时先插入全0的value
+    public void putLong(long key, int offset, long value) {
+        ensureOpen();
+        checkOffset(offset, 8);
+        if (key == 0) {
+            if (!hasZeroKey()) {
+                addZeroKey();
+                UNSAFE.setMemory(headerAddress + HEADER_BYTES, valueSize, (byte) 0);
+            }
+            UNSAFE.putLong(headerAddress + HEADER_BYTES + offset, value);
+            return;
+        }
+        long i = insertionIndex(key);
+        long slot;
+        if (i < 0) {
+            slot = slotAddress(-i - 1);
+        } else {
+            checkCapacity();
+            slot = slotAddress(i);
+            UNSAFE.putLong(slot, key);
+            UNSAFE.setMemory(slot + 8, valueSize, (byte) 0);
+            incrementSize(1);
+        }
+        UNSAFE.putLong(slot + 8 + offset, value);
+    }
+
+    public boolean remove(long key) {
+        ensureOpen();
+        if (key == 0) {
+            if (!hasZeroKey())
+                return false;
+            UNSAFE.putInt(headerAddress + OFF_HAS_ZERO, 0);
+            incrementSize(-1);
+            return true;
+        }
+        long i = indexOf(key);
+        if (i < 0)
+            return false;
+        shiftKeys(i);
+        incrementSize(-1);
+        return true;
+    }
+
+    public void clear() {
+        ensureOpen();
+        for (int i = 0; i < slabs.length; i++)
+            UNSAFE.setMemory(slabAddresses[i], slabs[i].capacity(), (byte) 0);
+        UNSAFE.putInt(headerAddress + OFF_HAS_ZERO, 0);
+        size = 0;
+        UNSAFE.putLong(headerAddress + OFF_SIZE, 0L);
+    }
+
+    //映射文件的修改写回磁盘，堆外内存模式下什么都不做
+    public void flush() {
+        ensureOpen();
+        if (file == null)
+            return;
+        ((MappedByteBuffer) header).force();
+        for (ByteBuffer slab : slabs)
+            ((MappedByteBuffer) slab).force();
+    }
+
+    //立即释放堆外内存或者解除映射，之后不能再访问
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        if (file != null)
+            flush();
+        closed = true;
+        free(header);
+        for (ByteBuffer slab : slabs)
+            free(slab);
+        if (file != null)
+            file.close();
+    }
+
+    /* ---------------- 内部实现 -------------- */
+
+    private long slotAddress(long index) {
+        return slabAddresses[(int) (index >>> slabShift)] + (index & (slotsPerSlab - 1)) * slotSize;
+    }
+
+    private long indexOf(long key) {
+        for (long i = mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = UNSAFE.getLong(slotAddress(i));
+            if (k == key)
+                return i;
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    //key已存在时返回-(index + 1)，否则返回空槽位
+    private long insertionIndex(long key) {
+        for (long i = mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = UNSAFE.getLong(slotAddress(i));
+            if (k == 0)
+                return i;
+            if (k == key)
+                return -i - 1;
+        }
+    }
+
+    //删除槽位pos，把探测链上后续的元素前移填补空位
+    private void shiftKeys(long pos) {
+        long last = pos;
+        for (long slot = (pos + 1) & mask; ; slot = (slot + 1) & mask) {
+            long address = slotAddress(slot);
+            long k = UNSAFE.getLong(address);
+            if (k == 0) {
+                UNSAFE.putLong(slotAddress(last), 0L);
+                return;
+            }
+            long ideal = mix(k) & mask;
+            if (last <= slot ? (last >= ideal || ideal > slot) : (last >= ideal && ideal > slot)) {
+                UNSAFE.copyMemory(address, slotAddress(last), slotSize);
+                last = slot;
+            }
+        }
+    }
+
+    private boolean hasZeroKey() {
+        return UNSAFE.getInt(headerAddress + OFF_HAS_ZERO) != 0;
+    }
+
+    private void addZeroKey() {
+        UNSAFE.putInt(headerAddress + OFF_HAS_ZERO, 1);
+        incrementSize(1);
+    }
+
+    //元素个数同时写到header中，open时恢复
+    private void incrementSize(long delta) {
+        size += delta;
+        UNSAFE.putLong(headerAddress + OFF_SIZE, size);
+    }
+
+    private void checkCapacity() {
+        if (size >= maxEntries)
+            throw new IllegalStateException("OffHeapHashMap is full: " + maxEntries + " entries");
+    }
+
+    private void checkOffset(int offset, int length) {
+        if (offset < 0 || offset + length > valueSize)
+            throw new IndexOutOfBoundsException("offset " + offset + ", valueSize " + valueSize);
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("OffHeapHashMap is closed");
+    }
+
+    private static long mix(long x) {
+        long h = x * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static int slotSize(int valueSize) {
+        if (valueSize < 0)
+            throw new IllegalArgumentException("Illegal value size: " + valueSize);
+        return (8 + valueSize + 7) & ~7;
+    }
+
+    private static int headerBytes(int valueSize) {
+        return HEADER_BYTES + ((valueSize + 7) & ~7);
+    }
+
+    private static long capacityFor(long maxEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("Illegal max entries: " + maxEntries);
+        long needed = (long) Math.ceil(maxEntries / LOAD_FACTOR) + 1;
+        return Math.max(2, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    //每个slab的槽位数，保证slab不超过MAX_SLAB_BYTES且是2的幂
+    private static long slotsPerSlab(long capacity, int slotSize) {
+        long perSlab = Long.highestOneBit(MAX_SLAB_BYTES / slotSize);
+        return Math.min(capacity, perSlab);
+    }
+
+    private static long address(ByteBuffer buffer) {
+        return ((DirectBuffer) buffer).address();
+    }
+
+    //通过Cleaner立即释放，DirectByteBuffer和MappedByteBuffer都适用
+    private static void free(ByteBuffer buffer) {
+        if (buffer == null)
+            return;
+        Cleaner cleaner = ((DirectBuffer) buffer).cleaner();
+        if (cleaner != null)
+            cleaner.clean();
+    }
+
+    private static Unsafe loadUnsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
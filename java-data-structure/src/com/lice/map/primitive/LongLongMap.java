@@ -0,0 +1,294 @@
+package com.lice.map.primitive;
+
+import com.lice.map.AbstractMap;
+import com.lice.map.Map;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * description: LongLongMap key和value都是long的开放寻址Map <br>
+ * date: 2026/10/18 10:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 适合计数器、ID索引这类场景，keys和values都是long数组，每个元素只占16字节(不算空槽)
+ * 1、key为0的槽位表示空槽，真正的key=0单独存放
+ * 2、基本类型的方法在key不存在时返回noEntryValue(默认0)，装箱的Map方法返回null
+ * 3、addTo(key, delta)用于计数，只需要一次探测
+ */
+public class LongLongMap extends AbstractMap<Long, Long> implements Map<Long, Long>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 7371960434516277415L;
+
+    //默认初始化的空间大小
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+
+    //最大容量
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+
+    private long[] values;
+
+    private boolean hasZeroKey;
+
+    private long zeroValue;
+
+    //key不存在时基本类型方法的返回值
+    private final long noEntryValue;
+
+    private int size;
+
+    private int threshold;
+
+    private final float loadFactor;
+
+    public LongLongMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, 0L);
+    }
+
+    public LongLongMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR, 0L);
+    }
+
+    public LongLongMap(int expectedSize, float loadFactor, long noEntryValue) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        allocate(PrimitiveMaps.capacityFor(expectedSize, loadFactor, MAXIMUM_CAPACITY));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    /* ---------------- 基本类型的方法 -------------- */
+
+    public long get(long key) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : noEntryValue;
+        int i = indexOf(key);
+        return i < 0 ? noEntryValue : values[i];
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0)
+            return hasZeroKey;
+        return indexOf(key) >= 0;
+    }
+
+    //返回key之前对应的value，没有则返回noEntryValue
+    public long put(long key, long value) {
+        if (key == 0) {
+            long old = hasZeroKey ? zeroValue : noEntryValue;
+            zeroValue = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++size;
+            }
+            return old;
+        }
+        int i = insertionIndex(key);
+        if (i < 0) {
+            i = -i - 1;
+            long old = values[i];
+            values[i] = value;
+            return old;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold)
+            rehash(keys.length << 1);
+        return noEntryValue;
+    }
+
+    //key不存在时按0累加，返回累加后的值
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = 0L;
+                ++size;
+            }
+            return zeroValue += delta;
+        }
+        int i = insertionIndex(key);
+        if (i < 0)
+            return values[-i - 1] += delta;
+        keys[i] = key;
+        values[i] = delta;
+        if (++size > threshold)
+            rehash(keys.length << 1);
+        return delta;
+    }
+
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return noEntryValue;
+            hasZeroKey = false;
+            --size;
+            return zeroValue;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return noEntryValue;
+        long old = values[i];
+        shiftKeys(i);
+        --size;
+        return old;
+    }
+
+    private int indexOf(long key) {
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        for (int i = PrimitiveMaps.mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = tab[i];
+            if (k == key)
+                return i;
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    //key已存在时返回-(index + 1)，否则返回可插入的空槽位
+    private int insertionIndex(long key) {
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        for (int i = PrimitiveMaps.mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = tab[i];
+            if (k == 0)
+                return i;
+            if (k == key)
+                return -i - 1;
+        }
+    }
+
+    //删除槽位pos，把探测链上后续的元素前移填补空位
+    private void shiftKeys(int pos) {
+        long[] tab = keys;
+        long[] vals = values;
+        int mask = tab.length - 1;
+        for (int last = pos, slot = (pos + 1) & mask; ; slot = (slot + 1) & mask) {
+            long k = tab[slot];
+            if (k == 0) {
+                tab[last] = 0L;
+                return;
+            }
+            int ideal = PrimitiveMaps.mix(k) & mask;
+            if (last <= slot ? (last >= ideal || ideal > slot) : (last >= ideal && ideal > slot)) {
+                tab[last] = k;
+                vals[last] = vals[slot];
+                last = slot;
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        if (newCapacity > MAXIMUM_CAPACITY || newCapacity < 0)
+            throw new IllegalStateException("LongLongMap capacity exceeded");
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        long[] tab = keys;
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k != 0) {
+                int i = PrimitiveMaps.mix(k) & mask;
+                while (tab[i] != 0)
+                    i = (i + 1) & mask;
+                tab[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /* ---------------- Map接口的装箱适配 -------------- */
+
+    public Long get(Object key) {
+        if (!(key instanceof Long))
+            return null;
+        long k = (Long) key;
+        if (k == 0)
+            return hasZeroKey ? zeroValue : null;
+        int i = indexOf(k);
+        return i < 0 ? null : values[i];
+    }
+
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && containsKey(((Long) key).longValue());
+    }
+
+    public boolean containsValue(Object value) {
+        if (!(value instanceof Long))
+            return false;
+        long v = (Long) value;
+        if (hasZeroKey && zeroValue == v)
+            return true;
+        long[] tab = keys;
+        for (int i = 0; i < tab.length; i++) {
+            if (tab[i] != 0 && values[i] == v)
+                return true;
+        }
+        return false;
+    }
+
+    public Long put(Long key, Long value) {
+        long k = key;
+        boolean existed = containsKey(k);
+        long old = put(k, value.longValue());
+        return existed ? old : null;
+    }
+
+    public Long remove(Object key) {
+        if (!(key instanceof Long) || !containsKey(((Long) key).longValue()))
+            return null;
+        return remove(((Long) key).longValue());
+    }
+
+    public void putAll(Map<? extends Long, ? extends Long> m) {
+        if (m instanceof LongLongMap) {
+            LongLongMap other = (LongLongMap) m;
+            if (other.hasZeroKey)
+                put(0L, other.zeroValue);
+            for (int i = 0; i < other.keys.length; i++) {
+                long k = other.keys[i];
+                if (k != 0)
+                    put(k, other.values[i]);
+            }
+        } else if (m != null && m.entrySet() != null) {
+            for (Map.Entry<? extends Long, ? extends Long> e : m.entrySet())
+                put(e.getKey().longValue(), e.getValue().longValue());
+        }
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0L);
+            hasZeroKey = false;
+            size = 0;
+        }
+    }
+}
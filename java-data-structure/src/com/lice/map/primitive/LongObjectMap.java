@@ -0,0 +1,270 @@
+package com.lice.map.primitive;
+
+import com.lice.map.AbstractMap;
+import com.lice.map.Map;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * description: LongObjectMap long作为key的开放寻址Map <br>
+ * date: 2026/10/18 10:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 存储结构：keys和values两个平铺的数组，线性探测解决冲突，不创建Node节点，key也不装箱成Long
+ * 1、key为0的槽位表示空槽，真正的key=0单独存放在zeroValue中
+ * 2、删除时把后续同一探测链上的元素往前移动(backward shift)，不需要墓碑标记
+ * 3、Map接口的方法是装箱的适配方法，热点代码应直接调用get(long)/put(long, V)
+ */
+public class LongObjectMap<V> extends AbstractMap<Long, V> implements Map<Long, V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 4158093262310578926L;
+
+    //默认初始化的空间大小
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+
+    //最大容量
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    //开放寻址的负载因子不宜过高，否则探测链会变长
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    //key=0是否存在
+    private boolean hasZeroKey;
+
+    private V zeroValue;
+
+    //map中的元素个数
+    private int size;
+
+    //扩容的阈值
+    private int threshold;
+
+    private final float loadFactor;
+
+    public LongObjectMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        if (loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(PrimitiveMaps.capacityFor(expectedSize, loadFactor, MAXIMUM_CAPACITY));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /* ---------------- 基本类型的方法 -------------- */
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : null;
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        for (int i = PrimitiveMaps.mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = tab[i];
+            if (k == key)
+                return (V) values[i];
+            if (k == 0)
+                return null;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0)
+            return hasZeroKey;
+        return indexOf(key) >= 0;
+    }
+
+    //返回key之前对应的value，没有则返回null
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            zeroValue = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++size;
+            }
+            return old;
+        }
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        int i = PrimitiveMaps.mix(key) & mask;
+        for (long k; (k = tab[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        tab[i] = key;
+        values[i] = value;
+        if (++size > threshold)
+            rehash(tab.length << 1);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return null;
+            V old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            --size;
+            return old;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V old = (V) values[i];
+        shiftKeys(i);
+        --size;
+        return old;
+    }
+
+    //查找key所在的槽位，不存在返回-1
+    private int indexOf(long key) {
+        long[] tab = keys;
+        int mask = tab.length - 1;
+        for (int i = PrimitiveMaps.mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = tab[i];
+            if (k == key)
+                return i;
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    //删除槽位pos，把探测链上后续的元素前移填补空位
+    private void shiftKeys(int pos) {
+        long[] tab = keys;
+        Object[] vals = values;
+        int mask = tab.length - 1;
+        for (int last = pos, slot = (pos + 1) & mask; ; slot = (slot + 1) & mask) {
+            long k = tab[slot];
+            if (k == 0) {
+                tab[last] = 0;
+                vals[last] = null;
+                return;
+            }
+            int ideal = PrimitiveMaps.mix(k) & mask;
+            //ideal不在(last, slot]区间内，说明该元素可以移动到last
+            if (last <= slot ? (last >= ideal || ideal > slot) : (last >= ideal && ideal > slot)) {
+                tab[last] = k;
+                vals[last] = vals[slot];
+                last = slot;
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        if (newCapacity > MAXIMUM_CAPACITY || newCapacity < 0)
+            throw new IllegalStateException("LongObjectMap capacity exceeded");
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        long[] tab = keys;
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k != 0) {
+                int i = PrimitiveMaps.mix(k) & mask;
+                while (tab[i] != 0)
+                    i = (i + 1) & mask;
+                tab[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /* ---------------- Map接口的装箱适配 -------------- */
+
+    public V get(Object key) {
+        return (key instanceof Long) ? get(((Long) key).longValue()) : null;
+    }
+
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && containsKey(((Long) key).longValue());
+    }
+
+    public boolean containsValue(Object value) {
+        if (hasZeroKey && Objects.equals(value, zeroValue))
+            return true;
+        long[] tab = keys;
+        for (int i = 0; i < tab.length; i++) {
+            if (tab[i] != 0 && Objects.equals(value, values[i]))
+                return true;
+        }
+        return false;
+    }
+
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    public V remove(Object key) {
+        return (key instanceof Long) ? remove(((Long) key).longValue()) : null;
+    }
+
+    public void putAll(Map<? extends Long, ? extends V> m) {
+        if (m instanceof LongObjectMap) {
+            @SuppressWarnings("unchecked")
+            LongObjectMap<? extends V> other = (LongObjectMap<? extends V>) m;
+            if (other.hasZeroKey)
+                put(0L, other.zeroValue);
+            for (int i = 0; i < other.keys.length; i++) {
+                long k = other.keys[i];
+                if (k != 0)
+                    put(k, other.valueAt(i));
+            }
+        } else if (m != null && m.entrySet() != null) {
+            for (Map.Entry<? extends Long, ? extends V> e : m.entrySet())
+                put(e.getKey().longValue(), e.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int i) {
+        return (V) values[i];
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0L);
+            Arrays.fill(values, null);
+            hasZeroKey = false;
+            zeroValue = null;
+            size = 0;
+        }
+    }
+}
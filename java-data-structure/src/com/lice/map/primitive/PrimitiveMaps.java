@@ -0,0 +1,38 @@
+package com.lice.map.primitive;
+
+/**
+ * description: PrimitiveMaps 基本类型Map共用的hash和容量计算 <br>
+ * date: 2026/10/18 10:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+final class PrimitiveMaps {
+
+    //2^32 / 黄金分割比，乘法散列让连续的key分散到不同的槽位
+    private static final int INT_PHI = 0x9E3779B9;
+
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    private PrimitiveMaps() {
+    }
+
+    static int mix(int x) {
+        int h = x * INT_PHI;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long x) {
+        long h = x * LONG_PHI;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    //能容纳expectedSize个元素的最小2的幂容量
+    static int capacityFor(int expectedSize, float loadFactor, int maximumCapacity) {
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        if (needed > maximumCapacity)
+            return maximumCapacity;
+        int n = Math.max(2, (int) needed);
+        return Integer.highestOneBit(n - 1) << 1;
+    }
+}
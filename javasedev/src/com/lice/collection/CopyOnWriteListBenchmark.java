@@ -0,0 +1,116 @@
+package com.lice.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ChunkedCopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * description: CopyOnWriteListBenchmark CopyOnWriteArrayList与ChunkedCopyOnWriteArrayList的写入、读取和内存对比 <br>
+ * date: 2026/10/18 18:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.collection.CopyOnWriteListBenchmark
+ * 模拟读多写少的大注册表(例如监听器列表)，列表大小1K、10K、100K：
+ * 1、add/set/remove(int)：每次写的平均耗时。CopyOnWriteArrayList每次复制整个数组，Chunked只复制一条路径
+ * 2、get：随机下标读的平均耗时，Chunked要从根走到叶子(O(log n))
+ * 3、iterate：完整遍历一次的每个元素平均耗时
+ * 4、snapshots：每次写之后保留一个快照(CopyOnWriteArrayList用迭代器持有旧数组)，保留100个快照时多占用的堆内存。
+ *    Chunked的快照之间共享没有改过的块，所以多占用的内存远小于100份完整数组
+ * 内存用Runtime的已用内存在System.gc()前后的差值估算，只是粗略的参考值。
+ */
+public class CopyOnWriteListBenchmark {
+
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+
+    private static final int SNAPSHOTS = 100;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        System.out.printf("  %-14s %8s %10s %10s %10s %10s %10s %12s%n", "list", "size",
+                "add(ns)", "set(ns)", "remove(ns)", "get(ns)", "iter(ns)", "snapshots");
+        for (int size : SIZES) {
+            //预热
+            bench("cow", CopyOnWriteArrayList::new, size, false);
+            bench("chunked", ChunkedCopyOnWriteArrayList::new, size, false);
+            bench("cow", CopyOnWriteArrayList::new, size, true);
+            bench("chunked", ChunkedCopyOnWriteArrayList::new, size, true);
+        }
+    }
+
+    private static void bench(String name, Function<List<Integer>, List<Integer>> factory, int size,
+                              boolean print) {
+        List<Integer> initial = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            initial.add(i);
+        List<Integer> list = factory.apply(initial);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        //写的次数随大小减少，避免CopyOnWriteArrayList在100K时跑太久
+        int writes = Math.max(1_000, 20_000_000 / size);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < writes; i++)
+            list.add(i);
+        double add = (double) (System.nanoTime() - start) / writes;
+
+        start = System.nanoTime();
+        for (int i = 0; i < writes; i++)
+            list.set(random.nextInt(size), i);
+        double set = (double) (System.nanoTime() - start) / writes;
+
+        start = System.nanoTime();
+        for (int i = 0; i < writes; i++)
+            list.remove(random.nextInt(size));
+        double remove = (double) (System.nanoTime() - start) / writes;
+
+        int reads = 2_000_000;
+        long sum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < reads; i++)
+            sum += list.get(random.nextInt(size));
+        double get = (double) (System.nanoTime() - start) / reads;
+
+        int passes = Math.max(10, 10_000_000 / size);
+        start = System.nanoTime();
+        for (int p = 0; p < passes; p++)
+            for (Integer value : list)
+                sum += value;
+        double iterate = (double) (System.nanoTime() - start) / passes / size;
+        sink = sum;
+
+        long retained = snapshotMemory(list, size);
+        if (print)
+            System.out.printf("  %-14s %,8d %10.0f %10.0f %10.0f %10.1f %10.1f %,10dKB%n", name, size,
+                    add, set, remove, get, iterate, retained / 1024);
+    }
+
+    /**
+     * 每次set之后保留一个快照，返回保留SNAPSHOTS个快照多占用的内存(字节)
+     */
+    private static long snapshotMemory(List<Integer> list, int size) {
+        Object[] snapshots = new Object[SNAPSHOTS];
+        long before = usedMemory();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            list.set(random.nextInt(size), -i);
+            snapshots[i] = list instanceof ChunkedCopyOnWriteArrayList ?
+                    ((ChunkedCopyOnWriteArrayList<Integer>) list).snapshot() : list.iterator();
+        }
+        long after = usedMemory();
+        //保证测量时快照仍然可达
+        sink = snapshots;
+        return Math.max(0, after - before);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,142 @@
+package com.lice.collection;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentLongSkipListMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * description: LongSkipListBenchmark ConcurrentSkipListMap<Long,V>与ConcurrentLongSkipListMap的插入、查找、范围扫描和内存对比 <br>
+ * date: 2026/10/18 19:10 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xmx6g com.lice.collection.LongSkipListBenchmark [条目数]
+ * 模拟时间序列索引：key是递增的纳秒时间戳(带随机间隔)，value是共享的同一个对象，只比较索引本身。默认10^7个条目。
+ * 1、insert：按时间顺序插入全部条目的每条平均耗时
+ * 2、get：随机查找已存在时间戳的平均耗时
+ * 3、floor：随机时间点查找"该时刻生效的样本"(floorEntry/floorValue)的平均耗时
+ * 4、scan：随机取1000个条目宽的时间窗口做范围扫描(subMap遍历)，每个条目的平均耗时
+ * 5、memory：整个索引占用的堆内存。ConcurrentSkipListMap每个条目多一个Long对象
+ * 内存用Runtime的已用内存在System.gc()前后的差值估算，只是粗略的参考值。
+ */
+public class LongSkipListBenchmark {
+
+    private static final int LOOKUPS = 1_000_000;
+
+    private static final int WINDOW = 1_000;
+
+    private static final int SCANS = 2_000;
+
+    private static final Object VALUE = new Object();
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        long[] keys = new long[entries];
+        long time = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < entries; i++)
+            keys[i] = time += 1 + random.nextInt(1_000);
+
+        System.out.printf("  %-26s %10s %10s %10s %10s %12s%n", "map", "insert(ns)", "get(ns)",
+                "floor(ns)", "scan(ns)", "memory");
+        //第一轮预热
+        for (int round = 0; round < 2; round++) {
+            boxed(keys, round == 1);
+            primitive(keys, round == 1);
+        }
+    }
+
+    private static void boxed(long[] keys, boolean print) {
+        long before = usedMemory();
+        ConcurrentSkipListMap<Long, Object> map = new ConcurrentSkipListMap<>();
+        long start = System.nanoTime();
+        for (long key : keys)
+            map.put(key, VALUE);
+        double insert = (double) (System.nanoTime() - start) / keys.length;
+        long memory = usedMemory() - before;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long hits = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+            if (map.get(keys[random.nextInt(keys.length)]) != null)
+                hits++;
+        double get = (double) (System.nanoTime() - start) / LOOKUPS;
+
+        long first = keys[0], span = keys[keys.length - 1] - first;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+            if (map.floorEntry(first + (long) (random.nextDouble() * span)) != null)
+                hits++;
+        double floor = (double) (System.nanoTime() - start) / LOOKUPS;
+
+        long scanned = 0;
+        int windows = Math.max(1, keys.length - WINDOW);
+        start = System.nanoTime();
+        for (int i = 0; i < SCANS; i++) {
+            int from = random.nextInt(windows);
+            for (Map.Entry<Long, Object> e : map.subMap(keys[from], true, keys[from + WINDOW - 1], true).entrySet())
+                scanned += e.getKey() & 1;
+        }
+        double scan = (double) (System.nanoTime() - start) / SCANS / WINDOW;
+        sink = hits + scanned;
+        if (print)
+            print("ConcurrentSkipListMap<Long>", insert, get, floor, scan, memory);
+    }
+
+    private static void primitive(long[] keys, boolean print) {
+        long before = usedMemory();
+        ConcurrentLongSkipListMap<Object> map = new ConcurrentLongSkipListMap<>();
+        long start = System.nanoTime();
+        for (long key : keys)
+            map.put(key, VALUE);
+        double insert = (double) (System.nanoTime() - start) / keys.length;
+        long memory = usedMemory() - before;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long hits = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+            if (map.get(keys[random.nextInt(keys.length)]) != null)
+                hits++;
+        double get = (double) (System.nanoTime() - start) / LOOKUPS;
+
+        long first = keys[0], span = keys[keys.length - 1] - first;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++)
+            if (map.floorValue(first + (long) (random.nextDouble() * span)) != null)
+                hits++;
+        double floor = (double) (System.nanoTime() - start) / LOOKUPS;
+
+        long scanned = 0;
+        int windows = Math.max(1, keys.length - WINDOW);
+        start = System.nanoTime();
+        for (int i = 0; i < SCANS; i++) {
+            int from = random.nextInt(windows);
+            ConcurrentLongSkipListMap.Cursor<Object> cursor =
+                    map.cursor(keys[from], true, keys[from + WINDOW - 1], true);
+            while (cursor.advance())
+                scanned += cursor.key() & 1;
+        }
+        double scan = (double) (System.nanoTime() - start) / SCANS / WINDOW;
+        sink = hits + scanned;
+        if (print)
+            print("ConcurrentLongSkipListMap", insert, get, floor, scan, memory);
+    }
+
+    private static void print(String name, double insert, double get, double floor, double scan, long memory) {
+        System.out.printf("  %-26s %10.0f %10.0f %10.0f %10.1f %,10dMB%n", name, insert, get, floor, scan,
+                memory / (1024 * 1024));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
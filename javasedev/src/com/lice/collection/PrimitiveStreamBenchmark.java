@@ -0,0 +1,94 @@
+package com.lice.collection;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * description: PrimitiveStreamBenchmark 基本类型流的distinct、分组计数、按键排序与原来装箱实现的对比 <br>
+ * date: 2026/10/18 23:10 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.collection.PrimitiveStreamBenchmark [元素个数] [不同值的个数]
+ * countByValue、countingByInt、groupingByInt、sortedByInt在本仓库的src/java/util/stream中，需要放到bootclasspath前面才能加载。
+ * 本仓库没有JMH，这里用手写的循环：每个用例先预热，再取5次测量的最小值。默认100万个元素，1万个不同的值。
+ * 对比(左边是原来的写法，右边是新的写法)：
+ * 1、distinct：boxed().distinct() 与 IntStream.distinct()(现在不再装箱)
+ * 2、count by value：boxed().collect(groupingBy(identity, counting())) 与 IntStream.countByValue()
+ * 3、group by int key：collect(groupingBy(e -> e.key, counting())) 与 collect(countingByInt(e -> e.key))
+ * 4、sort by int key：sorted(comparingInt(e -> e.key)) 与 sortedByInt(e -> e.key)
+ * 输出每个元素的平均耗时(ns)和平均分配的字节数(通过com.sun.management.ThreadMXBean统计当前线程的分配量)。
+ */
+public class PrimitiveStreamBenchmark {
+
+    private static final int RUNS = 5;
+
+    private static volatile Object sink;
+
+    static final class Event {
+        final int key;
+
+        Event(int key) {
+            this.key = key;
+        }
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int[] values = ThreadLocalRandom.current().ints(n, 0, distinct).toArray();
+        List<Event> events = Arrays.stream(values).mapToObj(Event::new).collect(Collectors.toList());
+        System.out.printf("elements=%,d distinct=%,d%n", n, distinct);
+        System.out.printf("  %-20s %12s %12s %12s %12s%n", "operation", "boxed(ns)", "boxed(B)", "primitive(ns)",
+                "primitive(B)");
+        compare("distinct", n,
+                () -> IntStream.of(values).boxed().distinct().mapToInt(i -> i).toArray(),
+                () -> IntStream.of(values).distinct().toArray());
+        compare("count by value", n,
+                () -> IntStream.of(values).boxed().collect(Collectors.groupingBy(i -> i, Collectors.counting())),
+                () -> IntStream.of(values).countByValue());
+        compare("group by int key", n,
+                () -> events.stream().collect(Collectors.groupingBy(e -> e.key, Collectors.counting())),
+                () -> events.stream().collect(Collectors.countingByInt(e -> e.key)));
+        compare("sort by int key", n,
+                () -> events.stream().sorted(Comparator.comparingInt(e -> e.key)).toArray(),
+                () -> events.stream().sortedByInt(e -> e.key).toArray());
+    }
+
+    private static void compare(String name, int n, Supplier<Object> boxed, Supplier<Object> primitive) {
+        //预热
+        measure(boxed);
+        measure(primitive);
+        double[] b = measure(boxed);
+        double[] p = measure(primitive);
+        System.out.printf("  %-20s %12.1f %12.1f %12.1f %12.1f%n", name, b[0] / n, b[1] / n, p[0] / n, p[1] / n);
+    }
+
+    /**
+     * @return {最短耗时(ns), 对应那次的分配字节数}
+     */
+    private static double[] measure(Supplier<Object> body) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        double best = Double.MAX_VALUE, bytes = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long allocated = threads.getThreadAllocatedBytes(id);
+            long start = System.nanoTime();
+            sink = body.get();
+            long time = System.nanoTime() - start;
+            if (time < best) {
+                best = time;
+                bytes = threads.getThreadAllocatedBytes(id) - allocated;
+            }
+        }
+        return new double[]{best, bytes};
+    }
+}
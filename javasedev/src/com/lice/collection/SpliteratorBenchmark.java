@@ -0,0 +1,117 @@
+package com.lice.collection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * description: SpliteratorBenchmark 顺序数据源(LinkedList、LinkedHashMap、Iterator)并行流的加速比矩阵 <br>
+ * date: 2026/10/18 23:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.collection.SpliteratorBenchmark [元素个数] [最大并行度]
+ * LinkedList、LinkedHashMap和Spliterators.spliteratorUnknownSize的拆分只能把前面一批元素拷贝到数组里，
+ * 原来每批比上一批多1024个元素(算术增长)，元素少或者每个元素的处理很重的时候几乎拆不开；
+ * 现在由Spliterators.BatchSizer根据叶子任务实际处理每个元素的耗时来决定每批的大小。
+ * 修改的类在本仓库的src/java/util中，需要放到bootclasspath前面才能加载；去掉-Xbootclasspath/p就是原来的行为，可以对比。
+ * 矩阵：数据源(ArrayList作为基线、LinkedList、LinkedHashMap.keySet、Iterator未知大小) ×
+ *       流水线(轻量的map+sum、每个元素很重的map、filter+collect) ×
+ *       并行度(1、2、4...直到最大并行度，用自定义的ForkJoinPool提交，流的任务会在提交它的池里执行)。
+ * 本仓库没有JMH，每个用例预热后取5次测量的最小值，输出顺序执行的耗时(ms)和各个并行度相对顺序执行的加速比。
+ */
+public class SpliteratorBenchmark {
+
+    private static final int RUNS = 5;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxParallelism = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        List<Integer> arrayList = new ArrayList<>(n);
+        LinkedList<Integer> linkedList = new LinkedList<>();
+        Map<Integer, Integer> linkedHashMap = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            arrayList.add(i);
+            linkedList.add(i);
+            linkedHashMap.put(i, i);
+        }
+        Map<String, Supplier<Stream<Integer>>> sources = new LinkedHashMap<>();
+        sources.put("ArrayList", () -> arrayList.parallelStream());
+        sources.put("LinkedList", () -> linkedList.parallelStream());
+        sources.put("LinkedHashMap", () -> linkedHashMap.keySet().parallelStream());
+        sources.put("Iterator", () -> StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(linkedList.iterator(), Spliterator.ORDERED), true));
+        Map<String, Function<Stream<Integer>, Object>> shapes = new LinkedHashMap<>();
+        shapes.put("cheap map+sum", s -> s.mapToLong(i -> i * 31L).sum());
+        shapes.put("expensive map", s -> s.mapToDouble(SpliteratorBenchmark::work).sum());
+        shapes.put("filter+collect", s -> s.filter(i -> (i & 3) == 0).collect(Collectors.toList()));
+
+        List<Integer> parallelisms = new ArrayList<>();
+        for (int p = 1; p <= maxParallelism; p <<= 1) {
+            parallelisms.add(p);
+        }
+        System.out.printf("elements=%,d cpus=%d%n", n, Runtime.getRuntime().availableProcessors());
+        System.out.printf("  %-14s %-15s %10s", "source", "pipeline", "seq(ms)");
+        for (int p : parallelisms) {
+            System.out.printf(" %8s", "p=" + p);
+        }
+        System.out.println();
+        for (Map.Entry<String, Supplier<Stream<Integer>>> source : sources.entrySet()) {
+            for (Map.Entry<String, Function<Stream<Integer>, Object>> shape : shapes.entrySet()) {
+                Supplier<Stream<Integer>> stream = source.getValue();
+                Function<Stream<Integer>, Object> pipeline = shape.getValue();
+                double sequential = measure(null, () -> pipeline.apply(stream.get().sequential()));
+                System.out.printf("  %-14s %-15s %10.2f", source.getKey(), shape.getKey(), sequential / 1e6);
+                for (int p : parallelisms) {
+                    ForkJoinPool pool = new ForkJoinPool(p);
+                    try {
+                        double parallel = measure(pool, () -> pipeline.apply(stream.get()));
+                        System.out.printf(" %7.2fx", sequential / parallel);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    private static double work(int i) {
+        double d = i;
+        for (int k = 0; k < 100; k++) {
+            d = Math.sin(d) + i;
+        }
+        return d;
+    }
+
+    /**
+     * @return 预热后5次测量中最短的耗时(ns)，pool为null时在当前线程执行
+     */
+    private static double measure(ForkJoinPool pool, Supplier<Object> body) throws Exception {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < RUNS * 2; i++) {
+            long start = System.nanoTime();
+            sink = pool == null ? body.get() : pool.submit(body::get).get();
+            long time = System.nanoTime() - start;
+            //前一半是预热
+            if (i >= RUNS && time < best) {
+                best = time;
+            }
+        }
+        return best;
+    }
+}
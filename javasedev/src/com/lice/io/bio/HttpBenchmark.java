@@ -0,0 +1,193 @@
+package com.lice.io.bio;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * description: HttpBenchmark 对比Tomcat与HttpServer的每秒请求数 <br>
+ * date: 2026/10/18 12:10 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.io.bio.HttpBenchmark [每轮的总请求数]
+ * Tomcat监听8080，每个请求都要重新建立连接；HttpServer监听8081，每个客户端线程复用一个长连接。
+ * 并发客户端数分别为1、100、1000，1000个客户端时HttpServer的线程池也要有足够的线程。
+ * Tomcat在读到请求之前就可能关闭连接，客户端读取时出现的连接重置计入errors。
+ */
+public class HttpBenchmark {
+
+    private static final int TOMCAT_PORT = 8080;
+
+    private static final int HTTP_SERVER_PORT = 8081;
+
+    private static final int[] CONCURRENCY = {1, 100, 1000};
+
+    //readResponse的返回值
+    private static final int RESPONSE_ERROR = -1;
+    private static final int RESPONSE_CLOSE = 0;
+    private static final int RESPONSE_KEEP_ALIVE = 1;
+
+    private static final byte[] REQUEST = ("GET / HTTP/1.1\r\n" +
+            "Host: 127.0.0.1\r\n" +
+            "User-Agent: HttpBenchmark\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    public static void main(String[] args) throws Exception {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        Thread tomcat = new Thread(() -> {
+            try {
+                Tomcat.main(new String[0]);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, "tomcat");
+        tomcat.setDaemon(true);
+        tomcat.start();
+        HttpServer server = new HttpServer(HTTP_SERVER_PORT, 1100, 1100, 15_000, HttpServer.HELLO_HANDLER);
+        server.start();
+        Thread.sleep(500);
+
+        //Tomcat会把收到的请求打印到控制台，压测期间屏蔽掉
+        java.io.PrintStream console = System.out;
+        System.setOut(new java.io.PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        try {
+            for (int clients : CONCURRENCY) {
+                int perClient = Math.max(1, total / clients);
+                Result legacy = run(clients, perClient, false);
+                Result keepAlive = run(clients, perClient, true);
+                console.printf("clients=%d  Tomcat: %.0f req/s (errors=%d) | HttpServer: %.0f req/s (errors=%d)%n",
+                        clients, legacy.throughput(), legacy.errors, keepAlive.throughput(), keepAlive.errors);
+            }
+        } finally {
+            System.setOut(console);
+            server.stop();
+        }
+    }
+
+    private static Result run(int clients, int perClient, boolean keepAlive) throws InterruptedException {
+        AtomicLong ok = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (keepAlive)
+                    keepAliveClient(perClient, ok, errors);
+                else
+                    legacyClient(perClient, ok, errors);
+            });
+            threads[i].start();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        return new Result(ok.get(), errors.get(), System.nanoTime() - start);
+    }
+
+    //每个请求一个连接，读到连接关闭为止
+    private static void legacyClient(int requests, AtomicLong ok, AtomicLong errors) {
+        byte[] buf = new byte[1024];
+        for (int i = 0; i < requests; i++) {
+            try (Socket socket = new Socket("127.0.0.1", TOMCAT_PORT)) {
+                socket.getOutputStream().write(REQUEST);
+                InputStream in = socket.getInputStream();
+                int total = 0;
+                for (int n; (n = in.read(buf)) >= 0; )
+                    total += n;
+                if (total > 0)
+                    ok.incrementAndGet();
+                else
+                    errors.incrementAndGet();
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    //一个长连接上连续发送请求，按Content-Length读取响应，服务端关闭长连接后重新连接
+    private static void keepAliveClient(int requests, AtomicLong ok, AtomicLong errors) {
+        int remaining = requests;
+        while (remaining > 0) {
+            try (Socket socket = new Socket("127.0.0.1", HTTP_SERVER_PORT)) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                int result = RESPONSE_KEEP_ALIVE;
+                while (remaining > 0 && result == RESPONSE_KEEP_ALIVE) {
+                    out.write(REQUEST);
+                    out.flush();
+                    result = readResponse(in);
+                    if (result == RESPONSE_ERROR) {
+                        errors.addAndGet(remaining);
+                        return;
+                    }
+                    ok.incrementAndGet();
+                    remaining--;
+                }
+            } catch (IOException e) {
+                errors.addAndGet(remaining);
+                return;
+            }
+        }
+    }
+
+    private static int readResponse(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            head.append((char) c);
+            int len = head.length();
+            if (len >= 4 && head.charAt(len - 1) == '\n' && head.charAt(len - 2) == '\r'
+                    && head.charAt(len - 3) == '\n' && head.charAt(len - 4) == '\r')
+                break;
+        }
+        if (c < 0 || !head.toString().startsWith("HTTP/1.1 200"))
+            return RESPONSE_ERROR;
+        int contentLength = 0;
+        boolean keepAlive = true;
+        for (String line : head.toString().split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15))
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            else if (line.regionMatches(true, 0, "Connection:", 0, 11))
+                keepAlive = !"close".equalsIgnoreCase(line.substring(11).trim());
+        }
+        for (int i = 0; i < contentLength; i++) {
+            if (in.read() < 0)
+                return RESPONSE_ERROR;
+        }
+        return keepAlive ? RESPONSE_KEEP_ALIVE : RESPONSE_CLOSE;
+    }
+
+    private static class Result {
+        final long ok;
+        final long errors;
+        final long nanos;
+
+        Result(long ok, long errors, long nanos) {
+            this.ok = ok;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+
+        double throughput() {
+            return ok / (nanos / 1e9);
+        }
+    }
+}
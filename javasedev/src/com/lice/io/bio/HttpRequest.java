@@ -0,0 +1,71 @@
+package com.lice.io.bio;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * description: HttpRequest 解析完成的HTTP请求 <br>
+ * date: 2026/10/18 12:10 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+public class HttpRequest {
+
+    private final String method;
+    private final String uri;
+    private final String version;
+    //header名统一转成小写
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    HttpRequest(String method, String uri, String version, LinkedHashMap<String, String> headers, byte[] body) {
+        this.method = method;
+        this.uri = uri;
+        this.version = version;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    //HTTP/1.1默认长连接，HTTP/1.0需要显式的Connection: keep-alive
+    public boolean isKeepAlive() {
+        String connection = getHeader("connection");
+        if ("HTTP/1.1".equals(version))
+            return connection == null || !"close".equalsIgnoreCase(connection);
+        return "keep-alive".equalsIgnoreCase(connection);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpRequest{" +
+                "method='" + method + '\'' +
+                ", uri='" + uri + '\'' +
+                ", version='" + version + '\'' +
+                ", headers=" + headers +
+                '}';
+    }
+}
@@ -0,0 +1,170 @@
+package com.lice.io.bio;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * description: HttpRequestParser 增量的HTTP/1.1请求解析 <br>
+ * date: 2026/10/18 12:10 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 不依赖in.available()，每次read读到多少就feed多少：
+ * 1、数据不够一个完整的请求时next()返回null，保留已读的数据等待下一次feed
+ * 2、一次read可能读到多个请求(pipelining)，循环调用next()直到返回null
+ * 3、状态：请求行 -> 请求头 -> 请求体(Content-Length)，解析过的数据会被丢弃
+ */
+public class HttpRequestParser {
+
+    //请求行加请求头的最大长度
+    static final int MAX_HEADER_SIZE = 8 * 1024;
+
+    //请求体的最大长度
+    static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    private static final int REQUEST_LINE = 0;
+    private static final int HEADERS = 1;
+    private static final int BODY = 2;
+
+    private byte[] buf = new byte[4096];
+    //buf中[start, end)是未解析的数据
+    private int start;
+    private int end;
+
+    private int state = REQUEST_LINE;
+    //当前请求已解析的请求行和请求头长度
+    private int headerSize;
+
+    private String method;
+    private String uri;
+    private String version;
+    private LinkedHashMap<String, String> headers;
+    private int contentLength;
+
+    public void feed(byte[] data, int off, int len) {
+        if (end + len > buf.length) {
+            //先把已经解析过的数据移走，空间还不够再扩容
+            int remaining = end - start;
+            if (remaining + len > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, remaining + len));
+            System.arraycopy(buf, start, buf, 0, remaining);
+            start = 0;
+            end = remaining;
+        }
+        System.arraycopy(data, off, buf, end, len);
+        end += len;
+    }
+
+    //解析出一个完整的请求，数据不够时返回null
+    public HttpRequest next() throws HttpParseException {
+        for (; ; ) {
+            if (state == BODY) {
+                if (end - start < contentLength)
+                    return null;
+                byte[] body = Arrays.copyOfRange(buf, start, start + contentLength);
+                start += contentLength;
+                HttpRequest request = new HttpRequest(method, uri, version, headers, body);
+                reset();
+                return request;
+            }
+            int eol = indexOfCRLF();
+            if (eol < 0) {
+                if (headerSize + (end - start) > MAX_HEADER_SIZE)
+                    throw new HttpParseException(431, "Request Header Fields Too Large");
+                return null;
+            }
+            String line = new String(buf, start, eol - start, StandardCharsets.ISO_8859_1);
+            headerSize += eol + 2 - start;
+            start = eol + 2;
+            if (headerSize > MAX_HEADER_SIZE)
+                throw new HttpParseException(431, "Request Header Fields Too Large");
+            if (state == REQUEST_LINE) {
+                //请求之间允许有空行
+                if (line.isEmpty()) {
+                    headerSize = 0;
+                    continue;
+                }
+                parseRequestLine(line);
+                state = HEADERS;
+            } else if (line.isEmpty()) {
+                headersDone();
+            } else {
+                int colon = line.indexOf(':');
+                if (colon <= 0)
+                    throw new HttpParseException(400, "Bad Request");
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private void parseRequestLine(String line) throws HttpParseException {
+        int sp1 = line.indexOf(' ');
+        int sp2 = line.lastIndexOf(' ');
+        if (sp1 <= 0 || sp2 <= sp1)
+            throw new HttpParseException(400, "Bad Request");
+        method = line.substring(0, sp1);
+        uri = line.substring(sp1 + 1, sp2);
+        version = line.substring(sp2 + 1);
+        if (!version.startsWith("HTTP/1."))
+            throw new HttpParseException(505, "HTTP Version Not Supported");
+        headers = new LinkedHashMap<>();
+    }
+
+    private void headersDone() throws HttpParseException {
+        if (headers.containsKey("transfer-encoding"))
+            throw new HttpParseException(501, "Not Implemented");
+        String length = headers.get("content-length");
+        contentLength = 0;
+        if (length != null) {
+            try {
+                contentLength = Integer.parseInt(length);
+            } catch (NumberFormatException e) {
+                throw new HttpParseException(400, "Bad Request");
+            }
+            if (contentLength < 0)
+                throw new HttpParseException(400, "Bad Request");
+            if (contentLength > MAX_BODY_SIZE)
+                throw new HttpParseException(413, "Payload Too Large");
+        }
+        state = BODY;
+    }
+
+    private int indexOfCRLF() {
+        for (int i = start; i < end - 1; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    private void reset() {
+        state = REQUEST_LINE;
+        headerSize = 0;
+        method = null;
+        uri = null;
+        version = null;
+        headers = null;
+        contentLength = 0;
+        if (start == end)
+            start = end = 0;
+    }
+
+    //请求格式错误，status是返回给客户端的状态码
+    public static class HttpParseException extends Exception {
+
+        private static final long serialVersionUID = 4471853618406271025L;
+
+        private final int status;
+
+        HttpParseException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.lice.io.bio;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * description: HttpServer 线程池版本的HTTP/1.1服务端 <br>
+ * date: 2026/10/18 12:10 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 与Tomcat的区别：
+ * 1、acceptor线程只负责accept，连接交给有界的线程池处理，线程池和队列都满时返回503
+ * 2、按read实际读到的字节增量解析请求，不依赖in.available()
+ * 3、长连接：HTTP/1.1默认不关闭连接，空闲超过keepAliveTimeout才关闭
+ * 4、pipelining：一次读到的多个请求依次处理，响应写到缓冲流中，没有后续请求时再flush
+ */
+public class HttpServer {
+
+    private static final int DEFAULT_WORKERS = 200;
+
+    private static final int DEFAULT_BACKLOG = 1024;
+
+    private static final int DEFAULT_KEEP_ALIVE_MILLIS = 15_000;
+
+    //一个长连接最多处理的请求数
+    private static final int MAX_KEEP_ALIVE_REQUESTS = 10_000;
+
+    //默认的请求处理，与Tomcat一样返回hello client
+    public static final Handler HELLO_HANDLER = request ->
+            HttpResponse.ok("text/plain", "hello client".getBytes(StandardCharsets.UTF_8));
+
+    private final int port;
+
+    private final Handler handler;
+
+    private final ThreadPoolExecutor workers;
+
+    private final int keepAliveTimeout;
+
+    private ServerSocket serverSocket;
+
+    private Thread acceptor;
+
+    private volatile boolean running;
+
+    public HttpServer(int port) {
+        this(port, DEFAULT_WORKERS, HELLO_HANDLER);
+    }
+
+    public HttpServer(int port, int workerCount, Handler handler) {
+        this(port, workerCount, workerCount, DEFAULT_KEEP_ALIVE_MILLIS, handler);
+    }
+
+    public HttpServer(int port, int workerCount, int queueSize, int keepAliveTimeout, Handler handler) {
+        if (handler == null)
+            throw new NullPointerException();
+        this.port = port;
+        this.handler = handler;
+        this.keepAliveTimeout = keepAliveTimeout;
+        AtomicInteger seq = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "http-worker-" + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, DEFAULT_BACKLOG);
+        running = true;
+        acceptor = new Thread(this::acceptLoop, "http-acceptor-" + port);
+        acceptor.start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        workers.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running)
+                    e.printStackTrace();
+                continue;
+            }
+            try {
+                workers.execute(() -> handle(socket));
+            } catch (RejectedExecutionException e) {
+                //线程池满了，直接返回503，不占用工作线程
+                try {
+                    OutputStream out = socket.getOutputStream();
+                    HttpResponse.status(503, "Service Unavailable").writeTo(out, false);
+                    out.flush();
+                } catch (IOException ignored) {
+                } finally {
+                    closeQuietly(socket);
+                }
+            }
+        }
+    }
+
+    //在工作线程中处理一个连接上的所有请求
+    private void handle(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(keepAliveTimeout);
+            InputStream in = socket.getInputStream();
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+            HttpRequestParser parser = new HttpRequestParser();
+            byte[] buf = new byte[8192];
+            int served = 0;
+            boolean keepAlive = true;
+            while (keepAlive && running) {
+                int n;
+                try {
+                    n = in.read(buf);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                if (n < 0)
+                    break;
+                parser.feed(buf, 0, n);
+                HttpRequest request;
+                try {
+                    while (keepAlive && (request = parser.next()) != null) {
+                        keepAlive = request.isKeepAlive() && ++served < MAX_KEEP_ALIVE_REQUESTS;
+                        HttpResponse response;
+                        try {
+                            response = handler.handle(request);
+                        } catch (Exception e) {
+                            response = HttpResponse.status(500, "Internal Server Error");
+                        }
+                        response.writeTo(out, keepAlive);
+                    }
+                } catch (HttpRequestParser.HttpParseException e) {
+                    HttpResponse.status(e.getStatus(), e.getMessage()).writeTo(out, false);
+                    keepAlive = false;
+                }
+                //pipelining的请求全部处理完才flush，多个响应合并成一次写
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            //客户端断开连接
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    //请求处理，在工作线程中执行
+    @FunctionalInterface
+    public interface Handler {
+        HttpResponse handle(HttpRequest request) throws Exception;
+    }
+
+    public static class HttpResponse {
+
+        private final int status;
+        private final String reason;
+        private final String contentType;
+        private final byte[] body;
+
+        public HttpResponse(int status, String reason, String contentType, byte[] body) {
+            this.status = status;
+            this.reason = reason;
+            this.contentType = contentType;
+            this.body = body == null ? new byte[0] : body;
+        }
+
+        public static HttpResponse ok(String contentType, byte[] body) {
+            return new HttpResponse(200, "OK", contentType, body);
+        }
+
+        public static HttpResponse status(int status, String reason) {
+            return new HttpResponse(status, reason, "text/plain", reason.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeTo(OutputStream out, boolean keepAlive) throws IOException {
+            String head = "HTTP/1.1 " + status + " " + reason + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Length: " + body.length + "\r\n" +
+                    "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        HttpServer server = new HttpServer(port);
+        server.start();
+        System.out.println("http server is started on " + port);
+    }
+}
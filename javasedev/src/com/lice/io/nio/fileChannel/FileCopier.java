@@ -0,0 +1,367 @@
+package com.lice.io.nio.fileChannel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * description: FileCopier 基于实例的文件复制，支持分段并行、零拷贝和CRC32校验 <br>
+ * date: 2026/10/18 13:00 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 与FileCopyUtils的区别：没有静态的通道和缓冲区，同一个实例可以被多个线程同时使用
+ * 1、零拷贝：循环调用transferTo，直到整个区间传输完成(一次调用可能只传输一部分)
+ * 2、并行：大于chunkSize的文件按chunkSize拆分成多个区间，每个区间打开自己的通道，写到目标文件的对应位置
+ * 3、缓冲区：开启checksum，或者transferTo不可用时，使用池化的直接缓冲区，通过read/write(buffer, position)复制
+ * 4、校验：checksum模式下边复制边计算CRC32，各区间的CRC32合并成整个文件的CRC32；verify时重新读取目标文件比对
+ * 5、目录：copyTree递归复制目录，文件依次复制，单个大文件内部并行
+ * 6、目标文件会先被截断再写入，所以拒绝复制到源文件本身(包括硬链接、符号链接)，copyTree拒绝把目录复制到它自己里面
+ */
+public class FileCopier implements Closeable {
+
+    //默认每个区间64M
+    private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final int DEFAULT_BUF_SIZE = 256 * 1024;
+
+    //每次transferTo的最大字节数，也是进度回调的粒度
+    private static final long TRANSFER_STEP = 8L * 1024 * 1024;
+
+    private final long chunkSize;
+
+    private final int bufSize;
+
+    private final boolean checksum;
+
+    private final boolean verify;
+
+    private final ProgressListener listener;
+
+    private final ExecutorService executor;
+
+    //池化的直接缓冲区
+    private final ConcurrentLinkedQueue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+    public FileCopier() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE, false, false, null);
+    }
+
+    public FileCopier(int parallelism, long chunkSize, boolean checksum, boolean verify, ProgressListener listener) {
+        this(parallelism, chunkSize, DEFAULT_BUF_SIZE, checksum, verify, listener);
+    }
+
+    public FileCopier(int parallelism, long chunkSize, int bufSize, boolean checksum, boolean verify,
+                      ProgressListener listener) {
+        if (parallelism <= 0 || chunkSize <= 0 || bufSize <= 0)
+            throw new IllegalArgumentException();
+        this.chunkSize = chunkSize;
+        this.bufSize = bufSize;
+        //verify需要源文件的CRC32
+        this.checksum = checksum || verify;
+        this.verify = verify;
+        this.listener = listener;
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "file-copier-" + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 复制一个文件，返回源文件内容的CRC32，没有开启checksum时返回-1
+     */
+    public long copy(File from, File to) throws IOException {
+        if (from == null || to == null)
+            throw new IOException("File is null");
+        if (!from.exists())
+            throw new IOException("源文件不存在：" + from);
+        if (from.isDirectory())
+            throw new IOException(from + "是目录");
+        Path source = from.toPath();
+        Path target = to.toPath();
+        //isSameFile比较的是文件本身，硬链接和符号链接也能识别出来
+        if (Files.exists(target) && Files.isSameFile(source, target))
+            throw new IOException("源文件和目标文件是同一个文件：" + from + " -> " + to);
+        long size = Files.size(source);
+        //预先设置目标文件长度，各区间按位置写入
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (size > 0)
+                out.truncate(0).write(ByteBuffer.wrap(new byte[1]), size - 1);
+        }
+        Progress progress = new Progress(from, size);
+        long crc = copyRanges(source, target, size, progress);
+        if (verify) {
+            long targetCrc = crc32(target, size);
+            if (targetCrc != crc)
+                throw new IOException("CRC32校验失败：" + from + " -> " + to);
+        }
+        return checksum ? crc : -1;
+    }
+
+    /**
+     * 递归复制目录，返回复制的字节数
+     */
+    public long copyTree(File fromDir, File toDir) throws IOException {
+        if (fromDir == null || toDir == null)
+            throw new IOException("File is null");
+        if (!fromDir.isDirectory())
+            throw new IOException(fromDir + "不是目录");
+        Path source = fromDir.toPath();
+        Path target = toDir.toPath();
+        //目标目录在源目录里面时，遍历会把刚复制出来的文件再复制一遍
+        if (realPath(target).startsWith(source.toRealPath()))
+            throw new IOException("目标目录在源目录中：" + fromDir + " -> " + toDir);
+        AtomicLong total = new AtomicLong();
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    copy(file.toFile(), target.resolve(source.relativize(file).toString()).toFile());
+                    total.addAndGet(attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total.get();
+    }
+
+    //目标路径可能还不存在，取最近的已存在的上级目录的真实路径，再拼上剩下的部分
+    private static Path realPath(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath().normalize();
+        Path existing = absolute;
+        while (existing != null && !Files.exists(existing))
+            existing = existing.getParent();
+        if (existing == null)
+            return absolute;
+        return existing.toRealPath().resolve(existing.relativize(absolute));
+    }
+
+    //拆分区间，并行复制，按顺序合并各区间的CRC32
+    private long copyRanges(Path source, Path target, long size, Progress progress) throws IOException {
+        if (size <= chunkSize)
+            return copyRange(source, target, 0, size, progress);
+        List<Future<Long>> futures = new ArrayList<>();
+        List<Long> lengths = new ArrayList<>();
+        for (long position = 0; position < size; position += chunkSize) {
+            final long start = position;
+            final long length = Math.min(chunkSize, size - position);
+            futures.add(executor.submit(() -> copyRange(source, target, start, length, progress)));
+            lengths.add(length);
+        }
+        long crc = 0;
+        IOException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                long rangeCrc = futures.get(i).get();
+                if (checksum)
+                    crc = i == 0 ? rangeCrc : crc32Combine(crc, rangeCrc, lengths.get(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IOException("复制被中断", e);
+            } catch (ExecutionException e) {
+                if (failure == null)
+                    failure = e.getCause() instanceof IOException ?
+                            (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return crc;
+    }
+
+    //复制[start, start + length)区间，返回这个区间的CRC32
+    private long copyRange(Path source, Path target, long start, long length, Progress progress) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            if (!checksum) {
+                try {
+                    transferRange(in, out, start, length, progress);
+                    return 0;
+                } catch (IOException e) {
+                    //部分平台或文件系统不支持transferTo，退回缓冲区复制
+                }
+            }
+            return bufferedRange(in, out, start, length, progress);
+        }
+    }
+
+    //零拷贝，transferTo一次可能只传输部分数据，需要循环
+    private void transferRange(FileChannel in, FileChannel out, long start, long length,
+                               Progress progress) throws IOException {
+        out.position(start);
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long count = in.transferTo(position, Math.min(TRANSFER_STEP, end - position), out);
+            if (count <= 0) {
+                //源文件在复制过程中被截断
+                if (position >= in.size())
+                    throw new IOException("源文件在复制过程中被修改");
+                continue;
+            }
+            position += count;
+            progress.add(count);
+        }
+    }
+
+    private long bufferedRange(FileChannel in, FileChannel out, long start, long length,
+                               Progress progress) throws IOException {
+        ByteBuffer buf = acquire();
+        CRC32 crc = checksum ? new CRC32() : null;
+        try {
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                buf.clear();
+                if (end - position < buf.capacity())
+                    buf.limit((int) (end - position));
+                int n = in.read(buf, position);
+                if (n < 0)
+                    throw new IOException("源文件在复制过程中被修改");
+                buf.flip();
+                if (crc != null) {
+                    crc.update(buf);
+                    buf.rewind();
+                }
+                long writePosition = position;
+                while (buf.hasRemaining())
+                    writePosition += out.write(buf, writePosition);
+                position += n;
+                progress.add(n);
+            }
+            return crc == null ? 0 : crc.getValue();
+        } finally {
+            bufferPool.offer(buf);
+        }
+    }
+
+    //读取文件计算CRC32，用于verify
+    private long crc32(Path path, long size) throws IOException {
+        ByteBuffer buf = acquire();
+        CRC32 crc = new CRC32();
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < size) {
+                buf.clear();
+                int n = in.read(buf, position);
+                if (n < 0)
+                    break;
+                buf.flip();
+                crc.update(buf);
+                position += n;
+            }
+        } finally {
+            bufferPool.offer(buf);
+        }
+        return crc.getValue();
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buf = bufferPool.poll();
+        return buf != null ? buf : ByteBuffer.allocateDirect(bufSize);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        bufferPool.clear();
+    }
+
+    /*
+     * 合并两段数据的CRC32：crc1是前一段的CRC32，crc2是后一段(长度len2)的CRC32，
+     * 算法来自zlib的crc32_combine，在GF(2)上把crc1"移动"len2个字节
+     */
+    static long crc32Combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0)
+            return crc1;
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        //CRC-32多项式
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0)
+                crc1 = gf2MatrixTimes(even, crc1);
+            len2 >>= 1;
+            if (len2 == 0)
+                break;
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0)
+                crc1 = gf2MatrixTimes(odd, crc1);
+            len2 >>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        for (int i = 0; vec != 0; i++, vec >>>= 1) {
+            if ((vec & 1) != 0)
+                sum ^= mat[i];
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < 32; n++)
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+    }
+
+    //复制进度回调，可能在多个线程中被调用
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(File file, long copied, long total);
+    }
+
+    private final class Progress {
+        private final File file;
+        private final long total;
+        private final AtomicLong copied = new AtomicLong();
+
+        Progress(File file, long total) {
+            this.file = file;
+            this.total = total;
+        }
+
+        void add(long n) {
+            long now = copied.addAndGet(n);
+            if (listener != null)
+                listener.onProgress(file, now, total);
+        }
+    }
+}
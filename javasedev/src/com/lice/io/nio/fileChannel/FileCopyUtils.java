@@ -39,8 +39,12 @@ public class FileCopyUtils {
             readChannel = readFile.getChannel();
             //获取写的文件通道
             writeChannel = writeFile.getChannel();
-            //NIO中FileChannel复制文件
-            readChannel.transferTo(0, readChannel.size(), writeChannel);
+            //NIO中FileChannel复制文件，transferTo一次可能只传输一部分，需要循环
+            long position = 0;
+            long size = readChannel.size();
+            while (position < size) {
+                position += readChannel.transferTo(position, size - position, writeChannel);
+            }
             return true;
         } catch (IOException e) {
             e.printStackTrace();
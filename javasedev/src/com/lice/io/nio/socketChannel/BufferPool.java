@@ -0,0 +1,57 @@
+package com.lice.io.nio.socketChannel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * description: BufferPool 直接缓冲区池 <br>
+ * date: 2026/10/18 11:30 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * DirectByteBuffer的分配和回收都比堆缓冲区昂贵，而且不受young gc管理，
+ * 所以连接关闭时把缓冲区还给池子，供下一个连接复用。
+ * 池子最多缓存maxPooled个缓冲区，超出的部分直接丢弃，由Cleaner回收。
+ */
+public class BufferPool {
+
+    private final int bufSize;
+
+    private final int maxPooled;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public BufferPool(int bufSize, int maxPooled) {
+        if (bufSize <= 0 || maxPooled < 0)
+            throw new IllegalArgumentException();
+        this.bufSize = bufSize;
+        this.maxPooled = maxPooled;
+    }
+
+    //取出一个已经clear过的缓冲区
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null)
+            return ByteBuffer.allocateDirect(bufSize);
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufSize)
+            return;
+        if (pooled.incrementAndGet() <= maxPooled)
+            pool.offer(buffer);
+        else
+            pooled.decrementAndGet();
+    }
+
+    public int getBufSize() {
+        return bufSize;
+    }
+}
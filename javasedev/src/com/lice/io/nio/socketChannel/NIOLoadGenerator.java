@@ -0,0 +1,149 @@
+package com.lice.io.nio.socketChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * description: NIOLoadGenerator NIOServer压测客户端 <br>
+ * date: 2026/10/18 11:30 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.io.nio.socketChannel.NIOLoadGenerator [连接数] [每个连接的请求数] [客户端线程数] [服务端worker数]
+ * 在本进程内启动NIOServer(ECHO_HANDLER)，客户端线程先建立全部连接(统计每秒建立的连接数)，
+ * 再在各自的连接上轮流发送64字节的消息并等待完整的回显，统计请求的p50/p99延迟。
+ */
+public class NIOLoadGenerator {
+
+    private static final int PORT = 8899;
+
+    private static final int MESSAGE_SIZE = 64;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        NIOServer server = new NIOServer(PORT, workers);
+        Thread boss = new Thread(server, "nio-boss");
+        boss.setDaemon(true);
+        boss.start();
+
+        List<Client> clients = new ArrayList<>();
+        CountDownLatch connected = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            int share = connections / threads + (i < connections % threads ? 1 : 0);
+            Client client = new Client(share, requests, connected, go);
+            clients.add(client);
+        }
+        long start = System.nanoTime();
+        for (Client client : clients)
+            client.start();
+        connected.await();
+        long connectNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        go.countDown();
+        for (Client client : clients)
+            client.join();
+        long requestNanos = System.nanoTime() - start;
+
+        int total = 0;
+        for (Client client : clients)
+            total += client.count;
+        long[] latencies = new long[total];
+        int pos = 0;
+        for (Client client : clients) {
+            System.arraycopy(client.latencies, 0, latencies, pos, client.count);
+            pos += client.count;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("workers=%d connections=%d threads=%d%n", workers, connections, threads);
+        System.out.printf("connect: %.0f conn/s%n", connections / (connectNanos / 1e9));
+        System.out.printf("requests: %d, %.0f req/s, p50=%.1fus p99=%.1fus max=%.1fus%n",
+                total, total / (requestNanos / 1e9),
+                percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+                total == 0 ? 0 : latencies[total - 1] / 1e3);
+        server.close();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    //一个客户端线程负责若干个阻塞模式的连接
+    private static class Client extends Thread {
+
+        private final int connections;
+        private final int requests;
+        private final CountDownLatch connected;
+        private final CountDownLatch go;
+        private final long[] latencies;
+        private int count;
+
+        Client(int connections, int requests, CountDownLatch connected, CountDownLatch go) {
+            this.connections = connections;
+            this.requests = requests;
+            this.connected = connected;
+            this.go = go;
+            this.latencies = new long[connections * requests];
+        }
+
+        @Override
+        public void run() {
+            SocketChannel[] channels = new SocketChannel[connections];
+            try {
+                try {
+                    for (int i = 0; i < connections; i++) {
+                        channels[i] = SocketChannel.open(new InetSocketAddress("127.0.0.1", PORT));
+                        channels[i].socket().setTcpNoDelay(true);
+                    }
+                } finally {
+                    connected.countDown();
+                }
+                go.await();
+                ByteBuffer out = ByteBuffer.allocateDirect(MESSAGE_SIZE);
+                ByteBuffer in = ByteBuffer.allocateDirect(MESSAGE_SIZE);
+                for (int r = 0; r < requests; r++) {
+                    for (SocketChannel channel : channels) {
+                        out.clear();
+                        while (out.hasRemaining())
+                            out.put((byte) 'x');
+                        out.flip();
+                        in.clear();
+                        long begin = System.nanoTime();
+                        while (out.hasRemaining())
+                            channel.write(out);
+                        while (in.hasRemaining()) {
+                            if (channel.read(in) < 0)
+                                throw new IOException("connection closed by server");
+                        }
+                        latencies[count++] = System.nanoTime() - begin;
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                for (SocketChannel channel : channels) {
+                    try {
+                        if (channel != null)
+                            channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+}
@@ -4,9 +4,10 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * description: NIOServer <br>
@@ -14,19 +15,61 @@ import java.util.Set;
  * author: lc <br>
  * version: 1.0 <br>
  */
+/*
+ * 主从Reactor模型：
+ * 1、boss：本线程(run方法)只负责OP_ACCEPT，接收到的SocketChannel轮询分配给某一个SubReactor
+ * 2、worker：每个SubReactor有自己的Selector和线程，负责所分配连接的读写，连接的整个生命周期都在同一个线程
+ * 3、每个连接有自己的读缓冲区和写队列，缓冲区从BufferPool中获取直接缓冲区，连接关闭时归还
+ * 4、写数据先尝试直接写，写不完的部分留在写队列并注册OP_WRITE，写队列清空后取消OP_WRITE
+ */
 public class NIOServer implements Runnable {
 
     private int bufSize = 1024;
+
+    //每个连接写队列的上限，超过后暂停读取，直到写队列清空
+    private static final int MAX_PENDING_WRITES = 64;
+
+    //默认的消息处理：原样返回客户端发来的数据
+    public static final MessageHandler ECHO_HANDLER = (connection, data) -> connection.write(data);
+
     /*
      * Selector:selector存储的是服务端为每个客户端的开启的SocketChannel，给SocketChannel是服务端
      * 开通与客户端通信的，Selector不用存储客户端的SocketChannel的，因为每一个客户端的socket通道都是独立的
      */
-    //多路复用器，用于注册通道
+    //多路复用器，boss只用来注册ServerSocketChannel
     private Selector selector;
-    private ByteBuffer readBuffer = ByteBuffer.allocate(bufSize);
-    private ByteBuffer writeBuffer = ByteBuffer.allocate(bufSize);
+
+    private ServerSocketChannel serverSocketChannel;
+
+    //worker，负责已建立连接的读写
+    private final SubReactor[] subReactors;
+
+    //轮询分配连接的下标，只在boss线程中使用
+    private int next;
+
+    private final BufferPool bufferPool;
+
+    private final MessageHandler handler;
+
+    private volatile boolean running = true;
 
     public NIOServer(int port) {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public NIOServer(int port, int workers) {
+        this(port, workers, ECHO_HANDLER);
+    }
+
+    public NIOServer(int port, int workers, MessageHandler handler) {
+        if (workers <= 0)
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        if (handler == null)
+            throw new NullPointerException();
+        this.handler = handler;
+        //每个连接占用一个读缓冲区，写队列按需借用，池子最多缓存4096个缓冲区
+        this.bufferPool = new BufferPool(bufSize, 1024 * 4);
+        this.subReactors = new SubReactor[workers];
         init(port);
     }
 
@@ -35,11 +78,11 @@ public class NIOServer implements Runnable {
             //开启多路复用器
             this.selector = Selector.open();
             //开启服务端通道
-            ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+            serverSocketChannel = ServerSocketChannel.open();
             //设置为非阻塞
             serverSocketChannel.configureBlocking(false);
             //绑定端口
-            serverSocketChannel.socket().bind(new InetSocketAddress("127.0.0.1", port));
+            serverSocketChannel.socket().bind(new InetSocketAddress("127.0.0.1", port), 1024);
             //服务器通道注册到Selector中，并标记通道的状态，一旦客户端发生事件，Selector会通知服务端
             /*
              * 通道状态：
@@ -50,6 +93,13 @@ public class NIOServer implements Runnable {
              */
             //设置客户端连接服务端的事件
             serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+            //启动worker线程
+            for (int i = 0; i < subReactors.length; i++) {
+                subReactors[i] = new SubReactor(Selector.open());
+                Thread thread = new Thread(subReactors[i], "nio-worker-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
             System.out.println("server is started....");
 
         } catch (Exception e) {
@@ -57,54 +107,26 @@ public class NIOServer implements Runnable {
         }
     }
 
-    //线程实现方法
+    //线程实现方法，boss循环
     @Override
     public void run() {
-        while (true) {
+        while (running) {
             try {
-                //阻塞方法，当至少一个通道被选中，此方法返回的是SelectedKey的数量，可以除了一个是服务端的，其他的都是客户端的
-                //通道是否被选中，由注册到多路复用器中的通道标记决定
-                int select = this.selector.select();
+                //阻塞方法，当至少一个通道被选中时返回
+                this.selector.select();
                 //返回选中的通道标记的集合
                 Set<SelectionKey> selectionKeys = this.selector.selectedKeys();
                 Iterator<SelectionKey> it = selectionKeys.iterator();
-                //遍历多路复用器中由标记的通道
                 while (it.hasNext()) {
                     SelectionKey key = it.next();
-                    //将本次要处理的通道从集合中删除，下次循环根据新的通道列表再次执行必要的逻辑业务
-                    //下次是根据serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);改变的状态来重新循环
+                    //将本次要处理的通道从集合中删除
                     it.remove();
-                    //通道是否有效
-                    if (key.isValid()) {
-                        //阻塞状态
-                        try {
-                            if (key.isAcceptable()) {
-                                //监听客户端的连接
-                                accept(key);
-                            }
-                        } catch (CancelledKeyException e) {
-                            //断开连接
-                            key.cancel();
-                        }
-                        //可读状态
-                        try {
-                            if (key.isReadable()) {
-                                read(key);
-                            }
-                        } catch (CancelledKeyException e) {
-                            key.cancel();
-                        }
-                        //可写状态
-                        try {
-                            if (key.isWritable()) {
-                                write(key);
-                            }
-                        } catch (CancelledKeyException e) {
-                            key.cancel();
-                        }
-
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept(key);
                     }
                 }
+            } catch (ClosedSelectorException e) {
+                break;
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -112,80 +134,252 @@ public class NIOServer implements Runnable {
 
     }
 
-    //阻塞状态，一旦连接成功，就等着
+    //接收连接，交给worker
     private void accept(SelectionKey selectionKey) {
+        ServerSocketChannel serverChannel = (ServerSocketChannel) selectionKey.channel();
+        //非阻塞模式下一次select可能有多个连接在排队，全部取出
+        for (; ; ) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+                if (channel == null)
+                    return;
+                //设置为非阻塞
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            subReactors[next].register(channel);
+            next = (next + 1) % subReactors.length;
+        }
+    }
+
+    //关闭服务端，已建立的连接由各自的worker线程关闭
+    public void close() {
+        running = false;
         try {
-            //此通道是init方法中注册到Selector上的ServerSocketChannel
-            ServerSocketChannel serverSocketChannel = (ServerSocketChannel) selectionKey.channel();
-            //阻塞方法，当前客户端发起请求后返回
-            //监听客户端连接，客户端一旦连接上服务端，返回一个SocketChannel，用于与客户端进行通信
-            //与客户端建立连接的通道
-            SocketChannel channel = serverSocketChannel.accept();
-            //设置为非阻塞
-            channel.configureBlocking(false);
-            //注册到多路复用器中,设置为可读标记，此通道用于读取数据用的
-            channel.register(this.selector, SelectionKey.OP_READ);
+            selector.close();
+            serverSocketChannel.close();
         } catch (IOException e) {
-            //关闭通道
-            selectionKey.cancel();
+            e.printStackTrace();
         }
+        for (SubReactor subReactor : subReactors) {
+            if (subReactor != null)
+                subReactor.close();
+        }
+    }
 
-
+    //消息处理，在连接所属的worker线程中执行，不能阻塞
+    @FunctionalInterface
+    public interface MessageHandler {
+        //data是本次读到的数据，处理完成后缓冲区会被复用
+        void handle(Connection connection, ByteBuffer data) throws IOException;
     }
 
-    private void read(SelectionKey selectionKey) {
-        try {
-            //清除读的缓存区
-            this.readBuffer.clear();
-            //获取客户端的通道，因为客户端是通过客户端通道发送数据的，想要读取客户端的发来的数据，需要获取客户端的通道
-            SocketChannel channel = (SocketChannel) selectionKey.channel();
+    //一个客户端连接
+    public final class Connection {
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        private final ByteBuffer readBuffer;
+
+        //待写出的数据，每个缓冲区都处于读模式(已flip)
+        private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+        //只在worker线程中读写，保证缓冲区只归还一次
+        private boolean closed;
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+            this.readBuffer = bufferPool.acquire();
+        }
+
+        public SocketChannel channel() {
+            return channel;
+        }
+
+        //把src中剩余的数据复制到写队列并尝试写出，只能在worker线程中调用
+        public void write(ByteBuffer src) throws IOException {
+            if (closed)
+                throw new ClosedChannelException();
+            while (src.hasRemaining()) {
+                ByteBuffer last = writeQueue.peekLast();
+                //队尾的缓冲区还有空间时继续追加，否则从池子中取一个新的
+                if (last == null || last.limit() == last.capacity()) {
+                    last = bufferPool.acquire();
+                    last.flip();
+                    writeQueue.offerLast(last);
+                }
+                int position = last.position();
+                last.position(last.limit());
+                last.limit(last.capacity());
+                int n = Math.min(src.remaining(), last.remaining());
+                ByteBuffer slice = src.duplicate();
+                slice.limit(slice.position() + n);
+                last.put(slice);
+                src.position(src.position() + n);
+                last.flip();
+                last.position(position);
+            }
+            flush();
+        }
+
+        //尽量把写队列写到通道中，写不完时注册OP_WRITE等待下一次可写
+        private void flush() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = writeQueue.peekFirst()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining())
+                    break;
+                writeQueue.pollFirst();
+                bufferPool.release(buffer);
+            }
+            int ops = SelectionKey.OP_READ;
+            if (!writeQueue.isEmpty()) {
+                ops = SelectionKey.OP_WRITE;
+                //对方读得太慢，暂停读取，避免写队列无限增长
+                if (writeQueue.size() < MAX_PENDING_WRITES)
+                    ops |= SelectionKey.OP_READ;
+            }
+            if (key.isValid() && key.interestOps() != ops)
+                key.interestOps(ops);
+        }
+
+        private void read() throws IOException {
+            readBuffer.clear();
             int readLength = channel.read(readBuffer);
-            //检查客户端是否写入数据，如果没有把通道关闭
+            //客户端关闭了连接
             if (readLength == -1) {
-                selectionKey.channel().close();
-                //关闭连接
-                selectionKey.cancel();
+                close();
                 return;
             }
-            //NIO中最复杂的操作，Buffer的控制
-            this.readBuffer.flip();
-            byte[] data = new byte[readBuffer.remaining()];
-            readBuffer.get(data);
-            System.out.println("form" + channel.getRemoteAddress() + "client:" + new String(data, "UTF-8"));
-            //注册通道，标记为写的操作
-            channel.register(this.selector, SelectionKey.OP_WRITE);
-
-        } catch (IOException e) {
-            //关闭通道
-            selectionKey.cancel();
+            if (readLength == 0)
+                return;
+            readBuffer.flip();
+            handler.handle(this, readBuffer);
         }
 
+        //只能在worker线程中调用，重复调用没有效果
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            bufferPool.release(readBuffer);
+            ByteBuffer buffer;
+            while ((buffer = writeQueue.pollFirst()) != null)
+                bufferPool.release(buffer);
+        }
     }
 
-    private void write(SelectionKey selectionKey) {
-        try {
-            this.writeBuffer.clear();
-            //通过SelectionKey获取客户端的通道，因为服务端需要跟客户端通信写数据
-            SocketChannel channel = (SocketChannel) selectionKey.channel();
-            Scanner scanner = new Scanner(System.in);
-            System.out.println("response data for client:");
-            String line = scanner.nextLine();
-            writeBuffer.put(line.getBytes("UTF-8"));
-            //转换缓存区的状态
-            writeBuffer.flip();
-            //向客户端的通道发送数据
-            channel.write(writeBuffer);
-            //注册通道，标记下一个状态标记
-            channel.register(this.selector, SelectionKey.OP_READ);
-        } catch (IOException e) {
-            selectionKey.cancel();
+    //worker：一个Selector加一条线程
+    private final class SubReactor implements Runnable {
+
+        private final Selector selector;
+
+        //boss线程交过来的连接，由worker线程自己注册，避免register和select互相阻塞
+        private final ConcurrentLinkedQueue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+
+        private SubReactor(Selector selector) {
+            this.selector = selector;
+        }
+
+        private void register(SocketChannel channel) {
+            pendingChannels.offer(channel);
+            selector.wakeup();
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(channel, key));
+                } catch (IOException e) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    if (!running)
+                        break;
+                    registerPending();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            //可写状态
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                            //可读状态
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        } catch (CancelledKeyException | IOException e) {
+                            //断开连接
+                            connection.close();
+                        }
+                    }
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            closeAll();
         }
 
+        //由其他线程调用，只唤醒worker线程，连接在worker线程中关闭
+        private void close() {
+            selector.wakeup();
+        }
 
+        //worker线程退出前关闭所有连接和Selector
+        private void closeAll() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    Object attachment = key.attachment();
+                    if (attachment instanceof Connection)
+                        ((Connection) attachment).close();
+                }
+                SocketChannel channel;
+                while ((channel = pendingChannels.poll()) != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+                selector.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     public static void main(String[] args) {
-
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8888;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        new Thread(new NIOServer(port, workers), "nio-boss").start();
 
     }
 
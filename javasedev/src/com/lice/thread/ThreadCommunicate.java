@@ -13,6 +13,8 @@ package com.lice.thread;
  * 2、wait：线程等待方法，当前线程进行等待，可以设置等待时间
  * 3、notify：线程唤醒机制，唤醒持有同一把锁的另一线程
  * 4、notifyAll：唤醒持有同一锁的其他所有线程
+ *
+ * 有界队列版本见com.lice.thread.queue.MonitorBoundedQueue，与j.u.c队列的对比见HandOffBenchmark
  */
 public class ThreadCommunicate {
 
@@ -0,0 +1,133 @@
+package com.lice.thread.lock;
+
+import java.lang.management.LockContentionMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * description: LockContentionBenchmark 测量开启锁竞争采样后的吞吐量损失，并打印采样结果 <br>
+ * date: 2026/10/18 21:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.lock.LockContentionBenchmark [每轮毫秒数] [线程数]
+ * 每个线程循环：加锁 -> 临界区内做一小段计算 -> 解锁 -> 临界区外做同样长度的计算，锁竞争很严重。
+ * 对ReentrantLock、Semaphore(1)、StampedLock各跑三轮：
+ * 1、off：不采样，只多一次volatile读(而且只在需要排队时才读)
+ * 2、on：默认采样间隔，平均64次有竞争的加锁采样一次调用栈，开销应该在2%以内
+ * 3、every：每次有竞争的加锁都采样，用来看最坏情况下采样的开销
+ * 最后打印一次dump，看按锁、按调用点汇总的等待时间。
+ */
+public class LockContentionBenchmark {
+
+    private static volatile long sink;
+
+    interface Guard {
+        void run(int work) throws InterruptedException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int millis = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int work = 50;
+        LockContentionMXBean recorder = ManagementFactory.getPlatformMXBean(LockContentionMXBean.class);
+        int interval = recorder.getSamplingInterval();
+        System.out.printf("cpus=%d threads=%d%n", Runtime.getRuntime().availableProcessors(), threads);
+        System.out.printf("  %-16s %16s %16s %9s %16s %9s%n", "lock",
+                "off(ops/s)", "on(ops/s)", "overhead", "every(ops/s)", "overhead");
+
+        ReentrantLock lock = new ReentrantLock();
+        Semaphore semaphore = new Semaphore(1);
+        StampedLock stampedLock = new StampedLock();
+        Guard[] guards = {
+                w -> {
+                    lock.lock();
+                    try {
+                        compute(w);
+                    } finally {
+                        lock.unlock();
+                    }
+                },
+                w -> {
+                    semaphore.acquire();
+                    try {
+                        compute(w);
+                    } finally {
+                        semaphore.release();
+                    }
+                },
+                w -> {
+                    long stamp = stampedLock.writeLock();
+                    try {
+                        compute(w);
+                    } finally {
+                        stampedLock.unlockWrite(stamp);
+                    }
+                }
+        };
+        String[] names = {"ReentrantLock", "Semaphore(1)", "StampedLock"};
+        for (int i = 0; i < guards.length; i++) {
+            //预热
+            run(guards[i], threads, millis / 4, work);
+            recorder.setEnabled(false);
+            double off = run(guards[i], threads, millis, work);
+            recorder.setSamplingInterval(interval);
+            recorder.setEnabled(true);
+            double on = run(guards[i], threads, millis, work);
+            recorder.setSamplingInterval(1);
+            double every = run(guards[i], threads, millis, work);
+            recorder.setEnabled(false);
+            System.out.printf("  %-16s %,16.0f %,16.0f %8.1f%% %,16.0f %8.1f%%%n", names[i],
+                    off, on, (off - on) * 100 / off, every, (off - every) * 100 / off);
+        }
+        recorder.setSamplingInterval(interval);
+        System.out.println();
+        System.out.print(recorder.dump(3));
+    }
+
+    /**
+     * @return 每秒完成的加锁次数
+     */
+    private static double run(Guard guard, int threads, int millis, int work) throws InterruptedException {
+        AtomicLong ops = new AtomicLong();
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                long n = 0;
+                try {
+                    go.await();
+                    long end = deadline[0];
+                    do {
+                        guard.run(work);
+                        compute(work);
+                        n++;
+                    } while ((n & 63) != 0 || System.nanoTime() < end);
+                } catch (InterruptedException ignored) {
+                }
+                ops.addAndGet(n);
+            }, "worker-" + i);
+            workers[i].start();
+        }
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        go.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return ops.get() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static void compute(int work) {
+        long x = work;
+        for (int i = 0; i < work; i++)
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        sink += x;
+    }
+}
@@ -0,0 +1,76 @@
+package com.lice.thread.lock;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.lang.management.LockContentionMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: LockContentionDump 通过JMX开启/关闭锁竞争采样，并打印热点锁和调用点 <br>
+ * date: 2026/10/18 21:10 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.lock.LockContentionDump <host:port或JMX服务URL> [命令] [参数]
+ * 目标进程需要用同样的bootclasspath启动，并开启远程JMX(-Dcom.sun.management.jmxremote.port=...)。
+ * 命令：
+ * 1、enable [采样间隔]：开启采样，平均每"采样间隔"次有竞争的加锁采样一次，默认不修改
+ * 2、disable：关闭采样，已有的样本保留
+ * 3、dump [样本数]：打印按锁、按调用点汇总的等待时间，以及最近的若干个样本(默认10个)。不写命令时默认dump
+ * 4、record <秒数> [样本数]：清空、开启采样，等待指定秒数后关闭采样并dump
+ * 5、clear：清空计数和样本
+ * MXBean的名字是java.util.concurrent.locks:type=LockContention，也可以直接用jconsole操作。
+ */
+public class LockContentionDump {
+
+    private static final String NAME = "java.util.concurrent.locks:type=LockContention";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: LockContentionDump <host:port|service-url> "
+                    + "[enable [interval] | disable | dump [samples] | record <seconds> [samples] | clear]");
+            System.exit(1);
+        }
+        String url = args[0].startsWith("service:") ? args[0]
+                : "service:jmx:rmi:///jndi/rmi://" + args[0] + "/jmxrmi";
+        try (JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(url))) {
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+            LockContentionMXBean recorder = ManagementFactory.newPlatformMXBeanProxy(
+                    connection, NAME, LockContentionMXBean.class);
+            String command = args.length > 1 ? args[1] : "dump";
+            switch (command) {
+                case "enable":
+                    if (args.length > 2)
+                        recorder.setSamplingInterval(Integer.parseInt(args[2]));
+                    recorder.setEnabled(true);
+                    System.out.println("enabled, sampling interval " + recorder.getSamplingInterval());
+                    break;
+                case "disable":
+                    recorder.setEnabled(false);
+                    System.out.println("disabled");
+                    break;
+                case "dump":
+                    System.out.print(recorder.dump(args.length > 2 ? Integer.parseInt(args[2]) : 10));
+                    break;
+                case "record":
+                    recorder.clear();
+                    recorder.setEnabled(true);
+                    TimeUnit.SECONDS.sleep(Long.parseLong(args[2]));
+                    recorder.setEnabled(false);
+                    System.out.print(recorder.dump(args.length > 3 ? Integer.parseInt(args[3]) : 10));
+                    break;
+                case "clear":
+                    recorder.clear();
+                    System.out.println("cleared");
+                    break;
+                default:
+                    System.err.println("unknown command: " + command);
+                    System.exit(1);
+            }
+        }
+    }
+}
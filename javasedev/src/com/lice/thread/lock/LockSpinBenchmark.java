@@ -0,0 +1,139 @@
+package com.lice.thread.lock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * description: LockSpinBenchmark 对比ReentrantLock、ReentrantReadWriteLock、Semaphore开启自适应自旋前后的吞吐量 <br>
+ * date: 2026/10/18 20:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.lock.LockSpinBenchmark [每轮毫秒数] [临界区内的工作量]
+ * 自适应自旋的构造方法在本仓库的src/java/util/concurrent中，需要放到bootclasspath前面才能加载。
+ * 每个线程循环：加锁 -> 临界区内做一小段计算 -> 解锁 -> 临界区外做同样长度的计算。线程数：
+ * 1、1个线程：无竞争，看开启自旋对快速路径有没有额外开销
+ * 2、2个、4个线程：中等竞争，临界区很短时自旋通常能等到锁，省掉park/unpark
+ * 3、16个线程：严重竞争，等待时间超过自旋上限后自旋会自动停止，吞吐量不应该比不自旋差很多
+ * 对比的锁：ReentrantLock(非公平)，ReentrantReadWriteLock(90%读锁、10%写锁)，Semaphore(2个许可)。
+ * 单核机器上自旋不会被启用，两列结果应该一致。
+ */
+public class LockSpinBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 16};
+
+    private static volatile long sink;
+
+    interface Guard {
+        void run(int work) throws InterruptedException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int millis = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int work = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        System.out.printf("cpus=%d work=%d%n", Runtime.getRuntime().availableProcessors(), work);
+        System.out.printf("  %-24s %8s %16s %16s%n", "lock", "threads", "park(ops/s)", "spin(ops/s)");
+        for (int threads : THREADS) {
+            compare("ReentrantLock", threads, millis, work,
+                    reentrantLock(new ReentrantLock(false, false)),
+                    reentrantLock(new ReentrantLock(false, true)));
+            compare("ReentrantReadWriteLock", threads, millis, work,
+                    readWriteLock(new ReentrantReadWriteLock(false, false)),
+                    readWriteLock(new ReentrantReadWriteLock(false, true)));
+            compare("Semaphore(2)", threads, millis, work,
+                    semaphore(new Semaphore(2, false, false)),
+                    semaphore(new Semaphore(2, false, true)));
+        }
+    }
+
+    private static Guard reentrantLock(ReentrantLock lock) {
+        return work -> {
+            lock.lock();
+            try {
+                compute(work);
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    private static Guard readWriteLock(ReentrantReadWriteLock lock) {
+        return work -> {
+            boolean write = ThreadLocalRandom.current().nextInt(10) == 0;
+            java.util.concurrent.locks.Lock l = write ? lock.writeLock() : lock.readLock();
+            l.lock();
+            try {
+                compute(work);
+            } finally {
+                l.unlock();
+            }
+        };
+    }
+
+    private static Guard semaphore(Semaphore semaphore) {
+        return work -> {
+            semaphore.acquire();
+            try {
+                compute(work);
+            } finally {
+                semaphore.release();
+            }
+        };
+    }
+
+    private static void compare(String name, int threads, int millis, int work, Guard park, Guard spin)
+            throws InterruptedException {
+        //预热
+        run(park, threads, millis / 4, work);
+        run(spin, threads, millis / 4, work);
+        double parked = run(park, threads, millis, work);
+        double spun = run(spin, threads, millis, work);
+        System.out.printf("  %-24s %8d %,16.0f %,16.0f%n", name, threads, parked, spun);
+    }
+
+    /**
+     * @return 每秒完成的加锁次数
+     */
+    private static double run(Guard guard, int threads, int millis, int work) throws InterruptedException {
+        AtomicLong ops = new AtomicLong();
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                long n = 0;
+                try {
+                    go.await();
+                    long end = deadline[0];
+                    do {
+                        guard.run(work);
+                        compute(work);
+                        n++;
+                    } while ((n & 63) != 0 || System.nanoTime() < end);
+                } catch (InterruptedException ignored) {
+                }
+                ops.addAndGet(n);
+            }, "worker-" + i);
+            workers[i].start();
+        }
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        go.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return ops.get() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static void compute(int work) {
+        long x = work;
+        for (int i = 0; i < work; i++)
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        sink += x;
+    }
+}
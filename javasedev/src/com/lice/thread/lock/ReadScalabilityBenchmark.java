@@ -0,0 +1,105 @@
+package com.lice.thread.lock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * description: ReadScalabilityBenchmark ReentrantReadWriteLock与读偏向模式在读多写少时随线程数的扩展性对比 <br>
+ * date: 2026/10/18 21:00 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.lock.ReadScalabilityBenchmark [每轮毫秒数] [最大线程数]
+ * 读偏向的构造方法在本仓库的src/java/util/concurrent中，需要放到bootclasspath前面才能加载。
+ * 模拟读多写少的配置缓存：每个线程循环加读锁读取一个小数组再解锁，写的比例分别为0、0.1%、1%、10%。
+ * 线程数从1翻倍到最大线程数(默认CPU数的2倍)。
+ * 1、rrwl：普通的ReentrantReadWriteLock，每次读都CAS同一个state，还要更新ThreadLocal的重入计数
+ * 2、biased：读偏向模式，读线程只写自己的槽位；写线程撤销偏向后，读会暂时走普通路径
+ * 输出每秒完成的操作数。写比例高时偏向会被频繁撤销，biased应该退化到接近rrwl。
+ */
+public class ReadScalabilityBenchmark {
+
+    private static final double[] WRITE_RATIOS = {0, 0.001, 0.01, 0.1};
+
+    private static final int[] CONFIG = new int[16];
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int millis = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) :
+                Runtime.getRuntime().availableProcessors() * 2;
+        for (double ratio : WRITE_RATIOS) {
+            System.out.printf("writes=%.1f%%%n", ratio * 100);
+            System.out.printf("  %8s %16s %16s%n", "threads", "rrwl(ops/s)", "biased(ops/s)");
+            for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+                double plain = bench(ReentrantReadWriteLock::new, threads, millis, ratio);
+                double biased = bench(() -> new ReentrantReadWriteLock(false, false, true), threads, millis, ratio);
+                System.out.printf("  %8d %,16.0f %,16.0f%n", threads, plain, biased);
+            }
+        }
+    }
+
+    private static double bench(Supplier<ReadWriteLock> factory, int threads, int millis, double ratio)
+            throws InterruptedException {
+        //预热
+        run(factory.get(), threads, millis / 4, ratio);
+        return run(factory.get(), threads, millis, ratio);
+    }
+
+    /**
+     * @return 每秒完成的操作数
+     */
+    private static double run(ReadWriteLock lock, int threads, int millis, double ratio) throws InterruptedException {
+        AtomicLong ops = new AtomicLong();
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        int writeBound = (int) (ratio * 1_000_000);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long n = 0, sum = 0;
+                try {
+                    go.await();
+                    long end = deadline[0];
+                    do {
+                        if (random.nextInt(1_000_000) < writeBound) {
+                            lock.writeLock().lock();
+                            try {
+                                CONFIG[random.nextInt(CONFIG.length)]++;
+                            } finally {
+                                lock.writeLock().unlock();
+                            }
+                        } else {
+                            lock.readLock().lock();
+                            try {
+                                for (int value : CONFIG)
+                                    sum += value;
+                            } finally {
+                                lock.readLock().unlock();
+                            }
+                        }
+                        n++;
+                    } while ((n & 255) != 0 || System.nanoTime() < end);
+                } catch (InterruptedException ignored) {
+                }
+                sink += sum;
+                ops.addAndGet(n);
+            }, "worker-" + i);
+            workers[i].start();
+        }
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        go.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return ops.get() / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,111 @@
+package com.lice.thread.pool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * description: AffinityAggregationBenchmark 分区聚合时ForkJoinPool按分区亲和提交与普通提交的对比 <br>
+ * date: 2026/10/18 21:50 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.pool.AffinityAggregationBenchmark [轮数] [每个分区的KB数]
+ * execute(task, affinity)在本仓库的src/java/util/concurrent中，需要放到bootclasspath前面才能加载。
+ * 模拟分区的内存聚合：分区数等于并行度，每个分区一个long数组(默认256KB，大约能放进一个核的L2)。
+ * 每一轮由一个外部线程给每个分区提交8个任务，每个任务对分区的一段做哈希聚合，全部完成后进入下一轮。
+ * 对比：
+ * 1、plain：execute(task)，所有任务进入提交线程对应的同一个提交队列，由随机的工作线程窃取
+ * 2、affinity：execute(task, 分区号)，同一分区的任务进入同一个提交队列，优先由对应的工作线程执行
+ * 输出每轮平均耗时，以及locality：每个分区的任务中由"最常执行它的线程"执行的比例。
+ * locality越高，分区的数据越可能还在那个核的缓存里。要看缓存未命中次数可以在Linux上用
+ * perf stat -e cache-misses,LLC-load-misses java ... 分别跑两种模式对比。
+ */
+public class AffinityAggregationBenchmark {
+
+    private static final int TASKS_PER_PARTITION = 8;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int kb = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int partitions = parallelism;
+        long[][] data = new long[partitions][kb * 1024 / 8];
+        for (long[] partition : data)
+            for (int i = 0; i < partition.length; i++)
+                partition[i] = ThreadLocalRandom.current().nextLong();
+        System.out.printf("parallelism=%d partitions=%d partition=%dKB%n", parallelism, partitions, kb);
+        System.out.printf("  %-10s %14s %10s%n", "mode", "round(us)", "locality");
+        for (int i = 0; i < 2; i++) {
+            //第一次是预热
+            run("plain", data, rounds / 4, false, i == 1);
+            run("affinity", data, rounds / 4, true, i == 1);
+        }
+        run("plain", data, rounds, false, true);
+        run("affinity", data, rounds, true, true);
+    }
+
+    private static void run(String name, long[][] data, int rounds, boolean affinity, boolean print)
+            throws InterruptedException {
+        int partitions = data.length;
+        ForkJoinPool pool = new ForkJoinPool(partitions);
+        //ranBy[p][k]：分区p的任务由第k个工作线程执行的次数
+        long[][] ranBy = new long[partitions][64];
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            CountDownLatch done = new CountDownLatch(partitions * TASKS_PER_PARTITION);
+            for (int p = 0; p < partitions; p++) {
+                long[] partition = data[p];
+                int chunk = partition.length / TASKS_PER_PARTITION;
+                for (int t = 0; t < TASKS_PER_PARTITION; t++) {
+                    int from = t * chunk;
+                    long[] counts = ranBy[p];
+                    Runnable task = () -> {
+                        aggregate(partition, from, from + chunk);
+                        synchronized (counts) {
+                            counts[workerIndex() & 63]++;
+                        }
+                        done.countDown();
+                    };
+                    if (affinity)
+                        pool.execute(task, p);
+                    else
+                        pool.execute(task);
+                }
+            }
+            done.await();
+        }
+        double round = (System.nanoTime() - start) / 1e3 / rounds;
+        pool.shutdown();
+        if (print)
+            System.out.printf("  %-10s %14.1f %9.1f%%%n", name, round, locality(ranBy) * 100);
+    }
+
+    private static int workerIndex() {
+        String name = Thread.currentThread().getName();
+        return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1));
+    }
+
+    private static double locality(long[][] ranBy) {
+        long total = 0, top = 0;
+        for (long[] counts : ranBy) {
+            long max = 0;
+            for (long c : counts) {
+                total += c;
+                max = Math.max(max, c);
+            }
+            top += max;
+        }
+        return (double) top / total;
+    }
+
+    private static void aggregate(long[] partition, int from, int to) {
+        long h = 0;
+        for (int i = from; i < to; i++)
+            h = (h ^ partition[i]) * 0x9E3779B97F4A7C15L;
+        sink += h;
+    }
+}
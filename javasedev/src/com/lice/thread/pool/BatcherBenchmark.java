@@ -0,0 +1,145 @@
+package com.lice.thread.pool;
+
+import com.lice.thread.queue.LatencyHistogram;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletableFutureBatcher;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * description: BatcherBenchmark 逐个调用后端与CompletableFutureBatcher合并成批调用的吞吐量和延迟对比 <br>
+ * date: 2026/10/18 19:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.pool.BatcherBenchmark [每轮秒数] [客户端线程数]
+ * CompletableFutureBatcher在本仓库的src/java/util/concurrent中，需要放到bootclasspath前面才能加载。
+ * 模拟一个单线程的后端：每次调用固定开销50us，每个key再加1us(忙等)。
+ * 客户端线程不停地发起随机key的查询，每个线程最多同时有256个未完成的查询。
+ * 对比：
+ * 1、direct：每个key单独调用一次后端
+ * 2、batch(n, 1ms)：最多n个key一批，或第一个请求之后最多等1ms
+ * 3、batch(64, 1ms, pending=512)：最多512个未完成的key，超过时查询直接以RejectedExecutionException失败(不阻塞)
+ * 输出吞吐量(完成的查询/秒)、被拒绝的查询数，以及查询从发起到完成的延迟分布。
+ */
+public class BatcherBenchmark {
+
+    private static final long CALL_NANOS = 50_000;
+
+    private static final long KEY_NANOS = 1_000;
+
+    private static final int WINDOW = 256;
+
+    private static final int KEYS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        ExecutorService backend = Executors.newSingleThreadExecutor();
+        try {
+            bench("direct", key -> CompletableFuture.supplyAsync(() -> call(1, key), backend),
+                    seconds, clients);
+            for (int size : new int[]{16, 64, 256}) {
+                CompletableFutureBatcher<Long, Long> batcher = new CompletableFutureBatcher<>(
+                        keys -> CompletableFuture.supplyAsync(() -> callBatch(keys), backend),
+                        size, 1, TimeUnit.MILLISECONDS);
+                bench("batch(" + size + ", 1ms)", batcher::submit, seconds, clients);
+                batcher.close();
+            }
+            CompletableFutureBatcher<Long, Long> limited = new CompletableFutureBatcher<>(
+                    keys -> CompletableFuture.supplyAsync(() -> callBatch(keys), backend),
+                    64, 1, TimeUnit.MILLISECONDS, 4, 512, ForkJoinPool.commonPool());
+            bench("batch(64, 1ms, pending=512)", limited::submit, seconds, clients);
+            limited.close();
+        } finally {
+            backend.shutdown();
+        }
+    }
+
+    private static void bench(String name, Function<Long, CompletableFuture<Long>> lookup, int seconds, int clients)
+            throws InterruptedException {
+        //预热
+        run(lookup, 1, clients);
+        LatencyHistogram latency = new LatencyHistogram();
+        long[] result = run(lookup, seconds, clients, latency);
+        System.out.printf("  %-28s %,10.0f lookups/s  rejected %,8d  latency %s%n",
+                name, result[0] / (double) seconds, result[1], latency);
+    }
+
+    private static long[] run(Function<Long, CompletableFuture<Long>> lookup, int seconds, int clients)
+            throws InterruptedException {
+        return run(lookup, seconds, clients, new LatencyHistogram());
+    }
+
+    /**
+     * @return {完成的查询数, 被拒绝的查询数}
+     */
+    private static long[] run(Function<Long, CompletableFuture<Long>> lookup, int seconds, int clients,
+                              LatencyHistogram latency) throws InterruptedException {
+        AtomicLong completed = new AtomicLong(), rejected = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Semaphore[] windows = new Semaphore[clients];
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            Semaphore window = windows[i] = new Semaphore(WINDOW);
+            threads[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        window.acquire();
+                        long start = System.nanoTime();
+                        lookup.apply((long) random.nextInt(KEYS)).whenComplete((value, ex) -> {
+                            if (ex != null) {
+                                rejected.incrementAndGet();
+                            } else {
+                                //成功的查询都在后端线程完成，所以直方图只被一个线程写
+                                latency.record(System.nanoTime() - start);
+                                completed.incrementAndGet();
+                            }
+                            window.release();
+                        });
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }, "client-" + i);
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        //等待剩余的查询完成
+        for (Semaphore window : windows)
+            window.acquire(WINDOW);
+        return new long[]{completed.get(), rejected.get()};
+    }
+
+    private static Long call(int keys, long key) {
+        spin(CALL_NANOS + KEY_NANOS * keys);
+        return key * 2;
+    }
+
+    private static Map<Long, Long> callBatch(List<Long> keys) {
+        spin(CALL_NANOS + KEY_NANOS * keys.size());
+        Map<Long, Long> values = new HashMap<>(keys.size() * 2);
+        for (Long key : keys)
+            values.put(key, key * 2);
+        return values;
+    }
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end)
+            ;
+    }
+}
@@ -0,0 +1,127 @@
+package com.lice.thread.pool;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ContinuationExecutor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: ContinuationBenchmark 大量等待中的任务：ContinuationExecutor与每个任务一个线程的对比 <br>
+ * date: 2026/10/18 22:30 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.pool.ContinuationBenchmark [任务数] [管道数] [线程模式的任务数]
+ * ContinuationExecutor在本仓库的src/java/util/concurrent中，需要放到bootclasspath前面才能加载。
+ * 模拟大量大部分时间都在等待的请求处理：
+ * 1、continuation：默认10万个任务同时运行在CPU数个载体线程上，每个任务sleep 3次(每次100~500ms随机)。
+ *    另外有若干个任务(默认1000个，每个占两个文件描述符)在Pipe上等待数据，由一个写线程依次写入后唤醒
+ * 2、threads：每个任务一个线程，做同样的sleep，任务数默认1万(10万个线程在很多机器上会因为内存或ulimit失败)
+ * 输出总耗时、峰值线程数，以及所有任务都在等待时的堆内存占用(每个任务平均字节数)。
+ * 线程模式的内存主要在线程栈(不在堆里)，所以另外打印按-Xss估算的栈内存。
+ */
+public class ContinuationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int pipes = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        continuations(tasks, pipes);
+        threads(threads);
+    }
+
+    private static void continuations(int tasks, int pipes) throws Exception {
+        ForkJoinPool carrier = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        ContinuationExecutor executor = new ContinuationExecutor(carrier);
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>(tasks + pipes);
+        for (int i = 0; i < tasks; i++)
+            futures.add(executor.spawn(() -> sleeps(executor, 3)));
+        List<Pipe> opened = new ArrayList<>(pipes);
+        for (int i = 0; i < pipes; i++) {
+            Pipe pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+            opened.add(pipe);
+            futures.add(executor.spawn(() -> executor.read(pipe.source(), ByteBuffer.allocate(8))));
+        }
+        //等所有任务都进入第一次sleep或者读等待之后再测内存
+        TimeUnit.MILLISECONDS.sleep(50);
+        long heapWaiting = usedHeap() - heapBefore;
+        int peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+        for (Pipe pipe : opened)
+            pipe.sink().write(ByteBuffer.wrap(new byte[]{1}));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("continuation: tasks=%,d pipes=%,d carriers=%d time=%.2fs peakThreads=%d heap=%,dKB (%,d bytes/task)%n",
+                tasks, pipes, carrier.getParallelism(), seconds, peakThreads, heapWaiting / 1024,
+                heapWaiting / (tasks + pipes));
+        executor.close();
+        carrier.shutdown();
+        for (Pipe pipe : opened) {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+
+    private static CompletableFuture<Void> sleeps(ContinuationExecutor executor, int remaining) {
+        if (remaining == 0)
+            return CompletableFuture.completedFuture(null);
+        long millis = ThreadLocalRandom.current().nextLong(100, 500);
+        return executor.sleep(millis, TimeUnit.MILLISECONDS).thenCompose(v -> sleeps(executor, remaining - 1));
+    }
+
+    private static void threads(int tasks) throws Exception {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            Thread thread = new Thread(null, () -> {
+                try {
+                    for (int j = 0; j < 3; j++)
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(100, 500));
+                } catch (InterruptedException ignored) {
+                }
+                done.countDown();
+            }, "task-" + i, 0);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        TimeUnit.MILLISECONDS.sleep(50);
+        long heapWaiting = usedHeap() - heapBefore;
+        int live = ManagementFactory.getThreadMXBean().getThreadCount();
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("threads:      tasks=%,d time=%.2fs liveThreads=%,d heap=%,dKB (%,d bytes/task) "
+                        + "+ stacks reserved ~%,dMB%n", tasks, seconds, live, heapWaiting / 1024,
+                heapWaiting / tasks, (long) tasks * stackSize() / (1024 * 1024));
+    }
+
+    /**
+     * -Xss的值(字节)，没有指定时按64位Linux的默认1MB估算
+     */
+    private static long stackSize() {
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            if (arg.startsWith("-Xss")) {
+                String v = arg.substring(4).toLowerCase();
+                long unit = v.endsWith("k") ? 1024 : v.endsWith("m") ? 1024 * 1024 : v.endsWith("g") ? 1 << 30 : 1;
+                return Long.parseLong(unit == 1 ? v : v.substring(0, v.length() - 1)) * unit;
+            }
+        return 1024 * 1024;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,6 +1,19 @@
 package com.lice.thread.pool;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * description: SimpleThreadPool 简单线程池<br>
@@ -9,39 +22,453 @@ import java.util.LinkedList;
  * version: 1.0 <br>
  */
 /*
- * 1、任务队列
+ * 1、任务队列：每个工作线程有自己的双端队列，空闲时从其他线程的队列尾部窃取任务
  * 2、拒绝策略（抛出异常，直接丢弃，阻塞，临时队列）
- * 3、init()初始化
- * 4、active线程存活
- * 5、max最大数
+ * 3、init()初始化min条线程
+ * 4、active线程存活：空闲线程park等待任务，超过keepAlive并且线程数大于min时退出
+ * 5、max最大数：排队的任务数超过线程数时扩容，最多max条线程
  * 6、min最小数
  */
-public class SimpleThreadPool {
-
-    private final int size;
+public class SimpleThreadPool extends AbstractExecutorService {
 
     private final static int DEFAULT_SIZE = 10;
 
-    //任务队列
-    private final static LinkedList<Runnable> TASK_QUEUE = new LinkedList<>();
+    //默认的任务队列长度(所有工作线程队列的任务总数)
+    private final static int DEFAULT_QUEUE_SIZE = 2000;
+
+    private final static long DEFAULT_KEEP_ALIVE_MILLIS = 60_000;
+
+    private final static String THREAD_PREFIX = "SIMPLE_THREAD_POOL-";
+
+    private final static ThreadGroup GROUP = new ThreadGroup("Pool_Group");
+
+    //拒绝策略：抛出异常
+    public final static RejectPolicy ABORT_POLICY = (task, pool) -> {
+        throw new RejectedExecutionException("Task " + task + " rejected from " + pool);
+    };
+
+    //拒绝策略：直接丢弃
+    public final static RejectPolicy DISCARD_POLICY = (task, pool) -> {
+    };
+
+    //拒绝策略：阻塞，直到队列有空位
+    public final static RejectPolicy BLOCK_POLICY = (task, pool) -> {
+        try {
+            while (!pool.offer(task)) {
+                if (pool.isShutdown())
+                    throw new RejectedExecutionException("Task " + task + " rejected from " + pool);
+                pool.awaitCapacity();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting to submit " + task);
+        }
+    };
+
+    //拒绝策略：放入不限长度的临时队列
+    public final static RejectPolicy OVERFLOW_POLICY = (task, pool) -> {
+        if (pool.isShutdown())
+            throw new RejectedExecutionException("Task " + task + " rejected from " + pool);
+        pool.overflow(task);
+    };
+
+    private final int min;
+
+    private final int max;
+
+    private final int queueSize;
+
+    private final long keepAliveNanos;
+
+    private final RejectPolicy rejectPolicy;
+
+    //工作线程，窃取任务时遍历
+    private final CopyOnWriteArrayList<WorkerTask> workers = new CopyOnWriteArrayList<>();
+
+    //park等待任务的线程
+    private final ConcurrentLinkedQueue<WorkerTask> idleWorkers = new ConcurrentLinkedQueue<>();
+
+    //临时队列：OVERFLOW_POLICY的任务，以及退出的线程没执行完的任务
+    private final ConcurrentLinkedQueue<Runnable> overflowQueue = new ConcurrentLinkedQueue<>();
+
+    //排队中的任务数
+    private final AtomicInteger pending = new AtomicInteger();
+
+    //轮询选择工作线程队列
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    private final AtomicInteger threadSeq = new AtomicInteger();
+
+    private final LongAdder completedTasks = new LongAdder();
+
+    private final LongAdder stolenTasks = new LongAdder();
+
+    private final LongAdder rejectedTasks = new LongAdder();
+
+    //线程的创建、退出以及关闭线程池使用的锁
+    private final ReentrantLock mainLock = new ReentrantLock();
+
+    private final Condition termination = mainLock.newCondition();
+
+    private final Condition notFull = mainLock.newCondition();
+
+    //BLOCK_POLICY中等待队列空位的线程数，mainLock保护
+    private volatile int waitingSubmitters;
+
+    private volatile boolean destroy = false;
 
     public SimpleThreadPool() {
         this(DEFAULT_SIZE);
     }
 
     public SimpleThreadPool(int size) {
-        this.size = size;
+        this(size, size, DEFAULT_QUEUE_SIZE, ABORT_POLICY);
+    }
+
+    public SimpleThreadPool(int min, int max, int queueSize, RejectPolicy rejectPolicy) {
+        this(min, max, queueSize, DEFAULT_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS, rejectPolicy);
+    }
+
+    public SimpleThreadPool(int min, int max, int queueSize, long keepAlive, TimeUnit unit,
+                            RejectPolicy rejectPolicy) {
+        if (min < 0 || max <= 0 || max < min || queueSize <= 0 || keepAlive < 0)
+            throw new IllegalArgumentException();
+        if (unit == null || rejectPolicy == null)
+            throw new NullPointerException();
+        this.min = min;
+        this.max = max;
+        this.queueSize = queueSize;
+        this.keepAliveNanos = unit.toNanos(keepAlive);
+        this.rejectPolicy = rejectPolicy;
         init();
 
     }
 
     //初始化
     private void init() {
+        for (int i = 0; i < min; i++) {
+            addWorker();
+        }
+    }
+
+    /* ---------------- 提交任务 -------------- */
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null)
+            throw new NullPointerException();
+        if (destroy || !offer(task)) {
+            rejectedTasks.increment();
+            rejectPolicy.reject(task, this);
+        }
+    }
+
+    //放入任务队列，队列已满或者线程池已关闭时返回false
+    boolean offer(Runnable task) {
+        for (int c; ; ) {
+            if (destroy || (c = pending.get()) >= queueSize)
+                return false;
+            if (pending.compareAndSet(c, c + 1))
+                break;
+        }
+        WorkerTask target = pickWorker();
+        if (target == null) {
+            overflowQueue.offer(task);
+        } else {
+            target.queue.offerLast(task);
+            //目标线程刚好退出，它可能已经清空过队列，把任务转移到临时队列
+            if (target.taskState == TaskState.DEAD && target.queue.removeLastOccurrence(task))
+                overflowQueue.offer(task);
+        }
+        signalWork();
+        return true;
+    }
+
+    //不受queueSize限制地放入临时队列
+    void overflow(Runnable task) {
+        pending.incrementAndGet();
+        overflowQueue.offer(task);
+        signalWork();
+    }
 
+    //在工作线程中提交的任务放入自己的队列，其他线程提交的任务轮询分配
+    private WorkerTask pickWorker() {
+        Thread t = Thread.currentThread();
+        if (t instanceof WorkerTask && ((WorkerTask) t).pool == this && ((WorkerTask) t).taskState != TaskState.DEAD)
+            return (WorkerTask) t;
+        Object[] ws = workers.toArray();
+        if (ws.length == 0)
+            return null;
+        return (WorkerTask) ws[(nextIndex.getAndIncrement() & Integer.MAX_VALUE) % ws.length];
     }
 
-    //线程状态
-    private enum TaskState {
+    //唤醒一条空闲线程，没有空闲线程并且排队的任务多于线程数时扩容
+    private void signalWork() {
+        WorkerTask w;
+        while ((w = idleWorkers.poll()) != null) {
+            if (w.taskState != TaskState.DEAD) {
+                LockSupport.unpark(w);
+                return;
+            }
+        }
+        int n = workers.size();
+        if (n < max && (n == 0 || pending.get() > n))
+            addWorker();
+    }
+
+    private void addWorker() {
+        mainLock.lock();
+        try {
+            if (destroy || workers.size() >= max)
+                return;
+            WorkerTask w = new WorkerTask(GROUP, THREAD_PREFIX + threadSeq.getAndIncrement(), this);
+            workers.add(w);
+            w.start();
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    //BLOCK_POLICY等待队列空位
+    void awaitCapacity() throws InterruptedException {
+        mainLock.lock();
+        try {
+            waitingSubmitters++;
+            if (!destroy && pending.get() >= queueSize)
+                notFull.await(10, TimeUnit.MILLISECONDS);
+        } finally {
+            waitingSubmitters--;
+            mainLock.unlock();
+        }
+    }
+
+    /* ---------------- 工作线程获取任务 -------------- */
+
+    //依次从自己的队列、临时队列获取任务，最后从其他线程的队列窃取
+    private Runnable getTask(WorkerTask w) {
+        Runnable task = w.queue.pollFirst();
+        if (task == null)
+            task = overflowQueue.poll();
+        if (task == null && (task = steal(w)) != null)
+            stolenTasks.increment();
+        if (task != null) {
+            pending.decrementAndGet();
+            if (waitingSubmitters > 0)
+                signalNotFull();
+        }
+        return task;
+    }
+
+    private Runnable steal(WorkerTask thief) {
+        Object[] ws = workers.toArray();
+        int n = ws.length;
+        if (n <= 1)
+            return null;
+        int origin = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            WorkerTask victim = (WorkerTask) ws[(origin + i) % n];
+            Runnable task;
+            if (victim != thief && (task = victim.queue.pollLast()) != null)
+                return task;
+        }
+        return null;
+    }
+
+    private void signalNotFull() {
+        mainLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    //空闲超时的线程在线程数大于min时退出；在同一次加锁中移出workers，避免多个线程同时退出使线程数小于min
+    private boolean tryRetire(WorkerTask w) {
+        mainLock.lock();
+        try {
+            if (workers.size() <= min || pending.get() > 0)
+                return false;
+            w.close();
+            workers.remove(w);
+            return true;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    //线程退出：移出工作线程列表，把队列中剩余的任务转移到临时队列
+    private void workerExit(WorkerTask w) {
+        w.close();
+        mainLock.lock();
+        try {
+            workers.remove(w);
+            idleWorkers.remove(w);
+            Runnable task;
+            while ((task = w.queue.pollFirst()) != null)
+                overflowQueue.offer(task);
+            if (destroy && workers.isEmpty())
+                termination.signalAll();
+        } finally {
+            mainLock.unlock();
+        }
+        //其他线程可能都在park，转移过的任务需要有人处理
+        if (!overflowQueue.isEmpty())
+            signalWork();
+    }
+
+    /* ---------------- 关闭线程池 -------------- */
+
+    @Override
+    public void shutdown() {
+        mainLock.lock();
+        try {
+            destroy = true;
+            for (WorkerTask w : workers)
+                LockSupport.unpark(w);
+            notFull.signalAll();
+            if (workers.isEmpty())
+                termination.signalAll();
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        mainLock.lock();
+        try {
+            destroy = true;
+            for (WorkerTask w : workers) {
+                w.close();
+                w.interrupt();
+            }
+            for (WorkerTask w : workers) {
+                Runnable task;
+                while ((task = w.queue.pollFirst()) != null)
+                    tasks.add(task);
+            }
+            Runnable task;
+            while ((task = overflowQueue.poll()) != null)
+                tasks.add(task);
+            pending.addAndGet(-tasks.size());
+            notFull.signalAll();
+            if (workers.isEmpty())
+                termination.signalAll();
+        } finally {
+            mainLock.unlock();
+        }
+        return tasks;
+    }
+
+    /*
+     * 任务执行完成后在工作线程中调用，thrown是任务抛出的异常，正常结束时为null。
+     * 默认把异常交给工作线程的UncaughtExceptionHandler(没有设置时由ThreadGroup处理)，工作线程继续执行后面的任务；
+     * 子类可以重写来记录日志或者统计，重写的方法不要抛出异常，否则工作线程会退出
+     */
+    protected void afterExecute(Runnable task, Throwable thrown) {
+        if (thrown != null) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, thrown);
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return destroy;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return destroy && workers.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        mainLock.lock();
+        try {
+            while (!isTerminated()) {
+                if (nanos <= 0)
+                    return false;
+                nanos = termination.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /* ---------------- 运行状态 -------------- */
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    //当前的线程数
+    public int getPoolSize() {
+        return workers.size();
+    }
+
+    //排队中的任务数
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    //处于某个状态的线程数
+    public int getWorkerCount(TaskState state) {
+        int count = 0;
+        for (WorkerTask w : workers) {
+            if (w.taskState == state)
+                count++;
+        }
+        return count;
+    }
+
+    //正在执行任务的线程数
+    public int getActiveCount() {
+        return getWorkerCount(TaskState.RUNNING);
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTasks.sum();
+    }
+
+    public long getStolenTaskCount() {
+        return stolenTasks.sum();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejectedTasks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() +
+                "[" + (isTerminated() ? "Terminated" : destroy ? "Shutting down" : "Running") +
+                ", pool size = " + getPoolSize() +
+                ", active threads = " + getActiveCount() +
+                ", pending tasks = " + getPendingCount() +
+                ", completed tasks = " + getCompletedTaskCount() + "]";
+    }
+
+    //拒绝策略
+    @FunctionalInterface
+    public interface RejectPolicy {
+        void reject(Runnable task, SimpleThreadPool pool);
+    }
+
+    //线程状态：FREE查找任务，RUNNING执行任务，BLOCK没有任务park等待，DEAD已退出
+    public enum TaskState {
         FREE, RUNNING, BLOCK, DEAD;
     }
 
@@ -49,9 +476,14 @@ public class SimpleThreadPool {
     private static class WorkerTask extends Thread {
         private volatile TaskState taskState = TaskState.FREE;
 
+        private final SimpleThreadPool pool;
+
+        //本线程的任务队列，自己从头部获取，其他线程从尾部窃取
+        private final ConcurrentLinkedDeque<Runnable> queue = new ConcurrentLinkedDeque<>();
 
-        public WorkerTask(ThreadGroup threadGroup, String name) {
+        public WorkerTask(ThreadGroup threadGroup, String name, SimpleThreadPool pool) {
             super(threadGroup, name);
+            this.pool = pool;
         }
 
         public TaskState getTaskState() {
@@ -60,9 +492,44 @@ public class SimpleThreadPool {
 
         //重写run方法
         public void run() {
-            //循环没有死亡的线程，并执行线程的任务
-            while (this.taskState!=TaskState.DEAD){
-
+            long idleSince = System.nanoTime();
+            try {
+                //循环没有死亡的线程，并执行线程的任务
+                while (this.taskState != TaskState.DEAD) {
+                    Runnable task = pool.getTask(this);
+                    if (task != null) {
+                        this.taskState = TaskState.RUNNING;
+                        Throwable thrown = null;
+                        try {
+                            task.run();
+                        } catch (Throwable e) {
+                            thrown = e;
+                        } finally {
+                            pool.completedTasks.increment();
+                            if (this.taskState != TaskState.DEAD)
+                                this.taskState = TaskState.FREE;
+                            Thread.interrupted();
+                        }
+                        pool.afterExecute(task, thrown);
+                        idleSince = System.nanoTime();
+                        continue;
+                    }
+                    if (pool.destroy && pool.pending.get() == 0)
+                        break;
+                    long idle = System.nanoTime() - idleSince;
+                    if (idle >= pool.keepAliveNanos && pool.tryRetire(this))
+                        break;
+                    //先登记为空闲线程再检查任务数，避免提交任务的线程错过唤醒
+                    this.taskState = TaskState.BLOCK;
+                    pool.idleWorkers.offer(this);
+                    if (pool.pending.get() == 0 && !pool.destroy)
+                        LockSupport.parkNanos(pool, Math.max(pool.keepAliveNanos - idle, 1L));
+                    pool.idleWorkers.remove(this);
+                    if (this.taskState != TaskState.DEAD)
+                        this.taskState = TaskState.FREE;
+                }
+            } finally {
+                pool.workerExit(this);
             }
         }
 
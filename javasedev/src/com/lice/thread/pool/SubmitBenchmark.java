@@ -0,0 +1,87 @@
+package com.lice.thread.pool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.StripedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * description: SubmitBenchmark 线程池提交吞吐量对比 <br>
+ * date: 2026/10/18 16:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.pool.SubmitBenchmark [每轮任务数]
+ * StripedBlockingQueue在本仓库的src/java/util/concurrent中，需要放到bootclasspath前面才能加载。
+ * 对比ThreadPoolExecutor + LinkedBlockingQueue、ThreadPoolExecutor + StripedBlockingQueue、
+ * ForkJoinPool和SimpleThreadPool，工作线程数等于CPU数，提交线程数分别为1、4、16、64，
+ * 任务只做一次计数，测的是execute和任务交接本身的开销。每种组合先跑一轮预热。
+ */
+public class SubmitBenchmark {
+
+    private static final int[] SUBMITTERS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int submitters : SUBMITTERS) {
+            System.out.printf("workers=%d submitters=%d%n", workers, submitters);
+            bench("TPE+LinkedBlockingQueue", () -> new ThreadPoolExecutor(workers, workers, 0L,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()), submitters, tasks);
+            bench("TPE+StripedBlockingQueue", () -> new ThreadPoolExecutor(workers, workers, 0L,
+                    TimeUnit.MILLISECONDS, new StripedBlockingQueue<>()), submitters, tasks);
+            bench("ForkJoinPool", () -> new ForkJoinPool(workers), submitters, tasks);
+            bench("SimpleThreadPool", () -> new SimpleThreadPool(workers, workers, 4096,
+                    SimpleThreadPool.BLOCK_POLICY), submitters, tasks);
+        }
+    }
+
+    private static void bench(String name, Supplier<ExecutorService> factory, int submitters, int tasks)
+            throws InterruptedException {
+        ExecutorService executor = factory.get();
+        try {
+            run(executor, submitters, tasks / 4);
+            long nanos = run(executor, submitters, tasks);
+            System.out.printf("  %-26s %,12.0f tasks/s%n", name, tasks / (nanos / 1e9));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long run(ExecutorService executor, int submitters, int tasks) throws InterruptedException {
+        int perSubmitter = tasks / submitters;
+        long total = (long) perSubmitter * submitters;
+        //CountDownLatch本身是一个CAS热点，完成计数用LongAdder
+        LongAdder done = new LongAdder();
+        CountDownLatch go = new CountDownLatch(1);
+        Runnable task = done::increment;
+        Thread[] threads = new Thread[submitters];
+        for (int i = 0; i < submitters; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 0; n < perSubmitter; n++)
+                    executor.execute(task);
+            });
+            threads[i].start();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        while (done.sum() < total)
+            LockSupport.parkNanos(100_000L);
+        long nanos = System.nanoTime() - start;
+        for (Thread thread : threads)
+            thread.join();
+        return nanos;
+    }
+}
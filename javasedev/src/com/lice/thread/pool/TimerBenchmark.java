@@ -0,0 +1,138 @@
+package com.lice.thread.pool;
+
+import com.lice.thread.queue.LatencyHistogram;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimingWheelScheduledExecutor;
+import java.util.function.Supplier;
+
+/**
+ * description: TimerBenchmark 对比ScheduledThreadPoolExecutor与TimingWheelScheduledExecutor <br>
+ * date: 2026/10/18 16:00 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xbootclasspath/p:<编译后的src目录> com.lice.thread.pool.TimerBenchmark [定时任务数] [提交线程数]
+ * TimingWheelScheduledExecutor在本仓库的src/java/util/concurrent中，需要放到bootclasspath前面才能加载。
+ * 1、cancel：模拟RPC超时，提交10^6个1~30秒的定时任务，再全部取消，统计每次schedule/cancel的耗时和取消后队列中剩余的任务
+ *    STPE分别测试removeOnCancel为false(默认，取消的任务留在堆中直到到期)和true(取消时O(n)查找后删除)
+ * 2、fire：提交10^6个0~1秒的定时任务，等待全部执行，统计实际执行时间比预期晚多少
+ */
+public class TimerBenchmark {
+
+    private static final int WORKERS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        bench("STPE", () -> new ScheduledThreadPoolExecutor(WORKERS), timers, threads);
+        bench("STPE(removeOnCancel)", () -> {
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(WORKERS);
+            stpe.setRemoveOnCancelPolicy(true);
+            return stpe;
+        }, timers, threads);
+        bench("TimingWheel", () -> new TimingWheelScheduledExecutor(WORKERS), timers, threads);
+    }
+
+    private static void bench(String name, Supplier<ScheduledExecutorService> factory, int timers, int threads)
+            throws Exception {
+        ScheduledExecutorService executor = factory.get();
+        try {
+            //预热
+            cancel(executor, timers / 10, threads);
+            long[] cancel = cancel(executor, timers, threads);
+            System.out.printf("%-22s cancel: schedule %,5d ns/op  cancel %,7d ns/op  remaining after cancel %,d%n",
+                    name, cancel[0], cancel[1], cancel[2]);
+            fire(executor, timers / 10);
+            LatencyHistogram lateness = new LatencyHistogram();
+            long nanos = fire(executor, timers, lateness);
+            System.out.printf("%-22s fire:   %,d timers in %,d ms, lateness %s%n",
+                    name, timers, nanos / 1_000_000, lateness);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //返回{schedule ns/op, cancel ns/op, 取消后剩余任务数}
+    private static long[] cancel(ScheduledExecutorService executor, int timers, int threads) throws Exception {
+        int perThread = timers / threads;
+        @SuppressWarnings("unchecked")
+        ScheduledFuture<?>[][] futures = new ScheduledFuture<?>[threads][perThread];
+        Runnable noop = () -> {
+        };
+        long scheduleNanos = runThreads(threads, t -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < perThread; i++)
+                futures[t][i] = executor.schedule(noop, random.nextLong(1_000, 30_000), TimeUnit.MILLISECONDS);
+        });
+        long cancelNanos = runThreads(threads, t -> {
+            for (int i = 0; i < perThread; i++)
+                futures[t][i].cancel(false);
+        });
+        //TimingWheel在下一个tick才把取消的任务移出时间轮
+        Thread.sleep(50);
+        long remaining = executor instanceof ScheduledThreadPoolExecutor ?
+                ((ScheduledThreadPoolExecutor) executor).getQueue().size() : 0;
+        long ops = (long) perThread * threads;
+        return new long[]{scheduleNanos * threads / ops, cancelNanos * threads / ops, remaining};
+    }
+
+    private static long fire(ScheduledExecutorService executor, int timers) throws InterruptedException {
+        return fire(executor, timers, new LatencyHistogram());
+    }
+
+    private static long fire(ScheduledExecutorService executor, int timers, LatencyHistogram lateness)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(timers);
+        long[] late = new long[timers];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            int index = i;
+            long delay = random.nextLong(0, 1_000_000_000L);
+            long due = System.nanoTime() + delay;
+            executor.schedule(() -> {
+                late[index] = System.nanoTime() - due;
+                done.countDown();
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+        done.await();
+        long nanos = System.nanoTime() - start;
+        for (long l : late)
+            lateness.record(l);
+        return nanos;
+    }
+
+    private static long runThreads(int threads, IntTask task) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.run(id);
+            });
+            workers[t].start();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return System.nanoTime() - start;
+    }
+
+    @FunctionalInterface
+    private interface IntTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,109 @@
+package com.lice.thread.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * description: BatchQueueBenchmark 阻塞队列逐个put/take与批量putAll/drainTo的单元素开销对比 <br>
+ * date: 2026/10/18 16:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.thread.queue.BatchQueueBenchmark [每轮的元素数] [生产者数]
+ * 每种队列、每个批大小(1~1024)跑两种方式：
+ * 1、single：生产者逐个put，消费者逐个take，每个元素加锁一次、signal一次
+ * 2、batch：生产者攒够一批后putAll，消费者drainTo(c, batch, batch, 1ms)，一批只加锁一次、signal一次
+ * 只有1个消费者，消费者收到全部元素后结束，不需要毒丸。每种组合先跑一轮预热，不计入结果。
+ * 输出的是每个元素的平均耗时(ns/element)，批越大，批量方式摊到每个元素上的加锁开销越小。
+ */
+public class BatchQueueBenchmark {
+
+    private static final int CAPACITY = 4096;
+
+    private static final int[] BATCH_SIZES = {1, 4, 16, 64, 256, 1024};
+
+    private static final Integer ELEMENT = 1;
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int producers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        System.out.printf("elements=%,d producers=%d consumers=1 (ns/element)%n", elements, producers);
+        System.out.printf("  %-20s %6s %10s %10s%n", "queue", "batch", "single", "batch");
+        bench("ArrayBlockingQueue", () -> new ArrayBlockingQueue<>(CAPACITY), producers, elements);
+        bench("LinkedBlockingQueue", () -> new LinkedBlockingQueue<>(CAPACITY), producers, elements);
+        bench("LinkedBlockingDeque", () -> new LinkedBlockingDeque<>(CAPACITY), producers, elements);
+    }
+
+    private static void bench(String name, Supplier<BlockingQueue<Integer>> factory, int producers,
+                              int elements) throws InterruptedException {
+        for (int batch : BATCH_SIZES) {
+            //预热
+            run(factory.get(), producers, elements / 4, batch, false);
+            run(factory.get(), producers, elements / 4, batch, true);
+            double single = run(factory.get(), producers, elements, batch, false);
+            double batched = run(factory.get(), producers, elements, batch, true);
+            System.out.printf("  %-20s %6d %10.1f %10.1f%n", name, batch, single, batched);
+        }
+    }
+
+    /**
+     * @return 每个元素的平均耗时(ns)
+     */
+    private static double run(BlockingQueue<Integer> queue, int producers, int elements, int batch,
+                              boolean bulk) throws InterruptedException {
+        int perProducer = Math.max(batch, elements / producers / batch * batch);
+        long total = (long) perProducer * producers;
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers + 1];
+        threads[0] = new Thread(() -> {
+            List<Integer> sink = new ArrayList<>(batch);
+            try {
+                go.await();
+                for (long received = 0; received < total; ) {
+                    if (bulk) {
+                        sink.clear();
+                        received += queue.drainTo(sink, batch, batch, 1, TimeUnit.MILLISECONDS);
+                    } else {
+                        queue.take();
+                        received++;
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            }
+        }, "consumer");
+        for (int i = 1; i <= producers; i++) {
+            threads[i] = new Thread(() -> {
+                List<Integer> chunk = new ArrayList<>(batch);
+                for (int j = 0; j < batch; j++)
+                    chunk.add(ELEMENT);
+                try {
+                    go.await();
+                    for (int sent = 0; sent < perProducer; sent += batch) {
+                        if (bulk) {
+                            queue.putAll(chunk);
+                        } else {
+                            for (int j = 0; j < batch; j++)
+                                queue.put(ELEMENT);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }, "producer-" + i);
+        }
+        for (Thread thread : threads)
+            thread.start();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        return (double) (System.nanoTime() - start) / total;
+    }
+}
@@ -0,0 +1,173 @@
+package com.lice.thread.queue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * description: HandOffBenchmark 生产者消费者传递方式的吞吐量和延迟对比 <br>
+ * date: 2026/10/18 15:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.thread.queue.HandOffBenchmark [每轮的消息数]
+ * 对比的传递方式：
+ * 1、monitor-slot：容量为1的MonitorBoundedQueue，相当于ThreadCommunicate中的wait/notify交替
+ * 2、monitor：有界的MonitorBoundedQueue
+ * 3、ArrayBlockingQueue、LinkedTransferQueue(transfer之外用put，不等待消费者)、SynchronousQueue
+ * 4、spsc：SpscRingBuffer，只在1个生产者1个消费者时参与
+ * 消息是生产者put之前的System.nanoTime()，消费者take之后计算延迟，记录到各自的LatencyHistogram；
+ * 所有生产者结束后，最后一个生产者给每个消费者发一个毒丸(POISON)。每种组合先跑一轮预热，不计入结果。
+ */
+public class HandOffBenchmark {
+
+    private static final int CAPACITY = 1024;
+
+    //生产者:消费者 线程数
+    private static final int[][] THREADS = {{1, 1}, {2, 2}, {4, 4}, {8, 8}, {1, 4}, {4, 1}};
+
+    private static final Long POISON = Long.MIN_VALUE;
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        for (int[] threads : THREADS) {
+            int producers = threads[0];
+            int consumers = threads[1];
+            System.out.printf("producers=%d consumers=%d%n", producers, consumers);
+            bench("monitor-slot", () -> monitor(1), producers, consumers, messages);
+            bench("monitor", () -> monitor(CAPACITY), producers, consumers, messages);
+            bench("ArrayBlockingQueue", () -> blocking(new ArrayBlockingQueue<>(CAPACITY)),
+                    producers, consumers, messages);
+            bench("LinkedTransferQueue", () -> blocking(new LinkedTransferQueue<>()),
+                    producers, consumers, messages);
+            bench("SynchronousQueue", () -> blocking(new SynchronousQueue<>()),
+                    producers, consumers, messages);
+            if (producers == 1 && consumers == 1)
+                bench("spsc", HandOffBenchmark::spsc, producers, consumers, messages);
+        }
+    }
+
+    private static void bench(String name, Supplier<Channel> factory, int producers, int consumers,
+                              int messages) throws InterruptedException {
+        //预热
+        run(factory.get(), producers, consumers, messages / 4);
+        Result result = run(factory.get(), producers, consumers, messages);
+        System.out.printf("  %-20s %,12.0f msg/s  %s%n", name, result.throughput(), result.latency);
+    }
+
+    private static Result run(Channel channel, int producers, int consumers, int messages)
+            throws InterruptedException {
+        int perProducer = Math.max(1, messages / producers);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger(producers);
+        LatencyHistogram[] histograms = new LatencyHistogram[consumers];
+        Thread[] threads = new Thread[producers + consumers];
+        for (int i = 0; i < consumers; i++) {
+            LatencyHistogram histogram = histograms[i] = new LatencyHistogram();
+            threads[i] = new Thread(() -> {
+                try {
+                    go.await();
+                    for (Long sent; (sent = channel.take()) != POISON; )
+                        histogram.record(System.nanoTime() - sent);
+                } catch (InterruptedException ignored) {
+                }
+            }, "consumer-" + i);
+        }
+        for (int i = 0; i < producers; i++) {
+            threads[consumers + i] = new Thread(() -> {
+                try {
+                    go.await();
+                    for (int n = 0; n < perProducer; n++)
+                        channel.put(System.nanoTime());
+                    //最后一个结束的生产者负责发送毒丸，spsc时只有一个生产者线程
+                    if (running.decrementAndGet() == 0) {
+                        for (int c = 0; c < consumers; c++)
+                            channel.put(POISON);
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }, "producer-" + i);
+        }
+        for (Thread thread : threads)
+            thread.start();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        long nanos = System.nanoTime() - start;
+        LatencyHistogram latency = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms)
+            latency.merge(histogram);
+        return new Result(latency, nanos);
+    }
+
+    private static Channel monitor(int capacity) {
+        MonitorBoundedQueue<Long> queue = new MonitorBoundedQueue<>(capacity);
+        return new Channel() {
+            @Override
+            public void put(Long value) throws InterruptedException {
+                queue.put(value);
+            }
+
+            @Override
+            public Long take() throws InterruptedException {
+                return queue.take();
+            }
+        };
+    }
+
+    private static Channel blocking(BlockingQueue<Long> queue) {
+        return new Channel() {
+            @Override
+            public void put(Long value) throws InterruptedException {
+                queue.put(value);
+            }
+
+            @Override
+            public Long take() throws InterruptedException {
+                return queue.take();
+            }
+        };
+    }
+
+    private static Channel spsc() {
+        SpscRingBuffer<Long> ring = new SpscRingBuffer<>(CAPACITY);
+        return new Channel() {
+            @Override
+            public void put(Long value) throws InterruptedException {
+                ring.put(value);
+            }
+
+            @Override
+            public Long take() throws InterruptedException {
+                return ring.take();
+            }
+        };
+    }
+
+    //被测的传递方式
+    private interface Channel {
+        void put(Long value) throws InterruptedException;
+
+        Long take() throws InterruptedException;
+    }
+
+    private static class Result {
+        final LatencyHistogram latency;
+        final long nanos;
+
+        Result(LatencyHistogram latency, long nanos) {
+            this.latency = latency;
+            this.nanos = nanos;
+        }
+
+        double throughput() {
+            return latency.count() / (nanos / 1e9);
+        }
+    }
+}
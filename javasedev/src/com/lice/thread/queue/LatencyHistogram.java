@@ -0,0 +1,88 @@
+package com.lice.thread.queue;
+
+/**
+ * description: LatencyHistogram 对数分桶的延迟直方图 <br>
+ * date: 2026/10/18 15:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 按2的幂分组，每组再线性分成8个桶，相对误差不超过12.5%：
+ * 1、小于8ns的值每个值一个桶
+ * 2、record只做数组自增，不分配对象，每个消费者线程使用自己的直方图，结束后merge
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_COUNT];
+
+    private long total;
+
+    private long max;
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts[indexOf(nanos)]++;
+        total++;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /**
+     * 返回百分位(0~100)所在桶的上界
+     */
+    public long percentile(double p) {
+        if (total == 0)
+            return 0;
+        long rank = (long) Math.ceil(total * p / 100.0);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_COUNT)
+            return index;
+        int shift = (index >>> SUB_BITS) - 1;
+        long base = (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("p50=%,dns p99=%,dns p99.9=%,dns max=%,dns",
+                percentile(50), percentile(99), percentile(99.9), max);
+    }
+}
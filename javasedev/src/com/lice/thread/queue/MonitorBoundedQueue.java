@@ -0,0 +1,62 @@
+package com.lice.thread.queue;
+
+/**
+ * description: MonitorBoundedQueue 使用wait/notify实现的有界队列 <br>
+ * date: 2026/10/18 15:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * ThreadCommunicate中两条线程交替输出的有界队列版本：
+ * 1、锁：队列对象本身
+ * 2、wait：队列满时生产者等待，队列空时消费者等待，被唤醒后要在while中重新检查条件(可能是虚假唤醒)
+ * 3、notifyAll：生产者和消费者在同一个锁上等待，notify可能只唤醒同类线程导致所有线程都在等待，所以用notifyAll
+ * 每次put/take都要获取锁，并且唤醒所有等待的线程，这是与j.u.c队列对比的基准
+ */
+public class MonitorBoundedQueue<E> {
+
+    private final Object[] items;
+
+    //下一次take的位置
+    private int takeIndex;
+
+    //下一次put的位置
+    private int putIndex;
+
+    private int count;
+
+    public MonitorBoundedQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        this.items = new Object[capacity];
+    }
+
+    public synchronized void put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        while (count == items.length)
+            wait();
+        items[putIndex] = e;
+        if (++putIndex == items.length)
+            putIndex = 0;
+        count++;
+        notifyAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized E take() throws InterruptedException {
+        while (count == 0)
+            wait();
+        E e = (E) items[takeIndex];
+        items[takeIndex] = null;
+        if (++takeIndex == items.length)
+            takeIndex = 0;
+        count--;
+        notifyAll();
+        return e;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+}
@@ -0,0 +1,99 @@
+package com.lice.thread.queue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RelaxedPriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * description: PriorityQueueBenchmark 多生产者下PriorityBlockingQueue与RelaxedPriorityBlockingQueue的吞吐量对比 <br>
+ * date: 2026/10/18 17:30 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java com.lice.thread.queue.PriorityQueueBenchmark [每轮的元素数] [消费者数]
+ * 模拟共享的任务调度器：生产者数从1增加到32，每个生产者put随机优先级的元素，消费者take直到取完全部元素。
+ * 对比的队列：
+ * 1、PriorityBlockingQueue：一把ReentrantLock保护整个数组堆
+ * 2、relaxed(1)：只有一个堆的RelaxedPriorityBlockingQueue，严格按优先级出队，用来看多堆本身之外的开销
+ * 3、relaxed：默认堆数(每个CPU两个)的RelaxedPriorityBlockingQueue，出队顺序是近似的
+ * 输出吞吐量(元素/秒)，以及消费者出队时"比上一个出队元素优先级更高"的比例，粗略反映顺序被放宽的程度。
+ */
+public class PriorityQueueBenchmark {
+
+    private static final int[] PRODUCERS = {1, 4, 16, 32};
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        for (int producers : PRODUCERS) {
+            System.out.printf("producers=%d consumers=%d%n", producers, consumers);
+            bench("PriorityBlockingQueue", PriorityBlockingQueue::new, producers, consumers, elements);
+            bench("relaxed(1)", () -> new RelaxedPriorityBlockingQueue<>(1, null),
+                    producers, consumers, elements);
+            bench("relaxed", RelaxedPriorityBlockingQueue::new, producers, consumers, elements);
+        }
+    }
+
+    private static void bench(String name, Supplier<BlockingQueue<Long>> factory, int producers,
+                              int consumers, int elements) throws InterruptedException {
+        //预热
+        run(factory.get(), producers, consumers, elements / 4);
+        long[] result = run(factory.get(), producers, consumers, elements);
+        double seconds = result[0] / 1e9;
+        System.out.printf("  %-22s %,12.0f elements/s  inversions=%.2f%%%n",
+                name, result[1] / seconds, 100.0 * result[2] / result[1]);
+    }
+
+    /**
+     * @return {耗时(ns), 元素数, 逆序出队数}
+     */
+    private static long[] run(BlockingQueue<Long> queue, int producers, int consumers, int elements)
+            throws InterruptedException {
+        int perProducer = Math.max(1, elements / producers);
+        long total = (long) perProducer * producers;
+        AtomicLong remaining = new AtomicLong(total);
+        AtomicLong inversions = new AtomicLong();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers + consumers];
+        for (int i = 0; i < consumers; i++) {
+            threads[i] = new Thread(() -> {
+                long last = Long.MIN_VALUE, inverted = 0;
+                try {
+                    go.await();
+                    //先用remaining预占一个元素再take，所以每次take都一定能等到元素，不需要毒丸
+                    while (remaining.getAndDecrement() > 0) {
+                        long value = queue.take();
+                        if (value < last)
+                            inverted++;
+                        last = value;
+                    }
+                } catch (InterruptedException ignored) {
+                }
+                inversions.addAndGet(inverted);
+            }, "consumer-" + i);
+        }
+        for (int i = 0; i < producers; i++) {
+            threads[consumers + i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    go.await();
+                    for (int j = 0; j < perProducer; j++)
+                        queue.put(random.nextLong(Long.MAX_VALUE));
+                } catch (InterruptedException ignored) {
+                }
+            }, "producer-" + i);
+        }
+        for (Thread thread : threads)
+            thread.start();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        return new long[]{System.nanoTime() - start, total, inversions.get()};
+    }
+}
@@ -0,0 +1,123 @@
+package com.lice.thread.queue;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * description: SpscRingBuffer 单生产者单消费者的无锁环形队列 <br>
+ * date: 2026/10/18 15:20 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 只允许一条线程offer、一条线程poll：
+ * 1、tail只由生产者修改，head只由消费者修改，不需要CAS
+ * 2、写入元素后用lazySet发布tail(store-store屏障)，消费者读到tail后一定能看到元素；head同理
+ * 3、生产者缓存一份head，只有缓存的head显示队列已满时才重新读取volatile的head，消费者对tail同理，
+ *    减少两个核之间缓存行的来回传递
+ * 4、put/take在队列满或空时自旋一段时间后park，适合对延迟敏感的一对一传递
+ */
+public class SpscRingBuffer<E> {
+
+    //SpscRingBuffer.class是原始类型，转换成SpscRingBuffer<?>供下面的字段更新器使用
+    @SuppressWarnings("unchecked")
+    private static final Class<SpscRingBuffer<?>> BUFFER_CLASS =
+            (Class<SpscRingBuffer<?>>) (Class<?>) SpscRingBuffer.class;
+
+    private static final AtomicLongFieldUpdater<SpscRingBuffer<?>> HEAD =
+            AtomicLongFieldUpdater.newUpdater(BUFFER_CLASS, "head");
+
+    private static final AtomicLongFieldUpdater<SpscRingBuffer<?>> TAIL =
+            AtomicLongFieldUpdater.newUpdater(BUFFER_CLASS, "tail");
+
+    //空转多少次后开始park
+    private static final int SPINS = 1 << 10;
+
+    private final Object[] buffer;
+
+    private final int mask;
+
+    //消费者的位置
+    private volatile long head;
+
+    //生产者的位置
+    private volatile long tail;
+
+    //生产者缓存的head
+    private long headCache;
+
+    //消费者缓存的tail
+    private long tailCache;
+
+    public SpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (capacity == 1)
+            size = 1;
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+    }
+
+    //只能在生产者线程调用，队列满时返回false
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        long t = tail;
+        if (t - headCache >= buffer.length) {
+            headCache = head;
+            if (t - headCache >= buffer.length)
+                return false;
+        }
+        buffer[(int) t & mask] = e;
+        TAIL.lazySet(this, t + 1);
+        return true;
+    }
+
+    //只能在消费者线程调用，队列空时返回null
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head;
+        if (h >= tailCache) {
+            tailCache = tail;
+            if (h >= tailCache)
+                return null;
+        }
+        int index = (int) h & mask;
+        E e = (E) buffer[index];
+        buffer[index] = null;
+        HEAD.lazySet(this, h + 1);
+        return e;
+    }
+
+    public void put(E e) throws InterruptedException {
+        for (int spins = 0; !offer(e); spins++)
+            idle(spins);
+    }
+
+    public E take() throws InterruptedException {
+        E e;
+        for (int spins = 0; (e = poll()) == null; spins++)
+            idle(spins);
+        return e;
+    }
+
+    private static void idle(int spins) throws InterruptedException {
+        if (spins < SPINS)
+            return;
+        if (spins < SPINS * 2)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(1000L);
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail - head);
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
@@ -26,6 +26,12 @@ public class DomApp2 {
         InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("dom.xml");
         //将XML加载到内存中，Document就已经是整个XML文档，并且代表着根节点
         Document document = builder.parse(inputStream);
+        ArrayList<Book> arrayList = toBooks(document);
+        System.out.println(Arrays.toString(arrayList.toArray()));
+    }
+
+    //把Document中的book节点转换成Book对象
+    public static ArrayList<Book> toBooks(Document document) {
         //获取跟节点的所有子节点，即book节点，多个的。
         NodeList nodeList = document.getElementsByTagName("book");
         ArrayList<Book> arrayList = new ArrayList<Book>();
@@ -58,6 +64,6 @@ public class DomApp2 {
             arrayList.add(book);
         }
 
-        System.out.println(Arrays.toString(arrayList.toArray()));
+        return arrayList;
     }
 }
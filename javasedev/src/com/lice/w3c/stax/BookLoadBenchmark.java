@@ -0,0 +1,106 @@
+package com.lice.w3c.stax;
+
+import com.lice.w3c.dom.DomApp;
+import com.lice.w3c.dom.DomApp2;
+import com.lice.w3c.dom.entity.Book;
+import org.w3c.dom.Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * description: BookLoadBenchmark 对比DOM和StAX读取book的耗时和内存 <br>
+ * date: 2026/10/18 13:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 用法：java -Xmx8g com.lice.w3c.stax.BookLoadBenchmark [文档大小(MB)] [dom|stax|both]
+ * 默认生成1024MB的文档；DOM需要数倍于文档大小的堆，堆不够时只测stax
+ * 内存是读取完成时(Book对象还未释放)的堆使用量，只作为量级参考
+ */
+public class BookLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 1024;
+        String mode = args.length > 1 ? args[1] : "both";
+        File file = File.createTempFile("books", ".xml");
+        file.deleteOnExit();
+        long books = generate(file, sizeMb * 1024 * 1024);
+        System.out.printf("document: %s, %,d bytes, %,d books%n", file, file.length(), books);
+
+        if (!"dom".equals(mode))
+            stax(file);
+        if (!"stax".equals(mode)) {
+            try {
+                dom(file);
+            } catch (OutOfMemoryError e) {
+                System.out.println("dom: OutOfMemoryError, max heap " + (Runtime.getRuntime().maxMemory() >> 20) + "MB");
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private static void stax(File file) throws Exception {
+        gc();
+        long start = System.nanoTime();
+        AtomicLong priceLength = new AtomicLong();
+        long count;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            count = BookStaxLoader.load(in, book -> priceLength.addAndGet(book.getPrice().length()));
+        }
+        report("stax", count, System.nanoTime() - start);
+    }
+
+    private static void dom(File file) {
+        gc();
+        long start = System.nanoTime();
+        Document document = DomApp.parseXML(file.getPath());
+        List<Book> list = DomApp2.toBooks(document);
+        report("dom", list.size(), System.nanoTime() - start);
+    }
+
+    private static void report(String name, long count, long nanos) {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%s: %,d books in %.2fs, heap used %,dMB%n", name, count, nanos / 1e9, used >> 20);
+    }
+
+    private static void gc() {
+        System.gc();
+        System.gc();
+    }
+
+    //生成bookstore文档，返回book的个数
+    private static long generate(File file, long targetBytes) throws IOException {
+        long count = 0;
+        long written = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<bookstore>\n");
+            while (written < targetBytes) {
+                String book = "    <book id=\"" + count + "\">\n" +
+                        "        <name>Book " + count + "</name>\n" +
+                        "        <author>Author " + (count % 1000) + "</author>\n" +
+                        "        <year>" + (1900 + count % 120) + "</year>\n" +
+                        "        <price>" + (count % 100) + ".00</price>\n" +
+                        "    </book>\n";
+                writer.write(book);
+                written += book.length();
+                count++;
+            }
+            writer.write("</bookstore>\n");
+        }
+        return count;
+    }
+}
@@ -0,0 +1,125 @@
+package com.lice.w3c.stax;
+
+import com.lice.w3c.dom.entity.Book;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * description: 使用StAX流式读取XML中的book节点 <br>
+ * date: 2026/10/18 13:40 <br>
+ * author: lc <br>
+ * version: 1.0 <br>
+ */
+/*
+ * 与DomApp的区别：
+ * 1、DOM先把整个文档解析成Document树再遍历，内存占用与文档大小成正比
+ * 2、StAX是拉模式，每读完一个</book>就产出一个Book，内存中只有当前的book
+ * 3、XMLInputFactory的查找(ServiceLoader)和创建比较耗时，整个类共用一个，配置后只用来创建XMLStreamReader
+ */
+public class BookStaxLoader {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        //不处理DTD和外部实体，避免XXE，也省掉解析DTD的开销
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        //相邻的文本合并成一个CHARACTERS事件
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    //读取所有的book，每读完一个就回调一次，返回book的个数
+    public static long load(InputStream inputStream, Consumer<? super Book> consumer) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(inputStream);
+        long count = 0;
+        try {
+            Book book;
+            while ((book = nextBook(reader)) != null) {
+                consumer.accept(book);
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    //按需读取的Stream，使用完需要close(或者用try-with-resources)
+    public static Stream<Book> stream(InputStream inputStream) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(inputStream);
+        Spliterator<Book> spliterator = new Spliterators.AbstractSpliterator<Book>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Book> action) {
+                Book book;
+                try {
+                    book = nextBook(reader);
+                } catch (XMLStreamException e) {
+                    throw new UncheckedIOException(new IOException(e));
+                }
+                if (book == null)
+                    return false;
+                action.accept(book);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                reader.close();
+                inputStream.close();
+            } catch (XMLStreamException | IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    //读取到下一个</book>，文档结束时返回null
+    private static Book nextBook(XMLStreamReader reader) throws XMLStreamException {
+        Book book = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if ("book".equals(name)) {
+                    book = new Book();
+                    book.setbId(reader.getAttributeValue(null, "id"));
+                } else if (book != null) {
+                    //getElementText会读到对应的结束标签
+                    if ("name".equals(name)) {
+                        book.setbName(reader.getElementText());
+                    } else if ("author".equals(name)) {
+                        book.setAuthor(reader.getElementText());
+                    } else if ("year".equals(name)) {
+                        book.setYear(reader.getElementText());
+                    } else if ("price".equals(name)) {
+                        book.setPrice(reader.getElementText());
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && book != null
+                    && "book".equals(reader.getLocalName())) {
+                return book;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("dom.xml");
+        try (Stream<Book> books = stream(inputStream)) {
+            books.forEach(System.out::println);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.management;
+
+/**
+ * The management interface for the runtime metrics of an executor, such
+ * as a {@link java.util.concurrent.ThreadPoolExecutor ThreadPoolExecutor},
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor
+ * ScheduledThreadPoolExecutor} or {@link java.util.concurrent.ForkJoinPool
+ * ForkJoinPool}, that has metrics enabled.
+ *
+ * <p> A class implementing this interface is an
+ * {@link javax.management.MXBean}. A Java virtual machine has zero or more
+ * instances of this interface, one per live executor whose metrics were
+ * enabled with {@code enableMetrics}. The {@link
+ * java.lang.management.ManagementFactory#getPlatformMXBeans getPlatformMXBeans}
+ * method can be used to obtain the list of {@code ExecutorMXBean} objects
+ * as follows:
+ * <pre>
+ *     List&lt;ExecutorMXBean&gt; pools = ManagementFactory.getPlatformMXBeans(ExecutorMXBean.class);
+ * </pre>
+ *
+ * <p> The management interfaces are also registered with the platform {@link
+ * javax.management.MBeanServer MBeanServer}, when metrics are enabled and
+ * unregistered when the executor terminates. The {@link
+ * javax.management.ObjectName ObjectName} that uniquely identifies the
+ * management interface within the {@code MBeanServer} takes the form:
+ * <pre>
+ *     java.util.concurrent:type=Executor,name=<i>executor name</i>
+ * </pre>
+ * where <em>executor name</em> is the {@link #getName name} given when
+ * metrics were enabled.
+ *
+ * <p> Durations are in nanoseconds. Histograms have one bucket per power
+ * of two: bucket 0 counts zero durations, and bucket <i>i</i> &gt; 0
+ * counts durations <i>d</i> with 2<sup><i>i</i>-1</sup> &le; <i>d</i>
+ * &lt; 2<sup><i>i</i></sup>; the last bucket also counts all longer
+ * durations. Counters are maintained with striped adders and reading
+ * them takes no executor lock, so values read while the executor is
+ * active are estimates.
+ *
+ * @see java.util.concurrent.ExecutorMetrics
+ * @since   1.8
+ */
+public interface ExecutorMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the name of this executor.
+     *
+     * @return  The name of this executor.
+     */
+    String getName();
+
+    /**
+     * Returns the fully qualified class name of this executor.
+     *
+     * @return  The class name of this executor.
+     */
+    String getType();
+
+    /**
+     * Returns an estimate of the current number of worker threads.
+     *
+     * @return  An estimate of the number of worker threads
+     */
+    int getPoolSize();
+
+    /**
+     * Returns an estimate of the number of tasks waiting to be executed.
+     *
+     * @return  An estimate of the number of queued tasks
+     */
+    long getQueuedTaskCount();
+
+    /**
+     * Returns the number of tasks that completed execution, normally
+     * or abruptly, since metrics were enabled.
+     *
+     * @return  The number of completed tasks
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * Returns the number of tasks rejected since metrics were enabled.
+     *
+     * @return  The number of rejected tasks
+     */
+    long getRejectedTaskCount();
+
+    /**
+     * Returns the number of tasks taken from another worker's queue.
+     * Executors without work stealing return {@code 0}.
+     *
+     * @return  The number of stolen tasks
+     */
+    long getStealCount();
+
+    /**
+     * Returns the number of times a worker thread blocked waiting for
+     * a task.
+     *
+     * @return  The number of idle worker waits
+     */
+    long getParkCount();
+
+    /**
+     * Returns the number of worker threads started since metrics were
+     * enabled.
+     *
+     * @return  The number of started workers
+     */
+    long getWorkerStartCount();
+
+    /**
+     * Returns the number of worker threads that exited since metrics
+     * were enabled.
+     *
+     * @return  The number of retired workers
+     */
+    long getWorkerRetireCount();
+
+    /**
+     * Returns the histogram of times tasks spent queued before they
+     * started running. For scheduled tasks this is the time past their
+     * trigger time. Executors that do not timestamp queued tasks return
+     * an all-zero histogram.
+     *
+     * @return  The queue-wait histogram
+     */
+    long[] getQueueWaitTimeHistogram();
+
+    /**
+     * Returns the histogram of task run times.
+     *
+     * @return  The run-time histogram
+     */
+    long[] getRunTimeHistogram();
+
+    /**
+     * Returns an upper bound of the given percentile of queue-wait times.
+     *
+     * @param percentile  the percentile, between 0 and 100
+     * @return  The upper bound of the histogram bucket holding the
+     *          percentile, in nanoseconds, or {@code 0} if empty
+     * @throws IllegalArgumentException if {@code percentile} is not
+     *         between 0 and 100
+     */
+    long getQueueWaitTimePercentile(double percentile);
+
+    /**
+     * Returns an upper bound of the given percentile of task run times.
+     *
+     * @param percentile  the percentile, between 0 and 100
+     * @return  The upper bound of the histogram bucket holding the
+     *          percentile, in nanoseconds, or {@code 0} if empty
+     * @throws IllegalArgumentException if {@code percentile} is not
+     *         between 0 and 100
+     */
+    long getRunTimePercentile(double percentile);
+}
@@ -0,0 +1,174 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.management;
+
+/**
+ * The management interface for the lock contention recorder of the Java
+ * virtual machine, which samples contended acquisitions of locks and
+ * synchronizers in {@code java.util.concurrent}: those built on
+ * {@link java.util.concurrent.locks.AbstractQueuedSynchronizer
+ * AbstractQueuedSynchronizer}, such as
+ * {@link java.util.concurrent.locks.ReentrantLock ReentrantLock},
+ * {@link java.util.concurrent.locks.ReentrantReadWriteLock
+ * ReentrantReadWriteLock} and {@link java.util.concurrent.Semaphore
+ * Semaphore}, and {@link java.util.concurrent.locks.StampedLock
+ * StampedLock}. Waits on synchronizers other than locks, such as
+ * semaphores and latches, are labelled as such in reports, and
+ * synchronizers built on
+ * {@link java.util.concurrent.locks.AbstractQueuedLongSynchronizer
+ * AbstractQueuedLongSynchronizer} are not covered. Contention on
+ * intrinsic monitors is reported by the
+ * {@link ThreadMXBean#setThreadContentionMonitoringEnabled thread
+ * contention monitoring} of the {@link ThreadMXBean}.
+ *
+ * <p> A Java virtual machine has a single instance of the implementation
+ * class of this interface. This instance implementing this interface is
+ * an {@link javax.management.MXBean MXBean} that can be obtained by
+ * calling the {@link ManagementFactory#getPlatformMXBean(Class)} method
+ * or from the {@link ManagementFactory#getPlatformMBeanServer platform
+ * {@code MBeanServer}}.
+ *
+ * <p> The {@code ObjectName} for uniquely identifying the MXBean for the
+ * lock contention recorder within an MBeanServer is:
+ * <blockquote>
+ *    {@code java.util.concurrent.locks:type=LockContention}
+ * </blockquote>
+ *
+ * <p> Recording is disabled by default. While it is disabled, and for
+ * acquisitions that do not have to wait, no work is done. While it is
+ * enabled, every acquisition that has to wait is counted, and one in
+ * every {@link #getSamplingInterval sampling interval} of them is
+ * sampled: its wait time, the waiting thread, the owner at the time it
+ * started waiting (for exclusive acquisitions) and its call site, taken
+ * from the waiting thread's stack trace, are kept in a bounded ring
+ * buffer of the most recent samples.
+ *
+ * @see java.util.concurrent.locks.LockContentionRecorder
+ * @since   1.8
+ */
+public interface LockContentionMXBean extends PlatformManagedObject {
+
+    /**
+     * Tests if lock contention recording is enabled.
+     *
+     * @return {@code true} if recording is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Enables or disables lock contention recording. Samples already
+     * recorded are kept.
+     *
+     * @param enable {@code true} to enable recording
+     * @throws java.lang.SecurityException if a security manager
+     *         exists and the caller does not have
+     *         ManagementPermission("control").
+     */
+    void setEnabled(boolean enable);
+
+    /**
+     * Returns the sampling interval: on average one in this many
+     * contended acquisitions is sampled.
+     *
+     * @return the sampling interval
+     */
+    int getSamplingInterval();
+
+    /**
+     * Sets the sampling interval.
+     *
+     * @param interval on average one in {@code interval} contended
+     *        acquisitions is sampled; {@code 1} samples all of them
+     * @throws IllegalArgumentException if {@code interval} is not positive
+     * @throws java.lang.SecurityException if a security manager
+     *         exists and the caller does not have
+     *         ManagementPermission("control").
+     */
+    void setSamplingInterval(int interval);
+
+    /**
+     * Returns the maximum number of stack frames kept per sample.
+     *
+     * @return the maximum stack depth
+     */
+    int getMaxStackDepth();
+
+    /**
+     * Sets the maximum number of stack frames kept per sample.
+     *
+     * @param depth the maximum stack depth; {@code 0} keeps no frames
+     * @throws IllegalArgumentException if {@code depth} is negative
+     * @throws java.lang.SecurityException if a security manager
+     *         exists and the caller does not have
+     *         ManagementPermission("control").
+     */
+    void setMaxStackDepth(int depth);
+
+    /**
+     * Returns the number of samples the ring buffer holds.
+     *
+     * @return the capacity of the ring buffer
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of contended acquisitions while recording
+     * was enabled.
+     *
+     * @return the number of contended acquisitions
+     */
+    long getContendedAcquisitionCount();
+
+    /**
+     * Returns the number of samples taken, including those since
+     * overwritten in the ring buffer.
+     *
+     * @return the number of samples taken
+     */
+    long getSampleCount();
+
+    /**
+     * Discards all samples and resets the counts.
+     *
+     * @throws java.lang.SecurityException if a security manager
+     *         exists and the caller does not have
+     *         ManagementPermission("control").
+     */
+    void clear();
+
+    /**
+     * Returns a report of the samples in the ring buffer: the locks
+     * and call sites with the most total wait time, followed by up to
+     * {@code maxSamples} of the most recent samples. Synchronizers
+     * that are not locks are marked {@code (synchronizer)}.
+     *
+     * @param maxSamples the maximum number of individual samples to list
+     * @return the report
+     * @throws java.lang.SecurityException if a security manager
+     *         exists and the caller does not have
+     *         ManagementPermission("monitor").
+     */
+    String dump(int maxSamples);
+}
@@ -216,6 +216,33 @@ enum PlatformComponent {
             }
         }),
 
+    /**
+     * Lock contention recorder.
+     */
+    LOCK_CONTENTION(
+        "java.lang.management.LockContentionMXBean",
+        "java.util.concurrent.locks", "LockContention", defaultKeyProperties(),
+        true, // singleton
+        new MXBeanFetcher<LockContentionMXBean>() {
+            public List<LockContentionMXBean> getMXBeans() {
+                return Collections.<LockContentionMXBean>singletonList(
+                    java.util.concurrent.locks.LockContentionRecorder.getInstance());
+            }
+        }),
+
+    /**
+     * Executor metrics.
+     */
+    EXECUTOR(
+        "java.lang.management.ExecutorMXBean",
+        "java.util.concurrent", "Executor", keyProperties("name"),
+        false, // zero or more instances
+        new MXBeanFetcher<ExecutorMXBean>() {
+            public List<ExecutorMXBean> getMXBeans() {
+                return ManagementFactoryHelper.getExecutorMXBeans();
+            }
+        }),
+
 
     // Sun Platform Extension
 
@@ -742,13 +742,11 @@ public class LinkedList<E> extends AbstractSequentialList<E> implements List<E>,
      * A customized variant of Spliterators.IteratorSpliterator
      */
     static final class LLSpliterator<E> implements Spliterator<E> {
-        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final LinkedList<E> list; // null OK unless traversed
         Node<E> current;      // current node; null until initialized
         int est;              // size estimate; -1 until first needed
         int expectedModCount; // initialized when est set
-        int batch;            // batch size for splits
+        Spliterators.BatchSizer sizer; // batch sizes for splits; null until split
 
         LLSpliterator(LinkedList<E> list, int est, int expectedModCount) {
             this.list = list;
@@ -779,20 +777,18 @@ public class LinkedList<E> extends AbstractSequentialList<E> implements List<E>,
             Node<E> p;
             int s = getEst();
             if (s > 1 && (p = current) != null) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                Spliterators.BatchSizer bs;
+                if ((bs = sizer) == null)
+                    bs = sizer = new Spliterators.BatchSizer();
+                int n = bs.next(s);
                 Object[] a = new Object[n];
                 int j = 0;
                 do {
                     a[j++] = p.item;
                 } while ((p = p.next) != null && j < n);
                 current = p;
-                batch = j;
                 est = s - j;
-                return Spliterators.spliterator(a, 0, j, Spliterator.ORDERED);
+                return new Spliterators.BatchSpliterator<E>(a, 0, j, Spliterator.ORDERED, bs);
             }
             return null;
         }
@@ -1226,6 +1226,154 @@ public final class Spliterators {
         }
     }
 
+    // Batch splitting of sequential sources
+
+    /**
+     * Chooses the sizes of the array batches split off by spliterators
+     * over sequential sources (iterators, linked lists and subclasses
+     * of {@link AbstractSpliterator}), which can only split by copying
+     * a prefix of their elements into an array.
+     *
+     * <p>Batches are handed out as {@link BatchSpliterator}s, which
+     * time their traversal by {@code forEachRemaining}, that is, the
+     * work of a leaf task of a parallel stream pipeline, including all
+     * per-element operations of the pipeline, and report it back here.
+     * Until a first report arrives, batch sizes grow geometrically
+     * from {@link #MIN_BATCH}, so that work is handed out early even if
+     * per-element operations are costly.  From then on, each batch is
+     * sized to take about {@link #TARGET_BATCH_NANOS} to process, given
+     * a running average of the time per element: costly elements are
+     * handed out a few at a time, and cheap ones in batches large
+     * enough to amortize the overhead of a task.  If the size of the
+     * source is known, a batch is also no larger than its share of the
+     * remaining elements over the leaf tasks a pipeline aims for, so
+     * that the last batches are small enough to balance the load.
+     *
+     * <p>Reports race with each other and with the splitting thread;
+     * a lost update only delays adaptation.
+     */
+    static final class BatchSizer {
+        static final int MIN_BATCH = 1 << 4;   // initial batch size
+        static final int MAX_BATCH = 1 << 25;  // max batch array size
+        static final long TARGET_BATCH_NANOS = 250L * 1000L;
+
+        /**
+         * Number of leaf tasks a pipeline aims for, as in
+         * java.util.stream.AbstractTask.
+         */
+        static final int LEAF_TARGET =
+            java.util.concurrent.ForkJoinPool.getCommonPoolParallelism() << 2;
+
+        private int batch;                      // size of the last batch
+        private volatile double nanosPerElement; // 0.0 until reported
+
+        /**
+         * Returns the size of the next batch, called only by the
+         * splitting thread.
+         *
+         * @param s the estimated size of the remaining source, or
+         *        {@code Long.MAX_VALUE} if unknown
+         */
+        int next(long s) {
+            double c = nanosPerElement;
+            long n;
+            if (c > 0.0)
+                n = (long) (TARGET_BATCH_NANOS / c);
+            else
+                n = (batch == 0) ? MIN_BATCH : (long) batch << 1;
+            if (s != Long.MAX_VALUE)
+                n = Math.min(n, Math.max(s / LEAF_TARGET, MIN_BATCH));
+            if (n > s)
+                n = s;
+            if (n > MAX_BATCH)
+                n = MAX_BATCH;
+            return batch = (int) Math.max(n, 1L);
+        }
+
+        /**
+         * Records that processing count elements took the given time.
+         */
+        void record(long nanos, int count) {
+            if (count > 0) {
+                double c = Math.max((double) nanos / count, 0.001);
+                double p = nanosPerElement;
+                nanosPerElement = (p == 0.0) ? c : p + (c - p) * 0.25;
+            }
+        }
+    }
+
+    /**
+     * A Spliterator over an array batch split off a sequential source,
+     * as {@link ArraySpliterator}, that reports the time taken by
+     * {@code forEachRemaining} to a {@link BatchSizer}.
+     */
+    static final class BatchSpliterator<T> implements Spliterator<T> {
+        private final Object[] array;
+        private int index;        // current index, modified on advance/split
+        private final int fence;  // one past last index
+        private final int characteristics;
+        private final BatchSizer sizer;
+
+        BatchSpliterator(Object[] array, int origin, int fence,
+                         int additionalCharacteristics, BatchSizer sizer) {
+            this.array = array;
+            this.index = origin;
+            this.fence = fence;
+            this.characteristics = additionalCharacteristics | Spliterator.SIZED | Spliterator.SUBSIZED;
+            this.sizer = sizer;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            return (lo >= mid)
+                   ? null
+                   : new BatchSpliterator<>(array, lo, index = mid, characteristics, sizer);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Object[] a; int i, hi; // hoist accesses and checks from loop
+            if (action == null)
+                throw new NullPointerException();
+            if ((a = array).length >= (hi = fence) &&
+                (i = index) >= 0 && i < (index = hi)) {
+                long start = System.nanoTime();
+                int lo = i;
+                do { action.accept((T)a[i]); } while (++i < hi);
+                sizer.record(System.nanoTime() - start, hi - lo);
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (index >= 0 && index < fence) {
+                @SuppressWarnings("unchecked") T e = (T) array[index++];
+                action.accept(e);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long estimateSize() { return (long)(fence - index); }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            if (hasCharacteristics(Spliterator.SORTED))
+                return null;
+            throw new IllegalStateException();
+        }
+    }
+
     //
 
     /**
@@ -1258,7 +1406,7 @@ public final class Spliterators {
         static final int MAX_BATCH = 1 << 25;  // max batch array size;
         private final int characteristics;
         private long est;             // size estimate
-        private int batch;            // batch size for splits
+        private BatchSizer sizer;     // batch sizes for splits; null until split
 
         /**
          * Creates a spliterator reporting the given estimated size and
@@ -1294,33 +1442,28 @@ public final class Spliterators {
         @Override
         public Spliterator<T> trySplit() {
             /*
-             * Split into arrays of arithmetically increasing batch
-             * sizes.  This will only improve parallel performance if
-             * per-element Consumer actions are more costly than
-             * transferring them into an array.  The use of an
-             * arithmetic progression in split sizes provides overhead
-             * vs parallelism bounds that do not particularly favor or
-             * penalize cases of lightweight vs heavyweight element
-             * operations, across combinations of #elements vs #cores,
-             * whether or not either are known.  We generate
-             * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * Split into arrays of sizes chosen by a BatchSizer from
+             * the measured time the pipeline takes per element of
+             * earlier batches.  This will only improve parallel
+             * performance if per-element Consumer actions are more
+             * costly than transferring them into an array, but then
+             * hands out work early and in balanced pieces, whether
+             * lightweight or heavyweight, and whether or not the
+             * number of elements is known.
              */
             HoldingConsumer<T> holder = new HoldingConsumer<>();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                BatchSizer bs;
+                if ((bs = sizer) == null)
+                    bs = sizer = new BatchSizer();
+                int n = bs.next(s);
                 Object[] a = new Object[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
-                batch = j;
                 if (est != Long.MAX_VALUE)
                     est -= j;
-                return new ArraySpliterator<>(a, 0, j, characteristics());
+                return new BatchSpliterator<>(a, 0, j, characteristics(), bs);
             }
             return null;
         }
@@ -1695,7 +1838,7 @@ public final class Spliterators {
         private Iterator<? extends T> it;
         private final int characteristics;
         private long est;             // size estimate
-        private int batch;            // batch size for splits
+        private BatchSizer sizer;     // batch sizes for splits; null until split
 
         /**
          * Creates a spliterator using the given given
@@ -1753,17 +1896,14 @@ public final class Spliterators {
         @Override
         public Spliterator<T> trySplit() {
             /*
-             * Split into arrays of arithmetically increasing batch
-             * sizes.  This will only improve parallel performance if
-             * per-element Consumer actions are more costly than
-             * transferring them into an array.  The use of an
-             * arithmetic progression in split sizes provides overhead
-             * vs parallelism bounds that do not particularly favor or
-             * penalize cases of lightweight vs heavyweight element
-             * operations, across combinations of #elements vs #cores,
-             * whether or not either are known.  We generate
-             * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * Split into arrays of sizes chosen by a BatchSizer from
+             * the measured time the pipeline takes per element of
+             * earlier batches.  This will only improve parallel
+             * performance if per-element Consumer actions are more
+             * costly than transferring them into an array, but then
+             * hands out work early and in balanced pieces, whether
+             * lightweight or heavyweight, and whether or not the
+             * number of elements is known.
              */
             Iterator<? extends T> i;
             long s;
@@ -1774,18 +1914,16 @@ public final class Spliterators {
             else
                 s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                BatchSizer bs;
+                if ((bs = sizer) == null)
+                    bs = sizer = new BatchSizer();
+                int n = bs.next(s);
                 Object[] a = new Object[n];
                 int j = 0;
                 do { a[j] = i.next(); } while (++j < n && i.hasNext());
-                batch = j;
                 if (est != Long.MAX_VALUE)
                     est -= j;
-                return new ArraySpliterator<>(a, 0, j, characteristics);
+                return new BatchSpliterator<>(a, 0, j, characteristics, bs);
             }
             return null;
         }
@@ -185,6 +185,44 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         return x;
     }
 
+    /**
+     * Inserts as many elements of a, starting at index from, as fit
+     * into the free slots, advances, and signals at most that many
+     * waiting takers. Call only when holding lock.
+     *
+     * @return the index of the first element not inserted
+     */
+    private int enqueueAll(Object[] a, int from) {
+        // assert lock.getHoldCount() == 1;
+        final Object[] items = this.items;
+        int n = Math.min(a.length - from, items.length - count);
+        int put = putIndex;
+        int k = Math.min(n, items.length - put);
+        System.arraycopy(a, from, items, put, k);
+        if (k < n)
+            System.arraycopy(a, from + k, items, 0, n - k);
+        if ((put += n) >= items.length)
+            put -= items.length;
+        putIndex = put;
+        count += n;
+        for (int i = n; i > 0 && lock.hasWaiters(notEmpty); i--)
+            notEmpty.signal();
+        return from + n;
+    }
+
+    /**
+     * Returns the elements of c as an array for bulk insertion,
+     * throwing if c is this queue or holds a null element.
+     */
+    private Object[] toInsertArray(Collection<?> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object e : a)
+            checkNotNull(e);
+        return a;
+    }
+
     /**
      * Deletes item at array index removeIndex.
      * Utility for remove(Object) and iterator.remove.
@@ -385,6 +423,66 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * tail of this queue, waiting for space to become available as
+     * needed. The lock is acquired once, and released only while
+     * waiting for space; each run of insertions is a single array copy.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 1.8
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        final Object[] a = toInsertArray(c);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (int i = 0; i < a.length; ) {
+                while (count == items.length)
+                    notFull.await();
+                i = enqueueAll(a, i);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts elements of the specified collection at the tail of this
+     * queue, waiting up to the specified wait time in total for space
+     * to become available. The lock is acquired once, and released only
+     * while waiting for space.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        final Object[] a = toInsertArray(c);
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int i = 0;
+            while (i < a.length) {
+                if (count == items.length) {
+                    if (nanos <= 0)
+                        break;
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                else
+                    i = enqueueAll(a, i);
+            }
+            return i;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public E poll() {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -715,44 +813,88 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
             throw new IllegalArgumentException();
         if (maxElements <= 0)
             return 0;
-        final Object[] items = this.items;
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
-            int n = Math.min(maxElements, count);
-            int take = takeIndex;
-            int i = 0;
-            try {
-                while (i < n) {
-                    @SuppressWarnings("unchecked")
-                    E x = (E) items[take];
-                    c.add(x);
-                    items[take] = null;
-                    if (++take == items.length)
-                        take = 0;
-                    i++;
-                }
-                return n;
-            } finally {
-                // Restore invariants even if c.add() threw
-                if (i > 0) {
-                    count -= i;
-                    takeIndex = take;
-                    if (itrs != null) {
-                        if (count == 0)
-                            itrs.queueIsEmpty();
-                        else if (i > take)
-                            itrs.takeIndexWrapped();
-                    }
-                    for (; i > 0 && lock.hasWaiters(notFull); i--)
-                        notFull.signal();
-                }
+            return drainLocked(c, maxElements);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until at least minElements have been transferred, draining
+     * elements as they arrive under a single acquisition of the lock.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(c);
+        if (c == this || minElements > maxElements)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int n = 0;
+            for (;;) {
+                if (count > 0)
+                    n += drainLocked(c, maxElements - n);
+                if (n >= minElements || nanos <= 0)
+                    return n;
+                nanos = notEmpty.awaitNanos(nanos);
             }
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Transfers at most maxElements to c. Call only when holding lock.
+     */
+    private int drainLocked(Collection<? super E> c, int maxElements) {
+        // assert lock.getHoldCount() == 1;
+        final Object[] items = this.items;
+        int n = Math.min(maxElements, count);
+        int take = takeIndex;
+        int i = 0;
+        try {
+            while (i < n) {
+                @SuppressWarnings("unchecked")
+                E x = (E) items[take];
+                c.add(x);
+                items[take] = null;
+                if (++take == items.length)
+                    take = 0;
+                i++;
+            }
+            return n;
+        } finally {
+            // Restore invariants even if c.add() threw
+            if (i > 0) {
+                count -= i;
+                takeIndex = take;
+                if (itrs != null) {
+                    if (count == 0)
+                        itrs.queueIsEmpty();
+                    else if (i > take)
+                        itrs.takeIndexWrapped();
+                }
+                for (; i > 0 && lock.hasWaiters(notFull); i--)
+                    notFull.signal();
+            }
+        }
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
@@ -373,4 +373,148 @@ public interface BlockingQueue<E> extends Queue<E> {
      *         it from being added to the specified collection
      */
     int drainTo(Collection<? super E> c, int maxElements);
+
+    /**
+     * Inserts all of the elements of the specified collection into this
+     * queue, in the order they are returned by the collection's
+     * {@code toArray} method, waiting if necessary for space to become
+     * available. If interrupted while waiting, the elements inserted
+     * before the interrupt remain in this queue.
+     *
+     * <p>Implementations with a single insertion lock should override
+     * this method to acquire the lock and signal waiting consumers once
+     * per batch rather than once per element.
+     *
+     * @implSpec
+     * The default implementation checks that the collection contains no
+     * {@code null} element and then invokes {@link #put} for each element.
+     *
+     * @param c the elements to insert
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ClassCastException if the class of an element of the
+     *         specified collection prevents it from being added to this queue
+     * @throws NullPointerException if the specified collection or any of
+     *         its elements are null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element prevents it from being
+     *         added to this queue
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    default void putAll(Collection<? extends E> c) throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object e : a)
+            if (e == null)
+                throw new NullPointerException();
+        for (Object e : a)
+            put((E) e);
+    }
+
+    /**
+     * Inserts the elements of the specified collection into this queue,
+     * in the order they are returned by the collection's {@code toArray}
+     * method, waiting up to the specified wait time in total for space to
+     * become available. Insertion stops at the first element for which
+     * no space becomes available in time, so the inserted elements are
+     * always a prefix of that order.
+     *
+     * @implSpec
+     * The default implementation checks that the collection contains no
+     * {@code null} element and then invokes
+     * {@link #offer(Object, long, TimeUnit)} for each element with the
+     * time remaining.
+     *
+     * @param c the elements to insert
+     * @param timeout how long to wait in total before giving up, in units
+     *        of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements inserted
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ClassCastException if the class of an element of the
+     *         specified collection prevents it from being added to this queue
+     * @throws NullPointerException if the specified collection or any of
+     *         its elements are null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element prevents it from being
+     *         added to this queue
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    default int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] a = c.toArray();
+        for (Object e : a)
+            if (e == null)
+                throw new NullPointerException();
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int n = 0;
+        for (Object e : a) {
+            if (!offer((E) e, deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                break;
+            ++n;
+        }
+        return n;
+    }
+
+    /**
+     * Removes at most the given number of elements from this queue and
+     * adds them to the given collection, waiting up to the specified
+     * wait time if necessary until at least {@code minElements} have
+     * been transferred. Elements are transferred as they become
+     * available, so when the wait time elapses the elements transferred
+     * so far (possibly fewer than {@code minElements}) are in {@code c}.
+     * The same caveats as for {@link #drainTo(Collection, int)} apply
+     * to failures while adding to {@code c}.
+     *
+     * @implSpec
+     * The default implementation alternates {@link #drainTo(Collection, int)}
+     * with {@link #poll(long, TimeUnit)}.
+     *
+     * @param c the collection to transfer elements into
+     * @param minElements the number of elements to wait for
+     * @param maxElements the maximum number of elements to transfer
+     * @param timeout how long to wait before giving up, in units of
+     *        {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return the number of elements transferred
+     * @throws InterruptedException if interrupted while waiting
+     * @throws UnsupportedOperationException if addition of elements
+     *         is not supported by the specified collection
+     * @throws ClassCastException if the class of an element of this queue
+     *         prevents it from being added to the specified collection
+     * @throws NullPointerException if the specified collection is null
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, if {@code minElements} is greater than
+     *         {@code maxElements}, or some property of an element of this
+     *         queue prevents it from being added to the specified collection
+     * @since 1.8
+     */
+    default int drainTo(Collection<? super E> c, int minElements,
+                        int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this || minElements > maxElements)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int n = 0;
+        for (;;) {
+            n += drainTo(c, maxElements - n);
+            if (n >= minElements)
+                return n;
+            E e = poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (e == null)
+                return n;
+            c.add(e);
+            ++n;
+        }
+    }
 }
@@ -0,0 +1,984 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe variant of {@link java.util.ArrayList} with the same
+ * snapshot semantics as {@link CopyOnWriteArrayList}, in which mutative
+ * operations copy only a logarithmic part of the list instead of the
+ * whole array.
+ *
+ * <p>The elements are held in a persistent tree of fixed-size chunks:
+ * a mutation copies the chunk it changes and the path from that chunk
+ * to the root, and shares every other chunk with the previous version.
+ * So {@code add}, {@code set} and {@code remove} at any index cost
+ * O(log n) time and allocation rather than O(n), which matters for
+ * large registries that are read constantly but still updated one
+ * entry at a time. Positional access is also O(log n), with a small
+ * constant: a list of a million elements is three levels deep.
+ *
+ * <p>As with {@code CopyOnWriteArrayList}, iterators traverse the
+ * version of the list that existed when they were created. They never
+ * throw {@code ConcurrentModificationException}, do not reflect later
+ * changes, and do not support {@code remove}, {@code set} or
+ * {@code add}. The {@link #snapshot} method returns such a version as
+ * an unmodifiable {@code List}, in constant time and without copying.
+ * The {@link #subList} method returns a view backed by the current
+ * list, as described by {@link AbstractList}; it is intended for use
+ * by one thread at a time.
+ *
+ * <p>All elements are permitted, including {@code null}.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code ChunkedCopyOnWriteArrayList}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code ChunkedCopyOnWriteArrayList} in another thread.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class ChunkedCopyOnWriteArrayList<E> extends AbstractList<E>
+    implements List<E>, RandomAccess {
+
+    /*
+     * The tree is a B+-tree ordered by position rather than by key.
+     * A node is either a leaf, which is a plain Object[] of elements,
+     * or a Branch, which holds its children and the cumulative sizes
+     * of the children so that the child holding a given index can be
+     * found by binary search. All leaves are at the same depth. Nodes
+     * are never modified after they are published; mutators build new
+     * nodes along one root-to-leaf path and install the new root with
+     * a single volatile write under the lock.
+     *
+     * An insertion that overfills a node splits it in two, and a split
+     * root grows the tree by one level. Splits at the end of a node
+     * leave the left half full, so lists built by appending have full
+     * chunks. A removal that leaves a node less than a quarter full
+     * merges it with a neighbour (or, if the two do not fit in one
+     * node, splits the pair evenly), and a root with one child is
+     * replaced by that child. Bulk rewrites (removeIf, replaceAll,
+     * sort) flatten the list and rebuild it with full chunks in O(n).
+     */
+
+    /** Largest number of elements in a leaf. */
+    static final int LEAF_SIZE = 64;
+
+    /** Largest number of children of a branch. */
+    static final int BRANCH_SIZE = 32;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /** The lock protecting all mutators */
+    final ReentrantLock lock = new ReentrantLock();
+
+    /** The root of the current version; a leaf or a Branch. */
+    private volatile Object root;
+
+    /**
+     * An interior node of the tree.
+     */
+    static final class Branch {
+        /** The children: all leaves or all Branches. */
+        final Object[] children;
+        /** ends[i] is the number of elements in children[0..i]. */
+        final int[] ends;
+
+        Branch(Object[] children) {
+            int[] ends = new int[children.length];
+            int s = 0;
+            for (int i = 0; i < children.length; ++i)
+                ends[i] = s += sizeOf(children[i]);
+            this.children = children;
+            this.ends = ends;
+        }
+
+        Branch(Object[] children, int[] ends) {
+            this.children = children;
+            this.ends = ends;
+        }
+
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        /**
+         * Returns the index of the child holding element i, or the
+         * last child if i is the size of this node.
+         */
+        int childFor(int i) {
+            int lo = 0, hi = ends.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ends[mid] > i)
+                    hi = mid;
+                else
+                    lo = mid + 1;
+            }
+            return lo;
+        }
+
+        /** Returns the index of the first element of child k. */
+        int offset(int k) {
+            return (k == 0) ? 0 : ends[k - 1];
+        }
+    }
+
+    // Tree operations; all are pure functions of their arguments
+
+    static int sizeOf(Object node) {
+        return (node instanceof Branch) ? ((Branch)node).size() :
+            ((Object[])node).length;
+    }
+
+    static Object elementAt(Object node, int i) {
+        while (node instanceof Branch) {
+            Branch b = (Branch)node;
+            int k = b.childFor(i);
+            i -= b.offset(k);
+            node = b.children[k];
+        }
+        return ((Object[])node)[i];
+    }
+
+    static Object set(Object node, int i, Object e) {
+        if (node instanceof Branch) {
+            Branch b = (Branch)node;
+            int k = b.childFor(i);
+            Object[] cs = b.children.clone();
+            cs[k] = set(cs[k], i - b.offset(k), e);
+            return new Branch(cs, b.ends);
+        }
+        Object[] a = ((Object[])node).clone();
+        a[i] = e;
+        return a;
+    }
+
+    private static boolean overfull(Object node) {
+        return (node instanceof Branch) ?
+            ((Branch)node).children.length > BRANCH_SIZE :
+            ((Object[])node).length > LEAF_SIZE;
+    }
+
+    private static boolean underfull(Object node) {
+        return (node instanceof Branch) ?
+            ((Branch)node).children.length < BRANCH_SIZE / 4 :
+            ((Object[])node).length < LEAF_SIZE / 4;
+    }
+
+    /**
+     * Splits a node in two: evenly, or if atEnd, leaving the left
+     * half full and the right half holding the rest.
+     */
+    private static Object[] split(Object node, boolean atEnd) {
+        if (node instanceof Branch) {
+            Object[] cs = ((Branch)node).children;
+            int m = atEnd ? BRANCH_SIZE : cs.length >>> 1;
+            return new Object[] {
+                new Branch(Arrays.copyOfRange(cs, 0, m)),
+                new Branch(Arrays.copyOfRange(cs, m, cs.length)) };
+        }
+        Object[] a = (Object[])node;
+        int m = atEnd ? LEAF_SIZE : a.length >>> 1;
+        return new Object[] {
+            Arrays.copyOfRange(a, 0, m), Arrays.copyOfRange(a, m, a.length) };
+    }
+
+    /** Concatenates two nodes of the same depth. */
+    private static Object merge(Object left, Object right) {
+        boolean branch = left instanceof Branch;
+        Object[] l = branch ? ((Branch)left).children : (Object[])left;
+        Object[] r = branch ? ((Branch)right).children : (Object[])right;
+        Object[] m = Arrays.copyOf(l, l.length + r.length);
+        System.arraycopy(r, 0, m, l.length, r.length);
+        return branch ? new Branch(m) : m;
+    }
+
+    /**
+     * Inserts e at index i, returning the new node, which may be
+     * overfull.
+     */
+    static Object insert(Object node, int i, Object e) {
+        if (node instanceof Branch) {
+            Branch b = (Branch)node;
+            Object[] cs = b.children;
+            int k = b.childFor(i), j = i - b.offset(k);
+            boolean atEnd = (j == sizeOf(cs[k]));
+            Object c = insert(cs[k], j, e);
+            Object[] ncs;
+            if (overfull(c)) {
+                Object[] halves = split(c, atEnd);
+                ncs = new Object[cs.length + 1];
+                System.arraycopy(cs, 0, ncs, 0, k);
+                ncs[k] = halves[0];
+                ncs[k + 1] = halves[1];
+                System.arraycopy(cs, k + 1, ncs, k + 2, cs.length - k - 1);
+            }
+            else {
+                ncs = cs.clone();
+                ncs[k] = c;
+            }
+            return new Branch(ncs);
+        }
+        Object[] a = (Object[])node;
+        Object[] r = new Object[a.length + 1];
+        System.arraycopy(a, 0, r, 0, i);
+        r[i] = e;
+        System.arraycopy(a, i, r, i + 1, a.length - i);
+        return r;
+    }
+
+    /**
+     * Removes the element at index i, returning the new node, which
+     * may be underfull or empty.
+     */
+    static Object remove(Object node, int i) {
+        if (node instanceof Branch) {
+            Branch b = (Branch)node;
+            Object[] cs = b.children;
+            int n = cs.length, k = b.childFor(i);
+            Object c = remove(cs[k], i - b.offset(k));
+            Object[] ncs;
+            if (sizeOf(c) == 0) {
+                if (n == 1)
+                    return EMPTY;
+                ncs = new Object[n - 1];
+                System.arraycopy(cs, 0, ncs, 0, k);
+                System.arraycopy(cs, k + 1, ncs, k, n - k - 1);
+            }
+            else if (n > 1 && underfull(c)) {
+                int lo = (k > 0) ? k - 1 : k;
+                Object m = (lo < k) ? merge(cs[lo], c) : merge(c, cs[k + 1]);
+                if (overfull(m)) {
+                    Object[] halves = split(m, false);
+                    ncs = cs.clone();
+                    ncs[lo] = halves[0];
+                    ncs[lo + 1] = halves[1];
+                }
+                else {
+                    ncs = new Object[n - 1];
+                    System.arraycopy(cs, 0, ncs, 0, lo);
+                    ncs[lo] = m;
+                    System.arraycopy(cs, lo + 2, ncs, lo + 1, n - lo - 2);
+                }
+            }
+            else {
+                ncs = cs.clone();
+                ncs[k] = c;
+            }
+            return new Branch(ncs);
+        }
+        Object[] a = (Object[])node;
+        Object[] r = new Object[a.length - 1];
+        System.arraycopy(a, 0, r, 0, i);
+        System.arraycopy(a, i + 1, r, i, a.length - i - 1);
+        return r;
+    }
+
+    /**
+     * Builds a tree with full chunks holding the given elements.
+     */
+    static Object build(Object[] a) {
+        int n = a.length;
+        if (n <= LEAF_SIZE)
+            return Arrays.copyOf(a, n, Object[].class);
+        Object[] level = new Object[(n + LEAF_SIZE - 1) / LEAF_SIZE];
+        for (int i = 0; i < level.length; ++i)
+            level[i] = Arrays.copyOfRange(a, i * LEAF_SIZE,
+                                          Math.min(n, (i + 1) * LEAF_SIZE),
+                                          Object[].class);
+        while (level.length > 1) {
+            Object[] up = new Object[(level.length + BRANCH_SIZE - 1) / BRANCH_SIZE];
+            for (int i = 0; i < up.length; ++i)
+                up[i] = new Branch(Arrays.copyOfRange(level, i * BRANCH_SIZE,
+                                                      Math.min(level.length,
+                                                               (i + 1) * BRANCH_SIZE)));
+            level = up;
+        }
+        return level[0];
+    }
+
+    /**
+     * Copies the elements of node into a, starting at offset off.
+     *
+     * @return the offset after the last element copied
+     */
+    static int flatten(Object node, Object[] a, int off) {
+        if (node instanceof Branch) {
+            for (Object c : ((Branch)node).children)
+                off = flatten(c, a, off);
+            return off;
+        }
+        Object[] leaf = (Object[])node;
+        System.arraycopy(leaf, 0, a, off, leaf.length);
+        return off + leaf.length;
+    }
+
+    static Object[] elements(Object node) {
+        Object[] a = new Object[sizeOf(node)];
+        flatten(node, a, 0);
+        return a;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> void forEach(Object node, Consumer<? super E> action) {
+        if (node instanceof Branch) {
+            for (Object c : ((Branch)node).children)
+                forEach(c, action);
+        }
+        else {
+            for (Object e : (Object[])node)
+                action.accept((E) e);
+        }
+    }
+
+    /** Replaces a root with a single child by that child. */
+    private static Object collapse(Object node) {
+        while (node instanceof Branch && ((Branch)node).children.length == 1)
+            node = ((Branch)node).children[0];
+        return node;
+    }
+
+    private static String outOfBounds(int index, int size) {
+        return "Index: " + index + ", Size: " + size;
+    }
+
+    // Constructors
+
+    /**
+     * Creates an empty list.
+     */
+    public ChunkedCopyOnWriteArrayList() {
+        root = EMPTY;
+    }
+
+    /**
+     * Creates a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection of initially held elements
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ChunkedCopyOnWriteArrayList(Collection<? extends E> c) {
+        root = build(c.toArray());
+    }
+
+    // Queries
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Object r = root;
+        if (index < 0 || index >= sizeOf(r))
+            throw new IndexOutOfBoundsException(outOfBounds(index, sizeOf(r)));
+        return (E) elementAt(r, index);
+    }
+
+    /**
+     * Returns an unmodifiable view of the current version of this
+     * list. The view does not reflect later changes to this list.
+     * This method takes constant time and does not copy elements.
+     *
+     * @return the current version of this list
+     */
+    public List<E> snapshot() {
+        return new Snapshot<E>(root);
+    }
+
+    public Object[] toArray() {
+        return elements(root);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] elements = elements(root);
+        int len = elements.length;
+        if (a.length < len)
+            return (T[]) Arrays.copyOf(elements, len, a.getClass());
+        System.arraycopy(elements, 0, a, 0, len);
+        if (a.length > len)
+            a[len] = null;
+        return a;
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        if (action == null) throw new NullPointerException();
+        forEach(root, action);
+    }
+
+    // Mutators
+
+    /**
+     * Replaces the element at the specified position in this list with the
+     * specified element.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object r = root;
+            int size = sizeOf(r);
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(outOfBounds(index, size));
+            E oldValue = (E) elementAt(r, index);
+            if (oldValue != element) {
+                root = set(r, index, element);
+                modCount++;
+            }
+            return oldValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object r = root;
+            root = insertAt(r, sizeOf(r), e);
+            modCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object r = root;
+            int size = sizeOf(r);
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException(outOfBounds(index, size));
+            root = insertAt(r, index, element);
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts into a root, growing the tree if the root splits.
+     */
+    private static Object insertAt(Object r, int index, Object e) {
+        boolean atEnd = (index == sizeOf(r));
+        Object n = insert(r, index, e);
+        return overfull(n) ? new Branch(split(n, atEnd)) : n;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).  Returns the element that was removed from the list.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object r = root;
+            int size = sizeOf(r);
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(outOfBounds(index, size));
+            E oldValue = (E) elementAt(r, index);
+            root = collapse(remove(r, index));
+            modCount++;
+            return oldValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this list,
+     * if it is present.  If this list does not contain the element, it is
+     * unchanged.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            int index = indexOf(o);
+            if (index < 0)
+                return false;
+            root = collapse(remove(root, index));
+            modCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object r = root;
+            int size = sizeOf(r);
+            if (fromIndex < 0 || toIndex > size || toIndex < fromIndex)
+                throw new IndexOutOfBoundsException();
+            if (toIndex - fromIndex > size >>> 1) {
+                Object[] a = elements(r);
+                Object[] kept = new Object[size - (toIndex - fromIndex)];
+                System.arraycopy(a, 0, kept, 0, fromIndex);
+                System.arraycopy(a, toIndex, kept, fromIndex, size - toIndex);
+                r = build(kept);
+            }
+            else {
+                for (int i = fromIndex; i < toIndex; ++i)
+                    r = collapse(remove(r, fromIndex));
+            }
+            root = r;
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the element, if not present.
+     *
+     * @param e element to be added to this list, if absent
+     * @return {@code true} if the element was added
+     */
+    public boolean addIfAbsent(E e) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (indexOf(e) >= 0)
+                return false;
+            Object r = root;
+            root = insertAt(r, sizeOf(r), e);
+            modCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all of the elements from this list.
+     * The list will be empty after this call returns.
+     */
+    public void clear() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            root = EMPTY;
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end
+     * of this list, in the order that they are returned by the specified
+     * collection's iterator. Readers see either none or all of the new
+     * elements.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(-1, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position. Readers see either none
+     * or all of the new elements.
+     *
+     * @param index index at which to insert the first element
+     *        from the specified collection
+     * @param c collection containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        Object[] cs = c.toArray();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object r = root;
+            int size = sizeOf(r);
+            if (index == -1)
+                index = size;
+            else if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException(outOfBounds(index, size));
+            if (cs.length == 0)
+                return false;
+            if (cs.length > size >>> 2) {
+                Object[] a = elements(r);
+                Object[] na = new Object[size + cs.length];
+                System.arraycopy(a, 0, na, 0, index);
+                System.arraycopy(cs, 0, na, index, cs.length);
+                System.arraycopy(a, index, na, index + cs.length, size - index);
+                r = build(na);
+            }
+            else {
+                for (Object e : cs)
+                    r = insertAt(r, index++, e);
+            }
+            root = r;
+            modCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (filter == null) throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] a = elements(root);
+            int n = 0;
+            for (Object e : a) {
+                @SuppressWarnings("unchecked") E x = (E) e;
+                if (!filter.test(x))
+                    a[n++] = e;
+            }
+            if (n == a.length)
+                return false;
+            root = build(Arrays.copyOf(a, n));
+            modCount++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean removeAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return removeIf(e -> c.contains(e));
+    }
+
+    public boolean retainAll(Collection<?> c) {
+        if (c == null) throw new NullPointerException();
+        return removeIf(e -> !c.contains(e));
+    }
+
+    public void replaceAll(UnaryOperator<E> operator) {
+        if (operator == null) throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] a = elements(root);
+            for (int i = 0; i < a.length; ++i) {
+                @SuppressWarnings("unchecked") E e = (E) a[i];
+                a[i] = operator.apply(e);
+            }
+            root = build(a);
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Object[] a = elements(root);
+            Arrays.sort(a, (Comparator<Object>) c);
+            root = build(a);
+            modCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Iteration
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove} method.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr<E>(root, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     */
+    public ListIterator<E> listIterator() {
+        return new Itr<E>(root, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned iterator provides a snapshot of the state of the list
+     * when the iterator was constructed. No synchronization is needed while
+     * traversing the iterator. The iterator does <em>NOT</em> support the
+     * {@code remove}, {@code set} or {@code add} methods.
+     *
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public ListIterator<E> listIterator(int index) {
+        Object r = root;
+        if (index < 0 || index > sizeOf(r))
+            throw new IndexOutOfBoundsException("Index: " + index);
+        return new Itr<E>(r, index);
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#IMMUTABLE},
+     * {@link Spliterator#ORDERED}, {@link Spliterator#SIZED}, and
+     * {@link Spliterator#SUBSIZED}.
+     *
+     * <p>The spliterator provides a snapshot of the state of the list
+     * when the spliterator was constructed. No synchronization is needed while
+     * operating on the spliterator.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    public Spliterator<E> spliterator() {
+        Object r = root;
+        return Spliterators.spliterator
+            (new Itr<E>(r, 0), sizeOf(r), Spliterator.IMMUTABLE | Spliterator.ORDERED);
+    }
+
+    /**
+     * Snapshot list iterator, caching the leaf holding the cursor.
+     */
+    static final class Itr<E> implements ListIterator<E> {
+        /** Root of the version traversed */
+        private final Object root;
+        private final int size;
+        /** Index of element to be returned by subsequent call to next. */
+        private int cursor;
+        /** The cached leaf, holding elements [base, base + leaf.length). */
+        private Object[] leaf = EMPTY;
+        private int base;
+
+        Itr(Object root, int initialCursor) {
+            this.root = root;
+            this.size = sizeOf(root);
+            this.cursor = initialCursor;
+        }
+
+        @SuppressWarnings("unchecked")
+        private E elementAt(int i) {
+            int j = i - base;
+            if (j < 0 || j >= leaf.length) {
+                Object node = root;
+                int b = 0;
+                while (node instanceof Branch) {
+                    Branch br = (Branch)node;
+                    int k = br.childFor(i - b);
+                    b += br.offset(k);
+                    node = br.children[k];
+                }
+                leaf = (Object[])node;
+                base = b;
+                j = i - b;
+            }
+            return (E) leaf[j];
+        }
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        public E next() {
+            if (! hasNext())
+                throw new NoSuchElementException();
+            return elementAt(cursor++);
+        }
+
+        public E previous() {
+            if (! hasPrevious())
+                throw new NoSuchElementException();
+            return elementAt(--cursor);
+        }
+
+        public int nextIndex() {
+            return cursor;
+        }
+
+        public int previousIndex() {
+            return cursor-1;
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code remove}
+         *         is not supported by this iterator.
+         */
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code set}
+         *         is not supported by this iterator.
+         */
+        public void set(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported. Always throws UnsupportedOperationException.
+         * @throws UnsupportedOperationException always; {@code add}
+         *         is not supported by this iterator.
+         */
+        public void add(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            while (cursor < size)
+                action.accept(elementAt(cursor++));
+        }
+    }
+
+    /**
+     * An unmodifiable version of the list, sharing its chunks.
+     */
+    static final class Snapshot<E> extends AbstractList<E>
+        implements RandomAccess {
+        private final Object root;
+        private final int size;
+
+        Snapshot(Object root) {
+            this.root = root;
+            this.size = sizeOf(root);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(outOfBounds(index, size));
+            return (E) elementAt(root, index);
+        }
+
+        public Object[] toArray() {
+            return elements(root);
+        }
+
+        public Iterator<E> iterator() {
+            return new Itr<E>(root, 0);
+        }
+
+        public ListIterator<E> listIterator(int index) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException("Index: " + index);
+            return new Itr<E>(root, index);
+        }
+
+        public void forEach(Consumer<? super E> action) {
+            if (action == null) throw new NullPointerException();
+            ChunkedCopyOnWriteArrayList.forEach(root, action);
+        }
+    }
+}
@@ -405,6 +405,34 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         public void execute(Runnable r) { new Thread(r).start(); }
     }
 
+    /**
+     * Singleton delay scheduler, used only for starting and
+     * cancelling tasks (such as CompletableFutureBatcher flushes)
+     * that themselves hand any real work to another executor.
+     */
+    static final class Delayer {
+        static ScheduledFuture<?> delay(Runnable command, long delay,
+                                        TimeUnit unit) {
+            return delayer.schedule(command, delay, unit);
+        }
+
+        static final class DaemonThreadFactory implements ThreadFactory {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("CompletableFutureDelayScheduler");
+                return t;
+            }
+        }
+
+        static final ScheduledThreadPoolExecutor delayer;
+        static {
+            (delayer = new ScheduledThreadPoolExecutor(
+                1, new DaemonThreadFactory())).
+                setRemoveOnCancelPolicy(true);
+        }
+    }
+
     /**
      * Null-checks user executor argument, and translates uses of
      * commonPool to asyncPool in case parallelism disabled.
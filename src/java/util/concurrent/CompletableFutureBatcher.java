@@ -0,0 +1,426 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Coalesces individual keyed requests into batches, each served by a
+ * single call of a batch function, and completes a
+ * {@link CompletableFuture} per key from the batch result. This suits
+ * code that issues many small lookups asynchronously against a
+ * backend that is far cheaper to call once for many keys than once
+ * per key.
+ *
+ * <p>Requests accumulate in the current batch until it holds
+ * {@code maxBatchSize} distinct keys, or until {@code maxDelay} has
+ * elapsed since its first request, whichever happens first; the batch
+ * is then dispatched. {@link #flush} dispatches the current batch
+ * immediately. A key requested again while its batch is still
+ * accumulating shares the future of the first request, so each batch
+ * holds distinct keys. The delays are timed by the scheduler that
+ * {@code CompletableFuture} uses internally, which only hands the
+ * batch over; the batch function itself is always invoked in the
+ * given executor (by default the {@link ForkJoinPool#commonPool()}).
+ *
+ * <p>The batch function is given the keys of a batch, in request
+ * order, and returns a stage that completes with a map from keys to
+ * values. Each key's future is completed with its value in that map,
+ * or with {@code null} if the map has no value for the key. If the
+ * function throws, or its stage completes exceptionally, every future
+ * of the batch is completed exceptionally with that exception.
+ *
+ * <p>Two limits provide backpressure. At most
+ * {@code maxInFlightBatches} batches are outstanding in the batch
+ * function at a time; further batches wait, in dispatch order, until
+ * an earlier one completes. And at most {@code maxPendingKeys} keys
+ * may be accumulating, waiting or in flight in total; a request that
+ * would exceed this limit is not queued, and its future is instead
+ * completed exceptionally with a {@link RejectedExecutionException},
+ * so callers can shed load without blocking. The same happens to
+ * requests made after {@link #close}.
+ *
+ * @since 1.8
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class CompletableFutureBatcher<K,V> implements AutoCloseable {
+
+    /*
+     * The accumulating batch is guarded by a lock, which is held only
+     * to add a key or to detach the batch; the batch function is never
+     * called under it. A batch is dispatched by exactly one of three
+     * paths, whichever detaches it first: the request that fills it,
+     * its delay timer (which checks that the batch is still current),
+     * or flush/close. A batch that fills up cancels its timer so that
+     * the scheduler does not accumulate dead tasks.
+     *
+     * Dispatched batches go to a queue from which up to
+     * maxInFlightBatches are started. inFlight is reserved by CAS
+     * before polling, and every path that may make progress possible
+     * (a dispatch, or a batch completing) calls startReady afterwards,
+     * so a queued batch cannot be stranded while the count is below
+     * the limit.
+     *
+     * Pending keys are counted with a semaphore, acquired without
+     * blocking for each new key and released when its batch is done.
+     */
+
+    /** The batch function */
+    private final Function<? super List<K>,
+        ? extends CompletionStage<? extends Map<K,V>>> batchFunction;
+
+    /** The executor in which the batch function is invoked */
+    private final Executor executor;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final int maxInFlightBatches;
+
+    private final int maxPendingKeys;
+
+    /** Permits for keys not yet completed */
+    private final Semaphore pendingKeys;
+
+    /** Guards current and closed */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The accumulating batch, or null if none */
+    private Batch<K,V> current;
+
+    private boolean closed;
+
+    /** Dispatched batches not yet started */
+    private final ConcurrentLinkedQueue<Batch<K,V>> ready =
+        new ConcurrentLinkedQueue<Batch<K,V>>();
+
+    /** Number of started batches not yet completed */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * A batch of requests and the futures awaiting them.
+     */
+    static final class Batch<K,V> {
+        final LinkedHashMap<K,CompletableFuture<V>> futures =
+            new LinkedHashMap<K,CompletableFuture<V>>();
+        /** The delay timer, or null if not yet scheduled */
+        ScheduledFuture<?> timer;
+    }
+
+    /**
+     * Creates a batcher that invokes the batch function in the
+     * {@link ForkJoinPool#commonPool()}, with no limit on in-flight
+     * batches or pending keys.
+     *
+     * @param batchFunction the function loading the values of a batch of keys
+     * @param maxBatchSize the maximum number of keys per batch
+     * @param maxDelay the maximum time from the first request of a
+     *        batch until it is dispatched
+     * @param unit the time unit of {@code maxDelay}
+     * @throws IllegalArgumentException if {@code maxBatchSize} is not
+     *         positive or {@code maxDelay} is negative
+     * @throws NullPointerException if {@code batchFunction} or
+     *         {@code unit} is null
+     */
+    public CompletableFutureBatcher(
+        Function<? super List<K>, ? extends CompletionStage<? extends Map<K,V>>> batchFunction,
+        int maxBatchSize, long maxDelay, TimeUnit unit) {
+        this(batchFunction, maxBatchSize, maxDelay, unit,
+             Integer.MAX_VALUE, Integer.MAX_VALUE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a batcher with the given parameters.
+     *
+     * @param batchFunction the function loading the values of a batch of keys
+     * @param maxBatchSize the maximum number of keys per batch
+     * @param maxDelay the maximum time from the first request of a
+     *        batch until it is dispatched
+     * @param unit the time unit of {@code maxDelay}
+     * @param maxInFlightBatches the maximum number of batches
+     *        outstanding in the batch function at a time
+     * @param maxPendingKeys the maximum number of keys that may be
+     *        accumulating, waiting or in flight
+     * @param executor the executor in which to invoke the batch function
+     * @throws IllegalArgumentException if {@code maxBatchSize},
+     *         {@code maxInFlightBatches} or {@code maxPendingKeys} is
+     *         not positive, or {@code maxDelay} is negative
+     * @throws NullPointerException if {@code batchFunction},
+     *         {@code unit} or {@code executor} is null
+     */
+    public CompletableFutureBatcher(
+        Function<? super List<K>, ? extends CompletionStage<? extends Map<K,V>>> batchFunction,
+        int maxBatchSize, long maxDelay, TimeUnit unit,
+        int maxInFlightBatches, int maxPendingKeys, Executor executor) {
+        if (batchFunction == null || unit == null)
+            throw new NullPointerException();
+        if (maxBatchSize <= 0 || maxDelay < 0 ||
+            maxInFlightBatches <= 0 || maxPendingKeys <= 0)
+            throw new IllegalArgumentException();
+        this.batchFunction = batchFunction;
+        this.executor = CompletableFuture.screenExecutor(executor);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.maxPendingKeys = maxPendingKeys;
+        this.pendingKeys = new Semaphore(maxPendingKeys);
+    }
+
+    /**
+     * Requests the value for the given key, as part of the current
+     * batch.
+     *
+     * @param key the key
+     * @return a future completed with the value for the key, or
+     *         exceptionally if the batch failed or the request was
+     *         rejected
+     * @throws NullPointerException if the key is null
+     */
+    public CompletableFuture<V> submit(K key) {
+        if (key == null)
+            throw new NullPointerException();
+        CompletableFuture<V> f;
+        Batch<K,V> full = null;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (closed)
+                return rejected("batcher closed");
+            Batch<K,V> b = current;
+            if (b != null && (f = b.futures.get(key)) != null)
+                return f;
+            if (!pendingKeys.tryAcquire())
+                return rejected("too many pending keys");
+            if (b == null)
+                current = b = new Batch<K,V>();
+            b.futures.put(key, f = new CompletableFuture<V>());
+            if (b.futures.size() >= maxBatchSize) {
+                current = null;
+                full = b;
+            }
+            else if (b.timer == null) {
+                if (maxDelayNanos == 0L) {
+                    current = null;
+                    full = b;
+                }
+                else
+                    b.timer = CompletableFuture.Delayer.delay(
+                        new Flush(b), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            ScheduledFuture<?> t = full.timer;
+            if (t != null)
+                t.cancel(false);
+            dispatch(full);
+        }
+        return f;
+    }
+
+    /**
+     * Dispatches the current batch, if any, without waiting for it to
+     * fill up or for its delay to elapse.
+     */
+    public void flush() {
+        Batch<K,V> b;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if ((b = current) != null)
+                current = null;
+        } finally {
+            lock.unlock();
+        }
+        if (b != null) {
+            ScheduledFuture<?> t = b.timer;
+            if (t != null)
+                t.cancel(false);
+            dispatch(b);
+        }
+    }
+
+    /**
+     * Dispatches the current batch and rejects all further requests.
+     * Batches already dispatched still complete normally. Invocation
+     * has no additional effect if already closed.
+     */
+    public void close() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    /**
+     * Returns the number of keys accumulating, waiting or in flight.
+     *
+     * @return the number of pending keys
+     */
+    public int getPendingKeyCount() {
+        return maxPendingKeys - pendingKeys.availablePermits();
+    }
+
+    /**
+     * Returns the number of batches currently outstanding in the
+     * batch function.
+     *
+     * @return the number of in-flight batches
+     */
+    public int getInFlightBatchCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the number of dispatched batches waiting for an earlier
+     * batch to complete. This method is O(n).
+     *
+     * @return the number of waiting batches
+     */
+    public int getWaitingBatchCount() {
+        return ready.size();
+    }
+
+    /**
+     * Delay timer task; dispatches the batch if it is still current.
+     */
+    final class Flush implements Runnable {
+        final Batch<K,V> batch;
+        Flush(Batch<K,V> batch) { this.batch = batch; }
+        public void run() {
+            boolean due = false;
+            final ReentrantLock lock = CompletableFutureBatcher.this.lock;
+            lock.lock();
+            try {
+                if (current == batch) {
+                    current = null;
+                    due = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (due)
+                dispatch(batch);
+        }
+    }
+
+    private CompletableFuture<V> rejected(String message) {
+        CompletableFuture<V> f = new CompletableFuture<V>();
+        f.completeExceptionally(new RejectedExecutionException(message));
+        return f;
+    }
+
+    private void dispatch(Batch<K,V> b) {
+        ready.offer(b);
+        startReady();
+    }
+
+    /**
+     * Starts waiting batches while fewer than maxInFlightBatches are
+     * in flight.
+     */
+    private void startReady() {
+        for (int n; (n = inFlight.get()) < maxInFlightBatches &&
+                 !ready.isEmpty(); ) {
+            if (inFlight.compareAndSet(n, n + 1)) {
+                Batch<K,V> b = ready.poll();
+                if (b == null)
+                    inFlight.decrementAndGet();  // lost race; recheck
+                else
+                    start(b);
+            }
+        }
+    }
+
+    private void start(final Batch<K,V> b) {
+        try {
+            executor.execute(new Runnable() {
+                public void run() { invoke(b); }
+            });
+        } catch (Throwable ex) {
+            done(b, null, ex);
+        }
+    }
+
+    /**
+     * Invokes the batch function and arranges for the batch to be
+     * completed with its result.
+     */
+    private void invoke(final Batch<K,V> b) {
+        CompletionStage<? extends Map<K,V>> stage;
+        try {
+            List<K> keys = Collections.unmodifiableList(
+                new ArrayList<K>(b.futures.keySet()));
+            if ((stage = batchFunction.apply(keys)) == null)
+                throw new NullPointerException();
+        } catch (Throwable ex) {
+            done(b, null, ex);
+            return;
+        }
+        stage.whenComplete(new BiConsumer<Map<K,V>,Throwable>() {
+            public void accept(Map<K,V> m, Throwable ex) { done(b, m, ex); }
+        });
+    }
+
+    /**
+     * Releases the keys of a batch, completes its futures and starts
+     * any waiting batch. The keys are released first so that a caller
+     * reacting to a completion is not rejected for the keys of the
+     * batch that completed it.
+     */
+    private void done(Batch<K,V> b, Map<K,V> m, Throwable ex) {
+        pendingKeys.release(b.futures.size());
+        inFlight.decrementAndGet();
+        try {
+            if (ex == null && m == null)
+                ex = new NullPointerException();
+            if (ex instanceof CompletionException && ex.getCause() != null)
+                ex = ex.getCause();
+            for (Map.Entry<K,CompletableFuture<V>> e : b.futures.entrySet()) {
+                if (ex != null)
+                    e.getValue().completeExceptionally(ex);
+                else
+                    e.getValue().complete(m.get(e.getKey()));
+            }
+        } finally {
+            startReady();
+        }
+    }
+}
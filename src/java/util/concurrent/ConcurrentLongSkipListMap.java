@@ -0,0 +1,1422 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A scalable concurrent sorted map from primitive {@code long} keys to
+ * object values, for indexes such as time series where the keys are
+ * timestamps or sequence numbers.
+ *
+ * <p>This class uses the same lock-free skip list algorithm as
+ * {@link ConcurrentSkipListMap}, with the same expected average
+ * log(n) time cost for the {@code get}, {@code put}, {@code remove}
+ * and relational operations, and the same thread-safety guarantees.
+ * It differs in that keys are held in a primitive field of each node
+ * and compared directly, so no {@code Long} is allocated per entry or
+ * per lookup, and no {@code Comparable} call is made per comparison.
+ * Keys are ordered as signed {@code long} values.
+ *
+ * <p>Range scans use a {@link Cursor}, which steps through the
+ * entries of a key range in ascending order without allocating per
+ * entry, or {@link #forEach(long, boolean, long, boolean, EntryConsumer)
+ * forEach} over a range. Like the iterators of
+ * {@code ConcurrentSkipListMap}, cursors are <i>weakly consistent</i>:
+ * they reflect some but not necessarily all changes made to the map
+ * after they were created, and never throw
+ * {@link java.util.ConcurrentModificationException}.
+ *
+ * <p>This class does not permit {@code null} values, so a {@code null}
+ * return from {@code get} and the other value-returning methods means
+ * that no mapping was present. Relational operations that return keys
+ * return {@link LongEntry} snapshots, or {@code null} if there is no
+ * such key. The {@code size} method is a constant-time operation, but
+ * is only a snapshot if the map is being concurrently modified.
+ *
+ * @since 1.8
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentLongSkipListMap<V> {
+
+    /*
+     * This is a transcription of ConcurrentSkipListMap's base list and
+     * index levels with the key type fixed to long; see that class for
+     * the full explanation of the algorithm. Markers and the base
+     * header are recognized by their value fields (the node itself,
+     * and BASE_HEADER) exactly as there, so their key fields are
+     * unused and never compared. The traversal loops keep the same
+     * three checks (inconsistent read, deleted n, deleted b) in the
+     * same order.
+     *
+     * Unlike ConcurrentSkipListMap, the number of mappings is kept in
+     * a LongAdder, incremented when an insertion is linked and
+     * decremented when a removal nulls the value, so that size() does
+     * not traverse millions of entries.
+     */
+
+    /**
+     * Special value used to identify base-level header
+     */
+    private static final Object BASE_HEADER = new Object();
+
+    /**
+     * The topmost head index of the skiplist.
+     */
+    private transient volatile HeadIndex<V> head;
+
+    /** The number of mappings. */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * A mapping from a key to a value, as a snapshot returned by the
+     * relational methods.
+     *
+     * @param <V> the type of the value
+     */
+    public static final class LongEntry<V> {
+        private final long key;
+        private final V value;
+
+        LongEntry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Returns the key.
+         *
+         * @return the key
+         */
+        public long getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value.
+         *
+         * @return the value
+         */
+        public V getValue() {
+            return value;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof LongEntry))
+                return false;
+            LongEntry<?> e = (LongEntry<?>)o;
+            return key == e.key && value.equals(e.value);
+        }
+
+        public int hashCode() {
+            return Long.hashCode(key) ^ value.hashCode();
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * An action performed on each mapping of a scan.
+     *
+     * @param <V> the type of mapped values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Performs this action on a mapping.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(long key, V value);
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Nodes hold keys and values, and are singly linked in sorted
+     * order, possibly with some intervening marker nodes, as in
+     * ConcurrentSkipListMap.
+     */
+    static final class Node<V> {
+        final long key;
+        volatile Object value;
+        volatile Node<V> next;
+
+        /**
+         * Creates a new regular node.
+         */
+        Node(long key, Object value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * Creates a new marker node, whose value field points to
+         * itself.
+         */
+        Node(Node<V> next) {
+            this.key = 0L;
+            this.value = this;
+            this.next = next;
+        }
+
+        boolean casValue(Object cmp, Object val) {
+            return UNSAFE.compareAndSwapObject(this, valueOffset, cmp, val);
+        }
+
+        boolean casNext(Node<V> cmp, Node<V> val) {
+            return UNSAFE.compareAndSwapObject(this, nextOffset, cmp, val);
+        }
+
+        boolean isBaseHeader() {
+            return value == BASE_HEADER;
+        }
+
+        boolean appendMarker(Node<V> f) {
+            return casNext(f, new Node<V>(f));
+        }
+
+        /**
+         * Helps out a deletion by appending marker or unlinking from
+         * predecessor.
+         */
+        void helpDelete(Node<V> b, Node<V> f) {
+            if (f == next && this == b.next) {
+                if (f == null || f.value != f) // not already marked
+                    casNext(f, new Node<V>(f));
+                else
+                    b.casNext(this, f.next);
+            }
+        }
+
+        /**
+         * Returns a snapshot of this node's mapping, or null if it is
+         * deleted, a marker or the header.
+         */
+        LongEntry<V> createSnapshot() {
+            Object v = value;
+            if (v == null || v == this || v == BASE_HEADER)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return new LongEntry<V>(key, vv);
+        }
+
+        // UNSAFE mechanics
+
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long valueOffset;
+        private static final long nextOffset;
+
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Node.class;
+                valueOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("value"));
+                nextOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("next"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /* ---------------- Indexing -------------- */
+
+    /**
+     * Index nodes represent the levels of the skip list.
+     */
+    static class Index<V> {
+        final Node<V> node;
+        final Index<V> down;
+        volatile Index<V> right;
+
+        Index(Node<V> node, Index<V> down, Index<V> right) {
+            this.node = node;
+            this.down = down;
+            this.right = right;
+        }
+
+        final boolean casRight(Index<V> cmp, Index<V> val) {
+            return UNSAFE.compareAndSwapObject(this, rightOffset, cmp, val);
+        }
+
+        final boolean indexesDeletedNode() {
+            return node.value == null;
+        }
+
+        final boolean link(Index<V> succ, Index<V> newSucc) {
+            Node<V> n = node;
+            newSucc.right = succ;
+            return n.value != null && casRight(succ, newSucc);
+        }
+
+        final boolean unlink(Index<V> succ) {
+            return node.value != null && casRight(succ, succ.right);
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long rightOffset;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Index.class;
+                rightOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("right"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * Nodes heading each level keep track of their level.
+     */
+    static final class HeadIndex<V> extends Index<V> {
+        final int level;
+        HeadIndex(Node<V> node, Index<V> down, Index<V> right, int level) {
+            super(node, down, right);
+            this.level = level;
+        }
+    }
+
+    /**
+     * Constructs a new, empty map.
+     */
+    public ConcurrentLongSkipListMap() {
+        head = new HeadIndex<V>(new Node<V>(0L, BASE_HEADER, null),
+                                null, null, 1);
+    }
+
+    private boolean casHead(HeadIndex<V> cmp, HeadIndex<V> val) {
+        return UNSAFE.compareAndSwapObject(this, headOffset, cmp, val);
+    }
+
+    /* ---------------- Traversal -------------- */
+
+    /**
+     * Returns a base-level node with key strictly less than given key,
+     * or the base-level header if there is no such node.  Also
+     * unlinks indexes to deleted nodes found along the way.
+     */
+    private Node<V> findPredecessor(long key) {
+        for (;;) {
+            for (Index<V> q = head, r = q.right, d;;) {
+                if (r != null) {
+                    Node<V> n = r.node;
+                    long k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            break;           // restart
+                        r = q.right;         // reread r
+                        continue;
+                    }
+                    if (key > k) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if ((d = q.down) == null)
+                    return q.node;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /**
+     * Returns node holding key or null if no such, clearing out any
+     * deleted nodes seen along the way.
+     */
+    private Node<V> findNode(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                long k = n.key;
+                if (key == k)
+                    return n;
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets value for key, or null if absent.
+     */
+    private V doGet(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                long k = n.key;
+                if (key == k) {
+                    @SuppressWarnings("unchecked") V vv = (V)v;
+                    return vv;
+                }
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /* ---------------- Insertion -------------- */
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     *
+     * @return the old value, or null if newly inserted
+     */
+    private V doPut(long key, V value, boolean onlyIfAbsent) {
+        Node<V> z;             // added node
+        if (value == null)
+            throw new NullPointerException();
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                if (n != null) {
+                    Object v;
+                    Node<V> f = n.next;
+                    if (n != b.next)               // inconsistent read
+                        break;
+                    if ((v = n.value) == null) {   // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n) // b is deleted
+                        break;
+                    long k = n.key;
+                    if (key > k) {
+                        b = n;
+                        n = f;
+                        continue;
+                    }
+                    if (key == k) {
+                        if (onlyIfAbsent || n.casValue(v, value)) {
+                            @SuppressWarnings("unchecked") V vv = (V)v;
+                            return vv;
+                        }
+                        break; // restart if lost race to replace value
+                    }
+                    // else key < k; fall through
+                }
+
+                z = new Node<V>(key, value, n);
+                if (!b.casNext(n, z))
+                    break;         // restart if lost race to append to b
+                break outer;
+            }
+        }
+        count.increment();
+
+        int rnd = ThreadLocalRandom.nextSecondarySeed();
+        if ((rnd & 0x80000001) == 0) { // test highest and lowest bits
+            int level = 1, max;
+            while (((rnd >>>= 1) & 1) != 0)
+                ++level;
+            Index<V> idx = null;
+            HeadIndex<V> h = head;
+            if (level <= (max = h.level)) {
+                for (int i = 1; i <= level; ++i)
+                    idx = new Index<V>(z, idx, null);
+            }
+            else { // try to grow by one level
+                level = max + 1; // hold in array and later pick the one to use
+                @SuppressWarnings("unchecked")Index<V>[] idxs =
+                    (Index<V>[])new Index<?>[level+1];
+                for (int i = 1; i <= level; ++i)
+                    idxs[i] = idx = new Index<V>(z, idx, null);
+                for (;;) {
+                    h = head;
+                    int oldLevel = h.level;
+                    if (level <= oldLevel) // lost race to add level
+                        break;
+                    HeadIndex<V> newh = h;
+                    Node<V> oldbase = h.node;
+                    for (int j = oldLevel+1; j <= level; ++j)
+                        newh = new HeadIndex<V>(oldbase, newh, idxs[j], j);
+                    if (casHead(h, newh)) {
+                        h = newh;
+                        idx = idxs[level = oldLevel];
+                        break;
+                    }
+                }
+            }
+            // find insertion points and splice in
+            splice: for (int insertionLevel = level;;) {
+                int j = h.level;
+                for (Index<V> q = h, r = q.right, t = idx;;) {
+                    if (q == null || t == null)
+                        break splice;
+                    if (r != null) {
+                        Node<V> n = r.node;
+                        // compare before deletion check avoids needing recheck
+                        long k = n.key;
+                        if (n.value == null) {
+                            if (!q.unlink(r))
+                                break;
+                            r = q.right;
+                            continue;
+                        }
+                        if (key > k) {
+                            q = r;
+                            r = r.right;
+                            continue;
+                        }
+                    }
+
+                    if (j == insertionLevel) {
+                        if (!q.link(r, t))
+                            break; // restart
+                        if (t.node.value == null) {
+                            findNode(key);
+                            break splice;
+                        }
+                        if (--insertionLevel == 0)
+                            break splice;
+                    }
+
+                    if (--j >= insertionLevel && j < level)
+                        t = t.down;
+                    q = q.down;
+                    r = q.right;
+                }
+            }
+        }
+        return null;
+    }
+
+    /* ---------------- Deletion -------------- */
+
+    /**
+     * Main deletion method. Locates node, nulls value, appends a
+     * deletion marker, unlinks predecessor, removes associated index
+     * nodes, and possibly reduces head index level.
+     *
+     * @param value if non-null, the value that must be
+     * associated with key
+     * @return the old value, or null if not found
+     */
+    final V doRemove(long key, Object value) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                    // inconsistent read
+                    break;
+                if ((v = n.value) == null) {        // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                long k = n.key;
+                if (key < k)
+                    break outer;
+                if (key > k) {
+                    b = n;
+                    n = f;
+                    continue;
+                }
+                if (value != null && !value.equals(v))
+                    break outer;
+                if (!n.casValue(v, null))
+                    break;
+                count.decrement();
+                if (!n.appendMarker(f) || !b.casNext(n, f))
+                    findNode(key);                  // retry via findNode
+                else {
+                    findPredecessor(key);           // clean index
+                    if (head.right == null)
+                        tryReduceLevel();
+                }
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Possibly reduce head level if it has no nodes, as in
+     * ConcurrentSkipListMap.
+     */
+    private void tryReduceLevel() {
+        HeadIndex<V> h = head;
+        HeadIndex<V> d;
+        HeadIndex<V> e;
+        if (h.level > 3 &&
+            (d = (HeadIndex<V>)h.down) != null &&
+            (e = (HeadIndex<V>)d.down) != null &&
+            e.right == null &&
+            d.right == null &&
+            h.right == null &&
+            casHead(h, d) && // try to set
+            h.right != null) // recheck
+            casHead(d, h);   // try to backout
+    }
+
+    /* ---------------- First and last -------------- */
+
+    /**
+     * Returns the first valid node, or null if empty.
+     */
+    final Node<V> findFirst() {
+        for (Node<V> b, n;;) {
+            if ((n = (b = head.node).next) == null)
+                return null;
+            if (n.value != null)
+                return n;
+            n.helpDelete(b, n.next);
+        }
+    }
+
+    /**
+     * Returns the last valid node, or null if empty.
+     */
+    final Node<V> findLast() {
+        Index<V> q = head;
+        for (;;) {
+            Index<V> d, r;
+            if ((r = q.right) != null) {
+                if (r.indexesDeletedNode()) {
+                    q.unlink(r);
+                    q = head; // restart
+                }
+                else
+                    q = r;
+            } else if ((d = q.down) != null) {
+                q = d;
+            } else {
+                for (Node<V> b = q.node, n = b.next;;) {
+                    if (n == null)
+                        return b.isBaseHeader() ? null : b;
+                    Node<V> f = n.next;            // inconsistent read
+                    if (n != b.next)
+                        break;
+                    Object v = n.value;
+                    if (v == null) {                 // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n)      // b is deleted
+                        break;
+                    b = n;
+                    n = f;
+                }
+                q = head; // restart
+            }
+        }
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    // Control values OR'ed as arguments to findNear
+
+    private static final int EQ = 1;
+    private static final int LT = 2;
+    private static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Utility for ceiling, floor, lower, higher methods.
+     *
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @return nearest node fitting relation, or null if no such
+     */
+    final Node<V> findNear(long key, int rel) {
+        for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    return ((rel & LT) == 0 || b.isBaseHeader()) ? null : b;
+                Node<V> f = n.next;
+                if (n != b.next)                  // inconsistent read
+                    break;
+                if ((v = n.value) == null) {      // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                long k = n.key;
+                if ((key == k && (rel & EQ) != 0) ||
+                    (key <  k && (rel & LT) == 0))
+                    return n;
+                if ( key <= k && (rel & LT) != 0)
+                    return b.isBaseHeader() ? null : b;
+                b = n;
+                n = f;
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot entry for the results of findNear.
+     */
+    final LongEntry<V> getNear(long key, int rel) {
+        for (;;) {
+            Node<V> n = findNear(key, rel);
+            if (n == null)
+                return null;
+            LongEntry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /* ------ Map API methods ------ */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     */
+    public boolean containsKey(long key) {
+        return doGet(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value, or {@code null} if none
+     */
+    public V get(long key) {
+        return doGet(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the given defaultValue if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the defaultValue
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v;
+        return (v = doGet(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V put(long key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     */
+    public V remove(long key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Removes the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(long key, Object value) {
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to some value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V replace(long key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<V> n; Object v;
+            if ((n = findNode(key)) == null)
+                return null;
+            if ((v = n.value) != null && n.casValue(v, value)) {
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map. Unlike
+     * {@code ConcurrentSkipListMap}, this is a constant-time
+     * operation, but if the map is being concurrently modified the
+     * result is only a snapshot.
+     *
+     * @return the number of elements in this map
+     */
+    public int size() {
+        long n = count.sum();
+        return (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+            (n < 0L) ? 0 : (int)n;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findFirst() == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        for (;;) {
+            Node<V> b, n;
+            HeadIndex<V> h = head, d = (HeadIndex<V>)h.down;
+            if (d != null)
+                casHead(h, d);            // remove levels
+            else if ((b = h.node) != null && (n = b.next) != null) {
+                Node<V> f = n.next;     // remove values
+                if (n == b.next) {
+                    Object v = n.value;
+                    if (v == null)
+                        n.helpDelete(b, f);
+                    else if (n.casValue(v, null)) {
+                        count.decrement();
+                        if (n.appendMarker(f))
+                            b.casNext(n, f);
+                    }
+                }
+            }
+            else
+                break;
+        }
+    }
+
+    /* ------ Relational operations ------ */
+
+    /**
+     * Returns a key-value mapping associated with the least key in
+     * this map, or {@code null} if the map is empty.
+     *
+     * @return an entry with the least key, or {@code null} if empty
+     */
+    public LongEntry<V> firstEntry() {
+        for (;;) {
+            Node<V> n = findFirst();
+            if (n == null)
+                return null;
+            LongEntry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key in
+     * this map, or {@code null} if the map is empty.
+     *
+     * @return an entry with the greatest key, or {@code null} if empty
+     */
+    public LongEntry<V> lastEntry() {
+        for (;;) {
+            Node<V> n = findLast();
+            if (n == null)
+                return null;
+            LongEntry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Returns the least key in this map.
+     *
+     * @return the least key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long firstKey() {
+        Node<V> n = findFirst();
+        if (n == null)
+            throw new NoSuchElementException();
+        return n.key;
+    }
+
+    /**
+     * Returns the greatest key in this map.
+     *
+     * @return the greatest key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long lastKey() {
+        Node<V> n = findLast();
+        if (n == null)
+            throw new NoSuchElementException();
+        return n.key;
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * strictly less than the given key, or {@code null} if there is
+     * no such key.
+     *
+     * @param key the key
+     * @return an entry with the greatest key less than {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public LongEntry<V> lowerEntry(long key) {
+        return getNear(key, LT);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * less than or equal to the given key, or {@code null} if there
+     * is no such key.
+     *
+     * @param key the key
+     * @return an entry with the greatest key less than or equal to
+     *         {@code key}, or {@code null} if there is no such key
+     */
+    public LongEntry<V> floorEntry(long key) {
+        return getNear(key, LT|EQ);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * greater than or equal to the given key, or {@code null} if
+     * there is no such key.
+     *
+     * @param key the key
+     * @return an entry with the least key greater than or equal to
+     *         {@code key}, or {@code null} if there is no such key
+     */
+    public LongEntry<V> ceilingEntry(long key) {
+        return getNear(key, GT|EQ);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * strictly greater than the given key, or {@code null} if there
+     * is no such key.
+     *
+     * @param key the key
+     * @return an entry with the least key greater than {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public LongEntry<V> higherEntry(long key) {
+        return getNear(key, GT);
+    }
+
+    /**
+     * Returns the value mapped to the greatest key less than or equal
+     * to the given key, or {@code null} if there is no such key. This
+     * is {@code floorEntry(key).getValue()} without allocating an
+     * entry, for lookups such as "the sample in effect at time t".
+     *
+     * @param key the key
+     * @return the value of the floor mapping, or {@code null} if none
+     */
+    public V floorValue(long key) {
+        for (;;) {
+            Node<V> n = findNear(key, LT|EQ);
+            if (n == null)
+                return null;
+            Object v = n.value;
+            if (v != null && v != n && v != BASE_HEADER) {
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+    }
+
+    /**
+     * Returns the value mapped to the least key greater than or equal
+     * to the given key, or {@code null} if there is no such key. This
+     * is {@code ceilingEntry(key).getValue()} without allocating an
+     * entry.
+     *
+     * @param key the key
+     * @return the value of the ceiling mapping, or {@code null} if none
+     */
+    public V ceilingValue(long key) {
+        for (;;) {
+            Node<V> n = findNear(key, GT|EQ);
+            if (n == null)
+                return null;
+            Object v = n.value;
+            if (v != null && v != n && v != BASE_HEADER) {
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+    }
+
+    /* ------ Range scans ------ */
+
+    /**
+     * Returns a cursor over all mappings of this map, in ascending
+     * key order.
+     *
+     * @return a cursor over this map
+     */
+    public Cursor<V> cursor() {
+        return new Cursor<V>(this, Long.MIN_VALUE, true, Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Returns a cursor over the mappings whose keys range from
+     * {@code fromKey} to {@code toKey}, in ascending key order.
+     *
+     * @param fromKey low endpoint of the keys
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @return a cursor over the range
+     */
+    public Cursor<V> cursor(long fromKey, boolean fromInclusive,
+                            long toKey, boolean toInclusive) {
+        return new Cursor<V>(this, fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    /**
+     * Performs the given action for each mapping of this map, in
+     * ascending key order.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(EntryConsumer<? super V> action) {
+        forEach(Long.MIN_VALUE, true, Long.MAX_VALUE, true, action);
+    }
+
+    /**
+     * Performs the given action for each mapping whose key ranges from
+     * {@code fromKey} to {@code toKey}, in ascending key order.
+     *
+     * @param fromKey low endpoint of the keys
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @param action the action to be performed for each mapping
+     * @return the number of mappings visited
+     * @throws NullPointerException if the specified action is null
+     */
+    public long forEach(long fromKey, boolean fromInclusive,
+                        long toKey, boolean toInclusive,
+                        EntryConsumer<? super V> action) {
+        if (action == null) throw new NullPointerException();
+        long visited = 0L;
+        for (Cursor<V> c = cursor(fromKey, fromInclusive, toKey, toInclusive);
+             c.advance(); ++visited)
+            action.accept(c.key(), c.value());
+        return visited;
+    }
+
+    /**
+     * Returns the number of mappings whose keys range from
+     * {@code fromKey} to {@code toKey}. This traverses the range.
+     *
+     * @param fromKey low endpoint of the keys
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @return the number of mappings in the range
+     */
+    public long count(long fromKey, boolean fromInclusive,
+                      long toKey, boolean toInclusive) {
+        long n = 0L;
+        for (Cursor<V> c = cursor(fromKey, fromInclusive, toKey, toInclusive);
+             c.advance(); )
+            ++n;
+        return n;
+    }
+
+    /**
+     * Removes the mappings whose keys range from {@code fromKey} to
+     * {@code toKey}, for example to expire old samples.
+     *
+     * @param fromKey low endpoint of the keys
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included
+     * @param toKey high endpoint of the keys
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included
+     * @return the number of mappings removed
+     */
+    public long removeRange(long fromKey, boolean fromInclusive,
+                            long toKey, boolean toInclusive) {
+        long n = 0L;
+        for (Cursor<V> c = cursor(fromKey, fromInclusive, toKey, toInclusive);
+             c.advance(); )
+            if (doRemove(c.key(), c.value()) != null)
+                ++n;
+        return n;
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys range from
+     * {@code fromKey} to {@code toKey}. The view is backed by this
+     * map, and reads and removals through it are confined to the
+     * range.
+     *
+     * @param fromKey low endpoint of the keys in the returned map
+     * @param fromInclusive {@code true} if the low endpoint
+     *        is to be included in the returned view
+     * @param toKey high endpoint of the keys in the returned map
+     * @param toInclusive {@code true} if the high endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this map whose keys range from
+     *         {@code fromKey} to {@code toKey}
+     * @throws IllegalArgumentException if {@code fromKey} is greater
+     *         than {@code toKey}
+     */
+    public SubMap<V> subMap(long fromKey, boolean fromInclusive,
+                            long toKey, boolean toInclusive) {
+        if (fromKey > toKey)
+            throw new IllegalArgumentException("inconsistent range");
+        return new SubMap<V>(this, fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys are less
+     * than (or equal to, if {@code inclusive} is true) {@code toKey}.
+     *
+     * @param toKey high endpoint of the keys in the returned map
+     * @param inclusive {@code true} if the high endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this map below {@code toKey}
+     */
+    public SubMap<V> headMap(long toKey, boolean inclusive) {
+        return new SubMap<V>(this, Long.MIN_VALUE, true, toKey, inclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this map whose keys are greater
+     * than (or equal to, if {@code inclusive} is true) {@code fromKey}.
+     *
+     * @param fromKey low endpoint of the keys in the returned map
+     * @param inclusive {@code true} if the low endpoint
+     *        is to be included in the returned view
+     * @return a view of the portion of this map above {@code fromKey}
+     */
+    public SubMap<V> tailMap(long fromKey, boolean inclusive) {
+        return new SubMap<V>(this, fromKey, inclusive, Long.MAX_VALUE, true);
+    }
+
+    /**
+     * A range view of a {@code ConcurrentLongSkipListMap}, returned by
+     * {@link #subMap}, {@link #headMap} and {@link #tailMap}. The
+     * {@code size} method traverses the range.
+     *
+     * @param <V> the type of mapped values
+     */
+    public static final class SubMap<V> {
+        private final ConcurrentLongSkipListMap<V> m;
+        private final long lo, hi;
+        private final boolean loInclusive, hiInclusive;
+
+        SubMap(ConcurrentLongSkipListMap<V> m, long lo, boolean loInclusive,
+               long hi, boolean hiInclusive) {
+            this.m = m;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        private boolean inRange(long key) {
+            return (key > lo || (key == lo && loInclusive)) &&
+                (key < hi || (key == hi && hiInclusive));
+        }
+
+        /**
+         * Returns the value mapped to the key, or {@code null} if the
+         * key is absent or outside the range.
+         *
+         * @param key the key
+         * @return the value, or {@code null} if none
+         */
+        public V get(long key) {
+            return inRange(key) ? m.doGet(key) : null;
+        }
+
+        /**
+         * Returns {@code true} if the range contains a mapping for the
+         * key.
+         *
+         * @param key the key
+         * @return {@code true} if there is such a mapping
+         */
+        public boolean containsKey(long key) {
+            return get(key) != null;
+        }
+
+        /**
+         * Returns the first mapping of the range, or {@code null} if
+         * the range is empty.
+         *
+         * @return the first mapping, or {@code null} if empty
+         */
+        public LongEntry<V> firstEntry() {
+            LongEntry<V> e = loInclusive ? m.ceilingEntry(lo) : m.higherEntry(lo);
+            return (e == null || !inRange(e.getKey())) ? null : e;
+        }
+
+        /**
+         * Returns the last mapping of the range, or {@code null} if
+         * the range is empty.
+         *
+         * @return the last mapping, or {@code null} if empty
+         */
+        public LongEntry<V> lastEntry() {
+            LongEntry<V> e = hiInclusive ? m.floorEntry(hi) : m.lowerEntry(hi);
+            return (e == null || !inRange(e.getKey())) ? null : e;
+        }
+
+        /**
+         * Returns a cursor over the mappings of the range.
+         *
+         * @return a cursor over the range
+         */
+        public Cursor<V> cursor() {
+            return new Cursor<V>(m, lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Performs the given action for each mapping of the range, in
+         * ascending key order.
+         *
+         * @param action the action to be performed for each mapping
+         * @return the number of mappings visited
+         * @throws NullPointerException if the specified action is null
+         */
+        public long forEach(EntryConsumer<? super V> action) {
+            return m.forEach(lo, loInclusive, hi, hiInclusive, action);
+        }
+
+        /**
+         * Returns the number of mappings in the range. This traverses
+         * the range.
+         *
+         * @return the number of mappings in the range
+         */
+        public long size() {
+            return m.count(lo, loInclusive, hi, hiInclusive);
+        }
+
+        /**
+         * Returns {@code true} if the range contains no mappings.
+         *
+         * @return {@code true} if the range is empty
+         */
+        public boolean isEmpty() {
+            return !cursor().advance();
+        }
+
+        /**
+         * Removes all of the mappings of the range from the backing
+         * map.
+         */
+        public void clear() {
+            m.removeRange(lo, loInclusive, hi, hiInclusive);
+        }
+    }
+
+    /**
+     * A weakly consistent cursor over the mappings of a key range, in
+     * ascending key order. A cursor is positioned before the first
+     * mapping; each successful {@link #advance} moves it to the next
+     * mapping, whose key and value are then returned by {@link #key}
+     * and {@link #value}. The value is the one seen when the cursor
+     * moved, even if the mapping has since been changed or removed.
+     *
+     * <p>A cursor is not thread-safe; it is intended for use by one
+     * thread at a time.
+     *
+     * @param <V> the type of mapped values
+     */
+    public static final class Cursor<V> {
+        private final ConcurrentLongSkipListMap<V> map;
+        private final long fromKey, toKey;
+        private final boolean fromInclusive, toInclusive;
+        /** The current node, or null before the first advance */
+        private Node<V> node;
+        private V value;
+        private boolean done;
+
+        Cursor(ConcurrentLongSkipListMap<V> map, long fromKey, boolean fromInclusive,
+               long toKey, boolean toInclusive) {
+            this.map = map;
+            this.fromKey = fromKey;
+            this.fromInclusive = fromInclusive;
+            this.toKey = toKey;
+            this.toInclusive = toInclusive;
+        }
+
+        /**
+         * Moves to the next mapping in the range.
+         *
+         * @return {@code true} if there is such a mapping, or
+         *         {@code false} if the range is exhausted
+         */
+        public boolean advance() {
+            if (done)
+                return false;
+            Node<V> n = (node == null) ?
+                map.findNear(fromKey, fromInclusive ? (GT|EQ) : GT) :
+                node.next;
+            for (; n != null; n = n.next) {
+                Object v = n.value;
+                if (v != null && v != n && v != BASE_HEADER) {
+                    long k = n.key;
+                    if (k > toKey || (k == toKey && !toInclusive))
+                        break;
+                    node = n;
+                    @SuppressWarnings("unchecked") V vv = (V)v;
+                    value = vv;
+                    return true;
+                }
+            }
+            done = true;
+            node = null;
+            value = null;
+            return false;
+        }
+
+        /**
+         * Returns the key of the current mapping.
+         *
+         * @return the key
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        public long key() {
+            Node<V> n = node;
+            if (n == null)
+                throw new IllegalStateException();
+            return n.key;
+        }
+
+        /**
+         * Returns the value of the current mapping.
+         *
+         * @return the value
+         * @throws IllegalStateException if the cursor is not on a mapping
+         */
+        public V value() {
+            if (node == null)
+                throw new IllegalStateException();
+            return value;
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long headOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentLongSkipListMap.class;
+            headOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("head"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A stack of consumers waiting for elements of a queue whose
+ * producers and consumers share no lock, used by {@link
+ * StripedBlockingQueue} and {@link RelaxedPriorityBlockingQueue}.
+ * The queue supplies {@link #pollElement}; its producers call {@link
+ * #signal} after making an element visible.
+ *
+ * <p>Idle consumers wait on a Treiber stack of Waiter nodes. A
+ * consumer pushes its node and then polls the queue again; a
+ * producer publishes its element and then pops one waiter to unpark.
+ * Since both the push and the element insertion are volatile writes
+ * followed by volatile reads of the other side, either the
+ * consumer's rescan sees the element or the producer sees the
+ * waiter. This requires that {@code pollElement} return null only if
+ * it found no element published before the call. A waiter that
+ * times out or is interrupted clears its thread field; cleared nodes
+ * are skipped by producers and unlinked by clean(). A consumer that
+ * was signalled but then abandons the wait passes the signal on so
+ * that no element is left without an awake consumer.
+ *
+ * @param <E> the type of elements of the queue
+ */
+abstract class ConsumerWaiters<E> {
+
+    /** Top of the stack of waiting consumers. */
+    private volatile Waiter waiters;
+
+    /**
+     * Node in the stack of waiting consumers.
+     */
+    static final class Waiter {
+        volatile Thread thread;
+        volatile Waiter next;
+        Waiter(Thread thread) { this.thread = thread; }
+
+        boolean casThread(Thread cmp, Thread val) {
+            return UNSAFE.compareAndSwapObject(this, threadOffset, cmp, val);
+        }
+
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long threadOffset;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Waiter.class;
+                threadOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("thread"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * Removes an element from the queue without blocking.
+     *
+     * @param hint the hint passed to await, such as a home stripe
+     * @return the element, or null if the queue is empty
+     */
+    abstract E pollElement(int hint);
+
+    /**
+     * Wakes up one waiting consumer, if any. Call after making an
+     * element visible to pollElement.
+     */
+    final void signal() {
+        if (waiters != null)
+            signalWaiter();
+    }
+
+    private void signalWaiter() {
+        Waiter w;
+        while ((w = waiters) != null) {
+            if (casWaiters(w, w.next)) {
+                Thread t = w.thread;
+                if (t != null && w.casThread(t, null)) {
+                    LockSupport.unpark(t);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Unlinks cancelled waiters.
+     */
+    private void clean() {
+        Waiter p;
+        while ((p = waiters) != null && p.thread == null)
+            casWaiters(p, p.next);
+        while (p != null) {
+            Waiter n = p.next;
+            if (n != null && n.thread == null)
+                p.next = n.next;
+            else
+                p = n;
+        }
+    }
+
+    /**
+     * Removes an element, blocking until one is available or the wait
+     * times out.
+     *
+     * @param hint passed to pollElement
+     * @param timed true if timed wait
+     * @param nanos the timeout, if timed
+     * @return the element, or null if timed out
+     */
+    final E await(int hint, boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        final Thread me = Thread.currentThread();
+        for (;;) {
+            E e = pollElement(hint);
+            if (e != null)
+                return e;
+            if (timed && nanos <= 0L)
+                return null;
+            Waiter w = new Waiter(me);
+            for (Waiter h;;) {
+                w.next = h = waiters;
+                if (casWaiters(h, w))
+                    break;
+            }
+            if ((e = pollElement(hint)) != null) {
+                if (!w.casThread(me, null))
+                    signalWaiter();             // pass on consumed signal
+                else
+                    clean();
+                return e;
+            }
+            boolean interrupted = false;
+            while (w.thread != null) {
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    break;
+                }
+                if (timed) {
+                    if ((nanos = deadline - System.nanoTime()) <= 0L)
+                        break;
+                    LockSupport.parkNanos(this, nanos);
+                }
+                else
+                    LockSupport.park(this);
+            }
+            if (w.thread != null && w.casThread(me, null))
+                clean();
+            else if (interrupted) {
+                signalWaiter();                 // pass on consumed signal
+            }
+            if (interrupted)
+                throw new InterruptedException();
+            if (timed)
+                nanos = deadline - System.nanoTime();
+        }
+    }
+
+    private boolean casWaiters(Waiter cmp, Waiter val) {
+        return UNSAFE.compareAndSwapObject(this, waitersOffset, cmp, val);
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long waitersOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConsumerWaiters.class;
+            waitersOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("waiters"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
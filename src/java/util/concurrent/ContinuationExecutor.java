@@ -0,0 +1,555 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+
+package java.util.concurrent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor for large numbers of concurrent tasks that spend most
+ * of their time waiting, such as request handlers waiting on sockets
+ * or timers, running them on a small {@link ForkJoinPool} of carrier
+ * threads instead of a thread per task.
+ *
+ * <p>A task is written as a sequence of steps separated by waits. A
+ * step never blocks its carrier thread; instead, where a
+ * thread-per-task handler would block, the step returns a
+ * {@link CompletionStage} for the awaited event, and the rest of the
+ * task is a dependent of that stage. This executor provides such
+ * stages for the common waits: {@link #sleep} for timed waits, and
+ * {@link #read}, {@link #write}, {@link #accept} and
+ * {@link #awaitReady} for non-blocking {@linkplain SelectableChannel
+ * channels}, all served by one timer thread and one selector thread
+ * shared by every task. The waits of other code, such as futures
+ * completed by other threads, are adapted by {@link #resume}. Every
+ * stage returned by these methods that has to wait completes in the
+ * carrier pool, so that dependent actions added with the non-async
+ * methods of {@code CompletableFuture} continue the task on a carrier
+ * thread, never on the timer or selector thread. A {@link #read},
+ * {@link #write} or {@link #accept} that succeeds or fails without
+ * waiting instead returns a stage that is already complete, so its
+ * dependent actions run at once in the calling thread, normally the
+ * carrier thread running the step. A waiting task thus costs
+ * only the objects representing its continuation, typically a few
+ * hundred bytes, instead of a thread stack.
+ *
+ * <p>For example, an echo handler could be written as:
+ * <pre> {@code
+ * CompletableFuture<Void> echo(ContinuationExecutor ex,
+ *                              SocketChannel ch, ByteBuffer buf) {
+ *   buf.clear();
+ *   return ex.read(ch, buf).thenCompose(n -> {
+ *     if (n < 0)
+ *       return CompletableFuture.completedFuture(null);
+ *     buf.flip();
+ *     return ex.write(ch, buf).thenCompose(w -> echo(ex, ch, buf));
+ *   });
+ * }
+ * ex.spawn(() -> echo(ex, channel, ByteBuffer.allocate(4096)));}</pre>
+ *
+ * <p>Tasks are not suspended transparently: code that blocks, for
+ * example in {@link Thread#sleep}, a blocking channel operation or
+ * {@link java.util.concurrent.locks.LockSupport#park}, holds its
+ * carrier thread for the duration, as in any other executor, and
+ * should instead use the stages of this class, or be run in a
+ * {@link ForkJoinPool.ManagedBlocker}.
+ *
+ * <p>Channels passed to the channel methods must be in non-blocking
+ * mode. Each channel may have at most one pending wait at a time; a
+ * second one completes exceptionally with an
+ * {@link IllegalStateException}. A channel is registered with the
+ * selector only while a wait on it is pending, so once its waits have
+ * completed it may be put back in blocking mode. If a channel is
+ * closed while a task
+ * waits on it, the wait completes exceptionally with a
+ * {@link ClosedChannelException}, within about a second. After
+ * {@link #close}, pending and further channel waits complete
+ * exceptionally with a {@link ClosedSelectorException}; sleeps and
+ * the carrier pool are not affected.
+ *
+ * @since 1.8
+ */
+public class ContinuationExecutor implements Executor, AutoCloseable {
+
+    /*
+     * Waits on channels are registered with one selector, owned by a
+     * daemon poller thread started on first use. Other threads hand
+     * registrations to the poller through a queue and wake it; the
+     * poller registers each channel with the waiter attached, and
+     * when the key is selected, cancels it, detaches the waiter and
+     * completes it in the carrier pool. Cancelling costs a
+     * re-registration per wait, but leaves no valid key behind, which
+     * would stop the channel from being put back in blocking mode
+     * after its task is done with the executor. A cancelled key stays
+     * in the selector until the next selection, so registering its
+     * channel again first flushes it with selectNow. A closed
+     * channel's key is cancelled and silently dropped by the
+     * selector, so the poller also sweeps its waiters for invalid
+     * keys about once a second.
+     */
+
+    /** Time between sweeps for waiters on closed channels. */
+    static final long SWEEP_MILLIS = 1000L;
+
+    private final ForkJoinPool carrier;
+
+    /** Count of spawned tasks not yet completed. */
+    private final LongAdder tasks = new LongAdder();
+
+    /** The poller, created on first channel wait; guarded by this. */
+    private Poller poller;
+
+    private boolean closed;                 // guarded by this
+
+    /**
+     * Creates an executor that runs tasks in the
+     * {@link ForkJoinPool#commonPool()}.
+     */
+    public ContinuationExecutor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an executor that runs tasks in the given pool.
+     *
+     * @param carrier the pool running the steps of tasks
+     * @throws NullPointerException if carrier is null
+     */
+    public ContinuationExecutor(ForkJoinPool carrier) {
+        if (carrier == null)
+            throw new NullPointerException();
+        this.carrier = carrier;
+    }
+
+    /**
+     * Returns the pool running the steps of tasks.
+     *
+     * @return the carrier pool
+     */
+    public ForkJoinPool getCarrier() {
+        return carrier;
+    }
+
+    /**
+     * Starts a task: runs its first step in the carrier pool, and
+     * returns a future completed with the result of the stage the
+     * step returns, or exceptionally if the step throws or returns
+     * null.
+     *
+     * @param task the first step of the task
+     * @param <T> the type of the task's result
+     * @return a future completed when the task completes
+     * @throws NullPointerException if task is null
+     * @throws RejectedExecutionException if the carrier pool rejects
+     *         the task
+     */
+    public <T> CompletableFuture<T> spawn(
+        Callable<? extends CompletionStage<T>> task) {
+        if (task == null)
+            throw new NullPointerException();
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        tasks.increment();
+        try {
+            carrier.execute(() -> {
+                try {
+                    CompletionStage<T> stage = task.call();
+                    if (stage == null)
+                        throw new NullPointerException();
+                    stage.whenComplete((v, ex) -> {
+                        if (ex == null)
+                            result.complete(v);
+                        else
+                            result.completeExceptionally(ex);
+                    });
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RuntimeException ex) {
+            tasks.decrement();
+            throw ex;
+        }
+        result.whenComplete((v, ex) -> tasks.decrement());
+        return result;
+    }
+
+    /**
+     * Runs the given command in the carrier pool.
+     *
+     * @param command the command
+     * @throws NullPointerException if command is null
+     * @throws RejectedExecutionException if the carrier pool rejects
+     *         the command
+     */
+    public void execute(Runnable command) {
+        carrier.execute(command);
+    }
+
+    /**
+     * Returns the number of tasks started by {@link #spawn} that have
+     * not yet completed.
+     *
+     * @return the number of incomplete tasks
+     */
+    public long getTaskCount() {
+        return tasks.sum();
+    }
+
+    /**
+     * Returns a stage completed in the carrier pool after the given
+     * delay; the non-blocking equivalent of {@link Thread#sleep}.
+     *
+     * @param delay how long to wait, in units of {@code unit}
+     * @param unit the time unit of the delay
+     * @return a stage completed after the delay
+     * @throws NullPointerException if unit is null
+     */
+    public CompletableFuture<Void> sleep(long delay, TimeUnit unit) {
+        if (unit == null)
+            throw new NullPointerException();
+        CompletableFuture<Void> f = new CompletableFuture<Void>();
+        CompletableFuture.Delayer.delay(() -> complete(f, null, null),
+                                        delay, unit);
+        return f;
+    }
+
+    /**
+     * Returns a stage completed in the carrier pool with the result
+     * of the given stage, so that a task waiting on a stage completed
+     * by some other thread continues on a carrier thread; the
+     * non-blocking equivalent of parking until another thread
+     * unparks this one.
+     *
+     * @param stage the stage to wait for
+     * @param <T> the type of the stage's result
+     * @return a stage completed in the carrier pool with the same
+     *         result as the given one
+     * @throws NullPointerException if stage is null
+     */
+    public <T> CompletableFuture<T> resume(CompletionStage<T> stage) {
+        CompletableFuture<T> f = new CompletableFuture<T>();
+        stage.whenComplete((v, ex) -> complete(f, v, ex));
+        return f;
+    }
+
+    /**
+     * Returns a stage completed with the ready operation set of the
+     * channel once it is ready for at least one of the given
+     * operations.
+     *
+     * @param channel a channel in non-blocking mode
+     * @param ops the operations to wait for, as in
+     *        {@link SelectionKey#interestOps(int)}
+     * @return a stage completed when the channel is ready
+     * @throws NullPointerException if channel is null
+     * @throws IllegalArgumentException if ops is zero or not a subset
+     *         of the channel's {@linkplain SelectableChannel#validOps
+     *         valid operations}
+     */
+    public CompletableFuture<Integer> awaitReady(SelectableChannel channel,
+                                                 int ops) {
+        if (ops == 0 || (ops & ~channel.validOps()) != 0)
+            throw new IllegalArgumentException();
+        Waiter w = new Waiter(channel, ops);
+        Poller p;
+        synchronized (this) {
+            if (closed)
+                p = null;
+            else if ((p = poller) == null) {
+                try {
+                    poller = p = new Poller();
+                } catch (IOException ex) {
+                    w.completeExceptionally(ex);
+                    return w;
+                }
+            }
+        }
+        if (p == null)
+            w.completeExceptionally(new ClosedSelectorException());
+        else
+            p.add(w);
+        return w;
+    }
+
+    /**
+     * Reads a sequence of bytes from the channel into the buffer,
+     * waiting until at least one byte or end-of-stream can be read if
+     * the buffer has space.
+     *
+     * @param channel a channel in non-blocking mode
+     * @param dst the buffer into which bytes are transferred
+     * @param <C> the type of the channel
+     * @return a stage completed with the number of bytes read,
+     *         possibly zero, or {@code -1} at end-of-stream, or
+     *         exceptionally if the read fails
+     * @throws NullPointerException if channel or dst is null
+     */
+    public <C extends SelectableChannel & ReadableByteChannel>
+        CompletableFuture<Integer> read(C channel, ByteBuffer dst) {
+        if (channel == null || dst == null)
+            throw new NullPointerException();
+        int n;
+        try {
+            n = channel.read(dst);
+        } catch (Throwable ex) {
+            return failed(ex);
+        }
+        if (n != 0 || !dst.hasRemaining())
+            return CompletableFuture.completedFuture(n);
+        return awaitReady(channel, SelectionKey.OP_READ)
+            .thenCompose(r -> read(channel, dst));
+    }
+
+    /**
+     * Writes a sequence of bytes to the channel from the buffer,
+     * waiting until at least one byte can be written if the buffer
+     * has remaining bytes. As with {@link WritableByteChannel#write},
+     * not all remaining bytes need be written.
+     *
+     * @param channel a channel in non-blocking mode
+     * @param src the buffer from which bytes are retrieved
+     * @param <C> the type of the channel
+     * @return a stage completed with the number of bytes written, or
+     *         exceptionally if the write fails
+     * @throws NullPointerException if channel or src is null
+     */
+    public <C extends SelectableChannel & WritableByteChannel>
+        CompletableFuture<Integer> write(C channel, ByteBuffer src) {
+        if (channel == null || src == null)
+            throw new NullPointerException();
+        int n;
+        try {
+            n = channel.write(src);
+        } catch (Throwable ex) {
+            return failed(ex);
+        }
+        if (n != 0 || !src.hasRemaining())
+            return CompletableFuture.completedFuture(n);
+        return awaitReady(channel, SelectionKey.OP_WRITE)
+            .thenCompose(r -> write(channel, src));
+    }
+
+    /**
+     * Accepts a connection on the channel, waiting until one is
+     * available. The accepted channel is in blocking mode, as
+     * returned by {@link ServerSocketChannel#accept}.
+     *
+     * @param channel a channel in non-blocking mode
+     * @return a stage completed with the accepted channel, or
+     *         exceptionally if the accept fails
+     * @throws NullPointerException if channel is null
+     */
+    public CompletableFuture<SocketChannel> accept(ServerSocketChannel channel) {
+        SocketChannel sc;
+        try {
+            sc = channel.accept();
+        } catch (Throwable ex) {
+            return failed(ex);
+        }
+        if (sc != null)
+            return CompletableFuture.completedFuture(sc);
+        return awaitReady(channel, SelectionKey.OP_ACCEPT)
+            .thenCompose(r -> accept(channel));
+    }
+
+    /**
+     * Stops the selector thread, completing pending channel waits
+     * exceptionally with a {@link ClosedSelectorException}. Sleeps,
+     * spawned tasks and the carrier pool are not affected.
+     */
+    public void close() {
+        Poller p;
+        synchronized (this) {
+            closed = true;
+            p = poller;
+        }
+        if (p != null)
+            p.close();
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable ex) {
+        CompletableFuture<T> f = new CompletableFuture<T>();
+        f.completeExceptionally(ex);
+        return f;
+    }
+
+    /**
+     * Completes f in the carrier pool, or in the caller if the pool
+     * rejects it, so that waits cannot be lost.
+     */
+    <T> void complete(CompletableFuture<T> f, T value, Throwable ex) {
+        Runnable r = (ex == null) ? () -> f.complete(value) :
+            () -> f.completeExceptionally(ex);
+        try {
+            carrier.execute(r);
+        } catch (RejectedExecutionException rej) {
+            r.run();
+        }
+    }
+
+    /** A pending wait on a channel. */
+    final class Waiter extends CompletableFuture<Integer> {
+        final SelectableChannel channel;
+        final int ops;
+        SelectionKey key;                    // accessed only by poller
+
+        Waiter(SelectableChannel channel, int ops) {
+            this.channel = channel;
+            this.ops = ops;
+        }
+
+        void fire(Integer readyOps, Throwable ex) {
+            ContinuationExecutor.this.complete(this, readyOps, ex);
+        }
+    }
+
+    /** The selector and its thread. */
+    final class Poller implements Runnable {
+        final Selector selector;
+        final ConcurrentLinkedQueue<Waiter> added =
+            new ConcurrentLinkedQueue<Waiter>();
+        /** Waiters registered with the selector; accessed only by poller. */
+        final Set<Waiter> waiting =
+            Collections.newSetFromMap(new IdentityHashMap<Waiter,Boolean>());
+        volatile boolean closed;
+
+        Poller() throws IOException {
+            selector = Selector.open();
+            Thread t = new Thread(this, "ContinuationExecutor-poller");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        void add(Waiter w) {
+            added.offer(w);
+            selector.wakeup();
+            if (closed && added.remove(w))   // lost race with close
+                w.fire(null, new ClosedSelectorException());
+        }
+
+        void close() {
+            closed = true;
+            selector.wakeup();
+        }
+
+        public void run() {
+            long nextSweep = System.nanoTime() +
+                TimeUnit.MILLISECONDS.toNanos(SWEEP_MILLIS);
+            try {
+                while (!closed) {
+                    for (Waiter w; (w = added.poll()) != null; )
+                        register(w);
+                    selector.select(SWEEP_MILLIS);
+                    Iterator<SelectionKey> it =
+                        selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey k = it.next();
+                        it.remove();
+                        Waiter w = (Waiter)k.attachment();
+                        if (w != null) {
+                            int ready;
+                            try {
+                                ready = k.readyOps();
+                            } catch (CancelledKeyException ex) {
+                                continue;        // failed by sweep
+                            }
+                            k.cancel();
+                            k.attach(null);
+                            waiting.remove(w);
+                            w.fire(ready, null);
+                        }
+                    }
+                    long now = System.nanoTime();
+                    if (now - nextSweep >= 0L) {
+                        sweep();
+                        nextSweep = now +
+                            TimeUnit.MILLISECONDS.toNanos(SWEEP_MILLIS);
+                    }
+                }
+            } catch (Throwable ex) {
+                // fall through to fail remaining waiters
+            } finally {
+                closed = true;
+                ClosedSelectorException cse = new ClosedSelectorException();
+                for (Waiter w : waiting)
+                    w.fire(null, cse);
+                for (Waiter w; (w = added.poll()) != null; )
+                    w.fire(null, cse);
+                try {
+                    selector.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        /** Registers w's channel with w attached. */
+        private void register(Waiter w) {
+            SelectableChannel ch = w.channel;
+            try {
+                SelectionKey k = ch.keyFor(selector);
+                if (k != null && k.isValid())
+                    throw new IllegalStateException(
+                        "Channel already has a pending wait");
+                if (k != null)
+                    selector.selectNow();        // flush cancelled key
+                k = ch.register(selector, w.ops, w);
+                w.key = k;
+                waiting.add(w);
+            } catch (CancelledKeyException ex) {
+                w.fire(null, new ClosedChannelException());
+            } catch (Throwable ex) {
+                w.fire(null, ex);
+            }
+        }
+
+        /** Fails waiters whose channels were closed. */
+        private void sweep() {
+            for (Iterator<Waiter> it = waiting.iterator(); it.hasNext(); ) {
+                Waiter w = it.next();
+                if (!w.key.isValid()) {
+                    it.remove();
+                    w.key.attach(null);
+                    w.fire(null, new ClosedChannelException());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.lang.management.ExecutorMXBean;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Runtime metrics of a {@link ThreadPoolExecutor},
+ * {@link ScheduledThreadPoolExecutor} or {@link ForkJoinPool}, obtained
+ * with the executor's {@code enableMetrics} method.
+ *
+ * <p>Metrics are disabled by default and, once enabled, stay enabled
+ * until the executor terminates. While enabled, the executor records
+ * each task's queue-wait and run time into histograms and counts
+ * rejections, idle worker waits and worker thread starts and exits.
+ * Recording uses {@link LongAdder}s only, so it adds no contention
+ * between worker threads, and reading never takes the executor's
+ * locks. An instance is published as an {@link ExecutorMXBean} in the
+ * platform MBean server and through
+ * {@link java.lang.management.ManagementFactory#getPlatformMXBeans(Class)}
+ * until its executor terminates. Metrics hold their executor only
+ * weakly; those of an executor that becomes unreachable without
+ * terminating are dropped, and their name freed, the next time any
+ * executor's metrics are enabled or listed.
+ *
+ * @since 1.8
+ */
+public final class ExecutorMetrics implements ExecutorMXBean {
+
+    /** Number of histogram buckets; the last covers about 39 hours and up. */
+    static final int BUCKETS = 48;
+
+    /** Metrics of live executors, keyed by name. */
+    private static final ConcurrentHashMap<String, ExecutorMetrics> registry =
+        new ConcurrentHashMap<String, ExecutorMetrics>();
+
+    private final String name;
+    private final String type;
+
+    /** The executor, weakly held so that registration does not keep it alive. */
+    private final WeakReference<Executor> owner;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder parks = new LongAdder();
+    private final LongAdder workersStarted = new LongAdder();
+    private final LongAdder workersRetired = new LongAdder();
+    private final Histogram queueWait = new Histogram();
+    private final Histogram runTime = new Histogram();
+
+    private volatile ObjectName objname;  // created lazily
+
+    ExecutorMetrics(String name, Executor owner) {
+        if (name == null)
+            throw new NullPointerException();
+        this.name = name;
+        this.type = owner.getClass().getName();
+        this.owner = new WeakReference<Executor>(owner);
+    }
+
+    /**
+     * Returns the metrics of every live executor that has metrics
+     * enabled.
+     *
+     * @return a new list of the metrics of live executors
+     */
+    public static List<ExecutorMetrics> getAllMetrics() {
+        expungeStaleMetrics();
+        return new ArrayList<ExecutorMetrics>(registry.values());
+    }
+
+    /**
+     * Removes the metrics of executors that were garbage collected
+     * without terminating.
+     */
+    private static void expungeStaleMetrics() {
+        for (ExecutorMetrics m : registry.values()) {
+            if (m.owner.get() == null)
+                m.unregister();
+        }
+    }
+
+    /**
+     * Adds these metrics to the registry.
+     *
+     * @throws IllegalArgumentException if the name is already used by
+     *         the metrics of another live executor
+     */
+    void register() {
+        expungeStaleMetrics();
+        if (registry.putIfAbsent(name, this) != null)
+            throw new IllegalArgumentException("Executor metrics name in use: " + name);
+    }
+
+    /**
+     * Publishes these metrics in the platform MBean server. Called
+     * after register, without holding executor locks.
+     */
+    void publish() {
+        if (registry.get(name) == this)
+            sun.management.ManagementFactoryHelper.registerExecutorMXBean(this);
+    }
+
+    /**
+     * Removes these metrics from the registry and the platform MBean
+     * server. Called when the executor terminates, or once it has
+     * been garbage collected.
+     */
+    void unregister() {
+        if (registry.remove(name, this))
+            sun.management.ManagementFactoryHelper.unregisterExecutorMXBean(this);
+    }
+
+    // Recording, called by the executor
+
+    final void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    final void recordRunTime(long nanos) {
+        runTime.record(nanos);
+    }
+
+    final void recordRejection() {
+        rejected.increment();
+    }
+
+    final void recordPark() {
+        parks.increment();
+    }
+
+    final void recordWorkerStarted() {
+        workersStarted.increment();
+    }
+
+    final void recordWorkerRetired() {
+        workersRetired.increment();
+    }
+
+    // ExecutorMXBean
+
+    public ObjectName getObjectName() {
+        ObjectName result = objname;
+        if (result == null) {
+            synchronized (this) {
+                result = objname;
+                if (result == null) {
+                    String n = name;
+                    for (int i = 0; i < n.length(); ++i) {
+                        char c = n.charAt(i);
+                        if (c == ',' || c == '=' || c == ':' || c == '"' ||
+                            c == '*' || c == '?' || c == '\n') {
+                            n = ObjectName.quote(n);
+                            break;
+                        }
+                    }
+                    try {
+                        result = new ObjectName("java.util.concurrent:type=Executor,name=" + n);
+                    } catch (MalformedObjectNameException e) {
+                        throw new IllegalArgumentException(e);
+                    }
+                    objname = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getPoolSize() {
+        Executor e = owner.get();
+        if (e instanceof ThreadPoolExecutor)
+            return ((ThreadPoolExecutor)e).getWorkerCountEstimate();
+        else if (e instanceof ForkJoinPool)
+            return ((ForkJoinPool)e).getPoolSize();
+        return 0;
+    }
+
+    public long getQueuedTaskCount() {
+        Executor e = owner.get();
+        if (e instanceof ThreadPoolExecutor)
+            return ((ThreadPoolExecutor)e).getQueue().size();
+        else if (e instanceof ForkJoinPool) {
+            ForkJoinPool p = (ForkJoinPool)e;
+            return p.getQueuedTaskCount() + p.getQueuedSubmissionCount();
+        }
+        return 0L;
+    }
+
+    public long getCompletedTaskCount() {
+        return runTime.count();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejected.sum();
+    }
+
+    public long getStealCount() {
+        Executor e = owner.get();
+        return (e instanceof ForkJoinPool) ? ((ForkJoinPool)e).getStealCount() : 0L;
+    }
+
+    public long getParkCount() {
+        return parks.sum();
+    }
+
+    public long getWorkerStartCount() {
+        return workersStarted.sum();
+    }
+
+    public long getWorkerRetireCount() {
+        return workersRetired.sum();
+    }
+
+    public long[] getQueueWaitTimeHistogram() {
+        return queueWait.snapshot();
+    }
+
+    public long[] getRunTimeHistogram() {
+        return runTime.snapshot();
+    }
+
+    public long getQueueWaitTimePercentile(double percentile) {
+        return queueWait.percentile(percentile);
+    }
+
+    public long getRunTimePercentile(double percentile) {
+        return runTime.percentile(percentile);
+    }
+
+    /**
+     * Returns a string identifying these metrics and summarizing their
+     * counters.
+     *
+     * @return a string identifying these metrics
+     */
+    public String toString() {
+        return super.toString() +
+            "[" + name +
+            ", completed = " + getCompletedTaskCount() +
+            ", rejected = " + getRejectedTaskCount() +
+            ", parks = " + getParkCount() +
+            ", workers started = " + getWorkerStartCount() +
+            ", workers retired = " + getWorkerRetireCount() +
+            ", p99 queue wait = " + getQueueWaitTimePercentile(99.0) +
+            "ns, p99 run time = " + getRunTimePercentile(99.0) + "ns]";
+    }
+
+    /**
+     * A power-of-two histogram of durations.
+     */
+    static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; ++i)
+                buckets[i] = new LongAdder();
+        }
+
+        void record(long nanos) {
+            int i = (nanos <= 0L) ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+            buckets[(i < BUCKETS) ? i : BUCKETS - 1].increment();
+        }
+
+        long count() {
+            long sum = 0L;
+            for (LongAdder b : buckets)
+                sum += b.sum();
+            return sum;
+        }
+
+        long[] snapshot() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; ++i)
+                counts[i] = buckets[i].sum();
+            return counts;
+        }
+
+        long percentile(double percentile) {
+            if (!(percentile >= 0.0 && percentile <= 100.0))
+                throw new IllegalArgumentException();
+            long[] counts = snapshot();
+            long total = 0L;
+            for (long c : counts)
+                total += c;
+            if (total == 0L)
+                return 0L;
+            long rank = Math.max(1L, (long)Math.ceil(total * percentile / 100.0));
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; ++i) {
+                if ((seen += counts[i]) >= rank)
+                    return (i == 0) ? 0L : (i == BUCKETS - 1) ? Long.MAX_VALUE :
+                        (1L << i) - 1L;
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
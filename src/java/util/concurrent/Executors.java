@@ -128,6 +128,25 @@ public class Executors {
              null, true);
     }
 
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a {@link StripedBlockingQueue}, an unbounded queue
+     * split into lock-free per-thread stripes with stealing, so that
+     * submission and task hand-off scale with the number of submitting
+     * and worker threads. Tasks submitted by different threads are not
+     * started in any particular order relative to each other.
+     * Otherwise behaves like {@link #newFixedThreadPool(int)}.
+     *
+     * @param nThreads the number of threads in the pool
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     */
+    public static ExecutorService newStripedThreadPool(int nThreads) {
+        return new ThreadPoolExecutor(nThreads, nThreads,
+                                      0L, TimeUnit.MILLISECONDS,
+                                      new StripedBlockingQueue<Runnable>());
+    }
+
     /**
      * Creates a thread pool that reuses a fixed number of threads
      * operating off a shared unbounded queue, using the provided
@@ -301,6 +320,25 @@ public class Executors {
         return new ScheduledThreadPoolExecutor(corePoolSize, threadFactory);
     }
 
+    /**
+     * Creates a thread pool that can schedule commands to run after a
+     * given delay, or to execute periodically, keeping delayed tasks in
+     * a hierarchical timing wheel. Scheduling and cancellation are O(1),
+     * at the cost of rounding delays up to a whole tick.
+     * @param corePoolSize the number of threads running enabled tasks
+     * @param tickDuration the granularity of delays
+     * @param unit the time unit of the tickDuration argument
+     * @return a newly created timing-wheel scheduled executor
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0} or
+     *         {@code tickDuration <= 0}
+     * @throws NullPointerException if unit is null
+     * @see TimingWheelScheduledExecutor
+     */
+    public static ScheduledExecutorService newTimingWheelScheduledExecutor(
+            int corePoolSize, long tickDuration, TimeUnit unit) {
+        return new TimingWheelScheduledExecutor(corePoolSize, tickDuration, unit);
+    }
+
     /**
      * Returns an object that delegates all defined {@link
      * ExecutorService} methods to the given executor, but not any
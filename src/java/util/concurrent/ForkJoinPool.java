@@ -447,6 +447,18 @@ public class ForkJoinPool extends AbstractExecutorService {
      * the thread has not started yet, but do so for creating
      * submission queues for existing external threads.
      *
+     * Affinity. Each worker at odd index i is paired with the
+     * submission queue at index i - 1, and its top-level scans start
+     * there and proceed linearly, so that a worker first looks at its
+     * own submission queue and then at those of its neighbours in the
+     * array. Submissions with an affinity hint (see execute(task,
+     * affinity)) select their submission queue from the hint rather
+     * than the submitter's probe, and do not move on contention, so
+     * related tasks are usually run, in submission order, by the same
+     * worker while it keeps up, and otherwise by nearby ones.  This is
+     * only a hint: any worker may still steal the tasks, and the
+     * pairing changes if the array is resized.
+     *
      * Deactivation and waiting. Queuing encounters several intrinsic
      * races; most notably that a task-producing thread can miss
      * seeing (and signalling) another thread that gave up looking for
@@ -1053,7 +1065,12 @@ public class ForkJoinPool extends AbstractExecutorService {
         final void runTask(ForkJoinTask<?> task) {
             if (task != null) {
                 scanState &= ~SCANNING; // mark as busy
+                ForkJoinPool p = pool;
+                ExecutorMetrics m = (p == null) ? null : p.metrics;
+                long start = (m == null) ? 0L : System.nanoTime();
                 (currentSteal = task).doExec();
+                if (m != null)
+                    m.recordRunTime(System.nanoTime() - start);
                 U.putOrderedObject(this, QCURRENTSTEAL, null); // release for GC
                 execLocalTasks();
                 ForkJoinWorkerThread thread = owner;
@@ -1396,6 +1413,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     final UncaughtExceptionHandler ueh;  // per-worker UEH
     final String workerNamePrefix;       // to create worker name string
     volatile AtomicLong stealCounter;    // also used as sync monitor
+    volatile ExecutorMetrics metrics;    // null unless enabled
 
     /**
      * Acquires the runState lock; returns current (locked) runState.
@@ -1563,6 +1581,9 @@ public class ForkJoinPool extends AbstractExecutorService {
             unlockRunState(rs, rs & ~RSLOCK);
         }
         wt.setName(workerNamePrefix.concat(Integer.toString(i >>> 1)));
+        ExecutorMetrics em = metrics;
+        if (em != null)
+            em.recordWorkerStarted();
         return w;
     }
 
@@ -1594,6 +1615,9 @@ public class ForkJoinPool extends AbstractExecutorService {
             w.qlock = -1;                             // ensure set
             w.transferStealCount(this);
             w.cancelAll();                            // cancel remaining tasks
+            ExecutorMetrics em = metrics;
+            if (em != null)
+                em.recordWorkerRetired();
         }
         for (;;) {                                    // possibly replace
             WorkQueue[] ws; int m, sp;
@@ -1697,8 +1721,9 @@ public class ForkJoinPool extends AbstractExecutorService {
     }
 
     /**
-     * Scans for and tries to steal a top-level task. Scans start at a
-     * random location, randomly moving on apparent contention,
+     * Scans for and tries to steal a top-level task. Scans start at
+     * the worker's paired submission queue, randomly moving on
+     * apparent contention,
      * otherwise continuing linearly until reaching two consecutive
      * empty passes over all queues with the same checksum (summing
      * each base index of each queue, that moves on each steal), at
@@ -1716,7 +1741,8 @@ public class ForkJoinPool extends AbstractExecutorService {
         WorkQueue[] ws; int m;
         if ((ws = workQueues) != null && (m = ws.length - 1) > 0 && w != null) {
             int ss = w.scanState;                     // initially non-negative
-            for (int origin = r & m, k = origin, oldSum = 0, checkSum = 0;;) {
+            for (int origin = w.config & EVENMASK & m, k = origin,
+                     oldSum = 0, checkSum = 0;;) {
                 WorkQueue q; ForkJoinTask<?>[] a; ForkJoinTask<?> t;
                 int b, n; long c;
                 if ((q = ws[k]) != null) {
@@ -1820,8 +1846,12 @@ public class ForkJoinPool extends AbstractExecutorService {
                 Thread wt = Thread.currentThread();
                 U.putObject(wt, PARKBLOCKER, this);   // emulate LockSupport
                 w.parker = wt;
-                if (w.scanState < 0 && ctl == c)      // recheck before park
+                if (w.scanState < 0 && ctl == c) {    // recheck before park
+                    ExecutorMetrics em = metrics;
+                    if (em != null)
+                        em.recordPark();
                     U.park(false, parkTime);
+                }
                 U.putOrderedObject(w, QPARKER, null);
                 U.putObject(wt, PARKBLOCKER, null);
                 if (w.scanState >= 0)
@@ -2266,6 +2296,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                     rs = lockRunState();          // done
                     unlockRunState(rs, (rs & ~RSLOCK) | TERMINATED);
                     synchronized (this) { notifyAll(); } // for awaitTermination
+                    ExecutorMetrics em = metrics;
+                    if (em != null)
+                        em.unregister();
                 }
                 break;
             }
@@ -2320,11 +2353,26 @@ public class ForkJoinPool extends AbstractExecutorService {
             ThreadLocalRandom.localInit();
             r = ThreadLocalRandom.getProbe();
         }
+        externalSubmit(task, r, false);
+    }
+
+    /**
+     * Body of externalSubmit, starting at the queue selected by r.
+     *
+     * @param task the task. Caller must ensure non-null.
+     * @param r the caller's probe, or an affinity hash
+     * @param pinned true if r is an affinity hash: waits rather
+     * than moving to another queue on contention
+     */
+    private void externalSubmit(ForkJoinTask<?> task, int r, boolean pinned) {
         for (;;) {
             WorkQueue[] ws; WorkQueue q; int rs, m, k;
             boolean move = false;
             if ((rs = runState) < 0) {
                 tryTerminate(false, false);     // help terminate
+                ExecutorMetrics em = metrics;
+                if (em != null)
+                    em.recordRejection();
                 throw new RejectedExecutionException();
             }
             else if ((rs & STARTED) == 0 ||     // initialize
@@ -2383,8 +2431,12 @@ public class ForkJoinPool extends AbstractExecutorService {
             }
             else
                 move = true;                   // move if busy
-            if (move)
-                r = ThreadLocalRandom.advanceProbe(r);
+            if (move) {
+                if (pinned)
+                    Thread.yield();
+                else
+                    r = ThreadLocalRandom.advanceProbe(r);
+            }
         }
     }
 
@@ -2419,6 +2471,40 @@ public class ForkJoinPool extends AbstractExecutorService {
         externalSubmit(task);
     }
 
+    /**
+     * Version of externalPush for tasks with an affinity hint: uses
+     * the submission queue selected by the hint instead of the one
+     * selected by the caller's probe, whether or not the caller is a
+     * worker.  Consecutive hints select consecutive submission
+     * queues, so hints 0 to parallelism - 1 select distinct ones
+     * (for parallelism up to 64).
+     *
+     * @param task the task. Caller must ensure non-null.
+     * @param affinity the affinity hint
+     */
+    final void externalPush(ForkJoinTask<?> task, int affinity) {
+        WorkQueue[] ws; WorkQueue q; int m;
+        int r = affinity << 1;
+        int rs = runState;
+        if ((ws = workQueues) != null && (m = (ws.length - 1)) >= 0 &&
+            (q = ws[m & r & SQMASK]) != null && rs > 0 &&
+            U.compareAndSwapInt(q, QLOCK, 0, 1)) {
+            ForkJoinTask<?>[] a; int am, n, s;
+            if ((a = q.array) != null &&
+                (am = a.length - 1) > (n = (s = q.top) - q.base)) {
+                int j = ((am & s) << ASHIFT) + ABASE;
+                U.putOrderedObject(a, j, task);
+                U.putOrderedInt(q, QTOP, s + 1);
+                U.putIntVolatile(q, QLOCK, 0);
+                if (n <= 1)
+                    signalWork(ws, q);
+                return;
+            }
+            U.compareAndSwapInt(q, QLOCK, 1, 0);
+        }
+        externalSubmit(task, r, true);
+    }
+
     /**
      * Returns common pool queue for an external thread.
      */
@@ -2630,6 +2716,122 @@ public class ForkJoinPool extends AbstractExecutorService {
         externalPush(task);
     }
 
+    /**
+     * Arranges for (asynchronous) execution of the given task, with
+     * a hint that it should run near other tasks submitted with the
+     * same affinity. Tasks with equal hints are placed in the same
+     * submission queue, and hints from {@code 0} to {@code
+     * getParallelism() - 1} select different queues (for parallelism
+     * up to 64); other values may share them. Workers scan some
+     * submission queues before others, so tasks operating on the same
+     * data (for example, the same partition) tend to run on the same
+     * thread and find that data in its cache. This is a best-effort
+     * hint only: workers occupy slots that depend on their creation
+     * and on the size of the queue array, so a given queue need not
+     * be scanned first by any worker (in particular when the
+     * parallelism is not a power of two), and the hint does not
+     * restrict which worker runs the task: idle workers still steal
+     * it.
+     *
+     * @param task the task
+     * @param affinity the affinity hint
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @since 1.8
+     */
+    public void execute(ForkJoinTask<?> task, int affinity) {
+        if (task == null)
+            throw new NullPointerException();
+        externalPush(task, affinity);
+    }
+
+    /**
+     * Arranges for (asynchronous) execution of the given command,
+     * with an affinity hint as described in {@link
+     * #execute(ForkJoinTask, int)}.
+     *
+     * @param task the task
+     * @param affinity the affinity hint
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @since 1.8
+     */
+    public void execute(Runnable task, int affinity) {
+        if (task == null)
+            throw new NullPointerException();
+        ForkJoinTask<?> job;
+        if (task instanceof ForkJoinTask<?>) // avoid re-wrap
+            job = (ForkJoinTask<?>) task;
+        else
+            job = new ForkJoinTask.RunnableExecuteAction(task);
+        externalPush(job, affinity);
+    }
+
+    /**
+     * Submits a ForkJoinTask for execution, with an affinity hint as
+     * described in {@link #execute(ForkJoinTask, int)}.
+     *
+     * @param task the task to submit
+     * @param affinity the affinity hint
+     * @param <T> the type of the task's result
+     * @return the task
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @since 1.8
+     */
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task, int affinity) {
+        if (task == null)
+            throw new NullPointerException();
+        externalPush(task, affinity);
+        return task;
+    }
+
+    /**
+     * Submits a Runnable task for execution, with an affinity hint as
+     * described in {@link #execute(ForkJoinTask, int)}.
+     *
+     * @param task the task to submit
+     * @param affinity the affinity hint
+     * @return a ForkJoinTask representing pending completion of the task
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @since 1.8
+     */
+    public ForkJoinTask<?> submit(Runnable task, int affinity) {
+        if (task == null)
+            throw new NullPointerException();
+        ForkJoinTask<?> job;
+        if (task instanceof ForkJoinTask<?>) // avoid re-wrap
+            job = (ForkJoinTask<?>) task;
+        else
+            job = new ForkJoinTask.AdaptedRunnableAction(task);
+        externalPush(job, affinity);
+        return job;
+    }
+
+    /**
+     * Submits a value-returning task for execution, with an affinity
+     * hint as described in {@link #execute(ForkJoinTask, int)}.
+     *
+     * @param task the task to submit
+     * @param affinity the affinity hint
+     * @param <T> the type of the task's result
+     * @return a ForkJoinTask representing pending completion of the task
+     * @throws NullPointerException if the task is null
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @since 1.8
+     */
+    public <T> ForkJoinTask<T> submit(Callable<T> task, int affinity) {
+        ForkJoinTask<T> job = new ForkJoinTask.AdaptedCallable<T>(task);
+        externalPush(job, affinity);
+        return job;
+    }
+
     // AbstractExecutorService methods
 
     /**
@@ -2840,6 +3042,54 @@ public class ForkJoinPool extends AbstractExecutorService {
         return (config & SMASK) + (int)(ctl >> AC_SHIFT) <= 0;
     }
 
+    /**
+     * Enables runtime metrics for this pool under the given name, or
+     * returns the existing metrics if already enabled. From then on,
+     * until this pool terminates, the run time of each task taken by a
+     * worker from a queue is recorded (subtasks it forks and then runs
+     * locally are included in its time), along with rejected
+     * submissions, worker parks and worker thread starts and exits.
+     * Steals are reported from {@link #getStealCount}. Queued tasks are
+     * not timestamped, so the queue-wait histogram stays empty. The
+     * metrics are published as an {@link
+     * java.lang.management.ExecutorMXBean} in the platform MBean server.
+     *
+     * @param name the name identifying this pool's metrics
+     * @return the metrics of this pool
+     * @throws NullPointerException if name is null
+     * @throws IllegalArgumentException if the name is already used by
+     *         the metrics of another live executor
+     * @since 1.8
+     */
+    public ExecutorMetrics enableMetrics(String name) {
+        if (name == null)
+            throw new NullPointerException();
+        ExecutorMetrics m;
+        synchronized (this) {
+            if ((m = metrics) != null)
+                return m;
+            m = new ExecutorMetrics(name, this);
+            m.register();
+            metrics = m;
+        }
+        m.publish();
+        if (isTerminated())
+            m.unregister();
+        return m;
+    }
+
+    /**
+     * Returns the runtime metrics of this pool, or {@code null} if they
+     * were never enabled.
+     *
+     * @return the metrics of this pool, or {@code null}
+     * @see #enableMetrics
+     * @since 1.8
+     */
+    public ExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Returns an estimate of the total number of tasks stolen from
      * one thread's work queue by another. The reported value
@@ -249,6 +249,61 @@ public class LinkedBlockingDeque<E>
         return true;
     }
 
+    /**
+     * Links the first n nodes of the chain starting at node as the last
+     * elements, and signals at most that many waiting takers. Space
+     * must be available for them.
+     *
+     * @return the rest of the chain
+     */
+    private Node<E> linkLastChain(Node<E> node, int n) {
+        // assert lock.isHeldByCurrentThread();
+        // assert n > 0 && count + n <= capacity;
+        Node<E> q = node;
+        for (int i = n; --i > 0; )
+            q = q.next;
+        Node<E> rest = q.next;
+        q.next = null;
+        if (rest != null)
+            rest.prev = null;
+        Node<E> l = last;
+        node.prev = l;
+        last = q;
+        if (first == null)
+            first = node;
+        else
+            l.next = node;
+        count += n;
+        for (; n > 0 && lock.hasWaiters(notEmpty); n--)
+            notEmpty.signal();
+        return rest;
+    }
+
+    /**
+     * Returns the elements of c linked into a chain of new nodes, for
+     * bulk insertion without allocating while holding the lock.
+     *
+     * @param a the elements, as returned by c.toArray()
+     * @param c the source collection
+     */
+    @SuppressWarnings("unchecked")
+    private Node<E> toChain(Object[] a, Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> chain = null;
+        for (int i = a.length - 1; i >= 0; --i) {
+            Object e = a[i];
+            if (e == null)
+                throw new NullPointerException();
+            Node<E> node = new Node<E>((E) e);
+            if (chain != null)
+                chain.prev = node;
+            node.next = chain;
+            chain = node;
+        }
+        return chain;
+    }
+
     /**
      * Removes and returns first element, or null if empty.
      */
@@ -658,6 +713,74 @@ public class LinkedBlockingDeque<E>
         return offerLast(e, timeout, unit);
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * end of this deque, waiting for space to become available as
+     * needed. The nodes are allocated before locking, and the lock is
+     * acquired once and released only while waiting for space.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 1.8
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        final Object[] a = c.toArray();
+        Node<E> chain = toChain(a, c);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (int remaining = a.length; remaining > 0; ) {
+                while (count == capacity)
+                    notFull.await();
+                int n = Math.min(remaining, capacity - count);
+                chain = linkLastChain(chain, n);
+                remaining -= n;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts elements of the specified collection at the end of this
+     * deque, waiting up to the specified wait time in total for space
+     * to become available. The nodes are allocated before locking, and
+     * the lock is acquired once and released only while waiting for
+     * space.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        final Object[] a = c.toArray();
+        Node<E> chain = toChain(a, c);
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int remaining = a.length;
+            while (remaining > 0) {
+                if (count == capacity) {
+                    if (nanos <= 0)
+                        break;
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                else {
+                    int n = Math.min(remaining, capacity - count);
+                    chain = linkLastChain(chain, n);
+                    remaining -= n;
+                }
+            }
+            return a.length - remaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Retrieves and removes the head of the queue represented by this deque.
      * This method differs from {@link #poll poll} only in that it throws an
@@ -760,6 +883,45 @@ public class LinkedBlockingDeque<E>
         }
     }
 
+    /**
+     * Waits until at least minElements have been transferred, draining
+     * elements as they arrive under a single acquisition of the lock.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this || minElements > maxElements)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            int n = 0;
+            for (;;) {
+                for (int k = Math.min(maxElements - n, count); k > 0; k--, n++) {
+                    c.add(first.item);   // In this order, in case add() throws.
+                    unlinkFirst();
+                }
+                if (n >= minElements || nanos <= 0)
+                    return n;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     // Stack methods
 
     /**
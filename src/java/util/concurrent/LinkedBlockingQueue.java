@@ -201,6 +201,50 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         last = last.next = node;
     }
 
+    /**
+     * Links the first n nodes of the chain starting at node at end of
+     * queue.
+     *
+     * @param node the first node of the chain
+     * @param n the number of nodes to link, at least one
+     * @return the rest of the chain
+     */
+    private Node<E> enqueueChain(Node<E> node, int n) {
+        // assert putLock.isHeldByCurrentThread();
+        // assert last.next == null;
+        Node<E> q = node;
+        while (--n > 0)
+            q = q.next;
+        Node<E> rest = q.next;
+        q.next = null;
+        last.next = node;
+        last = q;
+        return rest;
+    }
+
+    /**
+     * Returns the elements of c linked into a chain of new nodes, for
+     * bulk insertion without allocating while holding putLock.
+     *
+     * @param a the elements, as returned by c.toArray()
+     * @param c the source collection
+     */
+    @SuppressWarnings("unchecked")
+    private Node<E> toChain(Object[] a, Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        Node<E> chain = null;
+        for (int i = a.length - 1; i >= 0; --i) {
+            Object e = a[i];
+            if (e == null)
+                throw new NullPointerException();
+            Node<E> node = new Node<E>((E) e);
+            node.next = chain;
+            chain = node;
+        }
+        return chain;
+    }
+
     /**
      * Removes a node from head of queue.
      *
@@ -431,6 +475,89 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         return c >= 0;
     }
 
+    /**
+     * Inserts all of the elements of the specified collection at the
+     * tail of this queue, waiting for space to become available as
+     * needed. The nodes are allocated before locking, and the put lock
+     * is acquired and takers signalled once per run of insertions
+     * rather than once per element.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 1.8
+     */
+    public void putAll(Collection<? extends E> c) throws InterruptedException {
+        final Object[] a = c.toArray();
+        Node<E> chain = toChain(a, c);
+        int remaining = a.length;
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        while (remaining > 0) {
+            int prev = -1, n;
+            putLock.lockInterruptibly();
+            try {
+                while (count.get() == capacity) {
+                    notFull.await();
+                }
+                n = Math.min(remaining, capacity - count.get());
+                chain = enqueueChain(chain, n);
+                prev = count.getAndAdd(n);
+                if (prev + n < capacity)
+                    notFull.signal();
+            } finally {
+                putLock.unlock();
+            }
+            remaining -= n;
+            if (prev == 0)
+                signalNotEmpty();
+        }
+    }
+
+    /**
+     * Inserts elements of the specified collection at the tail of this
+     * queue, waiting up to the specified wait time in total for space
+     * to become available. The nodes are allocated before locking, and
+     * the put lock is acquired and takers signalled once per run of
+     * insertions rather than once per element.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 1.8
+     */
+    public int offerAll(Collection<? extends E> c, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        final Object[] a = c.toArray();
+        Node<E> chain = toChain(a, c);
+        int remaining = a.length;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        while (remaining > 0) {
+            int prev = -1, n;
+            putLock.lockInterruptibly();
+            try {
+                while (count.get() == capacity) {
+                    if (nanos <= 0)
+                        return a.length - remaining;
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                n = Math.min(remaining, capacity - count.get());
+                chain = enqueueChain(chain, n);
+                prev = count.getAndAdd(n);
+                if (prev + n < capacity)
+                    notFull.signal();
+            } finally {
+                putLock.unlock();
+            }
+            remaining -= n;
+            if (prev == 0)
+                signalNotEmpty();
+        }
+        return a.length;
+    }
+
     public E take() throws InterruptedException {
         E x;
         int c = -1;
@@ -762,6 +889,50 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Waits for elements under the take lock, and transfers them using
+     * {@link #drainTo(Collection, int)} after releasing it, so that
+     * waiting puts are signalled without holding both locks.
+     *
+     * @throws InterruptedException          {@inheritDoc}
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     * @since 1.8
+     */
+    public int drainTo(Collection<? super E> c, int minElements,
+                       int maxElements, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this || minElements > maxElements)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock takeLock = this.takeLock;
+        final AtomicInteger count = this.count;
+        int n = drainTo(c, maxElements);
+        while (n < minElements) {
+            takeLock.lockInterruptibly();
+            try {
+                while (count.get() == 0) {
+                    if (nanos <= 0)
+                        return n;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                takeLock.unlock();
+            }
+            n += drainTo(c, maxElements - n);
+            // We may have consumed a signal meant for another taker
+            if (count.get() > 0)
+                signalNotEmpty();
+        }
+        return n;
+    }
+
     /**
      * Returns an iterator over the elements in this queue in proper sequence.
      * The elements will be returned in order from first (head) to last (tail).
@@ -0,0 +1,616 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded {@linkplain BlockingQueue blocking queue} that orders
+ * its elements approximately by priority, using the same ordering
+ * rules as class {@link PriorityQueue}, without a lock shared by all
+ * producers or all consumers.
+ *
+ * <p>The queue is a set of independent binary heaps, each with its own
+ * lock (a "multi-queue"). An insertion locks one randomly chosen heap.
+ * A removal looks, without locking, at the heads of two randomly
+ * chosen heaps and removes from the one whose head has the higher
+ * priority. With many producer and consumer threads this keeps the
+ * lock hold times short and spreads them over many locks, where the
+ * single lock of {@link PriorityBlockingQueue} serializes every
+ * operation.
+ *
+ * <p>The price is that ordering is <em>relaxed</em>: {@code poll} and
+ * {@code take} return an element of high but not necessarily the
+ * highest priority. The expected rank of the removed element (the
+ * number of elements in the queue with higher priority) grows with
+ * the number of heaps, not with the size of the queue, so for a queue
+ * that holds many more elements than it has heaps, removals closely
+ * follow priority order. A queue constructed with a single heap is
+ * strictly ordered, like {@code PriorityBlockingQueue}. The
+ * {@link #peek} method scans all heaps and returns the current
+ * highest-priority element, which a following {@code poll} need not
+ * return.
+ *
+ * <p>This class does not permit {@code null} elements. A queue relying
+ * on {@linkplain Comparable natural ordering} also does not permit
+ * insertion of non-comparable objects. The {@code size} method sums
+ * the sizes of all heaps and, like the bulk operations, is only a
+ * snapshot if the queue is being concurrently modified. The iterator
+ * traverses a snapshot of the elements, in no particular order.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class RelaxedPriorityBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Each heap is a PriorityQueue guarded by its own lock (the Heap
+     * itself). After every update under the lock, the heap publishes
+     * its head and size in volatile fields, so removals can choose a
+     * heap, and size() and isEmpty() can be answered, without locking.
+     * Locks are taken with tryLock, moving on to another random heap
+     * on failure; only after as many failures as there are heaps does
+     * a thread block on a lock. Heaps are @Contended to keep their
+     * published fields off each other's cache lines.
+     *
+     * Random choices use ThreadLocalRandom's secondary seed, which is
+     * cheap and does not disturb the caller's ThreadLocalRandom
+     * sequence.
+     *
+     * Idle consumers wait in a ConsumerWaiters stack, as in
+     * StripedBlockingQueue: a consumer pushes itself and then polls
+     * again, which scans the heads of all heaps before giving up; a
+     * producer publishes its heap's new head and then wakes one
+     * waiter.
+     */
+
+    /** Largest number of heaps. */
+    private static final int MAX_HEAPS = 1 << 16;
+
+    /**
+     * Number of heaps used by default: two per available processor,
+     * rounded up to a power of two, so that two random choices rarely
+     * collide on a locked heap.
+     */
+    private static final int DEFAULT_HEAPS =
+        tableSizeFor(2 * Runtime.getRuntime().availableProcessors());
+
+    /** The heaps; length is a power of two. */
+    private final Heap<E>[] heaps;
+
+    /** The comparator, or null if natural ordering. */
+    private final Comparator<? super E> comparator;
+
+    /** Waiting consumers. */
+    private final ConsumerWaiters<E> consumers = new ConsumerWaiters<E>() {
+        E pollElement(int unused) { return poll(); }
+    };
+
+    /**
+     * A binary heap with its own lock, publishing its head and size.
+     */
+    @sun.misc.Contended @SuppressWarnings("serial")
+    static final class Heap<E> extends ReentrantLock {
+        final PriorityQueue<E> queue;
+        /** The head of queue, or null if empty; written under lock. */
+        volatile E top;
+        /** The size of queue; written under lock. */
+        volatile int size;
+        Heap(Comparator<? super E> comparator) {
+            queue = new PriorityQueue<E>(11, comparator);
+        }
+
+        /** Publishes the head and size. Call only when holding lock. */
+        void publish() {
+            top = queue.peek();
+            size = queue.size();
+        }
+    }
+
+    /**
+     * Creates a {@code RelaxedPriorityBlockingQueue} that orders its
+     * elements according to their {@linkplain Comparable natural
+     * ordering}, with two heaps per available processor, rounded up to
+     * a power of two.
+     */
+    public RelaxedPriorityBlockingQueue() {
+        this(DEFAULT_HEAPS, null);
+    }
+
+    /**
+     * Creates a {@code RelaxedPriorityBlockingQueue} that orders its
+     * elements according to the specified comparator, with the default
+     * number of heaps.
+     *
+     * @param comparator the comparator that will be used to order this
+     *        queue.  If {@code null}, the {@linkplain Comparable
+     *        natural ordering} of the elements will be used.
+     */
+    public RelaxedPriorityBlockingQueue(Comparator<? super E> comparator) {
+        this(DEFAULT_HEAPS, comparator);
+    }
+
+    /**
+     * Creates a {@code RelaxedPriorityBlockingQueue} that orders its
+     * elements according to the specified comparator, with the given
+     * number of heaps, rounded up to a power of two. A single heap
+     * gives strict priority order.
+     *
+     * @param heapCount the number of independent heaps
+     * @param comparator the comparator that will be used to order this
+     *        queue.  If {@code null}, the {@linkplain Comparable
+     *        natural ordering} of the elements will be used.
+     * @throws IllegalArgumentException if {@code heapCount} is not
+     *         greater than zero
+     */
+    @SuppressWarnings("unchecked")
+    public RelaxedPriorityBlockingQueue(int heapCount,
+                                        Comparator<? super E> comparator) {
+        if (heapCount <= 0)
+            throw new IllegalArgumentException();
+        int n = tableSizeFor(heapCount);
+        Heap<E>[] hs = (Heap<E>[])new Heap<?>[n];
+        for (int i = 0; i < n; ++i)
+            hs[i] = new Heap<E>(comparator);
+        this.heaps = hs;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Creates a {@code RelaxedPriorityBlockingQueue} with the default
+     * number of heaps and natural ordering, containing the elements of
+     * the specified collection.
+     *
+     * @param c the collection whose elements are to be placed
+     *        into this queue
+     * @throws ClassCastException if elements of the specified collection
+     *         cannot be compared to one another according to the
+     *         natural ordering
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public RelaxedPriorityBlockingQueue(Collection<? extends E> c) {
+        this(DEFAULT_HEAPS, null);
+        for (E e : c)
+            add(e);
+    }
+
+    private static int tableSizeFor(int c) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(c - 1);
+        return (n < 0) ? 1 : (n >= MAX_HEAPS) ? MAX_HEAPS : n + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E x, E y) {
+        Comparator<? super E> cmp = comparator;
+        return (cmp == null) ? ((Comparable<? super E>)x).compareTo(y) :
+            cmp.compare(x, y);
+    }
+
+    // Insertion
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * As the queue is unbounded, this method will never return
+     * {@code false}.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link java.util.Queue#offer})
+     * @throws ClassCastException if the specified element cannot be compared
+     *         with elements currently in the priority queue according to the
+     *         priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        if (comparator == null)
+            compare(e, e); // type check; an empty heap compares nothing
+        final Heap<E>[] hs = heaps;
+        final int mask = hs.length - 1;
+        Heap<E> h;
+        for (int tries = 0;; ++tries) {
+            h = hs[ThreadLocalRandom.nextSecondarySeed() & mask];
+            if (h.tryLock())
+                break;
+            if (tries >= mask) {
+                h.lock();
+                break;
+            }
+        }
+        try {
+            h.queue.offer(e);
+            h.publish();
+        } finally {
+            h.unlock();
+        }
+        consumers.signal();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * As the queue is unbounded, this method will never block.
+     *
+     * @param e the element to add
+     * @throws ClassCastException if the specified element cannot be compared
+     *         with elements currently in the priority queue according to the
+     *         priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public void put(E e) {
+        offer(e); // never need to block
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * As the queue is unbounded, this method will never block or
+     * return {@code false}.
+     *
+     * @param e the element to add
+     * @param timeout This parameter is ignored as the method never blocks
+     * @param unit This parameter is ignored as the method never blocks
+     * @return {@code true} (as specified by
+     *  {@link BlockingQueue#offer(Object,long,TimeUnit) BlockingQueue.offer})
+     * @throws ClassCastException if the specified element cannot be compared
+     *         with elements currently in the priority queue according to the
+     *         priority queue's ordering
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e); // never need to block
+    }
+
+    // Removal
+
+    /**
+     * Retrieves and removes a high-priority element of this queue, or
+     * returns {@code null} if this queue is empty. The element is the
+     * head of the better of two randomly chosen heaps, so it need not
+     * be the highest-priority element; see the class description.
+     *
+     * @return a high-priority element, or {@code null} if this queue
+     *         is empty
+     */
+    public E poll() {
+        final Heap<E>[] hs = heaps;
+        final int mask = hs.length - 1;
+        for (int tries = 0;; ++tries) {
+            Heap<E> h;
+            int r = 0;
+            if (mask == 0)
+                h = hs[0];
+            else {
+                r = ThreadLocalRandom.nextSecondarySeed();
+                Heap<E> a = hs[r & mask], b = hs[(r >>> 16) & mask];
+                E x = a.top, y = b.top;
+                if (x == null)
+                    h = (y != null) ? b : firstNonEmpty(r);
+                else
+                    h = (y == null || compare(x, y) <= 0) ? a : b;
+            }
+            // The chosen heap may have been emptied since its top was
+            // read; report empty only if a full scan finds nothing,
+            // which the rescan in ConsumerWaiters.await relies on.
+            if (h == null || (h.top == null && (h = firstNonEmpty(r)) == null))
+                return null;
+            if (!h.tryLock()) {
+                if (tries < mask)
+                    continue;
+                h.lock();
+            }
+            try {
+                E e = h.queue.poll();
+                if (e != null) {
+                    h.publish();
+                    return e;
+                }
+            } finally {
+                h.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns a non-empty heap, scanning from a random start, or null
+     * if all heaps are empty.
+     */
+    private Heap<E> firstNonEmpty(int r) {
+        final Heap<E>[] hs = heaps;
+        final int n = hs.length;
+        for (int i = 0; i < n; ++i) {
+            Heap<E> h = hs[(r + i) & (n - 1)];
+            if (h.top != null)
+                return h;
+        }
+        return null;
+    }
+
+    public E take() throws InterruptedException {
+        return consumers.await(0, false, 0L);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return consumers.await(0, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Retrieves, but does not remove, the highest-priority element
+     * among the heads of all heaps, or returns {@code null} if this
+     * queue is empty.
+     *
+     * @return the highest-priority element, or {@code null} if this
+     *         queue is empty
+     */
+    public E peek() {
+        E best = null;
+        for (Heap<E> h : heaps) {
+            E x = h.top;
+            if (x != null && (best == null || compare(x, best) < 0))
+                best = x;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the comparator used to order the elements in this queue,
+     * or {@code null} if this queue uses the {@linkplain Comparable
+     * natural ordering} of its elements.
+     *
+     * @return the comparator used to order the elements in this queue,
+     *         or {@code null} if this queue uses the natural
+     *         ordering of its elements
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the number of heaps.
+     *
+     * @return the number of heaps
+     */
+    public int getHeapCount() {
+        return heaps.length;
+    }
+
+    public int size() {
+        long sum = 0L;
+        for (Heap<E> h : heaps)
+            sum += h.size;
+        return (sum >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)sum;
+    }
+
+    public boolean isEmpty() {
+        for (Heap<E> h : heaps)
+            if (h.top != null)
+                return false;
+        return true;
+    }
+
+    /**
+     * Always returns {@code Integer.MAX_VALUE} because
+     * a {@code RelaxedPriorityBlockingQueue} is not capacity constrained.
+     * @return {@code Integer.MAX_VALUE} always
+     */
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.  Returns {@code true} if and only if this queue contained
+     * the specified element (or equivalently, if this queue changed as a
+     * result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o == null) return false;
+        for (Heap<E> h : heaps) {
+            h.lock();
+            try {
+                if (h.queue.remove(o)) {
+                    h.publish();
+                    return true;
+                }
+            } finally {
+                h.unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identity-based version for use in Itr.remove.
+     */
+    void removeEQ(Object o) {
+        for (Heap<E> h : heaps) {
+            h.lock();
+            try {
+                for (Iterator<E> it = h.queue.iterator(); it.hasNext(); ) {
+                    if (it.next() == o) {
+                        it.remove();
+                        h.publish();
+                        return;
+                    }
+                }
+            } finally {
+                h.unlock();
+            }
+        }
+    }
+
+    public boolean contains(Object o) {
+        if (o == null) return false;
+        for (Heap<E> h : heaps) {
+            h.lock();
+            try {
+                if (h.queue.contains(o))
+                    return true;
+            } finally {
+                h.unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue.
+     * The returned array elements are in no particular order.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        ArrayList<Object> list = new ArrayList<Object>();
+        for (Heap<E> h : heaps) {
+            h.lock();
+            try {
+                list.addAll(h.queue);
+            } finally {
+                h.unlock();
+            }
+        }
+        return list.toArray();
+    }
+
+    public <T> T[] toArray(T[] a) {
+        ArrayList<Object> list = new ArrayList<Object>();
+        for (Heap<E> h : heaps) {
+            h.lock();
+            try {
+                list.addAll(h.queue);
+            } finally {
+                h.unlock();
+            }
+        }
+        return list.toArray(a);
+    }
+
+    /**
+     * Atomically removes all of the elements from each heap in turn.
+     * The queue will be empty after this call returns, unless elements
+     * are inserted concurrently.
+     */
+    public void clear() {
+        for (Heap<E> h : heaps) {
+            h.lock();
+            try {
+                h.queue.clear();
+                h.publish();
+            } finally {
+                h.unlock();
+            }
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes elements as if by repeated {@link #poll}, so they are
+     * transferred in approximate priority order.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (E e; n < maxElements && (e = poll()) != null; ++n)
+            c.add(e);
+        return n;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this
+     * queue. The iterator does not return the elements in any
+     * particular order.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    /**
+     * Snapshot iterator that works off copy of underlying q array.
+     */
+    final class Itr implements Iterator<E> {
+        final Object[] array; // Array of all elements
+        int cursor;           // index of next element to return
+        int lastRet;          // index of last element, or -1 if no such
+
+        Itr(Object[] array) {
+            lastRet = -1;
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E)array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeEQ(array[lastRet]);
+            lastRet = -1;
+        }
+    }
+}
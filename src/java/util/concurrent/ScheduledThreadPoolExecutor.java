@@ -351,6 +351,15 @@ public class ScheduledThreadPoolExecutor
         }
     }
 
+    /**
+     * Reports a scheduled task's trigger time, so that the queue-wait
+     * time recorded by metrics is how late the task started.
+     */
+    @Override long queuedTime(Runnable task) {
+        return (task instanceof ScheduledFutureTask) ?
+            ((ScheduledFutureTask<?>)task).time : 0L;
+    }
+
     /**
      * Cancels and clears the queue of all tasks that should not be run
      * due to shutdown policy.  Invoked within super.shutdown.
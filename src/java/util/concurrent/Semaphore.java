@@ -170,6 +170,14 @@ public class Semaphore implements java.io.Serializable {
             setState(permits);
         }
 
+        final void setSpinning(boolean adaptiveSpinning) {
+            setAdaptiveSpinning(adaptiveSpinning);
+        }
+
+        final boolean isSpinning() {
+            return isAdaptiveSpinning();
+        }
+
         final int getPermits() {
             return getState();
         }
@@ -280,6 +288,32 @@ public class Semaphore implements java.io.Serializable {
         sync = fair ? new FairSync(permits) : new NonfairSync(permits);
     }
 
+    /**
+     * Creates a {@code Semaphore} with the given number of
+     * permits and the given fairness and spinning settings.
+     *
+     * <p>With adaptive spinning, a thread that would otherwise block
+     * waiting for permits first spins for a short time, bounded by
+     * the time threads have recently waited for permits, avoiding the
+     * cost of parking and unparking threads when permits are returned
+     * quickly. Spinning is abandoned while waits are long, and never
+     * used on a uniprocessor.
+     *
+     * @param permits the initial number of permits available.
+     *        This value may be negative, in which case releases
+     *        must occur before any acquires will be granted.
+     * @param fair {@code true} if this semaphore will guarantee
+     *        first-in first-out granting of permits under contention,
+     *        else {@code false}
+     * @param adaptiveSpinning {@code true} if waiting threads should
+     *        spin adaptively before blocking
+     * @since 1.8
+     */
+    public Semaphore(int permits, boolean fair, boolean adaptiveSpinning) {
+        this(permits, fair);
+        sync.setSpinning(adaptiveSpinning);
+    }
+
     /**
      * Acquires a permit from this semaphore, blocking until one is
      * available, or the thread is {@linkplain Thread#interrupt interrupted}.
@@ -653,6 +687,16 @@ public class Semaphore implements java.io.Serializable {
         return sync instanceof FairSync;
     }
 
+    /**
+     * Returns {@code true} if this semaphore uses adaptive spinning.
+     *
+     * @return {@code true} if this semaphore uses adaptive spinning
+     * @since 1.8
+     */
+    public boolean isAdaptiveSpinning() {
+        return sync.isSpinning();
+    }
+
     /**
      * Queries whether any threads are waiting to acquire. Note that
      * because cancellations may occur at any time, a {@code true}
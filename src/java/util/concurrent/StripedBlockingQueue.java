@@ -0,0 +1,477 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An optionally-bounded {@linkplain BlockingQueue blocking queue} split
+ * into independent lock-free stripes, intended as the work queue of a
+ * {@link ThreadPoolExecutor} with many worker and submitting threads.
+ *
+ * <p>Each thread is associated with a home stripe, keyed by the same
+ * per-thread probe that {@link ConcurrentHashMap} and
+ * {@link java.util.concurrent.atomic.LongAdder} use to spread
+ * contention. Insertions go to the caller's home stripe (or the next
+ * stripe with free capacity); removals take from the caller's home
+ * stripe first and otherwise steal from the other stripes. A worker
+ * that finds every stripe empty parks until an insertion signals it.
+ * There is no lock shared by all producers or all consumers, so
+ * throughput keeps scaling where {@link LinkedBlockingQueue}'s put and
+ * take locks saturate.
+ *
+ * <p>This queue orders elements FIFO only within each stripe: elements
+ * inserted by one thread are removed in insertion order relative to
+ * each other, but there is no ordering among elements inserted by
+ * different threads. That is the same guarantee a thread pool gives
+ * for tasks submitted concurrently, so this queue can be used with
+ * {@code ThreadPoolExecutor} without changing its sizing or rejection
+ * behavior: an {@link #offer} that finds every stripe full still makes
+ * the pool add a worker or reject the task.
+ *
+ * <p>The optional capacity bound is divided evenly among the stripes.
+ * The {@code size} method is not a constant-time operation and, like
+ * the bulk operations and iterators, is only weakly consistent with
+ * concurrent updates.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class StripedBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Each stripe is a ConcurrentLinkedQueue plus a count used both for
+     * capacity reservation and for size(). A producer reserves a slot
+     * in a stripe by CASing its count below the stripe's capacity
+     * before linking the element, so the count may briefly run ahead
+     * of the queue; a consumer decrements it only after a successful
+     * poll. The counts are @Contended to keep neighbouring stripes off
+     * the same cache line.
+     *
+     * Idle consumers wait in a ConsumerWaiters stack: a consumer
+     * pushes itself and then rescans all stripes, starting from its
+     * home stripe; a producer links its element and then wakes one
+     * waiter.
+     */
+
+    /** Largest number of stripes. */
+    private static final int MAX_STRIPES = 1 << 16;
+
+    /** Number of stripes used by default. */
+    private static final int DEFAULT_STRIPES =
+        tableSizeFor(Runtime.getRuntime().availableProcessors());
+
+    /** Capacity bound, or Integer.MAX_VALUE if none. */
+    private final int capacity;
+
+    /** The stripes; length is a power of two. */
+    private final Stripe<E>[] stripes;
+
+    /** Waiting consumers, rescanning from the given home stripe. */
+    private final ConsumerWaiters<E> consumers = new ConsumerWaiters<E>() {
+        E pollElement(int home) { return pollFrom(home); }
+    };
+
+    /**
+     * A lock-free queue with its own element count.
+     */
+    @sun.misc.Contended static final class Stripe<E> {
+        final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<E>();
+        final AtomicInteger count = new AtomicInteger();
+        final int capacity;
+        Stripe(int capacity) { this.capacity = capacity; }
+
+        /** Reserves room for one element. */
+        boolean reserve() {
+            for (int c;;) {
+                if ((c = count.get()) >= capacity)
+                    return false;
+                if (count.compareAndSet(c, c + 1))
+                    return true;
+            }
+        }
+
+        E poll() {
+            E e = queue.poll();
+            if (e != null)
+                count.decrementAndGet();
+            return e;
+        }
+
+        /**
+         * Removes an occurrence of o, releasing its slot only if one
+         * was actually removed.
+         */
+        boolean remove(Object o) {
+            if (!queue.remove(o))
+                return false;
+            count.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Creates a {@code StripedBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE} and one stripe per available processor,
+     * rounded up to a power of two.
+     */
+    public StripedBlockingQueue() {
+        this(Integer.MAX_VALUE, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a {@code StripedBlockingQueue} with the given (fixed)
+     * capacity and the default number of stripes.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is not greater
+     *         than zero
+     */
+    public StripedBlockingQueue(int capacity) {
+        this(capacity, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a {@code StripedBlockingQueue} with the given (fixed)
+     * capacity and number of stripes. The number of stripes is rounded
+     * up to a power of two, but never exceeds the capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @param stripeCount the number of independent stripes
+     * @throws IllegalArgumentException if {@code capacity} or
+     *         {@code stripeCount} is not greater than zero
+     */
+    @SuppressWarnings("unchecked")
+    public StripedBlockingQueue(int capacity, int stripeCount) {
+        if (capacity <= 0 || stripeCount <= 0)
+            throw new IllegalArgumentException();
+        int n = Math.min(tableSizeFor(stripeCount), Integer.highestOneBit(capacity));
+        Stripe<E>[] ss = (Stripe<E>[])new Stripe<?>[n];
+        int per = capacity / n, extra = capacity % n;
+        for (int i = 0; i < n; ++i)
+            ss[i] = new Stripe<E>(capacity == Integer.MAX_VALUE ? capacity :
+                                  per + (i < extra ? 1 : 0));
+        this.capacity = capacity;
+        this.stripes = ss;
+    }
+
+    /**
+     * Creates a {@code StripedBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE}, initially containing the elements of
+     * the given collection, added in traversal order of the
+     * collection's iterator.
+     *
+     * @param c the collection of elements to initially contain
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public StripedBlockingQueue(Collection<? extends E> c) {
+        this(Integer.MAX_VALUE, DEFAULT_STRIPES);
+        for (E e : c)
+            add(e);
+    }
+
+    private static int tableSizeFor(int c) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(c - 1);
+        return (n < 0) ? 1 : (n >= MAX_STRIPES) ? MAX_STRIPES : n + 1;
+    }
+
+    /**
+     * Returns the index of the calling thread's home stripe.
+     */
+    private int homeIndex() {
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();      // force initialization
+            h = ThreadLocalRandom.getProbe();
+        }
+        return h & (stripes.length - 1);
+    }
+
+    /**
+     * Polls the given stripe, then every other stripe in turn.
+     */
+    private E pollFrom(int home) {
+        Stripe<E>[] ss = stripes;
+        int n = ss.length;
+        for (int i = 0; i < n; ++i) {
+            E e = ss[(home + i) & (n - 1)].poll();
+            if (e != null)
+                return e;
+        }
+        return null;
+    }
+
+    // Insertion
+
+    /**
+     * Inserts the specified element into this queue if it is possible
+     * to do so immediately without exceeding the queue's capacity,
+     * returning {@code true} upon success and {@code false} if every
+     * stripe is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        Stripe<E>[] ss = stripes;
+        int n = ss.length, home = homeIndex();
+        for (int i = 0; i < n; ++i) {
+            Stripe<E> s = ss[(home + i) & (n - 1)];
+            if (s.reserve()) {
+                s.queue.offer(e);
+                consumers.signal();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if
+     * necessary up to the specified wait time for space to become
+     * available. Producers wait by backing off rather than on a
+     * condition, since in a thread pool the queue is rarely full.
+     *
+     * @return {@code true} if successful, or {@code false} if
+     *         the specified waiting time elapses before space is available
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null) throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        for (long backoff = 1000L; !offer(e); ) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if ((nanos = deadline - System.nanoTime()) <= 0L)
+                return false;
+            LockSupport.parkNanos(this, Math.min(backoff, nanos));
+            if (backoff < 1000000L)
+                backoff <<= 1;
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if
+     * necessary for space to become available.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    // Removal
+
+    public E poll() {
+        return pollFrom(homeIndex());
+    }
+
+    public E take() throws InterruptedException {
+        return consumers.await(homeIndex(), false, 0L);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return consumers.await(homeIndex(), true, unit.toNanos(timeout));
+    }
+
+    public E peek() {
+        Stripe<E>[] ss = stripes;
+        int n = ss.length, home = homeIndex();
+        for (int i = 0; i < n; ++i) {
+            E e = ss[(home + i) & (n - 1)].queue.peek();
+            if (e != null)
+                return e;
+        }
+        return null;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o == null) return false;
+        for (Stripe<E> s : stripes) {
+            if (s.remove(o))
+                return true;
+        }
+        return false;
+    }
+
+    public boolean contains(Object o) {
+        if (o == null) return false;
+        for (Stripe<E> s : stripes)
+            if (s.queue.contains(o))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the number of elements in this queue. The result is
+     * only a snapshot if the queue is being concurrently modified.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long sum = 0L;
+        for (Stripe<E> s : stripes)
+            sum += s.count.get();
+        return (sum >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)sum;
+    }
+
+    public boolean isEmpty() {
+        for (Stripe<E> s : stripes)
+            if (!s.queue.isEmpty())
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking, or {@code Integer.MAX_VALUE} if unbounded.
+     */
+    public int remainingCapacity() {
+        return (capacity == Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+            Math.max(0, capacity - size());
+    }
+
+    /**
+     * Returns the number of stripes.
+     *
+     * @return the number of stripes
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public void clear() {
+        for (Stripe<E> s : stripes)
+            while (s.poll() != null)
+                ;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (Stripe<E> s : stripes) {
+            E e;
+            while (n < maxElements && (e = s.poll()) != null) {
+                c.add(e);
+                ++n;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue, stripe by
+     * stripe.
+     *
+     * <p>The returned iterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements Iterator<E> {
+        private int index;
+        private Iterator<E> it = stripes[0].queue.iterator();
+        private Stripe<E> lastStripe;
+        private E lastRet;
+
+        public boolean hasNext() {
+            while (!it.hasNext()) {
+                if (++index >= stripes.length)
+                    return false;
+                it = stripes[index].queue.iterator();
+            }
+            return true;
+        }
+
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastStripe = stripes[index];
+            return lastRet = it.next();
+        }
+
+        /**
+         * Removes the last element returned through its stripe rather
+         * than the stripe iterator, whose remove does not report
+         * whether it lost a race with a concurrent poll, so that the
+         * count is released only for an element actually removed.
+         */
+        public void remove() {
+            Stripe<E> s = lastStripe;
+            if (s == null)
+                throw new IllegalStateException();
+            lastStripe = null;
+            s.remove(lastRet);
+            lastRet = null;
+        }
+    }
+}
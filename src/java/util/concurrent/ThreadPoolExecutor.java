@@ -576,6 +576,71 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     /* The context to be used when executing the finalizer, or null. */
     private final AccessControlContext acc;
 
+    /**
+     * Runtime metrics, or null if not enabled. Set once, under mainLock.
+     */
+    private volatile ExecutorMetrics metrics;
+
+    /**
+     * The System.nanoTime() at which each task queued by execute was
+     * queued, keyed by task identity, or null if metrics are not
+     * enabled. Tasks themselves are queued as given, so that queue
+     * orderings, getQueue(), remove and shutdownNow see the caller's
+     * tasks. Entries are removed when a task is taken, removed or
+     * drained; a task that is already queued is not timed again.
+     * Tasks taken out through getQueue() (as by DiscardOldestPolicy)
+     * leave their entries behind until execute prunes the map.
+     */
+    private volatile ConcurrentHashMap<QueuedTask, Long> queuedTimes;
+
+    /**
+     * The size of queuedTimes above which execute prunes it: twice its
+     * size after the last pruning, and at least QUEUED_TIMES_SLACK.
+     */
+    private volatile long queuedTimesLimit = QUEUED_TIMES_SLACK;
+
+    /** The smallest limit on the size of queuedTimes. */
+    private static final int QUEUED_TIMES_SLACK = 1024;
+
+    /**
+     * Identity key of a task in queuedTimes.
+     */
+    static final class QueuedTask {
+        final Runnable task;
+        QueuedTask(Runnable task) { this.task = task; }
+        public int hashCode() { return System.identityHashCode(task); }
+        public boolean equals(Object o) {
+            return (o instanceof QueuedTask) && ((QueuedTask)o).task == task;
+        }
+    }
+
+    /**
+     * Removes the queue times of tasks that are no longer queued. The
+     * cost is linear in the sizes of the queue and the map, so it is
+     * amortized over the insertions that doubled the map since the
+     * last pruning. A task being queued or taken concurrently may lose
+     * its entry, and then goes untimed.
+     */
+    private void pruneQueuedTimes(ConcurrentHashMap<QueuedTask, Long> times) {
+        Set<QueuedTask> queued = new HashSet<QueuedTask>();
+        for (Object r : workQueue.toArray()) {
+            if (r instanceof Runnable)
+                queued.add(new QueuedTask((Runnable)r));
+        }
+        times.keySet().retainAll(queued);
+        queuedTimesLimit = Math.max(2 * times.mappingCount(), QUEUED_TIMES_SLACK);
+    }
+
+    /**
+     * Forgets the queue time of a task that left the queue other than
+     * through getTask.
+     */
+    private void forgetQueuedTime(Object task) {
+        ConcurrentHashMap<QueuedTask, Long> times = queuedTimes;
+        if (times != null && task instanceof Runnable)
+            times.remove(new QueuedTask((Runnable)task));
+    }
+
     /**
      * Class Worker mainly maintains interrupt control state for
      * threads running tasks, along with other minor bookkeeping.
@@ -706,6 +771,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             }
 
             final ReentrantLock mainLock = this.mainLock;
+            ExecutorMetrics terminatedMetrics = null;
             mainLock.lock();
             try {
                 if (ctl.compareAndSet(c, ctlOf(TIDYING, 0))) {
@@ -714,11 +780,19 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                     } finally {
                         ctl.set(ctlOf(TERMINATED, 0));
                         termination.signalAll();
+                        terminatedMetrics = metrics;
+                        ConcurrentHashMap<QueuedTask, Long> times = queuedTimes;
+                        if (times != null)
+                            times.clear();
                     }
                     return;
                 }
             } finally {
                 mainLock.unlock();
+                // Unregister from the platform MBean server without
+                // holding mainLock
+                if (terminatedMetrics != null)
+                    terminatedMetrics.unregister();
             }
             // else retry on failed CAS
         }
@@ -827,9 +901,23 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * Package-protected for use by ScheduledThreadPoolExecutor.
      */
     final void reject(Runnable command) {
+        ExecutorMetrics m = metrics;
+        if (m != null)
+            m.recordRejection();
         handler.rejectedExecution(command, this);
     }
 
+    /**
+     * Returns the time, in System.nanoTime() units, at which a task
+     * taken from the queue became eligible to run, or 0 if unknown.
+     * Tasks queued by execute are looked up in queuedTimes by
+     * runWorker instead. Overridden by ScheduledThreadPoolExecutor to
+     * report trigger times.
+     */
+    long queuedTime(Runnable task) {
+        return 0L;
+    }
+
     /**
      * Performs any further cleanup following run state transition on
      * invocation of shutdown.  A no-op here, but used by
@@ -865,6 +953,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                     taskList.add(r);
             }
         }
+        if (queuedTimes != null) {
+            for (Runnable r : taskList)
+                forgetQueuedTime(r);
+        }
         return taskList;
     }
 
@@ -956,6 +1048,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                 if (workerAdded) {
                     t.start();
                     workerStarted = true;
+                    ExecutorMetrics m = metrics;
+                    if (m != null)
+                        m.recordWorkerStarted();
                 }
             }
         } finally {
@@ -1010,6 +1105,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         } finally {
             mainLock.unlock();
         }
+        ExecutorMetrics m = metrics;
+        if (m != null)
+            m.recordWorkerRetired();
 
         tryTerminate();
 
@@ -1069,9 +1167,16 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             }
 
             try {
-                Runnable r = timed ?
-                    workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
-                    workQueue.take();
+                // With metrics, poll first so that only waits that
+                // find the queue empty are counted as parks
+                ExecutorMetrics m = metrics;
+                Runnable r = null;
+                if (m != null && (r = workQueue.poll()) == null)
+                    m.recordPark();
+                if (r == null)
+                    r = timed ?
+                        workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
+                        workQueue.take();
                 if (r != null)
                     return r;
                 timedOut = true;
@@ -1131,7 +1236,24 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         w.unlock(); // allow interrupts
         boolean completedAbruptly = true;
         try {
+            boolean direct = task != null;
             while (task != null || (task = getTask()) != null) {
+                ExecutorMetrics m = metrics;
+                long start = 0L;
+                if (m != null) {
+                    start = System.nanoTime();
+                    ConcurrentHashMap<QueuedTask, Long> times;
+                    Long queuedAt;
+                    long t;
+                    if (direct)
+                        m.recordQueueWait(0L);
+                    else if ((times = queuedTimes) != null &&
+                             (queuedAt = times.remove(new QueuedTask(task))) != null)
+                        m.recordQueueWait(start - queuedAt.longValue());
+                    else if ((t = queuedTime(task)) != 0L)
+                        m.recordQueueWait(start - t);
+                }
+                direct = false;
                 w.lock();
                 // If pool is stopping, ensure thread is interrupted;
                 // if not, ensure thread is not interrupted.  This
@@ -1160,6 +1282,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                     task = null;
                     w.completedTasks++;
                     w.unlock();
+                    if (m != null)
+                        m.recordRunTime(System.nanoTime() - start);
                 }
             }
             completedAbruptly = false;
@@ -1368,15 +1492,26 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                 return;
             c = ctl.get();
         }
+        ConcurrentHashMap<QueuedTask, Long> times = queuedTimes;
+        QueuedTask key = null;
+        if (times != null &&
+            times.putIfAbsent(key = new QueuedTask(command), System.nanoTime()) != null)
+            key = null;         // already queued; not timed again
         if (isRunning(c) && workQueue.offer(command)) {
+            if (key != null && times.mappingCount() > queuedTimesLimit)
+                pruneQueuedTimes(times);
             int recheck = ctl.get();
             if (! isRunning(recheck) && remove(command))
                 reject(command);
             else if (workerCountOf(recheck) == 0)
                 addWorker(null, false);
         }
-        else if (!addWorker(command, false))
-            reject(command);
+        else {
+            if (key != null)
+                times.remove(key);
+            if (!addWorker(command, false))
+                reject(command);
+        }
     }
 
     /**
@@ -1732,6 +1867,75 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         return unit.convert(keepAliveTime, TimeUnit.NANOSECONDS);
     }
 
+    /* Metrics */
+
+    /**
+     * Enables runtime metrics for this executor under the given name,
+     * or returns the existing metrics if already enabled. From then
+     * on, until this executor terminates, each task's queue-wait and
+     * run time is recorded, along with rejections, idle worker waits
+     * and worker thread starts and exits, and the metrics are
+     * published as an {@link java.lang.management.ExecutorMXBean} in
+     * the platform MBean server.
+     *
+     * <p>While metrics are enabled, the time at which
+     * {@link #execute} queues each task is kept in a map keyed by task
+     * identity; the queue holds the tasks themselves. A task that is
+     * queued again while still queued, or that is removed through
+     * {@link #getQueue} rather than {@link #remove}, {@link #purge}
+     * or {@link #shutdownNow}, is not timed; in the latter case its
+     * entry is dropped when this executor terminates.
+     *
+     * @param name the name identifying this executor's metrics
+     * @return the metrics of this executor
+     * @throws NullPointerException if name is null
+     * @throws IllegalArgumentException if the name is already used by
+     *         the metrics of another live executor
+     * @since 1.8
+     */
+    public ExecutorMetrics enableMetrics(String name) {
+        if (name == null)
+            throw new NullPointerException();
+        ExecutorMetrics m;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if ((m = metrics) != null)
+                return m;
+            m = new ExecutorMetrics(name, this);
+            m.register();
+            queuedTimes = new ConcurrentHashMap<QueuedTask, Long>();
+            metrics = m;
+        } finally {
+            mainLock.unlock();
+        }
+        m.publish();
+        if (isTerminated())
+            m.unregister();
+        return m;
+    }
+
+    /**
+     * Returns the runtime metrics of this executor, or {@code null} if
+     * they were never enabled.
+     *
+     * @return the metrics of this executor, or {@code null}
+     * @see #enableMetrics
+     * @since 1.8
+     */
+    public ExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the worker count without acquiring mainLock. Used by
+     * ExecutorMetrics.
+     */
+    final int getWorkerCountEstimate() {
+        int c = ctl.get();
+        return runStateAtLeast(c, TIDYING) ? 0 : workerCountOf(c);
+    }
+
     /* User-level queue utilities */
 
     /**
@@ -1764,6 +1968,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     public boolean remove(Runnable task) {
         boolean removed = workQueue.remove(task);
+        if (removed)
+            forgetQueuedTime(task);
         tryTerminate(); // In case SHUTDOWN and now empty
         return removed;
     }
@@ -1784,16 +1990,19 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             Iterator<Runnable> it = q.iterator();
             while (it.hasNext()) {
                 Runnable r = it.next();
-                if (r instanceof Future<?> && ((Future<?>)r).isCancelled())
+                if (r instanceof Future<?> && ((Future<?>)r).isCancelled()) {
                     it.remove();
+                    forgetQueuedTime(r);
+                }
             }
         } catch (ConcurrentModificationException fallThrough) {
             // Take slow path if we encounter interference during traversal.
             // Make copy for traversal and call remove for cancelled entries.
             // The slow path is more likely to be O(N*N).
             for (Object r : q.toArray())
-                if (r instanceof Future<?> && ((Future<?>)r).isCancelled())
-                    q.remove(r);
+                if (r instanceof Future<?> && ((Future<?>)r).isCancelled() &&
+                    q.remove(r))
+                    forgetQueuedTime(r);
         }
 
         tryTerminate(); // In case SHUTDOWN and now empty
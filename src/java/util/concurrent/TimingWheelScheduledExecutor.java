@@ -0,0 +1,809 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps delayed tasks in a
+ * hierarchical timing wheel instead of a priority queue. Scheduling
+ * and cancelling a task are O(1) and never contend on a global lock,
+ * which makes this class preferable to {@link ScheduledThreadPoolExecutor}
+ * when very large numbers of short-lived timeouts are scheduled and
+ * most of them are cancelled before they fire.
+ *
+ * <p>Time is divided into ticks of a fixed duration. Delayed tasks are
+ * enabled at the first tick boundary at or after their trigger time, so
+ * they may run up to one tick later than requested, but never sooner.
+ * Tasks with a zero or negative delay are handed to the worker threads
+ * immediately. Tasks enabled on the same tick are started in
+ * first-in-first-out order of submission.
+ *
+ * <p>A single ticker thread owns the wheel; submitting threads only
+ * append to a non-blocking queue that the ticker drains once per tick.
+ * Enabled tasks are executed by a fixed pool of {@code corePoolSize}
+ * worker threads. A cancelled task is unlinked from the wheel at the
+ * next tick, so, unlike {@code ScheduledThreadPoolExecutor} without
+ * {@link ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy
+ * removeOnCancel}, cancelled tasks do not linger until their delay
+ * elapses. While no tasks are pending the ticker parks and consumes
+ * no CPU.
+ *
+ * <p>On {@link #shutdown}, periodic tasks are cancelled and already
+ * delayed tasks still run, matching the default policies of
+ * {@code ScheduledThreadPoolExecutor}.
+ *
+ * @since 1.8
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+    implements ScheduledExecutorService {
+
+    /*
+     * The wheel is a classic hierarchical timing wheel (Varghese and
+     * Lauck) laid out as in the original Linux kernel timers: level 0
+     * has one bucket per tick, and every higher level has buckets
+     * covering wheelSize times as many ticks as the level below.
+     * Overflow levels are allocated lazily, on the first task that
+     * needs them, so the common case of short timeouts touches only
+     * level 0. A task is placed by the distance between its deadline
+     * tick and the current tick; its bucket index is taken from the
+     * absolute deadline tick, so buckets never need to be rotated.
+     * Whenever the level 0 index wraps around, the next bucket of
+     * level 1 is cascaded down (and so on upwards), re-placing each
+     * of its tasks at a lower level.
+     *
+     * Buckets are intrusive doubly-linked lists through the tasks
+     * themselves, so unlinking a cancelled task is O(1). All bucket
+     * manipulation happens in the ticker thread; other threads
+     * communicate with it through the "pending" queue (newly scheduled
+     * and rescheduled periodic tasks) and the "cancelled" queue, both
+     * non-blocking. The ticker is woken from an indefinite park only
+     * when it announced being idle, using the usual Dekker-style
+     * volatile write/read pair on tickerIdle and the pending queue.
+     *
+     * Shutdown follows ThreadPoolExecutor: each submission rechecks
+     * the run state after enqueuing and withdraws its task if the
+     * state changed, so no task can be stranded in the pending queue
+     * after the ticker exits. shutdownNow waits for the ticker to exit
+     * and then drains the wheel itself.
+     */
+
+    /** Default tick duration: one millisecond. */
+    private static final long DEFAULT_TICK_NANOS = 1000L * 1000L;
+
+    /** Default number of buckets per level. */
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /** Largest allowed number of buckets per level. */
+    private static final int MAXIMUM_WHEEL_SIZE = 1 << 16;
+
+    // run states
+    private static final int RUNNING  = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP     = 2;
+
+    private final AtomicInteger runState = new AtomicInteger(RUNNING);
+
+    /** Tick duration in nanoseconds. */
+    private final long tickNanos;
+
+    /** log2 of the number of buckets per level. */
+    private final int wheelBits;
+
+    private final int wheelMask;
+
+    /** Number of levels needed to cover every non-negative long tick. */
+    private final int levels;
+
+    /** Wheel levels; level 0 is eager, higher levels are lazily created. */
+    private final Bucket[][] wheels;
+
+    /** Origin of the tick count, in System.nanoTime() units. */
+    private final long startTime;
+
+    /** The next tick to process. Accessed only by the ticker. */
+    private long currentTick;
+
+    /** Number of tasks linked into the wheel. Accessed only by the ticker. */
+    private long wheelCount;
+
+    /** Newly scheduled tasks not yet placed in the wheel. */
+    private final ConcurrentLinkedQueue<ScheduledTimerTask<?>> pending =
+        new ConcurrentLinkedQueue<ScheduledTimerTask<?>>();
+
+    /** Tasks cancelled since the last tick, to be unlinked. */
+    private final ConcurrentLinkedQueue<ScheduledTimerTask<?>> cancelled =
+        new ConcurrentLinkedQueue<ScheduledTimerTask<?>>();
+
+    /** Sequence number to break scheduling ties. */
+    private final AtomicLong sequencer = new AtomicLong();
+
+    /** Runs enabled tasks. */
+    private final ThreadPoolExecutor workers;
+
+    private final Thread ticker;
+
+    /** Set while the ticker is parked without a timeout. */
+    private volatile boolean tickerIdle;
+
+    /** Released when the ticker exits. */
+    private final CountDownLatch tickerDone = new CountDownLatch(1);
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * core pool size, a tick of one millisecond and 512 buckets per
+     * wheel level.
+     *
+     * @param corePoolSize the number of worker threads
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0}
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize) {
+        this(corePoolSize, DEFAULT_TICK_NANOS, NANOSECONDS, DEFAULT_WHEEL_SIZE,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * core pool size and tick duration, and 512 buckets per wheel level.
+     *
+     * @param corePoolSize the number of worker threads
+     * @param tickDuration the granularity of delays
+     * @param unit the time unit of the tickDuration argument
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0} or
+     *         {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize, long tickDuration,
+                                        TimeUnit unit) {
+        this(corePoolSize, tickDuration, unit, DEFAULT_WHEEL_SIZE,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimingWheelScheduledExecutor} with the given
+     * parameters.
+     *
+     * @param corePoolSize the number of worker threads
+     * @param tickDuration the granularity of delays
+     * @param unit the time unit of the tickDuration argument
+     * @param wheelSize the number of buckets per wheel level, rounded
+     *        up to a power of two
+     * @param threadFactory the factory to use when creating the ticker
+     *        and worker threads
+     * @throws IllegalArgumentException if {@code corePoolSize <= 0},
+     *         {@code tickDuration <= 0}, or {@code wheelSize} is less
+     *         than 2 or greater than 65536
+     * @throws NullPointerException if {@code unit} or
+     *         {@code threadFactory} is null
+     */
+    public TimingWheelScheduledExecutor(int corePoolSize, long tickDuration,
+                                        TimeUnit unit, int wheelSize,
+                                        ThreadFactory threadFactory) {
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        long nanos = unit.toNanos(tickDuration);
+        if (corePoolSize <= 0 || nanos <= 0 ||
+            wheelSize < 2 || wheelSize > MAXIMUM_WHEEL_SIZE)
+            throw new IllegalArgumentException();
+        int bits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.tickNanos = nanos;
+        this.wheelBits = bits;
+        this.wheelMask = (1 << bits) - 1;
+        this.levels = (63 + bits - 1) / bits;
+        this.wheels = new Bucket[levels][];
+        this.wheels[0] = newWheel();
+        this.workers = new ThreadPoolExecutor(corePoolSize, corePoolSize,
+                                              0L, TimeUnit.MILLISECONDS,
+                                              new LinkedBlockingQueue<Runnable>(),
+                                              threadFactory);
+        this.startTime = System.nanoTime();
+        Thread t = threadFactory.newThread(new Runnable() {
+            public void run() { runTicker(); }
+        });
+        if (t == null)
+            throw new IllegalArgumentException("threadFactory returned null");
+        this.ticker = t;
+        t.start();
+    }
+
+    private Bucket[] newWheel() {
+        Bucket[] wheel = new Bucket[wheelMask + 1];
+        for (int i = 0; i < wheel.length; ++i)
+            wheel[i] = new Bucket();
+        return wheel;
+    }
+
+    /**
+     * Returns the tick duration in the given unit.
+     *
+     * @param unit the time unit of the result
+     * @return the tick duration
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return the number of worker threads
+     */
+    public int getCorePoolSize() {
+        return workers.getCorePoolSize();
+    }
+
+    // Ticker
+
+    private void runTicker() {
+        boolean periodicSwept = false;
+        try {
+            for (;;) {
+                int rs = runState.get();
+                if (rs == STOP)
+                    break;
+                long elapsed = (System.nanoTime() - startTime) / tickNanos;
+                if (wheelCount == 0 && currentTick < elapsed)
+                    currentTick = elapsed;      // nothing to cascade; skip idle ticks
+                do {
+                    transferPending();
+                    unlinkCancelled();
+                    if (currentTick > elapsed)
+                        break;
+                    advance();
+                } while (runState.get() != STOP);
+                if (rs == SHUTDOWN) {
+                    if (!periodicSwept) {
+                        cancelPeriodicTasks();
+                        periodicSwept = true;
+                    }
+                    if (wheelCount == 0 && pending.isEmpty())
+                        break;
+                }
+                if (wheelCount != 0) {
+                    long wait = startTime + currentTick * tickNanos - System.nanoTime();
+                    if (wait > 0)
+                        LockSupport.parkNanos(this, wait);
+                } else if (rs == RUNNING) {
+                    tickerIdle = true;
+                    if (pending.isEmpty() && runState.get() == RUNNING)
+                        LockSupport.park(this);
+                    tickerIdle = false;
+                }
+                Thread.interrupted();           // clear any stray interrupt
+            }
+        } finally {
+            tickerDone.countDown();
+            if (runState.get() != STOP)
+                workers.shutdown();
+        }
+    }
+
+    /**
+     * Places newly scheduled tasks. Cancelled ones are dropped, and
+     * periodic ones are cancelled if the executor is shutting down.
+     */
+    private void transferPending() {
+        boolean shutdown = runState.get() != RUNNING;
+        for (ScheduledTimerTask<?> t; (t = pending.poll()) != null; ) {
+            if (t.isCancelled())
+                continue;
+            if (shutdown && t.isPeriodic()) {
+                t.cancel(false);
+                continue;
+            }
+            t.deadlineTick = deadlineTick(t.time);
+            place(t);
+            ++wheelCount;
+        }
+    }
+
+    private void unlinkCancelled() {
+        for (ScheduledTimerTask<?> t; (t = cancelled.poll()) != null; ) {
+            Bucket b = t.bucket;
+            if (b != null) {
+                b.remove(t);
+                --wheelCount;
+            }
+        }
+    }
+
+    /**
+     * Links the task into the bucket matching its distance from the
+     * current tick. Overdue tasks go into the current tick's bucket.
+     */
+    private void place(ScheduledTimerTask<?> t) {
+        long expires = Math.max(t.deadlineTick, currentTick);
+        long distance = expires - currentTick;
+        int level = 0;
+        while (level < levels - 1 && (distance >>> (wheelBits * (level + 1))) != 0)
+            ++level;
+        Bucket[] wheel = wheels[level];
+        if (wheel == null)
+            wheels[level] = wheel = newWheel();
+        wheel[(int)(expires >>> (wheelBits * level)) & wheelMask].add(t);
+    }
+
+    /**
+     * Processes the current tick: cascades higher levels when the
+     * level 0 index wraps, then enables every task in the tick's bucket.
+     */
+    private void advance() {
+        int index = (int)currentTick & wheelMask;
+        if (index == 0) {
+            for (int level = 1; level < levels; ++level) {
+                int slot = (int)(currentTick >>> (wheelBits * level)) & wheelMask;
+                Bucket[] wheel = wheels[level];
+                if (wheel != null) {
+                    ScheduledTimerTask<?> t = wheel[slot].clear();
+                    while (t != null) {
+                        ScheduledTimerTask<?> next = t.next;
+                        t.next = null;
+                        place(t);
+                        t = next;
+                    }
+                }
+                if (slot != 0)
+                    break;
+            }
+        }
+        ++currentTick;
+        Bucket bucket = wheels[0][index];
+        ScheduledTimerTask<?> t = bucket.clear();
+        while (t != null) {
+            ScheduledTimerTask<?> next = t.next;
+            t.next = null;
+            --wheelCount;
+            if (!t.isCancelled()) {
+                try {
+                    workers.execute(t);
+                } catch (RejectedExecutionException ex) {
+                    t.cancel(false);
+                }
+            }
+            t = next;
+        }
+    }
+
+    private void cancelPeriodicTasks() {
+        for (Bucket[] wheel : wheels) {
+            if (wheel == null)
+                continue;
+            for (Bucket b : wheel) {
+                for (ScheduledTimerTask<?> t = b.head; t != null; ) {
+                    ScheduledTimerTask<?> next = t.next;
+                    if (t.isPeriodic()) {
+                        b.remove(t);
+                        --wheelCount;
+                        t.cancel(false);
+                    }
+                    t = next;
+                }
+            }
+        }
+    }
+
+    private void wakeTicker() {
+        LockSupport.unpark(ticker);
+    }
+
+    /**
+     * Returns the first tick at or after the given nanoTime.
+     */
+    private long deadlineTick(long time) {
+        long d = time - startTime;
+        if (d <= 0)
+            return 0L;
+        return d / tickNanos + ((d % tickNanos == 0) ? 0 : 1);
+    }
+
+    // Scheduling
+
+    /**
+     * Returns the trigger time of a delayed action, constrained so that
+     * differences between trigger times cannot overflow.
+     */
+    private long triggerTime(long delay, TimeUnit unit) {
+        long d = unit.toNanos(delay);
+        if (d < 0)
+            d = 0;
+        return System.nanoTime() + Math.min(d, Long.MAX_VALUE >> 1);
+    }
+
+    /**
+     * Main submission path: runs the task now if it is already due,
+     * otherwise hands it to the ticker.
+     */
+    private void delayedExecute(ScheduledTimerTask<?> task) {
+        if (runState.get() != RUNNING)
+            throw new RejectedExecutionException();
+        if (task.time - System.nanoTime() <= 0) {
+            workers.execute(task);
+            return;
+        }
+        enqueue(task);
+        if (runState.get() != RUNNING && pending.remove(task)) {
+            task.cancel(false);
+            throw new RejectedExecutionException();
+        }
+    }
+
+    /**
+     * Requeues a periodic task after a successful run, unless the
+     * executor is shutting down.
+     */
+    void reExecutePeriodic(ScheduledTimerTask<?> task) {
+        if (runState.get() == RUNNING) {
+            enqueue(task);
+            if (runState.get() == RUNNING || !pending.remove(task))
+                return;
+        }
+        task.cancel(false);
+    }
+
+    private void enqueue(ScheduledTimerTask<?> task) {
+        task.delayed = true;
+        pending.offer(task);
+        if (tickerIdle)
+            wakeTicker();
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        ScheduledTimerTask<Void> t =
+            new ScheduledTimerTask<Void>(command, null, triggerTime(delay, unit), 0);
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        ScheduledTimerTask<V> t =
+            new ScheduledTimerTask<V>(callable, triggerTime(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        ScheduledTimerTask<Void> t =
+            new ScheduledTimerTask<Void>(command, null,
+                                         triggerTime(initialDelay, unit),
+                                         unit.toNanos(period));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        ScheduledTimerTask<Void> t =
+            new ScheduledTimerTask<Void>(command, null,
+                                         triggerTime(initialDelay, unit),
+                                         unit.toNanos(-delay));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} with zero required delay.
+     *
+     * @throws RejectedExecutionException if the task cannot be accepted
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    // Lifecycle
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * delayed tasks are executed, periodic tasks are cancelled, and
+     * no new tasks will be accepted. Invocation has no additional
+     * effect if already shut down.
+     */
+    public void shutdown() {
+        if (runState.compareAndSet(RUNNING, SHUTDOWN))
+            wakeTicker();
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution. The returned tasks are not
+     * cancelled.
+     *
+     * @return list of tasks that never commenced execution
+     */
+    public List<Runnable> shutdownNow() {
+        int rs;
+        while ((rs = runState.get()) != STOP && !runState.compareAndSet(rs, STOP))
+            ;
+        wakeTicker();
+        boolean interrupted = false;
+        while (tickerDone.getCount() != 0) {
+            try {
+                tickerDone.await();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        synchronized (wheels) {         // guards against concurrent shutdownNow calls
+            for (Bucket[] wheel : wheels) {
+                if (wheel == null)
+                    continue;
+                for (Bucket b : wheel) {
+                    ScheduledTimerTask<?> t = b.clear();
+                    while (t != null) {
+                        ScheduledTimerTask<?> next = t.next;
+                        t.next = null;
+                        if (!t.isCancelled())
+                            tasks.add(t);
+                        t = next;
+                    }
+                }
+            }
+            wheelCount = 0;
+            for (ScheduledTimerTask<?> t; (t = pending.poll()) != null; )
+                if (!t.isCancelled())
+                    tasks.add(t);
+            cancelled.clear();
+        }
+        tasks.addAll(workers.shutdownNow());
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState.get() != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return tickerDone.getCount() == 0 && workers.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + nanos;
+        if (!tickerDone.await(nanos, NANOSECONDS))
+            return false;
+        return workers.awaitTermination(deadline - System.nanoTime(), NANOSECONDS);
+    }
+
+    // Tasks
+
+    private class ScheduledTimerTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** Sequence number to break ties FIFO */
+        private final long sequenceNumber;
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** True if the task was handed to the ticker rather than run directly */
+        volatile boolean delayed;
+
+        /** Tick the task is placed for. Accessed only by the ticker. */
+        long deadlineTick;
+
+        /** Links within a bucket. Accessed only by the ticker. */
+        ScheduledTimerTask<?> prev, next;
+
+        /** Bucket holding the task, or null. Accessed only by the ticker. */
+        Bucket bucket;
+
+        ScheduledTimerTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        ScheduledTimerTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            if (other instanceof ScheduledTimerTask) {
+                ScheduledTimerTask<?> x = (ScheduledTimerTask<?>)other;
+                long diff = time - x.time;
+                if (diff < 0)
+                    return -1;
+                else if (diff > 0)
+                    return 1;
+                else if (sequenceNumber < x.sequenceNumber)
+                    return -1;
+                else
+                    return 1;
+            }
+            long diff = getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        /**
+         * Sets the next time to run for a periodic task.
+         */
+        private void setNextRunTime() {
+            long p = period;
+            if (p > 0)
+                time += p;
+            else
+                time = triggerTime(-p, NANOSECONDS);
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && delayed)
+                TimingWheelScheduledExecutor.this.cancelled.offer(this);
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reset/requeue if periodic.
+         */
+        public void run() {
+            if (!isPeriodic())
+                super.run();
+            else if (super.runAndReset()) {
+                setNextRunTime();
+                reExecutePeriodic(this);
+            }
+        }
+    }
+
+    /**
+     * A doubly-linked list of tasks sharing a wheel slot. Accessed only
+     * by the ticker thread.
+     */
+    static final class Bucket {
+        ScheduledTimerTask<?> head, tail;
+
+        void add(ScheduledTimerTask<?> t) {
+            t.bucket = this;
+            t.next = null;
+            t.prev = tail;
+            if (tail == null)
+                head = t;
+            else
+                tail.next = t;
+            tail = t;
+        }
+
+        void remove(ScheduledTimerTask<?> t) {
+            ScheduledTimerTask<?> p = t.prev, n = t.next;
+            if (p == null)
+                head = n;
+            else
+                p.next = n;
+            if (n == null)
+                tail = p;
+            else
+                n.prev = p;
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+
+        /**
+         * Detaches and returns the list, still linked through next.
+         */
+        ScheduledTimerTask<?> clear() {
+            ScheduledTimerTask<?> h = head;
+            for (ScheduledTimerTask<?> t = h; t != null; t = t.next) {
+                t.bucket = null;
+                t.prev = null;
+            }
+            head = tail = null;
+            return h;
+        }
+    }
+}
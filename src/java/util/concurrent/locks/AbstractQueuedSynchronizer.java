@@ -532,6 +532,16 @@ public abstract class AbstractQueuedSynchronizer
      */
     private volatile int state;
 
+    /**
+     * Adaptive spinning statistics, or null if this synchronizer
+     * parks waiters without spinning. Set only by subclass
+     * constructors (via setAdaptiveSpinning), before the synchronizer
+     * is shared, so a plain field suffices; a thread that does not
+     * yet see it merely parks. Transient, so that the serialized form
+     * is unchanged.
+     */
+    private transient AdaptiveSpin spinner;
+
     /**
      * Returns the current value of synchronization state.
      * This operation has memory semantics of a {@code volatile} read.
@@ -575,6 +585,162 @@ public abstract class AbstractQueuedSynchronizer
      */
     static final long spinForTimeoutThreshold = 1000L;
 
+    /** Number of CPUS, to decide whether spinning can ever help */
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The shortest time for which an adaptive spin is attempted.
+     */
+    static final long MIN_SPIN_NANOS = 1000L;
+
+    /**
+     * The longest time for which an adaptive spin is attempted,
+     * roughly the cost of a park and unpark round trip. Waits
+     * expected to last longer than this are better spent parked.
+     */
+    static final long MAX_SPIN_NANOS = 20L * 1000L;
+
+    /**
+     * Statistics for adaptive spinning: an exponentially weighted
+     * moving average of how long a waiter at the head of the queue
+     * must wait for the synchronizer to be released.
+     *
+     * Samples come from three sources: the time a successful spin
+     * waited, the time an exclusive owner that acquired by spinning
+     * held the synchronizer (measured at release), and, for a spin
+     * that ran out, twice its budget (a censored sample that pushes
+     * the estimate up). While the estimate exceeds MAX_SPIN_NANOS
+     * waiters park immediately, and each such decision decays the
+     * estimate by 1/8, so that a synchronizer whose hold times have
+     * become short again is soon probed with a spin. Updates are
+     * racy by design; a lost update only delays adaptation.
+     */
+    static final class AdaptiveSpin {
+        /** Estimated wait, in nanoseconds */
+        volatile long estimate = MIN_SPIN_NANOS;
+
+        /** Time the current exclusive owner acquired by spinning, or 0 */
+        long ownerSince;
+
+        /**
+         * Returns the time to spin for, or 0 to park right away.
+         */
+        long budget() {
+            long e = estimate;
+            if (e > MAX_SPIN_NANOS) {
+                estimate = e - (e >>> 3);
+                return 0L;
+            }
+            return Math.max(MIN_SPIN_NANOS, Math.min(MAX_SPIN_NANOS, e << 1));
+        }
+
+        void sample(long nanos) {
+            long e = estimate;
+            estimate = e + ((nanos - e) >> 3);
+        }
+    }
+
+    /**
+     * Enables or disables adaptive spinning. When enabled, a thread
+     * at the head of the queue that fails to acquire spins, retrying
+     * {@link #tryAcquire} or {@link #tryAcquireShared}, for up to a
+     * bound derived from recently observed waits before it parks.
+     * Spinning is never used on a uniprocessor, and is not preserved
+     * by serialization. This method is intended to be called from
+     * subclass constructors.
+     *
+     * @param enabled {@code true} to enable adaptive spinning
+     * @since 1.8
+     */
+    protected final void setAdaptiveSpinning(boolean enabled) {
+        if (!enabled)
+            spinner = null;
+        else if (spinner == null)
+            spinner = new AdaptiveSpin();
+    }
+
+    /**
+     * Returns {@code true} if adaptive spinning is enabled.
+     *
+     * @return {@code true} if adaptive spinning is enabled
+     * @since 1.8
+     */
+    protected final boolean isAdaptiveSpinning() {
+        return spinner != null;
+    }
+
+    /**
+     * Spins trying to acquire in exclusive mode, if adaptive spinning
+     * is enabled and recent waits were short. Called only by the
+     * thread at the head of the queue, after tryAcquire failed. Spins
+     * only while the predecessor is not yet marked SIGNAL, that is,
+     * once per park: before the first park, and again after each
+     * wakeup, since unparkSuccessor clears the status. A timed
+     * acquire spins for no longer than the time remaining before its
+     * deadline, and a spin cut short that way is not sampled.
+     *
+     * @param p the predecessor, the head of the queue
+     * @param timed whether the acquire has a deadline
+     * @param deadline the deadline, in System.nanoTime() units, if timed
+     * @return {@code true} if acquired
+     */
+    private boolean spinAcquire(Node p, int arg, boolean timed, long deadline) {
+        AdaptiveSpin s = spinner;
+        long budget;
+        if (s == null || NCPU < 2 || p.waitStatus == Node.SIGNAL ||
+            (budget = s.budget()) == 0L)
+            return false;
+        final long start = System.nanoTime();
+        boolean capped = false;
+        if (timed && deadline - start < budget) {
+            if ((budget = deadline - start) <= 0L)
+                return false;
+            capped = true;
+        }
+        long now;
+        do {
+            if (tryAcquire(arg)) {
+                now = System.nanoTime();
+                s.sample(now - start);
+                s.ownerSince = now;
+                return true;
+            }
+        } while ((now = System.nanoTime()) - start < budget);
+        if (!capped)
+            s.sample(budget << 1);
+        return false;
+    }
+
+    /**
+     * Shared mode analog of spinAcquire.
+     *
+     * @return a negative value on failure, else as tryAcquireShared
+     */
+    private int spinAcquireShared(Node p, int arg, boolean timed, long deadline) {
+        AdaptiveSpin s = spinner;
+        long budget;
+        if (s == null || NCPU < 2 || p.waitStatus == Node.SIGNAL ||
+            (budget = s.budget()) == 0L)
+            return -1;
+        final long start = System.nanoTime();
+        boolean capped = false;
+        if (timed && deadline - start < budget) {
+            if ((budget = deadline - start) <= 0L)
+                return -1;
+            capped = true;
+        }
+        do {
+            int r = tryAcquireShared(arg);
+            if (r >= 0) {
+                s.sample(System.nanoTime() - start);
+                return r;
+            }
+        } while (System.nanoTime() - start < budget);
+        if (!capped)
+            s.sample(budget << 1);
+        return -1;
+    }
+
     /**
      * Inserts node into queue, initializing if necessary. See picture above.
      * @param node the node to insert
@@ -860,7 +1026,7 @@ public abstract class AbstractQueuedSynchronizer
             boolean interrupted = false;
             for (;;) {
                 final Node p = node.predecessor();
-                if (p == head && tryAcquire(arg)) {
+                if (p == head && (tryAcquire(arg) || spinAcquire(p, arg, false, 0L))) {
                     setHead(node);
                     p.next = null; // help GC
                     failed = false;
@@ -887,7 +1053,7 @@ public abstract class AbstractQueuedSynchronizer
         try {
             for (;;) {
                 final Node p = node.predecessor();
-                if (p == head && tryAcquire(arg)) {
+                if (p == head && (tryAcquire(arg) || spinAcquire(p, arg, false, 0L))) {
                     setHead(node);
                     p.next = null; // help GC
                     failed = false;
@@ -920,7 +1086,7 @@ public abstract class AbstractQueuedSynchronizer
         try {
             for (;;) {
                 final Node p = node.predecessor();
-                if (p == head && tryAcquire(arg)) {
+                if (p == head && (tryAcquire(arg) || spinAcquire(p, arg, true, deadline))) {
                     setHead(node);
                     p.next = null; // help GC
                     failed = false;
@@ -954,6 +1120,8 @@ public abstract class AbstractQueuedSynchronizer
                 final Node p = node.predecessor();
                 if (p == head) {
                     int r = tryAcquireShared(arg);
+                    if (r < 0)
+                        r = spinAcquireShared(p, arg, false, 0L);
                     if (r >= 0) {
                         setHeadAndPropagate(node, r);
                         p.next = null; // help GC
@@ -986,6 +1154,8 @@ public abstract class AbstractQueuedSynchronizer
                 final Node p = node.predecessor();
                 if (p == head) {
                     int r = tryAcquireShared(arg);
+                    if (r < 0)
+                        r = spinAcquireShared(p, arg, false, 0L);
                     if (r >= 0) {
                         setHeadAndPropagate(node, r);
                         p.next = null; // help GC
@@ -1022,6 +1192,8 @@ public abstract class AbstractQueuedSynchronizer
                 final Node p = node.predecessor();
                 if (p == head) {
                     int r = tryAcquireShared(arg);
+                    if (r < 0)
+                        r = spinAcquireShared(p, arg, true, deadline);
                     if (r >= 0) {
                         setHeadAndPropagate(node, r);
                         p.next = null; // help GC
@@ -1044,6 +1216,20 @@ public abstract class AbstractQueuedSynchronizer
         }
     }
 
+    /**
+     * Reports an acquire that failed its first attempt and will queue
+     * to the contention recorder, if enabled.
+     *
+     * @param exclusive whether the acquire is in exclusive mode
+     * @return the sample to complete once the wait ends, or null
+     */
+    private LockContentionRecorder.Sample contended(boolean exclusive) {
+        return LockContentionRecorder.enabled ?
+            LockContentionRecorder.contended(
+                this, exclusive, exclusive ? getExclusiveOwnerThread() : null) :
+            null;
+    }
+
     // Main exported methods
 
     /**
@@ -1195,9 +1381,13 @@ public abstract class AbstractQueuedSynchronizer
      *        can represent anything you like.
      */
     public final void acquire(int arg) {
-        if (!tryAcquire(arg) &&
-            acquireQueued(addWaiter(Node.EXCLUSIVE), arg))
-            selfInterrupt();
+        if (!tryAcquire(arg)) {
+            LockContentionRecorder.Sample s = contended(true);
+            if (acquireQueued(addWaiter(Node.EXCLUSIVE), arg))
+                selfInterrupt();
+            if (s != null)
+                s.end(true);
+        }
     }
 
     /**
@@ -1218,8 +1408,12 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        if (!tryAcquire(arg))
+        if (!tryAcquire(arg)) {
+            LockContentionRecorder.Sample s = contended(true);
             doAcquireInterruptibly(arg);
+            if (s != null)
+                s.end(true);
+        }
     }
 
     /**
@@ -1243,8 +1437,13 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        return tryAcquire(arg) ||
-            doAcquireNanos(arg, nanosTimeout);
+        if (tryAcquire(arg))
+            return true;
+        LockContentionRecorder.Sample s = contended(true);
+        boolean acquired = doAcquireNanos(arg, nanosTimeout);
+        if (s != null)
+            s.end(acquired);
+        return acquired;
     }
 
     /**
@@ -1258,7 +1457,13 @@ public abstract class AbstractQueuedSynchronizer
      * @return the value returned from {@link #tryRelease}
      */
     public final boolean release(int arg) {
+        AdaptiveSpin s = spinner;
+        long since = (s == null) ? 0L : s.ownerSince;
         if (tryRelease(arg)) {
+            if (since != 0L) {
+                s.ownerSince = 0L;
+                s.sample(System.nanoTime() - since);
+            }
             Node h = head;
             if (h != null && h.waitStatus != 0)
                 unparkSuccessor(h);
@@ -1279,8 +1484,12 @@ public abstract class AbstractQueuedSynchronizer
      *        and can represent anything you like.
      */
     public final void acquireShared(int arg) {
-        if (tryAcquireShared(arg) < 0)
+        if (tryAcquireShared(arg) < 0) {
+            LockContentionRecorder.Sample s = contended(false);
             doAcquireShared(arg);
+            if (s != null)
+                s.end(true);
+        }
     }
 
     /**
@@ -1300,8 +1509,12 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        if (tryAcquireShared(arg) < 0)
+        if (tryAcquireShared(arg) < 0) {
+            LockContentionRecorder.Sample s = contended(false);
             doAcquireSharedInterruptibly(arg);
+            if (s != null)
+                s.end(true);
+        }
     }
 
     /**
@@ -1324,8 +1537,13 @@ public abstract class AbstractQueuedSynchronizer
             throws InterruptedException {
         if (Thread.interrupted())
             throw new InterruptedException();
-        return tryAcquireShared(arg) >= 0 ||
-            doAcquireSharedNanos(arg, nanosTimeout);
+        if (tryAcquireShared(arg) >= 0)
+            return true;
+        LockContentionRecorder.Sample s = contended(false);
+        boolean acquired = doAcquireSharedNanos(arg, nanosTimeout);
+        if (s != null)
+            s.end(acquired);
+        return acquired;
     }
 
     /**
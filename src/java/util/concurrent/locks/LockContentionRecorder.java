@@ -0,0 +1,477 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+
+import java.lang.management.LockContentionMXBean;
+import java.lang.management.ManagementPermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * Records samples of contended lock acquisitions, to find which locks
+ * are hot and where they are acquired. The recorder covers
+ * {@link ReentrantLock}, {@link ReentrantReadWriteLock} and
+ * {@link StampedLock}, along with the other synchronizers built on
+ * {@link AbstractQueuedSynchronizer}, such as
+ * {@link java.util.concurrent.Semaphore} and
+ * {@link java.util.concurrent.CountDownLatch}. Waits on those other
+ * synchronizers are not lock contention, and their samples are
+ * labelled: {@link Sample#isLock} returns {@code false} for them and
+ * dumps mark them as synchronizers. Synchronizers built on
+ * {@link AbstractQueuedLongSynchronizer} are not recorded.
+ *
+ * <p>Recording is disabled by default, and is controlled through this
+ * class or its {@link LockContentionMXBean} management interface, the
+ * single instance returned by {@link #getInstance}. An acquisition is
+ * contended when it cannot be granted at once and the thread has to
+ * queue; acquisitions that succeed at once are never recorded and cost
+ * nothing extra, whether or not recording is enabled. While recording
+ * is enabled, each contended acquisition is counted, and on average
+ * one in every {@link #getSamplingInterval sampling interval} is
+ * sampled as a {@link Sample}: the lock, the mode, the waiting thread,
+ * the owner when the wait began (exclusive acquisitions only), the
+ * time spent waiting and the call site, as the waiting thread's stack
+ * trace trimmed of lock internals. Samples are kept in a ring buffer
+ * of fixed {@link #getCapacity capacity}, overwriting the oldest.
+ *
+ * <p>Acquisitions that end by interruption are not sampled; those that
+ * time out are, and are marked as not acquired. Locks are identified
+ * by the class name and identity hash code of their synchronizer,
+ * which for the locks in this package is a nested class of the lock,
+ * for example {@code ReentrantLock$NonfairSync}; samples do not keep
+ * locks or threads reachable.
+ *
+ * <p>The cost of a sample is dominated by capturing the stack trace,
+ * which is why samples are taken only on the contended path, and only
+ * for a fraction of acquisitions. The stack is captured when the
+ * thread is about to queue, before the wait begins, so that it never
+ * lengthens the critical section entered once the lock is acquired.
+ * The default sampling interval keeps the overhead on workloads that
+ * are heavily contended within a few percent.
+ *
+ * @since 1.8
+ */
+public final class LockContentionRecorder implements LockContentionMXBean {
+
+    /** Default sampling interval. */
+    static final int DEFAULT_SAMPLING_INTERVAL = 64;
+
+    /** Default maximum number of stack frames per sample. */
+    static final int DEFAULT_MAX_STACK_DEPTH = 16;
+
+    /** Ring buffer capacity; a power of two. */
+    static final int CAPACITY = 1 << 12;
+
+    private static final LockContentionRecorder INSTANCE =
+        new LockContentionRecorder();
+
+    /**
+     * Whether recording is enabled. Read by the synchronizers on their
+     * contended paths only.
+     */
+    static volatile boolean enabled;
+
+    private static volatile int samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+
+    private static volatile int maxStackDepth = DEFAULT_MAX_STACK_DEPTH;
+
+    private static final LongAdder contended = new LongAdder();
+
+    /** Index of the next sample; the count of samples taken. */
+    private static final AtomicLong next = new AtomicLong();
+
+    private static final AtomicReferenceArray<Sample> samples =
+        new AtomicReferenceArray<Sample>(CAPACITY);
+
+    private LockContentionRecorder() { }
+
+    /**
+     * Returns the recorder.
+     *
+     * @return the recorder
+     */
+    public static LockContentionRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * A sampled contended acquisition.
+     */
+    public static final class Sample {
+        private final String lockClassName;
+        private final int lockIdentity;
+        private final boolean lock;
+        private final boolean exclusive;
+        private final String threadName;
+        private final long threadId;
+        private final String ownerName;
+        private final long ownerId;
+        private final long startNanos;
+        private long waitNanos;
+        private long timestamp;
+        private boolean acquired;
+        private final StackTraceElement[] stackTrace;
+
+        Sample(Object lock, boolean exclusive, Thread owner) {
+            Thread t = Thread.currentThread();
+            this.lockClassName = lock.getClass().getName();
+            this.lockIdentity = System.identityHashCode(lock);
+            this.lock = LockContentionRecorder.isLock(lock);
+            this.exclusive = exclusive;
+            this.threadName = t.getName();
+            this.threadId = t.getId();
+            this.ownerName = (owner == null) ? null : owner.getName();
+            this.ownerId = (owner == null) ? -1L : owner.getId();
+            this.stackTrace = callSite(maxStackDepth);
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Completes this sample after the wait ends, and publishes it.
+         *
+         * @param acquired whether the lock was acquired
+         */
+        void end(boolean acquired) {
+            this.waitNanos = System.nanoTime() - startNanos;
+            this.timestamp = System.currentTimeMillis();
+            this.acquired = acquired;
+            samples.set((int)next.getAndIncrement() & (CAPACITY - 1), this);
+        }
+
+        /**
+         * Returns the class name of the synchronizer.
+         *
+         * @return the class name of the synchronizer
+         */
+        public String getLockClassName() { return lockClassName; }
+
+        /**
+         * Returns the identity hash code of the synchronizer.
+         *
+         * @return the identity hash code of the synchronizer
+         */
+        public int getLockIdentity() { return lockIdentity; }
+
+        /**
+         * Returns {@code true} if the synchronizer is a lock: that of a
+         * {@link ReentrantLock} or {@link ReentrantReadWriteLock}, or a
+         * {@link StampedLock}. Returns {@code false} for other
+         * synchronizers, such as those of semaphores and latches,
+         * whose waits are not lock contention.
+         *
+         * @return {@code true} if the synchronizer is a lock
+         */
+        public boolean isLock() { return lock; }
+
+        /**
+         * Returns {@code true} for an exclusive acquisition (a lock, or
+         * a write lock), {@code false} for a shared one (a read lock,
+         * or semaphore permits).
+         *
+         * @return {@code true} if the acquisition was exclusive
+         */
+        public boolean isExclusive() { return exclusive; }
+
+        /**
+         * Returns the name of the waiting thread.
+         *
+         * @return the name of the waiting thread
+         */
+        public String getThreadName() { return threadName; }
+
+        /**
+         * Returns the id of the waiting thread.
+         *
+         * @return the id of the waiting thread
+         */
+        public long getThreadId() { return threadId; }
+
+        /**
+         * Returns the name of the thread that held the lock when the
+         * wait began, or {@code null} if unknown.
+         *
+         * @return the name of the owner, or {@code null}
+         */
+        public String getOwnerName() { return ownerName; }
+
+        /**
+         * Returns the id of the thread that held the lock when the
+         * wait began, or {@code -1} if unknown.
+         *
+         * @return the id of the owner, or {@code -1}
+         */
+        public long getOwnerId() { return ownerId; }
+
+        /**
+         * Returns the time spent waiting, in nanoseconds.
+         *
+         * @return the wait time in nanoseconds
+         */
+        public long getWaitNanos() { return waitNanos; }
+
+        /**
+         * Returns the time the wait ended, in milliseconds since the
+         * epoch.
+         *
+         * @return the time the wait ended
+         */
+        public long getTimestamp() { return timestamp; }
+
+        /**
+         * Returns {@code false} if the acquisition timed out.
+         *
+         * @return {@code true} if the lock was acquired
+         */
+        public boolean isAcquired() { return acquired; }
+
+        /**
+         * Returns the call site of the acquisition, innermost frame
+         * first.
+         *
+         * @return the call site
+         */
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        /** Returns the identity of the lock, for grouping. */
+        String lockKey() {
+            return lockClassName + '@' + Integer.toHexString(lockIdentity) +
+                (lock ? "" : " (synchronizer)");
+        }
+
+        /** Returns the innermost frame outside the lock classes. */
+        String siteKey() {
+            return (stackTrace.length == 0) ? "<unknown>" :
+                stackTrace[0].toString();
+        }
+
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(lockKey()).append(exclusive ? " exclusive" : " shared")
+                .append(" waited ").append(waitNanos / 1000L).append("us")
+                .append(acquired ? "" : " (timed out)")
+                .append(" thread=\"").append(threadName).append('"');
+            if (ownerName != null)
+                sb.append(" owner=\"").append(ownerName).append('"');
+            for (StackTraceElement e : stackTrace)
+                sb.append("\n\tat ").append(e);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Called by a synchronizer when an acquisition has to wait, only
+     * if enabled was seen true. Returns a sample to be completed when
+     * the wait ends, or null if this acquisition is not sampled.
+     *
+     * @param lock the synchronizer
+     * @param exclusive whether the acquisition is exclusive
+     * @param owner the owner, if known, else null
+     */
+    static Sample contended(Object lock, boolean exclusive, Thread owner) {
+        contended.increment();
+        int interval = samplingInterval;
+        if (interval > 1 &&
+            (LockSupport.nextSecondarySeed() & 0x7fffffff) % interval != 0)
+            return null;
+        return new Sample(lock, exclusive, owner);
+    }
+
+    /**
+     * Returns whether a synchronizer passed to contended is a lock.
+     */
+    static boolean isLock(Object sync) {
+        return sync instanceof ReentrantLock.Sync ||
+            sync instanceof ReentrantReadWriteLock.Sync ||
+            sync instanceof StampedLock;
+    }
+
+    /**
+     * Returns the current thread's stack, without the frames of the
+     * recorder, the lock classes of this package and their
+     * synchronizers.
+     */
+    static StackTraceElement[] callSite(int depth) {
+        StackTraceElement[] st = Thread.currentThread().getStackTrace();
+        int i = 0;
+        while (i < st.length && isInternal(st[i].getClassName()))
+            ++i;
+        int n = Math.min(depth, st.length - i);
+        StackTraceElement[] site = new StackTraceElement[n];
+        System.arraycopy(st, i, site, 0, n);
+        return site;
+    }
+
+    private static boolean isInternal(String cn) {
+        return cn.equals("java.lang.Thread") ||
+            cn.startsWith("java.util.concurrent.locks.") ||
+            cn.startsWith("java.util.concurrent.Semaphore") ||
+            cn.startsWith("java.util.concurrent.CountDownLatch");
+    }
+
+    /**
+     * Returns the samples in the ring buffer, most recent first.
+     *
+     * @return a new list of the samples in the ring buffer
+     */
+    public static List<Sample> getSamples() {
+        long n = next.get();
+        List<Sample> list = new ArrayList<Sample>();
+        for (long i = n - 1; i >= 0 && i >= n - CAPACITY; --i) {
+            Sample s = samples.get((int)i & (CAPACITY - 1));
+            if (s != null)
+                list.add(s);
+        }
+        return list;
+    }
+
+    // LockContentionMXBean
+
+    private static void checkAccess(String name) {
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null)
+            sm.checkPermission(new ManagementPermission(name));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enable) {
+        checkAccess("control");
+        enabled = enable;
+    }
+
+    public int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    public void setSamplingInterval(int interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("Invalid sampling interval: " + interval);
+        checkAccess("control");
+        samplingInterval = interval;
+    }
+
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    public void setMaxStackDepth(int depth) {
+        if (depth < 0)
+            throw new IllegalArgumentException("Invalid stack depth: " + depth);
+        checkAccess("control");
+        maxStackDepth = depth;
+    }
+
+    public int getCapacity() {
+        return CAPACITY;
+    }
+
+    public long getContendedAcquisitionCount() {
+        return contended.sum();
+    }
+
+    public long getSampleCount() {
+        return next.get();
+    }
+
+    public void clear() {
+        checkAccess("control");
+        next.set(0L);
+        for (int i = 0; i < CAPACITY; ++i)
+            samples.set(i, null);
+        contended.reset();
+    }
+
+    public String dump(int maxSamples) {
+        checkAccess("monitor");
+        List<Sample> list = getSamples();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Lock contention: ").append(enabled ? "enabled" : "disabled")
+            .append(", sampling interval ").append(samplingInterval)
+            .append(", contended acquisitions ").append(contended.sum())
+            .append(", samples ").append(next.get())
+            .append(" (").append(list.size()).append(" in buffer)\n");
+        appendTotals(sb, "Locks by sampled wait time", list, true);
+        appendTotals(sb, "Call sites by sampled wait time", list, false);
+        int n = Math.min(maxSamples, list.size());
+        if (n > 0) {
+            sb.append("\nMost recent samples:\n");
+            for (int i = 0; i < n; ++i)
+                sb.append(list.get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Number of rows in each table of dump */
+    private static final int TOP = 10;
+
+    private static void appendTotals(StringBuilder sb, String title,
+                                     List<Sample> list, boolean byLock) {
+        Map<String,long[]> totals = new HashMap<String,long[]>();
+        for (Sample s : list) {
+            String key = byLock ? s.lockKey() : s.siteKey();
+            long[] t = totals.get(key);
+            if (t == null)
+                totals.put(key, t = new long[3]);
+            t[0]++;
+            t[1] += s.getWaitNanos();
+            t[2] = Math.max(t[2], s.getWaitNanos());
+        }
+        List<Map.Entry<String,long[]>> rows =
+            new ArrayList<Map.Entry<String,long[]>>(totals.entrySet());
+        Collections.sort(rows, new Comparator<Map.Entry<String,long[]>>() {
+            public int compare(Map.Entry<String,long[]> a,
+                               Map.Entry<String,long[]> b) {
+                return Long.compare(b.getValue()[1], a.getValue()[1]);
+            }
+        });
+        sb.append('\n').append(title).append(":\n");
+        sb.append(String.format("%10s %14s %12s  %s%n",
+                                "samples", "total(us)", "max(us)",
+                                byLock ? "lock" : "call site"));
+        for (int i = 0; i < rows.size() && i < TOP; ++i) {
+            long[] t = rows.get(i).getValue();
+            sb.append(String.format("%10d %14d %12d  %s%n", t[0],
+                                    t[1] / 1000L, t[2] / 1000L,
+                                    rows.get(i).getKey()));
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return sun.management.Util.newObjectName(
+            "java.util.concurrent.locks:type=LockContention");
+    }
+}
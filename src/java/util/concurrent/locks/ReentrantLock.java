@@ -267,6 +267,27 @@ public class ReentrantLock implements Lock, java.io.Serializable {
         sync = fair ? new FairSync() : new NonfairSync();
     }
 
+    /**
+     * Creates an instance of {@code ReentrantLock} with the
+     * given fairness and spinning policies.
+     *
+     * <p>With adaptive spinning, a thread that would otherwise block
+     * waiting for the lock first spins for a short time, bounded by
+     * the time other threads have recently waited for or held this
+     * lock, avoiding the cost of parking and unparking threads around
+     * short critical sections. Spinning is abandoned for locks that
+     * are held for long, and never used on a uniprocessor.
+     *
+     * @param fair {@code true} if this lock should use a fair ordering policy
+     * @param adaptiveSpinning {@code true} if waiting threads should
+     *        spin adaptively before blocking
+     * @since 1.8
+     */
+    public ReentrantLock(boolean fair, boolean adaptiveSpinning) {
+        this(fair);
+        sync.setAdaptiveSpinning(adaptiveSpinning);
+    }
+
     /**
      * Acquires the lock.
      *
@@ -599,6 +620,16 @@ public class ReentrantLock implements Lock, java.io.Serializable {
         return sync instanceof FairSync;
     }
 
+    /**
+     * Returns {@code true} if this lock uses adaptive spinning.
+     *
+     * @return {@code true} if this lock uses adaptive spinning
+     * @since 1.8
+     */
+    public final boolean isAdaptiveSpinning() {
+        return sync.isAdaptiveSpinning();
+    }
+
     /**
      * Returns the thread that currently owns this lock, or
      * {@code null} if not owned. When this method is called by a
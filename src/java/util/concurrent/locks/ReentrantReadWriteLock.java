@@ -242,6 +242,73 @@ public class ReentrantReadWriteLock
         writerLock = new WriteLock(this);
     }
 
+    /**
+     * Creates a new {@code ReentrantReadWriteLock} with
+     * the given fairness and spinning policies.
+     *
+     * <p>With adaptive spinning, a thread that would otherwise block
+     * waiting for the read or write lock first spins for a short
+     * time, bounded by the time threads have recently waited for or
+     * held the write lock, avoiding the cost of parking and unparking
+     * threads around short critical sections. Spinning is abandoned
+     * while waits are long, and never used on a uniprocessor.
+     *
+     * @param fair {@code true} if this lock should use a fair ordering policy
+     * @param adaptiveSpinning {@code true} if waiting threads should
+     *        spin adaptively before blocking
+     * @since 1.8
+     */
+    public ReentrantReadWriteLock(boolean fair, boolean adaptiveSpinning) {
+        this(fair);
+        sync.setAdaptiveSpinning(adaptiveSpinning);
+    }
+
+    /**
+     * Creates a new {@code ReentrantReadWriteLock} with
+     * the given fairness, spinning and reader bias policies.
+     *
+     * <p>A reader-biased lock is intended for data that is read far
+     * more often than it is written, by many threads. While the lock
+     * is biased, a read acquisition claims one of a set of per-lock
+     * slots, chosen by thread, instead of updating the shared lock
+     * state, so readers on different processors do not contend with
+     * one another. A write acquisition revokes the bias: it first
+     * acquires the lock as usual, then waits for readers holding
+     * slots to release them. Further reads take the usual path until
+     * a reader re-enables the bias, which is delayed in proportion to
+     * the time the last revocation took, so that write-heavy phases
+     * do not repeatedly pay for revocation. A read acquisition that
+     * finds its slot taken by another thread also takes the usual
+     * path. Writes, and fairness between writers, are otherwise
+     * unaffected.
+     *
+     * <p>While the bias is in effect, reads do not observe the
+     * ordering and fairness of waiting writers; instead, a writer
+     * stops new biased reads as soon as it holds the lock. A write
+     * acquisition, including reacquisition after a {@link
+     * Condition#await}, may then wait for biased reads that are in
+     * progress to complete. A timed {@link WriteLock#tryLock(long,
+     * TimeUnit) tryLock} waits for them no longer than its timeout,
+     * and {@link WriteLock#lockInterruptibly lockInterruptibly} stops
+     * waiting if interrupted; either one that gives up releases the
+     * write lock and restores the bias. The untimed {@link
+     * WriteLock#tryLock() tryLock} fails if there are any. A thread
+     * holding the read lock cannot acquire the write lock, whether
+     * or not its read was biased.
+     *
+     * @param fair {@code true} if this lock should use a fair ordering policy
+     * @param adaptiveSpinning {@code true} if waiting threads should
+     *        spin adaptively before blocking
+     * @param readerBiased {@code true} if reads should be biased
+     * @since 1.8
+     */
+    public ReentrantReadWriteLock(boolean fair, boolean adaptiveSpinning,
+                                  boolean readerBiased) {
+        this(fair, adaptiveSpinning);
+        if (readerBiased)
+            sync.bias = new ReadBias();
+    }
+
     public ReentrantReadWriteLock.WriteLock writeLock() { return writerLock; }
     public ReentrantReadWriteLock.ReadLock  readLock()  { return readerLock; }
 
@@ -252,6 +319,22 @@ public class ReentrantReadWriteLock
     abstract static class Sync extends AbstractQueuedSynchronizer {
         private static final long serialVersionUID = 6317671515068378041L;
 
+        /**
+         * Reader bias, or null if this lock is not reader-biased. Set
+         * only by the constructor of the outer lock.
+         */
+        ReadBias bias;
+
+        /**
+         * The acquire argument used by timed and interruptible write
+         * acquisitions: one write hold, leaving any revocation of the
+         * bias to {@link #awaitRevocation} so that it can honor the
+         * deadline and interrupts. Zero is never otherwise passed,
+         * since reacquisition after a condition wait passes the saved
+         * (nonzero) write hold count.
+         */
+        static final int DEFERRED_REVOCATION = 0;
+
         /*
          * Read vs write count extraction constants and functions.
          * Lock state is logically divided into two unsigned shorts:
@@ -388,7 +471,14 @@ public class ReentrantReadWriteLock
              *    it is either a reentrant acquire or
              *    queue policy allows it. If so, update state
              *    and set owner.
+             * 4. If biased and this thread holds its read slot,
+             *    fail rather than wait for its own read to end.
+             *    Otherwise revoke the bias, waiting for slot holders
+             *    unless the caller will do so itself.
              */
+            boolean deferRevocation = acquires == DEFERRED_REVOCATION;
+            if (deferRevocation)
+                acquires = 1;
             Thread current = Thread.currentThread();
             int c = getState();
             int w = exclusiveCount(c);
@@ -402,10 +492,49 @@ public class ReentrantReadWriteLock
                 setState(c + acquires);
                 return true;
             }
-            if (writerShouldBlock() ||
+            ReadBias b = bias;
+            if ((b != null && b.getHoldCount(current) != 0) ||
+                writerShouldBlock() ||
                 !compareAndSetState(c, c + acquires))
                 return false;
             setExclusiveOwnerThread(current);
+            if (b != null) {
+                if (deferRevocation)
+                    b.startRevoke();
+                else
+                    b.revoke();
+            }
+            return true;
+        }
+
+        /**
+         * Completes a revocation of the bias left pending by a write
+         * acquisition with argument DEFERRED_REVOCATION, waiting for
+         * slot holders to release until the deadline, if timed.
+         * On timeout or interrupt, restores the bias and releases the
+         * write lock, so that a failed acquisition leaves the lock as
+         * it found it.
+         *
+         * @return true if the write lock is held with no slot held
+         * @throws InterruptedException if interrupted while waiting
+         */
+        final boolean awaitRevocation(boolean timed, long deadline)
+            throws InterruptedException {
+            ReadBias b = bias;
+            if (b == null)
+                return true;
+            while (!b.tryCompleteRevoke()) {
+                boolean interrupted = Thread.interrupted();
+                if (interrupted ||
+                    (timed && deadline - System.nanoTime() <= 0L)) {
+                    b.cancelRevoke();
+                    release(1);
+                    if (interrupted)
+                        throw new InterruptedException();
+                    return false;
+                }
+                Thread.yield();
+            }
             return true;
         }
 
@@ -565,6 +694,11 @@ public class ReentrantReadWriteLock
             if (!compareAndSetState(c, c + 1))
                 return false;
             setExclusiveOwnerThread(current);
+            ReadBias b = bias;
+            if (c == 0 && b != null && !b.tryRevoke()) {
+                release(1);
+                return false;
+            }
             return true;
         }
 
@@ -622,7 +756,9 @@ public class ReentrantReadWriteLock
         }
 
         final int getReadLockCount() {
-            return sharedCount(getState());
+            ReadBias b = bias;
+            int r = sharedCount(getState());
+            return (b == null) ? r : r + b.getHoldCount();
         }
 
         final boolean isWriteLocked() {
@@ -634,20 +770,22 @@ public class ReentrantReadWriteLock
         }
 
         final int getReadHoldCount() {
-            if (getReadLockCount() == 0)
-                return 0;
+            ReadBias b = bias;
+            int biased = (b == null) ? 0 : b.getHoldCount(Thread.currentThread());
+            if (sharedCount(getState()) == 0)
+                return biased;
 
             Thread current = Thread.currentThread();
             if (firstReader == current)
-                return firstReaderHoldCount;
+                return firstReaderHoldCount + biased;
 
             HoldCounter rh = cachedHoldCounter;
             if (rh != null && rh.tid == getThreadId(current))
-                return rh.count;
+                return rh.count + biased;
 
             int count = readHolds.get().count;
             if (count == 0) readHolds.remove();
-            return count;
+            return count + biased;
         }
 
         /**
@@ -724,7 +862,13 @@ public class ReentrantReadWriteLock
          * purposes and lies dormant until the read lock has been acquired.
          */
         public void lock() {
-            sync.acquireShared(1);
+            ReadBias b = sync.bias;
+            if (b == null)
+                sync.acquireShared(1);
+            else if (!b.tryAcquire()) {
+                sync.acquireShared(1);
+                b.readAcquired(sync);
+            }
         }
 
         /**
@@ -769,7 +913,13 @@ public class ReentrantReadWriteLock
          * @throws InterruptedException if the current thread is interrupted
          */
         public void lockInterruptibly() throws InterruptedException {
-            sync.acquireSharedInterruptibly(1);
+            ReadBias b = sync.bias;
+            if (b == null)
+                sync.acquireSharedInterruptibly(1);
+            else if (!b.tryAcquire()) {
+                sync.acquireSharedInterruptibly(1);
+                b.readAcquired(sync);
+            }
         }
 
         /**
@@ -796,7 +946,15 @@ public class ReentrantReadWriteLock
          * @return {@code true} if the read lock was acquired
          */
         public boolean tryLock() {
-            return sync.tryReadLock();
+            ReadBias b = sync.bias;
+            if (b == null)
+                return sync.tryReadLock();
+            if (b.tryAcquire())
+                return true;
+            if (!sync.tryReadLock())
+                return false;
+            b.readAcquired(sync);
+            return true;
         }
 
         /**
@@ -868,7 +1026,15 @@ public class ReentrantReadWriteLock
          */
         public boolean tryLock(long timeout, TimeUnit unit)
                 throws InterruptedException {
-            return sync.tryAcquireSharedNanos(1, unit.toNanos(timeout));
+            ReadBias b = sync.bias;
+            if (b == null)
+                return sync.tryAcquireSharedNanos(1, unit.toNanos(timeout));
+            if (b.tryAcquire())
+                return true;
+            if (!sync.tryAcquireSharedNanos(1, unit.toNanos(timeout)))
+                return false;
+            b.readAcquired(sync);
+            return true;
         }
 
         /**
@@ -878,7 +1044,9 @@ public class ReentrantReadWriteLock
          * is made available for write lock attempts.
          */
         public void unlock() {
-            sync.releaseShared(1);
+            ReadBias b = sync.bias;
+            if (b == null || !b.tryRelease())
+                sync.releaseShared(1);
         }
 
         /**
@@ -995,7 +1163,8 @@ public class ReentrantReadWriteLock
          * @throws InterruptedException if the current thread is interrupted
          */
         public void lockInterruptibly() throws InterruptedException {
-            sync.acquireInterruptibly(1);
+            sync.acquireInterruptibly(Sync.DEFERRED_REVOCATION);
+            sync.awaitRevocation(false, 0L);
         }
 
         /**
@@ -1112,7 +1281,10 @@ public class ReentrantReadWriteLock
          */
         public boolean tryLock(long timeout, TimeUnit unit)
                 throws InterruptedException {
-            return sync.tryAcquireNanos(1, unit.toNanos(timeout));
+            long nanosTimeout = unit.toNanos(timeout);
+            long deadline = System.nanoTime() + nanosTimeout;
+            return sync.tryAcquireNanos(Sync.DEFERRED_REVOCATION, nanosTimeout) &&
+                sync.awaitRevocation(true, deadline);
         }
 
         /**
@@ -1232,6 +1404,26 @@ public class ReentrantReadWriteLock
         return sync instanceof FairSync;
     }
 
+    /**
+     * Returns {@code true} if this lock uses adaptive spinning.
+     *
+     * @return {@code true} if this lock uses adaptive spinning
+     * @since 1.8
+     */
+    public final boolean isAdaptiveSpinning() {
+        return sync.isAdaptiveSpinning();
+    }
+
+    /**
+     * Returns {@code true} if this lock is reader-biased.
+     *
+     * @return {@code true} if this lock is reader-biased
+     * @since 1.8
+     */
+    public final boolean isReaderBiased() {
+        return sync.bias != null;
+    }
+
     /**
      * Returns the thread that currently owns the write lock, or
      * {@code null} if not owned. When this method is called by a
@@ -1477,12 +1669,257 @@ public class ReentrantReadWriteLock
     public String toString() {
         int c = sync.getCount();
         int w = Sync.exclusiveCount(c);
-        int r = Sync.sharedCount(c);
+        int r = sync.getReadLockCount();
 
         return super.toString() +
             "[Write locks = " + w + ", Read locks = " + r + "]";
     }
 
+    /**
+     * Reader bias state, after BRAVO (Dice and Kogan, "BRAVO --
+     * Biased Locking for Reader-Writer Locks"), but with a table of
+     * slots per lock rather than one global table. Each slot is
+     * padded to its own cache line and records the thread holding it
+     * and that thread's reentrant hold count; a thread always maps to
+     * the same slot (by thread id), so an unlock can tell whether
+     * the thread holds a slot from the slot alone, and a reentrant
+     * read by a slot holder never blocks, even while the bias is
+     * revoked and a writer waits for the slot.
+     *
+     * A reader claims its slot by CAS from null and then rechecks
+     * enabled; a writer clears enabled and then waits for every slot
+     * to be empty. Both sides write one volatile and read the other,
+     * so at least one of them sees the other: either the reader backs
+     * out, or the writer waits for it. A timed or interruptible
+     * writer waits outside of tryAcquire (startRevoke, then
+     * tryCompleteRevoke until done), and if it gives up re-enables
+     * the bias before releasing the write lock; no slot is claimed
+     * in the meantime that it could be waiting for, and it does not
+     * touch the guarded data before releasing. A writer never waits
+     * for its own slot: tryAcquire fails instead, as it would for a
+     * thread holding the read lock in the usual way.
+     *
+     * The bias is re-enabled only by a reader holding the read lock
+     * in the usual way while the write lock is not held, so it can
+     * never be enabled while a writer holds the lock; any writer that
+     * acquires later revokes it again.
+     */
+    static final class ReadBias implements java.io.Serializable {
+        private static final long serialVersionUID = 4862741298456326547L;
+
+        /**
+         * The bias is not re-enabled until this many times the
+         * duration of the last revocation have passed.
+         */
+        static final int INHIBIT_MULTIPLIER = 9;
+
+        /** Number of CPUS, to size the slot table */
+        static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+        /** Maximum number of slots */
+        static final int MAXIMUM_SLOTS = 1 << 10;
+
+        /**
+         * A read indicator slot.
+         */
+        @sun.misc.Contended static final class Slot
+            implements java.io.Serializable {
+            private static final long serialVersionUID = -2209842749132591652L;
+            /** The thread holding this slot, or null */
+            transient volatile Thread owner;
+            /** Number of holds by owner; accessed only by owner */
+            transient int holds;
+
+            final boolean casOwner(Thread cmp, Thread val) {
+                return UNSAFE.compareAndSwapObject(this, OWNER, cmp, val);
+            }
+
+            private static final sun.misc.Unsafe UNSAFE;
+            private static final long OWNER;
+            static {
+                try {
+                    UNSAFE = sun.misc.Unsafe.getUnsafe();
+                    Class<?> k = Slot.class;
+                    OWNER = UNSAFE.objectFieldOffset
+                        (k.getDeclaredField("owner"));
+                } catch (Exception e) {
+                    throw new Error(e);
+                }
+            }
+        }
+
+        final Slot[] slots;
+
+        /** Whether readers may use slots */
+        volatile boolean enabled = true;
+
+        /** System.nanoTime before which the bias is not re-enabled */
+        volatile long inhibitUntil;
+
+        /**
+         * Whether a revocation has been started but not completed,
+         * and when it started; accessed only by the write lock holder.
+         */
+        transient boolean revoking;
+        transient long revokeStart;
+
+        ReadBias() {
+            int n = 1;
+            while (n < NCPU << 2 && n < MAXIMUM_SLOTS)
+                n <<= 1;
+            Slot[] ss = new Slot[n];
+            for (int i = 0; i < n; ++i)
+                ss[i] = new Slot();
+            slots = ss;
+        }
+
+        final Slot slotFor(Thread t) {
+            // Fibonacci hashing spreads the sequential thread ids
+            long h = getThreadId(t) * 0x9e3779b97f4a7c15L;
+            return slots[(int)(h >>> 32) & (slots.length - 1)];
+        }
+
+        /**
+         * Tries to acquire the read lock through the current thread's
+         * slot.
+         */
+        final boolean tryAcquire() {
+            Thread t = Thread.currentThread();
+            Slot s = slotFor(t);
+            Thread o = s.owner;
+            if (o == t) {                    // reentrant
+                if (s.holds == Integer.MAX_VALUE)
+                    throw new Error("Maximum lock count exceeded");
+                ++s.holds;
+                return true;
+            }
+            if (o == null && enabled && s.casOwner(null, t)) {
+                if (enabled) {
+                    s.holds = 1;
+                    return true;
+                }
+                s.owner = null;              // revoked; back out
+            }
+            return false;
+        }
+
+        /**
+         * Releases a read hold through the current thread's slot, if
+         * it holds the slot.
+         */
+        final boolean tryRelease() {
+            Thread t = Thread.currentThread();
+            Slot s = slotFor(t);
+            if (s.owner != t)
+                return false;
+            if (--s.holds == 0)
+                s.owner = null;
+            return true;
+        }
+
+        /**
+         * Re-enables the bias, if due, after a read acquisition that
+         * did not use a slot.
+         */
+        final void readAcquired(Sync sync) {
+            if (!enabled && !sync.isWriteLocked() &&
+                System.nanoTime() - inhibitUntil >= 0L)
+                enabled = true;
+        }
+
+        /**
+         * Revokes the bias and waits for slot holders to release.
+         * Called by a writer after acquiring the lock.
+         */
+        final void revoke() {
+            startRevoke();
+            while (!tryCompleteRevoke())
+                Thread.yield();
+        }
+
+        /**
+         * Stops new biased reads, leaving the revocation to be
+         * completed by tryCompleteRevoke. Called by a writer after
+         * acquiring the lock.
+         */
+        final void startRevoke() {
+            if (enabled) {
+                enabled = false;
+                revokeStart = System.nanoTime();
+                revoking = true;
+            }
+        }
+
+        /**
+         * Returns true, completing any revocation in progress, if no
+         * slot is held.
+         */
+        final boolean tryCompleteRevoke() {
+            if (revoking) {
+                for (Slot s : slots) {
+                    if (s.owner != null)
+                        return false;
+                }
+                revoking = false;
+                long now = System.nanoTime();
+                inhibitUntil = now + (now - revokeStart) * INHIBIT_MULTIPLIER;
+            }
+            return true;
+        }
+
+        /**
+         * Abandons a revocation in progress, restoring the bias.
+         * Called by the writer before releasing the lock.
+         */
+        final void cancelRevoke() {
+            if (revoking) {
+                revoking = false;
+                enabled = true;
+            }
+        }
+
+        /**
+         * Revokes the bias without waiting; returns false, leaving
+         * the bias in effect, if any slot is held. The bias must be
+         * restored on failure so that a disabled bias always implies
+         * that no slot is held once revocation is complete, which is
+         * what lets revoke skip the scan.
+         */
+        final boolean tryRevoke() {
+            if (enabled) {
+                enabled = false;
+                for (Slot s : slots) {
+                    if (s.owner != null) {
+                        enabled = true;
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the approximate number of holds through slots.
+         */
+        final int getHoldCount() {
+            int n = 0;
+            for (Slot s : slots) {
+                if (s.owner != null)
+                    ++n;
+            }
+            return n;
+        }
+
+        /**
+         * Returns the number of holds of the given thread through its
+         * slot. Valid only for the current thread.
+         */
+        final int getHoldCount(Thread t) {
+            Slot s = slotFor(t);
+            return (s.owner == t) ? s.holds : 0;
+        }
+    }
+
     /**
      * Returns the thread id for the given thread.  We must access
      * this directly rather than via method Thread.getId() because
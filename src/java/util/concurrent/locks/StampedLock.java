@@ -351,7 +351,7 @@ public class StampedLock implements java.io.Serializable {
         long s, next;  // bypass acquireWrite in fully unlocked case only
         return ((((s = state) & ABITS) == 0L &&
                  U.compareAndSwapLong(this, STATE, s, next = s + WBIT)) ?
-                next : acquireWrite(false, 0L));
+                next : contendedWrite(false, 0L));
     }
 
     /**
@@ -391,7 +391,7 @@ public class StampedLock implements java.io.Serializable {
                 return 0L;
             if ((deadline = System.nanoTime() + nanos) == 0L)
                 deadline = 1L;
-            if ((next = acquireWrite(true, deadline)) != INTERRUPTED)
+            if ((next = contendedWrite(true, deadline)) != INTERRUPTED)
                 return next;
         }
         throw new InterruptedException();
@@ -410,7 +410,7 @@ public class StampedLock implements java.io.Serializable {
     public long writeLockInterruptibly() throws InterruptedException {
         long next;
         if (!Thread.interrupted() &&
-            (next = acquireWrite(true, 0L)) != INTERRUPTED)
+            (next = contendedWrite(true, 0L)) != INTERRUPTED)
             return next;
         throw new InterruptedException();
     }
@@ -425,7 +425,7 @@ public class StampedLock implements java.io.Serializable {
         long s = state, next;  // bypass acquireRead on common uncontended case
         return ((whead == wtail && (s & ABITS) < RFULL &&
                  U.compareAndSwapLong(this, STATE, s, next = s + RUNIT)) ?
-                next : acquireRead(false, 0L));
+                next : contendedRead(false, 0L));
     }
 
     /**
@@ -478,7 +478,7 @@ public class StampedLock implements java.io.Serializable {
                 return 0L;
             if ((deadline = System.nanoTime() + nanos) == 0L)
                 deadline = 1L;
-            if ((next = acquireRead(true, deadline)) != INTERRUPTED)
+            if ((next = contendedRead(true, deadline)) != INTERRUPTED)
                 return next;
         }
         throw new InterruptedException();
@@ -497,7 +497,7 @@ public class StampedLock implements java.io.Serializable {
     public long readLockInterruptibly() throws InterruptedException {
         long next;
         if (!Thread.interrupted() &&
-            (next = acquireRead(true, 0L)) != INTERRUPTED)
+            (next = contendedRead(true, 0L)) != INTERRUPTED)
             return next;
         throw new InterruptedException();
     }
@@ -1024,6 +1024,36 @@ public class StampedLock implements java.io.Serializable {
         }
     }
 
+    /**
+     * Calls acquireWrite, reporting the wait to the contention
+     * recorder if it is enabled and the lock is held.
+     */
+    private long contendedWrite(boolean interruptible, long deadline) {
+        LockContentionRecorder.Sample smp;
+        if (!LockContentionRecorder.enabled || (state & ABITS) == 0L ||
+            (smp = LockContentionRecorder.contended(this, true, null)) == null)
+            return acquireWrite(interruptible, deadline);
+        long next = acquireWrite(interruptible, deadline);
+        if (next != INTERRUPTED)
+            smp.end(next != 0L);
+        return next;
+    }
+
+    /**
+     * Calls acquireRead, reporting the wait to the contention
+     * recorder if it is enabled and the lock is write-locked.
+     */
+    private long contendedRead(boolean interruptible, long deadline) {
+        LockContentionRecorder.Sample smp;
+        if (!LockContentionRecorder.enabled || (state & WBIT) == 0L ||
+            (smp = LockContentionRecorder.contended(this, false, null)) == null)
+            return acquireRead(interruptible, deadline);
+        long next = acquireRead(interruptible, deadline);
+        if (next != INTERRUPTED)
+            smp.end(next != 0L);
+        return next;
+    }
+
     /**
      * See above for explanation.
      *
@@ -928,6 +928,182 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a {@code Collector} counting input elements of type {@code T}
+     * by {@code int} keys, and organizing the counts into a
+     * {@code Map<Integer, Long>}.  This is equivalent to
+     * {@code groupingBy(t -> classifier.applyAsInt(t), counting())}, except that
+     * keys and counts are boxed only once per distinct key, when building the
+     * resulting map, rather than once per element.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @implNote
+     * Keys and counts are accumulated in {@code int} and {@code long}
+     * arrays indexed by an open-addressed hash table.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the counting operation
+     *
+     * @see #groupingByInt(ToIntFunction, Collector)
+     * @see #counting()
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, Map<Integer, Long>> countingByInt(ToIntFunction<? super T> classifier) {
+        Objects.requireNonNull(classifier);
+        BiConsumer<HashIndex.IntCounts, T> accumulator = (a, t) -> a.add(classifier.applyAsInt(t));
+        return new CollectorImpl<>(HashIndex.IntCounts::new, accumulator, HashIndex.IntCounts::addAll,
+                                   HashIndex.IntCounts::toMap, CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements by {@code int}
+     * keys, and then performing a reduction operation on the values associated
+     * with a given key using the specified downstream {@code Collector}.
+     * This is equivalent to
+     * {@code groupingBy(t -> classifier.applyAsInt(t), downstream)}, except that
+     * keys are boxed only once per distinct key, when building the resulting
+     * {@code Map}, rather than once per element.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @implNote
+     * The downstream containers are kept in an array indexed by an
+     * open-addressed hash table of {@code int} keys.  For parallel stream
+     * pipelines, the {@code combiner} function operates by merging the keys
+     * from one table into another.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #countingByInt(ToIntFunction)
+     * @since 1.8
+     */
+    public static <T, A, D>
+    Collector<T, ?, Map<Integer, D>> groupingByInt(ToIntFunction<? super T> classifier,
+                                                 Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        BiConsumer<HashIndex.IntTable<A>, T> accumulator = (m, t) -> {
+            A container = m.computeIfAbsent(classifier.applyAsInt(t), k -> downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<HashIndex.IntTable<A>> merger = (left, right) -> {
+            for (int i = 0; i < right.index.size(); i++)
+                left.merge(right.index.keys[i], right.get(i), downstreamCombiner);
+            return left;
+        };
+        Function<HashIndex.IntTable<A>, Map<Integer, D>> finisher = table -> {
+            int n = table.index.size();
+            HashMap<Integer, D> map = HashIndex.newHashMap(n);
+            for (int i = 0; i < n; i++)
+                map.put(table.index.keys[i], downstreamFinisher.apply(table.get(i)));
+            return map;
+        };
+        return new CollectorImpl<>(HashIndex.IntTable<A>::new, accumulator, merger, finisher, CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} counting input elements of type {@code T}
+     * by {@code long} keys, and organizing the counts into a
+     * {@code Map<Long, Long>}.  This is equivalent to
+     * {@code groupingBy(t -> classifier.applyAsLong(t), counting())}, except that
+     * keys and counts are boxed only once per distinct key, when building the
+     * resulting map, rather than once per element.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @implNote
+     * Keys and counts are accumulated in {@code long} and {@code long}
+     * arrays indexed by an open-addressed hash table.
+     *
+     * @param <T> the type of the input elements
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a {@code Collector} implementing the counting operation
+     *
+     * @see #groupingByLong(ToLongFunction, Collector)
+     * @see #counting()
+     * @since 1.8
+     */
+    public static <T>
+    Collector<T, ?, Map<Long, Long>> countingByLong(ToLongFunction<? super T> classifier) {
+        Objects.requireNonNull(classifier);
+        BiConsumer<HashIndex.LongCounts, T> accumulator = (a, t) -> a.add(classifier.applyAsLong(t));
+        return new CollectorImpl<>(HashIndex.LongCounts::new, accumulator, HashIndex.LongCounts::addAll,
+                                   HashIndex.LongCounts::toMap, CH_NOID);
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements by {@code long}
+     * keys, and then performing a reduction operation on the values associated
+     * with a given key using the specified downstream {@code Collector}.
+     * This is equivalent to
+     * {@code groupingBy(t -> classifier.applyAsLong(t), downstream)}, except that
+     * keys are boxed only once per distinct key, when building the resulting
+     * {@code Map}, rather than once per element.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @implNote
+     * The downstream containers are kept in an array indexed by an
+     * open-addressed hash table of {@code long} keys.  For parallel stream
+     * pipelines, the {@code combiner} function operates by merging the keys
+     * from one table into another.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #countingByLong(ToLongFunction)
+     * @since 1.8
+     */
+    public static <T, A, D>
+    Collector<T, ?, Map<Long, D>> groupingByLong(ToLongFunction<? super T> classifier,
+                                                 Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        BiConsumer<HashIndex.LongTable<A>, T> accumulator = (m, t) -> {
+            A container = m.computeIfAbsent(classifier.applyAsLong(t), k -> downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<HashIndex.LongTable<A>> merger = (left, right) -> {
+            for (int i = 0; i < right.index.size(); i++)
+                left.merge(right.index.keys[i], right.get(i), downstreamCombiner);
+            return left;
+        };
+        Function<HashIndex.LongTable<A>, Map<Long, D>> finisher = table -> {
+            int n = table.index.size();
+            HashMap<Long, D> map = HashIndex.newHashMap(n);
+            for (int i = 0; i < n; i++)
+                map.put(table.index.keys[i], downstreamFinisher.apply(table.get(i)));
+            return map;
+        };
+        return new CollectorImpl<>(HashIndex.LongTable<A>::new, accumulator, merger, finisher, CH_NOID);
+    }
+
     /**
      * Returns a concurrent {@code Collector} implementing a "group by"
      * operation on input elements of type {@code T}, grouping elements
@@ -35,7 +35,8 @@ import java.util.function.IntFunction;
 
 /**
  * Factory methods for transforming streams into duplicate-free streams, using
- * {@link Object#equals(Object)} to determine equality.
+ * {@link Object#equals(Object)} to determine equality.  Primitive streams use
+ * a {@link HashIndex} of their values, rather than a set of boxed values.
  *
  * @since 1.8
  */
@@ -180,4 +181,326 @@ final class DistinctOps {
             }
         };
     }
+
+    /**
+     * Appends a "distinct" operation to the provided stream, and returns the
+     * new stream.
+     *
+     * @param upstream an int stream
+     * @return the new stream
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream) {
+        return new IntPipeline.StatefulOp<Integer>(upstream, StreamShape.INT_VALUE,
+                                                   StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            <P_IN> Node<Integer> reduce(PipelineHelper<Integer> helper, Spliterator<P_IN> spliterator) {
+                // The index keeps keys in order of first addition, so the following
+                // preserves encounter order, and so any sort order
+                TerminalOp<Integer, HashIndex.OfInt> reduceOp
+                        = ReduceOps.<HashIndex.OfInt>makeInt(HashIndex.OfInt::new, HashIndex.OfInt::add,
+                                                             HashIndex.OfInt::addAll);
+                return Nodes.node(reduceOp.evaluateParallel(helper, spliterator).toArray());
+            }
+
+            @Override
+            <P_IN> Node<Integer> opEvaluateParallel(PipelineHelper<Integer> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<Integer[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                else {
+                    return reduce(helper, spliterator);
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<Integer> opEvaluateParallelLazy(PipelineHelper<Integer> helper,
+                                                               Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.wrapSpliterator(spliterator);
+                }
+                else {
+                    // Not lazy, barrier required
+                    return reduce(helper, spliterator).spliterator();
+                }
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        boolean seen;
+                        int lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = false;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (!seen || t != lastSeen) {
+                                seen = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        HashIndex.OfInt seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new HashIndex.OfInt();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (seen.add(t) >= 0)
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream, and returns the
+     * new stream.
+     *
+     * @param upstream a long stream
+     * @return the new stream
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream) {
+        return new LongPipeline.StatefulOp<Long>(upstream, StreamShape.LONG_VALUE,
+                                                 StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            <P_IN> Node<Long> reduce(PipelineHelper<Long> helper, Spliterator<P_IN> spliterator) {
+                // The index keeps keys in order of first addition, so the following
+                // preserves encounter order, and so any sort order
+                TerminalOp<Long, HashIndex.OfLong> reduceOp
+                        = ReduceOps.<HashIndex.OfLong>makeLong(HashIndex.OfLong::new, HashIndex.OfLong::add,
+                                                               HashIndex.OfLong::addAll);
+                return Nodes.node(reduceOp.evaluateParallel(helper, spliterator).toArray());
+            }
+
+            @Override
+            <P_IN> Node<Long> opEvaluateParallel(PipelineHelper<Long> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<Long[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                else {
+                    return reduce(helper, spliterator);
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<Long> opEvaluateParallelLazy(PipelineHelper<Long> helper,
+                                                            Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.wrapSpliterator(spliterator);
+                }
+                else {
+                    // Not lazy, barrier required
+                    return reduce(helper, spliterator).spliterator();
+                }
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        boolean seen;
+                        long lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = false;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (!seen || t != lastSeen) {
+                                seen = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        HashIndex.OfLong seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new HashIndex.OfLong();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (seen.add(t) >= 0)
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream, and returns the
+     * new stream.  Values are compared by their
+     * {@link Double#doubleToLongBits bits}, consistently with
+     * {@link Double#equals}.
+     *
+     * @param upstream a double stream
+     * @return the new stream
+     */
+    static DoubleStream makeDouble(AbstractPipeline<?, Double, ?> upstream) {
+        return new DoublePipeline.StatefulOp<Double>(upstream, StreamShape.DOUBLE_VALUE,
+                                                     StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            <P_IN> Node<Double> reduce(PipelineHelper<Double> helper, Spliterator<P_IN> spliterator) {
+                // The index keeps keys in order of first addition, so the following
+                // preserves encounter order, and so any sort order
+                TerminalOp<Double, HashIndex.OfLong> reduceOp
+                        = ReduceOps.<HashIndex.OfLong>makeDouble(HashIndex.OfLong::new,
+                                                                 (s, t) -> s.add(Double.doubleToLongBits(t)),
+                                                                 HashIndex.OfLong::addAll);
+                return Nodes.node(toDoubles(reduceOp.evaluateParallel(helper, spliterator)));
+            }
+
+            @Override
+            <P_IN> Node<Double> opEvaluateParallel(PipelineHelper<Double> helper,
+                                                   Spliterator<P_IN> spliterator,
+                                                   IntFunction<Double[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                else {
+                    return reduce(helper, spliterator);
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<Double> opEvaluateParallelLazy(PipelineHelper<Double> helper,
+                                                              Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.wrapSpliterator(spliterator);
+                }
+                else {
+                    // Not lazy, barrier required
+                    return reduce(helper, spliterator).spliterator();
+                }
+            }
+
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<Double> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedDouble<Double>(sink) {
+                        boolean seen;
+                        double lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = false;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(double t) {
+                            if (!seen || Double.doubleToLongBits(t) != Double.doubleToLongBits(lastSeen)) {
+                                seen = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedDouble<Double>(sink) {
+                        HashIndex.OfLong seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new HashIndex.OfLong();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(double t) {
+                            if (seen.add(Double.doubleToLongBits(t)) >= 0)
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    private static double[] toDoubles(HashIndex.OfLong bits) {
+        double[] a = new double[bits.size()];
+        for (int i = 0; i < a.length; i++)
+            a[i] = Double.longBitsToDouble(bits.keys[i]);
+        return a;
+    }
 }
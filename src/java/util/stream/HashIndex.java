@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressed hash indexes of primitive keys, used to implement
+ * distinct and grouping operations on primitive keys without boxing.
+ *
+ * <p>An index assigns each distinct key added to it a dense index, in
+ * order of first addition, so that keys, and any values kept by the
+ * caller in parallel arrays, can be traversed in encounter order.
+ * The hash table holds only {@code index + 1}, with {@code 0} for an
+ * empty slot, and is kept at most half full, using linear probing.
+ *
+ * @since 1.8
+ */
+final class HashIndex {
+
+    private HashIndex() { }
+
+    /** Initial number of keys; a power of two. */
+    static final int INITIAL_CAPACITY = 16;
+
+    /** Maximum number of keys; the table is twice as large. */
+    static final int MAX_CAPACITY = 1 << 29;
+
+    static int hash(int k) {
+        int h = k * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int hash(long k) {
+        return hash((int) (k ^ (k >>> 32)));
+    }
+
+    /**
+     * Returns a {@code HashMap} with room for n mappings.
+     */
+    static <K, V> HashMap<K, V> newHashMap(int n) {
+        return new HashMap<>(Math.max((int) (n / .75f) + 1, 16));
+    }
+
+    /**
+     * An index of {@code int} keys.
+     */
+    static final class OfInt {
+        int[] keys = new int[INITIAL_CAPACITY];
+        int size;
+        int[] slots = new int[INITIAL_CAPACITY << 1];
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Adds the key if absent.
+         *
+         * @return the index of the added key, or the complement
+         *         ({@code ~index}) of the index of the key if present
+         */
+        int add(int k) {
+            int[] s = slots;
+            int m = s.length - 1;
+            int j = hash(k) & m;
+            for (int x; (x = s[j]) != 0; j = (j + 1) & m)
+                if (keys[x - 1] == k)
+                    return ~(x - 1);
+            int i = size;
+            if (i == keys.length) {
+                grow();
+                s = slots;
+                m = s.length - 1;
+                for (j = hash(k) & m; s[j] != 0; j = (j + 1) & m) { }
+            }
+            keys[i] = k;
+            s[j] = i + 1;
+            size = i + 1;
+            return i;
+        }
+
+        /**
+         * Adds the keys of other absent from this index, in order.
+         */
+        OfInt addAll(OfInt other) {
+            for (int i = 0; i < other.size; i++)
+                add(other.keys[i]);
+            return this;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(keys, size);
+        }
+
+        private void grow() {
+            int n = keys.length;
+            if (n >= MAX_CAPACITY)
+                throw new IllegalArgumentException(Nodes.BAD_SIZE);
+            keys = Arrays.copyOf(keys, n << 1);
+            int[] s = new int[n << 2];
+            int m = s.length - 1;
+            for (int i = 0; i < size; i++) {
+                int j = hash(keys[i]) & m;
+                while (s[j] != 0)
+                    j = (j + 1) & m;
+                s[j] = i + 1;
+            }
+            slots = s;
+        }
+    }
+
+    /**
+     * An index of {@code long} keys.
+     */
+    static final class OfLong {
+        long[] keys = new long[INITIAL_CAPACITY];
+        int size;
+        int[] slots = new int[INITIAL_CAPACITY << 1];
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Adds the key if absent.
+         *
+         * @return the index of the added key, or the complement
+         *         ({@code ~index}) of the index of the key if present
+         */
+        int add(long k) {
+            int[] s = slots;
+            int m = s.length - 1;
+            int j = hash(k) & m;
+            for (int x; (x = s[j]) != 0; j = (j + 1) & m)
+                if (keys[x - 1] == k)
+                    return ~(x - 1);
+            int i = size;
+            if (i == keys.length) {
+                grow();
+                s = slots;
+                m = s.length - 1;
+                for (j = hash(k) & m; s[j] != 0; j = (j + 1) & m) { }
+            }
+            keys[i] = k;
+            s[j] = i + 1;
+            size = i + 1;
+            return i;
+        }
+
+        /**
+         * Adds the keys of other absent from this index, in order.
+         */
+        OfLong addAll(OfLong other) {
+            for (int i = 0; i < other.size; i++)
+                add(other.keys[i]);
+            return this;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(keys, size);
+        }
+
+        private void grow() {
+            int n = keys.length;
+            if (n >= MAX_CAPACITY)
+                throw new IllegalArgumentException(Nodes.BAD_SIZE);
+            keys = Arrays.copyOf(keys, n << 1);
+            int[] s = new int[n << 2];
+            int m = s.length - 1;
+            for (int i = 0; i < size; i++) {
+                int j = hash(keys[i]) & m;
+                while (s[j] != 0)
+                    j = (j + 1) & m;
+                s[j] = i + 1;
+            }
+            slots = s;
+        }
+    }
+
+    /**
+     * Counts of {@code int} keys.
+     */
+    static final class IntCounts {
+        final OfInt index = new OfInt();
+        long[] counts = new long[INITIAL_CAPACITY];
+
+        void add(int k) {
+            add(k, 1L);
+        }
+
+        void add(int k, long n) {
+            int i = index.add(k);
+            if (i < 0)
+                counts[~i] += n;
+            else {
+                if (i == counts.length)
+                    counts = Arrays.copyOf(counts, index.keys.length);
+                counts[i] = n;
+            }
+        }
+
+        IntCounts addAll(IntCounts other) {
+            for (int i = 0; i < other.index.size; i++)
+                add(other.index.keys[i], other.counts[i]);
+            return this;
+        }
+
+        Map<Integer, Long> toMap() {
+            int n = index.size;
+            HashMap<Integer, Long> map = newHashMap(n);
+            for (int i = 0; i < n; i++)
+                map.put(index.keys[i], counts[i]);
+            return map;
+        }
+    }
+
+    /**
+     * Counts of {@code long} keys.
+     */
+    static final class LongCounts {
+        final OfLong index = new OfLong();
+        long[] counts = new long[INITIAL_CAPACITY];
+
+        void add(long k) {
+            add(k, 1L);
+        }
+
+        void add(long k, long n) {
+            int i = index.add(k);
+            if (i < 0)
+                counts[~i] += n;
+            else {
+                if (i == counts.length)
+                    counts = Arrays.copyOf(counts, index.keys.length);
+                counts[i] = n;
+            }
+        }
+
+        LongCounts addAll(LongCounts other) {
+            for (int i = 0; i < other.index.size; i++)
+                add(other.index.keys[i], other.counts[i]);
+            return this;
+        }
+
+        Map<Long, Long> toMap() {
+            int n = index.size;
+            HashMap<Long, Long> map = newHashMap(n);
+            for (int i = 0; i < n; i++)
+                map.put(index.keys[i], counts[i]);
+            return map;
+        }
+    }
+
+    /**
+     * A map from {@code int} keys to values.
+     *
+     * @param <V> the type of values
+     */
+    static final class IntTable<V> {
+        final OfInt index = new OfInt();
+        Object[] values = new Object[INITIAL_CAPACITY];
+
+        /**
+         * Returns the value for the key, creating it if absent.
+         */
+        @SuppressWarnings("unchecked")
+        V computeIfAbsent(int k, IntFunction<? extends V> factory) {
+            int i = index.add(k);
+            if (i < 0)
+                return (V) values[~i];
+            if (i == values.length)
+                values = Arrays.copyOf(values, index.keys.length);
+            V v = factory.apply(k);
+            values[i] = v;
+            return v;
+        }
+
+        /**
+         * Associates the key with the value if absent, else with the
+         * result of applying f to the present value and the value.
+         */
+        @SuppressWarnings("unchecked")
+        void merge(int k, V v, BinaryOperator<V> f) {
+            int i = index.add(k);
+            if (i < 0)
+                values[~i] = f.apply((V) values[~i], v);
+            else {
+                if (i == values.length)
+                    values = Arrays.copyOf(values, index.keys.length);
+                values[i] = v;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int i) {
+            return (V) values[i];
+        }
+    }
+
+    /**
+     * A map from {@code long} keys to values.
+     *
+     * @param <V> the type of values
+     */
+    static final class LongTable<V> {
+        final OfLong index = new OfLong();
+        Object[] values = new Object[INITIAL_CAPACITY];
+
+        /**
+         * Returns the value for the key, creating it if absent.
+         */
+        @SuppressWarnings("unchecked")
+        V computeIfAbsent(long k, LongFunction<? extends V> factory) {
+            int i = index.add(k);
+            if (i < 0)
+                return (V) values[~i];
+            if (i == values.length)
+                values = Arrays.copyOf(values, index.keys.length);
+            V v = factory.apply(k);
+            values[i] = v;
+            return v;
+        }
+
+        /**
+         * Associates the key with the value if absent, else with the
+         * result of applying f to the present value and the value.
+         */
+        @SuppressWarnings("unchecked")
+        void merge(long k, V v, BinaryOperator<V> f) {
+            int i = index.add(k);
+            if (i < 0)
+                values[~i] = f.apply((V) values[~i], v);
+            else {
+                if (i == values.length)
+                    values = Arrays.copyOf(values, index.keys.length);
+                values[i] = v;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int i) {
+            return (V) values[i];
+        }
+    }
+}
@@ -26,6 +26,7 @@ package java.util.stream;
 
 import java.util.Arrays;
 import java.util.IntSummaryStatistics;
+import java.util.Map;
 import java.util.Objects;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
@@ -508,6 +509,34 @@ public interface IntStream extends BaseStream<Integer, IntStream> {
      */
     long count();
 
+    /**
+     * Returns a map from each distinct element of this stream to the number
+     * of times it occurs in this stream.  This is a special case of
+     * a <a href="package-summary.html#MutableReduction">mutable reduction</a>
+     * and is equivalent to:
+     * <pre>{@code
+     *     return boxed().collect(Collectors.groupingBy(e -> e, Collectors.counting()));
+     * }</pre>
+     * but boxes each distinct element and its count only once, when building
+     * the map, rather than once per element.
+     *
+     * <p>There are no guarantees on the type, mutability, serializability,
+     * or thread-safety of the {@code Map} returned.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal operation</a>.
+     *
+     * @implSpec
+     * The default implementation counts elements with {@link #collect}, in
+     * {@code int} and {@code long} arrays indexed by an open-addressed hash table.
+     *
+     * @return a map from the distinct elements of this stream to their number
+     *         of occurrences
+     * @since 1.8
+     */
+    default Map<Integer, Long> countByValue() {
+        return collect(HashIndex.IntCounts::new, HashIndex.IntCounts::add, HashIndex.IntCounts::addAll).toMap();
+    }
+
     /**
      * Returns an {@code OptionalDouble} describing the arithmetic mean of elements of
      * this stream, or an empty optional if this stream is empty.  This is a
@@ -30,6 +30,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LongSummaryStatistics;
+import java.util.Map;
 import java.util.Objects;
 import java.util.OptionalDouble;
 import java.util.OptionalLong;
@@ -513,6 +514,34 @@ public interface LongStream extends BaseStream<Long, LongStream> {
      */
     long count();
 
+    /**
+     * Returns a map from each distinct element of this stream to the number
+     * of times it occurs in this stream.  This is a special case of
+     * a <a href="package-summary.html#MutableReduction">mutable reduction</a>
+     * and is equivalent to:
+     * <pre>{@code
+     *     return boxed().collect(Collectors.groupingBy(e -> e, Collectors.counting()));
+     * }</pre>
+     * but boxes each distinct element and its count only once, when building
+     * the map, rather than once per element.
+     *
+     * <p>There are no guarantees on the type, mutability, serializability,
+     * or thread-safety of the {@code Map} returned.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal operation</a>.
+     *
+     * @implSpec
+     * The default implementation counts elements with {@link #collect}, in
+     * {@code long} and {@code long} arrays indexed by an open-addressed hash table.
+     *
+     * @return a map from the distinct elements of this stream to their number
+     *         of occurrences
+     * @since 1.8
+     */
+    default Map<Long, Long> countByValue() {
+        return collect(HashIndex.LongCounts::new, HashIndex.LongCounts::add, HashIndex.LongCounts::addAll).toMap();
+    }
+
     /**
      * Returns an {@code OptionalDouble} describing the arithmetic mean of elements of
      * this stream, or an empty optional if this stream is empty.  This is a
@@ -394,6 +394,16 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> sortedByInt(ToIntFunction<? super P_OUT> keyExtractor) {
+        return SortedOps.makeRefByInt(this, keyExtractor);
+    }
+
+    @Override
+    public final Stream<P_OUT> sortedByLong(ToLongFunction<? super P_OUT> keyExtractor) {
+        return SortedOps.makeRefByLong(this, keyExtractor);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
@@ -30,6 +30,8 @@ import java.util.Comparator;
 import java.util.Objects;
 import java.util.Spliterator;
 import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 
 /**
@@ -63,6 +65,32 @@ final class SortedOps {
         return new OfRef<>(upstream, comparator);
     }
 
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param keyExtractor the function extracting the int key to order
+     *        elements by
+     */
+    static <T> Stream<T> makeRefByInt(AbstractPipeline<?, T, ?> upstream,
+                                      ToIntFunction<? super T> keyExtractor) {
+        return new OfRefByKey<>(upstream, Objects.requireNonNull(keyExtractor), null);
+    }
+
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param keyExtractor the function extracting the long key to order
+     *        elements by
+     */
+    static <T> Stream<T> makeRefByLong(AbstractPipeline<?, T, ?> upstream,
+                                       ToLongFunction<? super T> keyExtractor) {
+        return new OfRefByKey<>(upstream, null, Objects.requireNonNull(keyExtractor));
+    }
+
     /**
      * Appends a "sorted" operation to the provided stream.
      *
@@ -161,6 +189,108 @@ final class SortedOps {
         }
     }
 
+    /**
+     * Specialized subtype for sorting reference streams by primitive keys.
+     * The key of each element is extracted once.  Int keys are packed with
+     * the positions of their elements into longs, which order by key and
+     * then by position, and so sort stably as primitives.  Long keys cannot
+     * be packed, so positions are merge sorted by their keys instead.
+     */
+    private static final class OfRefByKey<T> extends ReferencePipeline.StatefulOp<T, T> {
+        /** Extracts int keys, or null if sorting by long keys */
+        private final ToIntFunction<? super T> intKey;
+        /** Extracts long keys, or null if sorting by int keys */
+        private final ToLongFunction<? super T> longKey;
+
+        OfRefByKey(AbstractPipeline<?, T, ?> upstream,
+                   ToIntFunction<? super T> intKey, ToLongFunction<? super T> longKey) {
+            super(upstream, StreamShape.REFERENCE,
+                  StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED);
+            this.intKey = intKey;
+            this.longKey = longKey;
+        }
+
+        @Override
+        public Sink<T> opWrapSink(int flags, Sink<T> sink) {
+            Objects.requireNonNull(sink);
+            return new RefKeySortingSink<>(sink, this);
+        }
+
+        @Override
+        public <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<T[]> generator) {
+            T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
+            sort(flattenedData, true);
+            return Nodes.node(flattenedData);
+        }
+
+        /**
+         * Sorts the array in place by key, stably.
+         */
+        @SuppressWarnings("unchecked")
+        void sort(Object[] a, boolean parallel) {
+            int n = a.length;
+            Object[] sorted = new Object[n];
+            if (intKey != null) {
+                long[] packed = new long[n];
+                for (int i = 0; i < n; i++)
+                    packed[i] = ((long) intKey.applyAsInt((T) a[i]) << 32) | i;
+                if (parallel)
+                    Arrays.parallelSort(packed);
+                else
+                    Arrays.sort(packed);
+                for (int i = 0; i < n; i++)
+                    sorted[i] = a[(int) packed[i]];
+            }
+            else {
+                long[] keys = new long[n];
+                int[] order = new int[n];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = longKey.applyAsLong((T) a[i]);
+                    order[i] = i;
+                }
+                mergeSort(order, new int[n], keys, 0, n);
+                for (int i = 0; i < n; i++)
+                    sorted[i] = a[order[i]];
+            }
+            System.arraycopy(sorted, 0, a, 0, n);
+        }
+
+        /**
+         * Stably sorts positions a[lo, hi) by their keys, using tmp as
+         * scratch space.
+         */
+        private static void mergeSort(int[] a, int[] tmp, long[] keys, int lo, int hi) {
+            if (hi - lo <= INSERTION_SORT_THRESHOLD) {
+                for (int i = lo + 1; i < hi; i++) {
+                    int x = a[i];
+                    long k = keys[x];
+                    int j = i - 1;
+                    for (; j >= lo && keys[a[j]] > k; j--)
+                        a[j + 1] = a[j];
+                    a[j + 1] = x;
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            mergeSort(a, tmp, keys, lo, mid);
+            mergeSort(a, tmp, keys, mid, hi);
+            if (keys[a[mid - 1]] <= keys[a[mid]])
+                return;                   // already in order
+            System.arraycopy(a, lo, tmp, lo, hi - lo);
+            for (int i = lo, j = mid, k = lo; k < hi; k++) {
+                if (j >= hi || (i < mid && keys[tmp[i]] <= keys[tmp[j]]))
+                    a[k] = tmp[i++];
+                else
+                    a[k] = tmp[j++];
+            }
+        }
+
+        /** Runs no longer than this are insertion sorted */
+        private static final int INSERTION_SORT_THRESHOLD = 32;
+    }
+
     /**
      * Specialized subtype for sorting int streams.
      */
@@ -405,6 +535,65 @@ final class SortedOps {
         }
     }
 
+    /**
+     * {@link Sink} for implementing sort on reference streams by primitive keys.
+     */
+    private static final class RefKeySortingSink<T> extends Sink.ChainedReference<T, T> {
+        private final OfRefByKey<T> op;
+        private ArrayList<T> list;
+        // @@@ could be a lazy final value, if/when support is added
+        private boolean cancellationWasRequested;
+
+        RefKeySortingSink(Sink<? super T> sink, OfRefByKey<T> op) {
+            super(sink);
+            this.op = op;
+        }
+
+        @Override
+        public void begin(long size) {
+            if (size >= Nodes.MAX_ARRAY_SIZE)
+                throw new IllegalArgumentException(Nodes.BAD_SIZE);
+            list = (size >= 0) ? new ArrayList<T>((int) size) : new ArrayList<T>();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void end() {
+            Object[] array = list.toArray();
+            list = null;
+            op.sort(array, false);
+            downstream.begin(array.length);
+            if (!cancellationWasRequested) {
+                for (Object t : array)
+                    downstream.accept((T) t);
+            }
+            else {
+                for (Object t : array) {
+                    if (downstream.cancellationRequested()) break;
+                    downstream.accept((T) t);
+                }
+            }
+            downstream.end();
+        }
+
+        @Override
+        public void accept(T t) {
+            list.add(t);
+        }
+
+        /**
+         * Records is cancellation is requested so short-circuiting behaviour
+         * can be preserved when the sorted elements are pushed downstream.
+         *
+         * @return false, as this sink never short-circuits.
+         */
+        @Override
+        public boolean cancellationRequested() {
+            cancellationWasRequested = true;
+            return false;
+        }
+    }
+
     /**
      * Abstract {@link Sink} for implementing sort on int streams.
      */
@@ -391,6 +391,68 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the {@code int} keys extracted by the provided function.
+     * This is equivalent to {@code sorted(Comparator.comparingInt(keyExtractor))},
+     * except that the key of each element is extracted only once.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation returns
+     * {@code sorted(Comparator.comparingInt(keyExtractor))}.
+     *
+     * @implNote
+     * The implementation in this package sorts the keys as primitive
+     * values, each paired with the position of its element, instead of
+     * comparing elements with a {@code Comparator}.
+     *
+     * @param keyExtractor a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                     <a href="package-summary.html#Statelessness">stateless</a>
+     *                     function extracting the sort key of an element
+     * @return the new stream
+     * @since 1.8
+     */
+    default Stream<T> sortedByInt(ToIntFunction<? super T> keyExtractor) {
+        return sorted(Comparator.comparingInt(keyExtractor));
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the {@code long} keys extracted by the provided function.
+     * This is equivalent to {@code sorted(Comparator.comparingLong(keyExtractor))},
+     * except that the key of each element is extracted only once.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation returns
+     * {@code sorted(Comparator.comparingLong(keyExtractor))}.
+     *
+     * @implNote
+     * The implementation in this package sorts the keys as primitive
+     * values, along with the positions of their elements, instead of
+     * comparing elements with a {@code Comparator}.
+     *
+     * @param keyExtractor a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                     <a href="package-summary.html#Statelessness">stateless</a>
+     *                     function extracting the sort key of an element
+     * @return the new stream
+     * @since 1.8
+     */
+    default Stream<T> sortedByLong(ToLongFunction<? super T> keyExtractor) {
+        return sorted(Comparator.comparingLong(keyExtractor));
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
@@ -260,6 +260,52 @@ public class ManagementFactoryHelper {
         };
     }
 
+    /**
+     * Returns the management interfaces of the executors that currently
+     * have metrics enabled.
+     */
+    public static List<ExecutorMXBean> getExecutorMXBeans() {
+        return new ArrayList<ExecutorMXBean>(
+            java.util.concurrent.ExecutorMetrics.getAllMetrics());
+    }
+
+    /**
+     * Registers an executor's management interface in the platform
+     * MBeanServer, unless already registered when the MBeanServer was
+     * created.
+     */
+    public static void registerExecutorMXBean(final ExecutorMXBean mbean) {
+        final MBeanServer mbs = getPlatformMBeanServer();
+        try {
+            AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
+                public Void run() throws MBeanRegistrationException,
+                                         NotCompliantMBeanException {
+                    ObjectName on = mbean.getObjectName();
+                    if (mbs.isRegistered(on))
+                        return null;    // registered by getPlatformMBeanServer
+                    try {
+                        mbs.registerMBean(new javax.management.StandardMBean(
+                                              mbean, ExecutorMXBean.class, true),
+                                          on);
+                    } catch (InstanceAlreadyExistsException e) {
+                        // lost a race with getPlatformMBeanServer
+                    }
+                    return null;
+                }
+            });
+        } catch (PrivilegedActionException e) {
+            throw Util.newException(e.getException());
+        }
+    }
+
+    /**
+     * Unregisters an executor's management interface from the platform
+     * MBeanServer.
+     */
+    public static void unregisterExecutorMXBean(ExecutorMXBean mbean) {
+        unregisterMBean(getPlatformMBeanServer(), mbean.getObjectName().toString());
+    }
+
     private static HotSpotDiagnostic hsDiagMBean = null;
     private static HotspotRuntime hsRuntimeMBean = null;
     private static HotspotClassLoading hsClassMBean = null;